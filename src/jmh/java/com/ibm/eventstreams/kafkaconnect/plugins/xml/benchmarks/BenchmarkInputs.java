@@ -0,0 +1,179 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.kafka.connect.storage.ConverterType;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+
+/**
+ * Documents and schemas used as inputs for the benchmarks.
+ *
+ * Benchmarks have an "input" parameter, which is either:
+ *
+ *   "corpus" - every test case in src/test/resources with both an XSD
+ *    schema and an XML document, processed together as a single operation
+ *
+ *   "synthetic-N" - a generated document containing N repeated items,
+ *    for measuring how performance scales with the size of messages
+ *
+ * Benchmarks must be run from the project directory, so that the test
+ *  resources can be found.
+ */
+public final class BenchmarkInputs {
+
+    public static final String CORPUS = "corpus";
+    public static final String SYNTHETIC_PREFIX = "synthetic-";
+
+    private static final File TEST_RESOURCES = new File("./src/test/resources");
+    private static final Pattern TEST_CASE_SCHEMA = Pattern.compile("([0-9]{3})\\.xsd");
+
+
+    /** an XML document, and the XSD schema that describes it */
+    public static final class Fixture {
+        public final String id;
+        public final File xsd;
+        public final byte[] xml;
+
+        Fixture(String id, File xsd, byte[] xml) {
+            this.id = id;
+            this.xsd = xsd;
+            this.xml = xml;
+        }
+    }
+
+
+    private BenchmarkInputs() {}
+
+
+    public static List<Fixture> load(String input) throws IOException {
+        if (CORPUS.equals(input)) {
+            return corpus();
+        }
+        if (input.startsWith(SYNTHETIC_PREFIX)) {
+            final int items = Integer.parseInt(input.substring(SYNTHETIC_PREFIX.length()));
+            return List.of(synthetic(items));
+        }
+        throw new IllegalArgumentException("Unrecognised benchmark input " + input);
+    }
+
+
+    /**
+     * Config for parsing the fixture using its XSD schema.
+     */
+    public static Map<String, String> schemaProps(Fixture fixture, String parser) {
+        final Map<String, String> props = new HashMap<>();
+        props.put(XmlPluginsConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        props.put(XmlPluginsConfig.SCHEMAS_ENABLE_CONFIG, "true");
+        props.put(XmlPluginsConfig.XML_SCHEMA_EXTERNAL_PATH_CONFIG, fixture.xsd.getAbsolutePath());
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, parser);
+        return props;
+    }
+
+    /**
+     * Config for converting with or without schemas, but without an XSD.
+     */
+    public static Map<String, String> props(boolean schemasEnabled) {
+        final Map<String, String> props = new HashMap<>();
+        props.put(XmlPluginsConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        props.put(XmlPluginsConfig.SCHEMAS_ENABLE_CONFIG, Boolean.toString(schemasEnabled));
+        return props;
+    }
+
+
+    private static List<Fixture> corpus() throws IOException {
+        final String[] filenames = TEST_RESOURCES.list();
+        if (filenames == null) {
+            throw new IllegalStateException("Test resources not found in " + TEST_RESOURCES.getAbsolutePath() +
+                                            " - benchmarks need to be run from the project directory");
+        }
+        Arrays.sort(filenames);
+
+        final List<Fixture> fixtures = new ArrayList<>();
+        for (final String filename : filenames) {
+            final Matcher matcher = TEST_CASE_SCHEMA.matcher(filename);
+            if (matcher.matches()) {
+                final String id = matcher.group(1);
+                final File xml = new File(TEST_RESOURCES, id + ".xml");
+                if (xml.isFile()) {
+                    fixtures.add(new Fixture(id, new File(TEST_RESOURCES, filename), Files.readAllBytes(xml.toPath())));
+                }
+            }
+        }
+        return fixtures;
+    }
+
+
+    private static Fixture synthetic(int items) throws IOException {
+        final Path dir = Files.createTempDirectory("xml-benchmark");
+        dir.toFile().deleteOnExit();
+
+        final File xsd = dir.resolve("synthetic.xsd").toFile();
+        xsd.deleteOnExit();
+        Files.write(xsd.toPath(), SYNTHETIC_SCHEMA.getBytes(UTF_8));
+
+        final StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        xml.append("<root>\n");
+        for (int i = 0; i < items; i++) {
+            xml.append("  <item id=\"").append(i).append("\">\n");
+            xml.append("    <name>Item number ").append(i).append("</name>\n");
+            xml.append("    <count>").append(i % 1000).append("</count>\n");
+            xml.append("    <price>").append(i * 0.25).append("</price>\n");
+            xml.append("    <active>").append(i % 2 == 0).append("</active>\n");
+            xml.append("  </item>\n");
+        }
+        xml.append("</root>\n");
+
+        return new Fixture(SYNTHETIC_PREFIX + items, xsd, xml.toString().getBytes(UTF_8));
+    }
+
+    private static final String SYNTHETIC_SCHEMA =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+        "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">\n" +
+        "  <xs:element name=\"root\">\n" +
+        "    <xs:complexType>\n" +
+        "      <xs:sequence>\n" +
+        "        <xs:element name=\"item\" maxOccurs=\"unbounded\">\n" +
+        "          <xs:complexType>\n" +
+        "            <xs:sequence>\n" +
+        "              <xs:element name=\"name\" type=\"xs:string\"/>\n" +
+        "              <xs:element name=\"count\" type=\"xs:int\"/>\n" +
+        "              <xs:element name=\"price\" type=\"xs:double\"/>\n" +
+        "              <xs:element name=\"active\" type=\"xs:boolean\"/>\n" +
+        "            </xs:sequence>\n" +
+        "            <xs:attribute name=\"id\" type=\"xs:long\"/>\n" +
+        "          </xs:complexType>\n" +
+        "        </xs:element>\n" +
+        "      </xs:sequence>\n" +
+        "    </xs:complexType>\n" +
+        "  </xs:element>\n" +
+        "</xs:schema>\n";
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.CollectionToXmlBytes;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct;
+
+/**
+ * Writing Maps as XML documents.
+ *
+ * The Maps are created by parsing the benchmark input documents
+ *  without schemas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectionToXmlBytesBenchmark {
+
+    @Param({ "corpus", "synthetic-10", "synthetic-1000", "synthetic-10000" })
+    public String input;
+
+    private CollectionToXmlBytes converter;
+    private Map<?, ?>[] maps;
+
+
+    @Setup
+    public void setup() throws IOException {
+        final XmlPluginsConfig config = new XmlPluginsConfig(BenchmarkInputs.props(false));
+        final XmlBytesToStruct parser = new XmlBytesToStruct(config);
+        converter = new CollectionToXmlBytes(config);
+
+        final List<Map<?, ?>> usableMaps = new ArrayList<>();
+        for (final BenchmarkInputs.Fixture fixture : BenchmarkInputs.load(input)) {
+            try {
+                final Map<?, ?> map = (Map<?, ?>) parser.convert(fixture.xml).value();
+                converter.convert(null, map);
+
+                usableMaps.add(map);
+            }
+            catch (final RuntimeException e) {
+                // test cases for invalid documents, or with a different root element
+            }
+        }
+        maps = usableMaps.toArray(new Map<?, ?>[0]);
+    }
+
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        for (final Map<?, ?> map : maps) {
+            blackhole.consume(converter.convert(null, map));
+        }
+    }
+}
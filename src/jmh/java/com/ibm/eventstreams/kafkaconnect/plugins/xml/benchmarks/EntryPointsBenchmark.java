@@ -0,0 +1,148 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlConverter;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlTransformation;
+
+/**
+ * Converting records using the converter and transformation plugins,
+ *  as Kafka Connect would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntryPointsBenchmark {
+
+    private static final String TOPIC = "TOPIC";
+
+    @Param({ "corpus", "synthetic-10", "synthetic-1000", "synthetic-10000" })
+    public String input;
+
+    @Param({ XmlPluginsConfig.XML_PARSER_XSTREAM, XmlPluginsConfig.XML_PARSER_STAX })
+    public String parser;
+
+    private XmlConverter[] converters;
+    private XmlTransformation<SourceRecord>[] transformations;
+    private byte[][] documents;
+    private SchemaAndValue[] structs;
+    private SourceRecord[] xmlRecords;
+    private SourceRecord[] structRecords;
+
+
+    @Setup
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public void setup() throws IOException {
+        final List<XmlConverter> usableConverters = new ArrayList<>();
+        final List<XmlTransformation<SourceRecord>> usableTransformations = new ArrayList<>();
+        final List<byte[]> usableDocuments = new ArrayList<>();
+        final List<SchemaAndValue> usableStructs = new ArrayList<>();
+
+        for (final BenchmarkInputs.Fixture fixture : BenchmarkInputs.load(input)) {
+            final Map<String, String> props = BenchmarkInputs.schemaProps(fixture, parser);
+            try {
+                final XmlConverter converter = new XmlConverter();
+                converter.configure(props, false);
+                final SchemaAndValue struct = converter.toConnectData(TOPIC, fixture.xml);
+                converter.fromConnectData(TOPIC, struct.schema(), struct.value());
+
+                final XmlTransformation<SourceRecord> transformation = new XmlTransformation<>();
+                transformation.configure(props);
+                transformation.apply(record(null, fixture.xml));
+                transformation.apply(record(struct.schema(), struct.value()));
+
+                usableConverters.add(converter);
+                usableTransformations.add(transformation);
+                usableDocuments.add(fixture.xml);
+                usableStructs.add(struct);
+            }
+            catch (final RuntimeException e) {
+                // test cases for invalid documents or unsupported schemas
+            }
+        }
+
+        converters = usableConverters.toArray(new XmlConverter[0]);
+        transformations = usableTransformations.toArray(new XmlTransformation[0]);
+        documents = usableDocuments.toArray(new byte[0][]);
+        structs = usableStructs.toArray(new SchemaAndValue[0]);
+
+        xmlRecords = new SourceRecord[documents.length];
+        structRecords = new SourceRecord[structs.length];
+        for (int i = 0; i < documents.length; i++) {
+            xmlRecords[i] = record(null, documents[i]);
+            structRecords[i] = record(structs[i].schema(), structs[i].value());
+        }
+    }
+
+    private static SourceRecord record(Schema schema, Object value) {
+        return new SourceRecord(null, null, TOPIC, schema, value);
+    }
+
+
+    @Benchmark
+    public void converterToConnectData(Blackhole blackhole) {
+        for (int i = 0; i < documents.length; i++) {
+            blackhole.consume(converters[i].toConnectData(TOPIC, documents[i]));
+        }
+    }
+
+    @Benchmark
+    public void converterFromConnectData(Blackhole blackhole) {
+        for (int i = 0; i < structs.length; i++) {
+            blackhole.consume(converters[i].fromConnectData(TOPIC, structs[i].schema(), structs[i].value()));
+        }
+    }
+
+    @Benchmark
+    public void transformationFromXml(Blackhole blackhole) {
+        for (int i = 0; i < xmlRecords.length; i++) {
+            blackhole.consume(transformations[i].apply(xmlRecords[i]));
+        }
+    }
+
+    @Benchmark
+    public void transformationToXml(Blackhole blackhole) {
+        for (int i = 0; i < structRecords.length; i++) {
+            blackhole.consume(transformations[i].apply(structRecords[i]));
+        }
+    }
+}
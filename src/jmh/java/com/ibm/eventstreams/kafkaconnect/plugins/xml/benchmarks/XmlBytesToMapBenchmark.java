@@ -0,0 +1,81 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct;
+
+/**
+ * Parsing XML documents into Maps, without schemas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlBytesToMapBenchmark {
+
+    @Param({ "corpus", "synthetic-10", "synthetic-1000", "synthetic-10000" })
+    public String input;
+
+    private XmlBytesToStruct converter;
+    private byte[][] documents;
+
+
+    @Setup
+    public void setup() throws IOException {
+        converter = new XmlBytesToStruct(new XmlPluginsConfig(BenchmarkInputs.props(false)));
+
+        final List<byte[]> usableDocuments = new ArrayList<>();
+        for (final BenchmarkInputs.Fixture fixture : BenchmarkInputs.load(input)) {
+            try {
+                converter.convert(fixture.xml);
+                usableDocuments.add(fixture.xml);
+            }
+            catch (final RuntimeException e) {
+                // test cases for invalid documents, or with a different root element
+            }
+        }
+        documents = usableDocuments.toArray(new byte[0][]);
+    }
+
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        for (final byte[] document : documents) {
+            blackhole.consume(converter.convert(document));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Struct;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.LazyStruct;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct;
+
+/**
+ * Parsing XML documents into Structs, using an XSD schema.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlBytesToStructBenchmark {
+
+    @Param({ "corpus", "synthetic-10", "synthetic-1000", "synthetic-10000" })
+    public String input;
+
+    @Param({ XmlPluginsConfig.XML_PARSER_XSTREAM, XmlPluginsConfig.XML_PARSER_STAX })
+    public String parser;
+
+    @Param({ "false", "true" })
+    public boolean lazyStruct;
+
+    private XmlBytesToStruct[] converters;
+    private byte[][] documents;
+
+
+    @Setup
+    public void setup() throws IOException {
+        final List<XmlBytesToStruct> usableConverters = new ArrayList<>();
+        final List<byte[]> usableDocuments = new ArrayList<>();
+
+        for (final BenchmarkInputs.Fixture fixture : BenchmarkInputs.load(input)) {
+            try {
+                final Map<String, String> props = BenchmarkInputs.schemaProps(fixture, parser);
+                props.put(XmlPluginsConfig.XML_LAZY_STRUCT_CONFIG, Boolean.toString(lazyStruct));
+                final XmlBytesToStruct converter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+                final Object value = converter.convert(fixture.xml).value();
+                if (value instanceof LazyStruct) {
+                    // lazy structs only fail when their fields are read
+                    ((LazyStruct) value).materialize();
+                }
+
+                usableConverters.add(converter);
+                usableDocuments.add(fixture.xml);
+            }
+            catch (final RuntimeException e) {
+                // test cases for invalid documents or unsupported schemas
+            }
+        }
+
+        converters = usableConverters.toArray(new XmlBytesToStruct[0]);
+        documents = usableDocuments.toArray(new byte[0][]);
+    }
+
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        for (int i = 0; i < documents.length; i++) {
+            blackhole.consume(converters[i].convert(documents[i]));
+        }
+    }
+
+    /**
+     * Parsing documents where only one field is read, such as when
+     *  records are routed using a single field.
+     */
+    @Benchmark
+    public void convertAndReadFirstField(Blackhole blackhole) {
+        for (int i = 0; i < documents.length; i++) {
+            final Object value = converters[i].convert(documents[i]).value();
+            if (value instanceof Struct) {
+                final Struct struct = (Struct) value;
+                blackhole.consume(struct.get(struct.schema().fields().get(0)));
+            }
+            else {
+                blackhole.consume(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPredicate;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlTransformation;
+
+/**
+ * Routing records on the content of the XML strings in them, using
+ *  the predicate, compared with parsing them using the transformation
+ *  and reading a field of the structured object.
+ *
+ * Expressions either match the first item in the synthetic documents
+ *  (so the result is known after reading the start of the document),
+ *  or check for an element that doesn't exist (so the whole document
+ *  has to be read).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlPredicateBenchmark {
+
+    private static final String TOPIC = "TOPIC";
+
+    @Param({ "synthetic-10", "synthetic-1000", "synthetic-10000" })
+    public String input;
+
+    @Param({ "/root/item/name = 'Item number 0'", "/root/item/@id != '0'", "/root/missing" })
+    public String expression;
+
+    private XmlPredicate<SourceRecord> predicate;
+    private XmlTransformation<SourceRecord> transformation;
+    private SourceRecord record;
+
+
+    @Setup
+    public void setup() throws IOException {
+        final BenchmarkInputs.Fixture fixture = BenchmarkInputs.load(input).get(0);
+        final Map<String, String> props = BenchmarkInputs.schemaProps(fixture, XmlPluginsConfig.XML_PARSER_STAX);
+        props.put(XmlPluginsConfig.XML_PREDICATE_EXPRESSION_CONFIG, expression);
+
+        predicate = new XmlPredicate<>();
+        predicate.configure(props);
+        transformation = new XmlTransformation<>();
+        transformation.configure(props);
+        record = new SourceRecord(null, null, TOPIC, null, fixture.xml);
+    }
+
+
+    @Benchmark
+    public boolean predicate() {
+        return predicate.test(record);
+    }
+
+    @Benchmark
+    public Object transformationAndReadField() {
+        final Struct struct = (Struct) transformation.apply(record).value();
+        return struct.getArray("item").get(0);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlToJsonBytes;
+
+/**
+ * Converting XML documents into JSON, either by parsing them into
+ *  Connect values for JsonConverter, or directly with XmlToJsonBytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlToJsonBenchmark {
+
+    @Param({ "corpus", "synthetic-10", "synthetic-1000", "synthetic-10000" })
+    public String input;
+
+    /** parse using the XSD schema for each document, or without a schema */
+    @Param({ "true", "false" })
+    public boolean schemasEnabled;
+
+    private XmlBytesToStruct[] parsers;
+    private XmlToJsonBytes[] bridges;
+    private JsonConverter jsonConverter;
+    private byte[][] documents;
+
+
+    @Setup
+    public void setup() throws IOException {
+        final List<XmlBytesToStruct> usableParsers = new ArrayList<>();
+        final List<XmlToJsonBytes> usableBridges = new ArrayList<>();
+        final List<byte[]> usableDocuments = new ArrayList<>();
+
+        for (final BenchmarkInputs.Fixture fixture : BenchmarkInputs.load(input)) {
+            final Map<String, String> props = schemasEnabled ?
+                BenchmarkInputs.schemaProps(fixture, XmlPluginsConfig.XML_PARSER_STAX) :
+                BenchmarkInputs.props(false);
+            try {
+                final XmlPluginsConfig config = new XmlPluginsConfig(props);
+                final XmlBytesToStruct parser = new XmlBytesToStruct(config);
+                final XmlToJsonBytes bridge = new XmlToJsonBytes(config, parser);
+                parser.convert(fixture.xml);
+                bridge.convert(fixture.xml);
+
+                usableParsers.add(parser);
+                usableBridges.add(bridge);
+                usableDocuments.add(fixture.xml);
+            }
+            catch (final RuntimeException e) {
+                // test cases for invalid documents or unsupported schemas
+            }
+        }
+
+        parsers = usableParsers.toArray(new XmlBytesToStruct[0]);
+        bridges = usableBridges.toArray(new XmlToJsonBytes[0]);
+        documents = usableDocuments.toArray(new byte[0][]);
+
+        jsonConverter = new JsonConverter();
+        jsonConverter.configure(Collections.singletonMap("schemas.enable", "false"), false);
+    }
+
+
+    @Benchmark
+    public void twoStage(Blackhole blackhole) {
+        for (int i = 0; i < documents.length; i++) {
+            final SchemaAndValue parsed = parsers[i].convert(documents[i]);
+            blackhole.consume(jsonConverter.fromConnectData("topic", parsed.schema(), parsed.value()));
+        }
+    }
+
+
+    @Benchmark
+    public void bridge(Blackhole blackhole) {
+        for (int i = 0; i < documents.length; i++) {
+            blackhole.consume(bridges[i].convert(documents[i]));
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XsdToSchema;
+
+/**
+ * Creating Connect schemas from XSD schemas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XsdToSchemaBenchmark {
+
+    @Param({ "corpus", "synthetic-10" })
+    public String input;
+
+    private XsdToSchema[] generators;
+
+
+    @Setup
+    public void setup() throws IOException {
+        final List<XsdToSchema> usableGenerators = new ArrayList<>();
+        for (final BenchmarkInputs.Fixture fixture : BenchmarkInputs.load(input)) {
+            try {
+                final XmlPluginsConfig config = new XmlPluginsConfig(BenchmarkInputs.schemaProps(fixture, XmlPluginsConfig.XML_PARSER_XSTREAM));
+                final XsdToSchema generator = new XsdToSchema(config);
+                generator.getSchema();
+
+                usableGenerators.add(generator);
+            }
+            catch (final RuntimeException e) {
+                // test cases for unsupported schemas
+            }
+        }
+        generators = usableGenerators.toArray(new XsdToSchema[0]);
+    }
+
+
+    @Benchmark
+    public void getSchema(Blackhole blackhole) {
+        for (final XsdToSchema generator : generators) {
+            blackhole.consume(generator.getSchema());
+        }
+    }
+}
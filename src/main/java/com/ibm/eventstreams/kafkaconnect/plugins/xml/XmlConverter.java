@@ -15,6 +15,8 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml;
 
+import java.io.Closeable;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
@@ -29,21 +31,16 @@ import org.apache.kafka.connect.storage.ConverterType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.CollectionToXmlBytes;
-import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.StructToXmlBytes;
-import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.EngineRegistry;
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
 
 
-public class XmlConverter implements Converter {
+public class XmlConverter implements Converter, Closeable {
 
     private final Logger log = LoggerFactory.getLogger(XmlConverter.class);
 
-    private XmlPluginsConfig config;
-
-    private StructToXmlBytes     structToXml = null;
-    private CollectionToXmlBytes collectionToStruct = null;
-    private XmlBytesToStruct     xmlToStruct        = null;
+    /** conversion engines, shared with other converters with the same config */
+    private volatile EngineRegistry.Engines engines = null;
 
 
     @Override
@@ -59,7 +56,10 @@ public class XmlConverter implements Converter {
         final Map<String, Object> conf = new HashMap<>(configs);
         conf.put(ConverterConfig.TYPE_CONFIG,
             isKey ? ConverterType.KEY.getName() : ConverterType.VALUE.getName());
-        config = new XmlPluginsConfig(conf);
+        final XmlPluginsConfig config = new XmlPluginsConfig(conf);
+
+        releaseEngines();
+        engines = EngineRegistry.acquire(config);
     }
 
 
@@ -72,22 +72,13 @@ public class XmlConverter implements Converter {
             return new byte[0];
         }
         if (value instanceof Struct) {
-            if (structToXml == null) {
-                structToXml = new StructToXmlBytes(config);
-            }
-            return structToXml.convert(schema, (Struct) value);
+            return engines.structToXml().convert(schema, (Struct) value);
         }
         if (value instanceof Map) {
-            if (collectionToStruct == null) {
-                collectionToStruct = new CollectionToXmlBytes(config);
-            }
-            return collectionToStruct.convert(schema, (Map<?, ?>) value);
+            return engines.collectionToXml().convert(schema, (Map<?, ?>) value);
         }
         if (value instanceof Collection) {
-            if (collectionToStruct == null) {
-                collectionToStruct = new CollectionToXmlBytes(config);
-            }
-            return collectionToStruct.convert(schema, (Collection<?>) value);
+            return engines.collectionToXml().convert(schema, (Collection<?>) value);
         }
 
         throw new NotImplementedException(value.getClass());
@@ -102,9 +93,36 @@ public class XmlConverter implements Converter {
             return SchemaAndValue.NULL;
         }
 
-        if (xmlToStruct == null) {
-            xmlToStruct = new XmlBytesToStruct(config);
+        return engines.xmlToStruct().convert(value);
+    }
+
+    /**
+     * Converts an XML string, encoded using the provided charset, into
+     *  a Connect struct. The document is decoded as it is parsed, so
+     *  the charset overrides any encoding in the XML declaration.
+     */
+    public SchemaAndValue toConnectData(String topic, byte[] value, Charset charset) {
+        if (value == null || value.length == 0) {
+            return SchemaAndValue.NULL;
+        }
+
+        return engines.xmlToStruct().convert(value, charset);
+    }
+
+
+    /**
+     * Releases the engines used by this converter, which are freed when
+     *  no other converters with the same config are using them.
+     */
+    @Override
+    public void close() {
+        releaseEngines();
+    }
+
+    private void releaseEngines() {
+        if (engines != null) {
+            EngineRegistry.release(engines);
+            engines = null;
         }
-        return xmlToStruct.convert(value);
     }
 }
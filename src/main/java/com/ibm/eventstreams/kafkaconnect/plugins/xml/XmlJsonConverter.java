@@ -0,0 +1,131 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.storage.Converter;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.apache.kafka.connect.storage.ConverterType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.EngineRegistry;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
+
+/**
+ * Converter that bridges XML and JSON, without going through the
+ *  Connect values that XmlConverter and JsonConverter would create.
+ *
+ * XML strings in Connect records (such as those created by the MQ
+ *  source connector) are written to Kafka as the JSON that JsonConverter
+ *  would create for the Connect records that XmlConverter parses them
+ *  into, using the same config as XmlConverter. The JSON schema envelope
+ *  is included if json.schemas.enable is set.
+ *
+ * JSON in Kafka messages (such as those consumed by the MQ sink
+ *  connector) is read into Connect records containing the XML that
+ *  XmlConverter would create for the Maps and Lists that JsonConverter
+ *  (without schemas) parses the JSON into.
+ */
+public class XmlJsonConverter implements Converter, Closeable {
+
+    private final Logger log = LoggerFactory.getLogger(XmlJsonConverter.class);
+
+    /** conversion engines, shared with other converters with the same config */
+    private volatile EngineRegistry.Engines engines = null;
+
+    /** true if JSON includes schemas, in the envelope format used by JsonConverter */
+    private volatile boolean jsonSchemasEnabled = false;
+
+
+    @Override
+    public ConfigDef config() {
+        return XmlPluginsConfig.configDef();
+    }
+
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        log.info("Configuring converter {}", configs);
+
+        final Map<String, Object> conf = new HashMap<>(configs);
+        conf.put(ConverterConfig.TYPE_CONFIG,
+            isKey ? ConverterType.KEY.getName() : ConverterType.VALUE.getName());
+        final XmlPluginsConfig config = new XmlPluginsConfig(conf);
+
+        releaseEngines();
+        engines = EngineRegistry.acquire(config);
+        jsonSchemasEnabled = config.jsonSchemasEnabled();
+    }
+
+
+    /**
+     * Converts an XML string into JSON.
+     */
+    @Override
+    public byte[] fromConnectData(String topic, Schema schema, Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            return engines.xmlToJson().convert((byte[]) value);
+        }
+        if (value instanceof String) {
+            return engines.xmlToJson().convert((String) value);
+        }
+
+        throw new NotImplementedException(value.getClass());
+    }
+
+    /**
+     * Converts JSON into an XML string.
+     */
+    @Override
+    public SchemaAndValue toConnectData(String topic, byte[] value) {
+        if (jsonSchemasEnabled) {
+            throw new NotImplementedException("Converting JSON with schemas into XML is not supported");
+        }
+
+        final byte[] xml = engines.jsonToXml().convert(value);
+        if (xml == null) {
+            return SchemaAndValue.NULL;
+        }
+        return new SchemaAndValue(Schema.BYTES_SCHEMA, xml);
+    }
+
+
+    /**
+     * Releases the engines used by this converter, which are freed when
+     *  no other converters with the same config are using them.
+     */
+    @Override
+    public void close() {
+        releaseEngines();
+    }
+
+    private void releaseEngines() {
+        if (engines != null) {
+            EngineRegistry.release(engines);
+            engines = null;
+        }
+    }
+}
@@ -15,8 +15,7 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
-
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -28,23 +27,45 @@ import javax.jms.TextMessage;
 
 import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.errors.ConnectException;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.apache.kafka.connect.storage.ConverterType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ibm.eventstreams.connect.mqsource.builders.BaseRecordBuilder;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.CharsetUtils;
 
 /**
  * Turns MQ messages containing XML strings into structured
  *  Kafka Connect records.
+ *
+ * The bodies of bytes messages are decoded using the character set
+ *  of the message (from the CCSID in its MQMD), so that messages in
+ *  an EBCDIC code page can be parsed without transcoding them first.
+ *  The bodies of text messages are already decoded, so are parsed
+ *  without encoding them again.
+ *
+ * Record builders have no lifecycle hook to release shared engines
+ *  with, so each record builder creates its own parser rather than
+ *  acquiring engines from the EngineRegistry. The parser is garbage
+ *  collected with the record builder. If the parser reloads its schema
+ *  file, the scheduled checks only hold it weakly, and stop at the first
+ *  check after it has been collected rather than when the record
+ *  builder is discarded.
  */
 public class XmlMQRecordBuilder extends BaseRecordBuilder {
 
     private final Logger log = LoggerFactory.getLogger(XmlMQRecordBuilder.class);
 
-    private XmlConverter converter;
+    /** parser for message bodies - not shared, as it can't be released */
+    private XmlBytesToStruct parser;
 
     private static final String CONFIG_PREFIX = "mq.record.builder.";
 
+    /** message property with the character set of the message body */
+    private static final String JMS_IBM_CHARACTER_SET = "JMS_IBM_Character_Set";
+
 
     @Override
     public void configure(Map<String, String> props) {
@@ -52,7 +73,6 @@ public class XmlMQRecordBuilder extends BaseRecordBuilder {
 
         log.info("Configuring record builder {}", props);
 
-        converter = new XmlConverter();
         final HashMap<String, String> config = new HashMap<>();
         for (final String key : props.keySet()) {
             if (key.startsWith(CONFIG_PREFIX)) {
@@ -60,26 +80,52 @@ public class XmlMQRecordBuilder extends BaseRecordBuilder {
                            props.get(key));
             }
         }
+        config.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
 
-        converter.configure(config, false);
+        // stop any schema reloading by the parser from a previous config
+        if (parser != null) {
+            parser.close();
+        }
+        parser = new XmlBytesToStruct(new XmlPluginsConfig(config));
     }
 
 
     @Override
     public SchemaAndValue getValue(final JMSContext context, final String topic, final boolean messageBodyJms, final Message message) throws JMSException {
-        final byte[] payload;
-
         if (message instanceof BytesMessage) {
-            payload = message.getBody(byte[].class);
+            final byte[] payload = message.getBody(byte[].class);
+            if (payload == null || payload.length == 0) {
+                return SchemaAndValue.NULL;
+            }
+            return parser.convert(payload, getCharset(message));
         }
         else if (message instanceof TextMessage) {
-            final String s = message.getBody(String.class);
-            payload = s.getBytes(UTF_8);
+            // the body is already decoded, so is parsed as it is
+            final String payload = message.getBody(String.class);
+            if (payload == null || payload.isEmpty()) {
+                return SchemaAndValue.NULL;
+            }
+            return parser.convert(payload);
         }
         else {
             throw new ConnectException("Unsupported JMS message type");
         }
+    }
 
-        return converter.toConnectData(topic, payload);
+
+    /**
+     * Returns the character set of the message body, or null if the
+     *  message doesn't have one (in which case the character encoding
+     *  is identified from the XML document).
+     */
+    private Charset getCharset(final Message message) throws JMSException {
+        final String characterSet = message.getStringProperty(JMS_IBM_CHARACTER_SET);
+        try {
+            return CharsetUtils.forName(characterSet);
+        }
+        catch (final IllegalArgumentException iae) {
+            log.error("Unsupported message character set {}", characterSet);
+            throw new ConnectException("Unsupported message character set '" + characterSet + "'", iae);
+        }
     }
 }
@@ -16,14 +16,21 @@
 package com.ibm.eventstreams.kafkaconnect.plugins.xml;
 
 import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigDef.Importance;
 import org.apache.kafka.common.config.ConfigDef.Type;
 import org.apache.kafka.common.config.ConfigDef.Width;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.connect.storage.ConverterConfig;
 
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.CharsetUtils;
+
 public class XmlPluginsConfig extends ConverterConfig {
 
     public static final String SCHEMAS_ENABLE_CONFIG = "schemas.enable";
@@ -36,15 +43,77 @@ public class XmlPluginsConfig extends ConverterConfig {
     private static final String XML_ROOT_ELEMENT_DOC = "Name to use for the root element of serialized events if no name is included within the event";
     private static final String XML_ROOT_ELEMENT_DISPLAY = "Root element";
 
+    public static final String XML_ROOT_ELEMENT_NAMES_CONFIG = "root.element.names";
+    public static final String XML_ROOT_ELEMENT_NAMES_ALL = "*";
+    private static final String XML_ROOT_ELEMENT_NAMES_DOC = "Names of the root elements to accept in XML messages parsed using the XSD schema at xsd.schema.path, if messages can have different root elements. A schema is compiled for each of them, and each message is parsed using the schema for its root element. Set to '*' to accept every global element in the XSD schema. If not set, only root.element.name is accepted.";
+    private static final String XML_ROOT_ELEMENT_NAMES_DISPLAY = "Root elements";
+
     public static final String XML_SCHEMA_EXTERNAL_PATH_CONFIG = "xsd.schema.path";
     private static final String XML_SCHEMA_EXTERNAL_PATH_DOC = "Location of an XSD schema to use";
     private static final String XML_SCHEMA_EXTERNAL_DISPLAY = "Schema (xsd) location";
 
+    public static final String XML_SCHEMA_RELOAD_INTERVAL_CONFIG = "xsd.schema.reload.interval.ms";
+    public static final long XML_SCHEMA_RELOAD_INTERVAL_DEFAULT = 0;
+    private static final String XML_SCHEMA_RELOAD_INTERVAL_DOC = "How often (in milliseconds) to check the XSD schema at xsd.schema.path for changes. If the schema changes, it is reloaded and used for subsequent messages without needing to restart. If the modified schema is invalid, the previous schema continues to be used. Set to 0 to disable.";
+    private static final String XML_SCHEMA_RELOAD_INTERVAL_DISPLAY = "Schema reload interval";
+
+    public static final String XML_SCHEMA_STORE_PATH_CONFIG = "xsd.schema.store.path";
+    private static final String XML_SCHEMA_STORE_PATH_DOC = "Location of a directory to use as a schema store. If set, XSD schemas are written to this directory and referenced by serialized events, instead of being included within each of them. Schema references in parsed events are resolved from this directory.";
+    private static final String XML_SCHEMA_STORE_PATH_DISPLAY = "Schema store location";
+
+    public static final String XML_SCHEMA_CACHE_PATH_CONFIG = "xsd.schema.cache.path";
+    private static final String XML_SCHEMA_CACHE_PATH_DOC = "Location of a directory to cache compiled XSD schemas in. If set, the Connect schema compiled from an XSD schema is saved to this directory, and loaded from it instead of compiling the XSD schema again (for example, after a restart) as long as the XSD schema and the plug-in version are unchanged.";
+    private static final String XML_SCHEMA_CACHE_PATH_DISPLAY = "Schema cache location";
+
     public static final String XML_ROOT_FLAT_CONFIG = "xml.doc.flat.enable";
     public static final boolean XML_ROOT_FLAT_DEFAULT = false;
     private static final String XML_ROOT_FLAT_DOC = "Set to true if XML messages will only contain a single primitive value (e.g. <root>hello world</root>)";
     private static final String XML_ROOT_FLAT_DISPLAY = "Flat";
 
+    public static final String XML_TYPE_INFERENCE_CONFIG = "xml.type.inference.enable";
+    public static final boolean XML_TYPE_INFERENCE_DEFAULT = true;
+    private static final String XML_TYPE_INFERENCE_DOC = "Set to false to keep all values in XML messages without a schema as strings, instead of guessing if they are booleans or numbers";
+    private static final String XML_TYPE_INFERENCE_DISPLAY = "Infer types";
+
+    public static final String XML_SCHEMA_INFERENCE_CONFIG = "xml.schema.inference.enable";
+    public static final boolean XML_SCHEMA_INFERENCE_DEFAULT = false;
+    private static final String XML_SCHEMA_INFERENCE_DOC = "Set to true to infer a schema for XML messages parsed without an XSD schema, instead of returning them without a schema. The inferred schema is widened as messages with new shapes are seen, with new elements added as optional fields, so messages with the same shape share the same schema.";
+    private static final String XML_SCHEMA_INFERENCE_DISPLAY = "Infer schemas";
+
+    public static final String XML_PARSER_CONFIG = "xml.parser";
+    public static final String XML_PARSER_XSTREAM = "xstream";
+    public static final String XML_PARSER_STAX = "stax";
+    public static final String XML_PARSER_DEFAULT = XML_PARSER_XSTREAM;
+    private static final String XML_PARSER_DOC = "Parser to use for XML messages with a schema. Set to 'stax' to read messages directly with a StAX stream reader, or 'xstream' to use XStream.";
+    private static final String XML_PARSER_DISPLAY = "Parser";
+
+    public static final String XML_PROJECTION_PATHS_CONFIG = "xml.projection.paths";
+    private static final String XML_PROJECTION_PATHS_DOC = "Paths of the elements to keep when parsing XML messages, starting with the root element (e.g. 'Document/GrpHdr/MsgId'). Elements at the end of a path are kept with all of their content, and everything else is skipped without being parsed. The schema for messages parsed using an XSD schema only includes the fields for the kept elements. If not set, messages are parsed in full.";
+    private static final String XML_PROJECTION_PATHS_DISPLAY = "Element paths";
+
+    public static final String XML_LAZY_STRUCT_CONFIG = "xml.lazy.struct.enable";
+    public static final boolean XML_LAZY_STRUCT_DEFAULT = false;
+    private static final String XML_LAZY_STRUCT_DOC = "Set to true to create structs for XML messages parsed using an XSD schema that only decode each field when it is first read. Messages are scanned to find the child elements of their root element when they are parsed, but the content of each child element is only parsed (and checked against the schema) if its field is read.";
+    private static final String XML_LAZY_STRUCT_DISPLAY = "Lazy structs";
+
+    public static final String XML_PREDICATE_EXPRESSION_CONFIG = "xml.predicate.expression";
+    private static final String XML_PREDICATE_EXPRESSION_DOC = "Expression for the predicate to evaluate for XML messages: a path starting with the root element, to check that an element or attribute exists (e.g. '/Order/Priority'), optionally followed by = or != and a quoted value to compare the first matching element or attribute with (e.g. \"/Order/@type = 'RUSH'\"). Only used by the predicate.";
+    private static final String XML_PREDICATE_EXPRESSION_DISPLAY = "Predicate expression";
+
+    public static final String XML_OUTPUT_ENCODING_CONFIG = "xml.output.encoding";
+    private static final String XML_OUTPUT_ENCODING_DOC = "Character encoding to write serialized events in, given as a Java charset name (e.g. 'IBM1047') or as an IBM coded character set identifier (e.g. '1047'). Defaults to UTF-8.";
+    private static final String XML_OUTPUT_ENCODING_DISPLAY = "Output encoding";
+
+    public static final String JSON_BRIDGE_ENABLE_CONFIG = "json.bridge.enable";
+    public static final boolean JSON_BRIDGE_ENABLE_DEFAULT = false;
+    private static final String JSON_BRIDGE_ENABLE_DOC = "Set to true for the transformation to convert XML messages straight into JSON messages, in the format created by JsonConverter, instead of into structured objects.";
+    private static final String JSON_BRIDGE_ENABLE_DISPLAY = "Convert to JSON";
+
+    public static final String JSON_SCHEMAS_ENABLE_CONFIG = "json.schemas.enable";
+    public static final boolean JSON_SCHEMAS_ENABLE_DEFAULT = false;
+    private static final String JSON_SCHEMAS_ENABLE_DOC = "Include schemas within each of the JSON messages created from XML messages, in the envelope format used by JsonConverter.";
+    private static final String JSON_SCHEMAS_ENABLE_DISPLAY = "Enable JSON schemas";
+
     private final static ConfigDef CONFIG;
 
 
@@ -60,14 +129,68 @@ public class XmlPluginsConfig extends ConverterConfig {
                       Importance.HIGH, XML_ROOT_ELEMENT_DOC,
                       group, orderInGroup++,
                       Width.MEDIUM, XML_ROOT_ELEMENT_DISPLAY);
+        CONFIG.define(XML_ROOT_ELEMENT_NAMES_CONFIG, Type.LIST, Collections.emptyList(),
+                      Importance.MEDIUM, XML_ROOT_ELEMENT_NAMES_DOC,
+                      group, orderInGroup++,
+                      Width.LONG, XML_ROOT_ELEMENT_NAMES_DISPLAY);
         CONFIG.define(XML_SCHEMA_EXTERNAL_PATH_CONFIG, Type.STRING, null,
                       Importance.HIGH, XML_SCHEMA_EXTERNAL_PATH_DOC,
                       group, orderInGroup++,
                       Width.MEDIUM, XML_SCHEMA_EXTERNAL_DISPLAY);
+        CONFIG.define(XML_SCHEMA_RELOAD_INTERVAL_CONFIG, Type.LONG, XML_SCHEMA_RELOAD_INTERVAL_DEFAULT,
+                      ConfigDef.Range.atLeast(0),
+                      Importance.LOW, XML_SCHEMA_RELOAD_INTERVAL_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, XML_SCHEMA_RELOAD_INTERVAL_DISPLAY);
+        CONFIG.define(XML_SCHEMA_STORE_PATH_CONFIG, Type.STRING, null,
+                      Importance.MEDIUM, XML_SCHEMA_STORE_PATH_DOC,
+                      group, orderInGroup++,
+                      Width.MEDIUM, XML_SCHEMA_STORE_PATH_DISPLAY);
+        CONFIG.define(XML_SCHEMA_CACHE_PATH_CONFIG, Type.STRING, null,
+                      Importance.LOW, XML_SCHEMA_CACHE_PATH_DOC,
+                      group, orderInGroup++,
+                      Width.MEDIUM, XML_SCHEMA_CACHE_PATH_DISPLAY);
         CONFIG.define(XML_ROOT_FLAT_CONFIG, Type.BOOLEAN, XML_ROOT_FLAT_DEFAULT,
                       Importance.HIGH, XML_ROOT_FLAT_DOC,
                       group, orderInGroup++,
                       Width.SHORT, XML_ROOT_FLAT_DISPLAY);
+        CONFIG.define(XML_TYPE_INFERENCE_CONFIG, Type.BOOLEAN, XML_TYPE_INFERENCE_DEFAULT,
+                      Importance.LOW, XML_TYPE_INFERENCE_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, XML_TYPE_INFERENCE_DISPLAY);
+        CONFIG.define(XML_SCHEMA_INFERENCE_CONFIG, Type.BOOLEAN, XML_SCHEMA_INFERENCE_DEFAULT,
+                      Importance.LOW, XML_SCHEMA_INFERENCE_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, XML_SCHEMA_INFERENCE_DISPLAY);
+        CONFIG.define(XML_PARSER_CONFIG, Type.STRING, XML_PARSER_DEFAULT,
+                      ConfigDef.ValidString.in(XML_PARSER_XSTREAM, XML_PARSER_STAX),
+                      Importance.LOW, XML_PARSER_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, XML_PARSER_DISPLAY);
+        CONFIG.define(XML_PROJECTION_PATHS_CONFIG, Type.LIST, Collections.emptyList(),
+                      Importance.LOW, XML_PROJECTION_PATHS_DOC,
+                      group, orderInGroup++,
+                      Width.LONG, XML_PROJECTION_PATHS_DISPLAY);
+        CONFIG.define(XML_LAZY_STRUCT_CONFIG, Type.BOOLEAN, XML_LAZY_STRUCT_DEFAULT,
+                      Importance.LOW, XML_LAZY_STRUCT_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, XML_LAZY_STRUCT_DISPLAY);
+        CONFIG.define(XML_PREDICATE_EXPRESSION_CONFIG, Type.STRING, null,
+                      Importance.MEDIUM, XML_PREDICATE_EXPRESSION_DOC,
+                      group, orderInGroup++,
+                      Width.LONG, XML_PREDICATE_EXPRESSION_DISPLAY);
+        CONFIG.define(XML_OUTPUT_ENCODING_CONFIG, Type.STRING, null,
+                      Importance.LOW, XML_OUTPUT_ENCODING_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, XML_OUTPUT_ENCODING_DISPLAY);
+        CONFIG.define(JSON_BRIDGE_ENABLE_CONFIG, Type.BOOLEAN, JSON_BRIDGE_ENABLE_DEFAULT,
+                      Importance.LOW, JSON_BRIDGE_ENABLE_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, JSON_BRIDGE_ENABLE_DISPLAY);
+        CONFIG.define(JSON_SCHEMAS_ENABLE_CONFIG, Type.BOOLEAN, JSON_SCHEMAS_ENABLE_DEFAULT,
+                      Importance.LOW, JSON_SCHEMAS_ENABLE_DOC,
+                      group, orderInGroup++,
+                      Width.SHORT, JSON_SCHEMAS_ENABLE_DISPLAY);
     }
 
     public static ConfigDef configDef() {
@@ -76,20 +199,71 @@ public class XmlPluginsConfig extends ConverterConfig {
 
     private final boolean schemasEnabled;
     private final String rootElementName;
+    private final List<String> rootElementNames;
     private final boolean flatDoc;
+    private final boolean typeInference;
+    private final boolean schemaInference;
+    private final boolean staxParser;
+    private final List<String> projectionPaths;
+    private final boolean lazyStruct;
+    private final String predicateExpression;
+    private final long xsdSchemaReloadInterval;
+    private final Charset outputCharset;
+    private final boolean jsonBridge;
+    private final boolean jsonSchemasEnabled;
     private File xsdSchema = null;
+    private File xsdSchemaStore = null;
+    private File xsdSchemaCache = null;
 
 
     public XmlPluginsConfig(Map<String, ?> props) {
         super(CONFIG, props);
         this.schemasEnabled = getBoolean(SCHEMAS_ENABLE_CONFIG);
         this.rootElementName = getString(XML_ROOT_ELEMENT_NAME_CONFIG);
+        this.rootElementNames = getList(XML_ROOT_ELEMENT_NAMES_CONFIG);
         this.flatDoc = getBoolean(XML_ROOT_FLAT_CONFIG);
+        this.typeInference = getBoolean(XML_TYPE_INFERENCE_CONFIG);
+        this.schemaInference = getBoolean(XML_SCHEMA_INFERENCE_CONFIG);
+        this.staxParser = XML_PARSER_STAX.equals(getString(XML_PARSER_CONFIG));
+        this.projectionPaths = getList(XML_PROJECTION_PATHS_CONFIG);
+        this.lazyStruct = getBoolean(XML_LAZY_STRUCT_CONFIG);
+        this.predicateExpression = getString(XML_PREDICATE_EXPRESSION_CONFIG);
+        this.xsdSchemaReloadInterval = getLong(XML_SCHEMA_RELOAD_INTERVAL_CONFIG);
+        this.jsonBridge = getBoolean(JSON_BRIDGE_ENABLE_CONFIG);
+        this.jsonSchemasEnabled = getBoolean(JSON_SCHEMAS_ENABLE_CONFIG);
+
+        for (final String path : projectionPaths) {
+            final String relative = path.startsWith("/") ? path.substring(1) : path;
+            for (final String name : relative.split("/", -1)) {
+                if (name.isEmpty()) {
+                    throw new ConfigException(XML_PROJECTION_PATHS_CONFIG, path, "Element paths must not contain empty element names");
+                }
+            }
+        }
+
+        final String outputEncoding = getString(XML_OUTPUT_ENCODING_CONFIG);
+        try {
+            final Charset charset = CharsetUtils.forName(outputEncoding);
+            this.outputCharset = charset == null ? StandardCharsets.UTF_8 : charset;
+        }
+        catch (final IllegalArgumentException iae) {
+            throw new ConfigException(XML_OUTPUT_ENCODING_CONFIG, outputEncoding, "Unsupported character encoding");
+        }
 
         final String xsdSchemaFile = getString(XML_SCHEMA_EXTERNAL_PATH_CONFIG);
         if (xsdSchemaFile != null) {
             xsdSchema = new File(xsdSchemaFile);
         }
+
+        final String xsdSchemaStoreDir = getString(XML_SCHEMA_STORE_PATH_CONFIG);
+        if (xsdSchemaStoreDir != null) {
+            xsdSchemaStore = new File(xsdSchemaStoreDir);
+        }
+
+        final String xsdSchemaCacheDir = getString(XML_SCHEMA_CACHE_PATH_CONFIG);
+        if (xsdSchemaCacheDir != null) {
+            xsdSchemaCache = new File(xsdSchemaCacheDir);
+        }
     }
 
     public boolean schemasEnabled() {
@@ -100,11 +274,76 @@ public class XmlPluginsConfig extends ConverterConfig {
         return rootElementName;
     }
 
+    /**
+     * Returns the root elements to accept in documents parsed using
+     *  the XSD schema, or an empty list if only the root element
+     *  name should be accepted.
+     */
+    public List<String> getRootElementNames() {
+        return rootElementNames;
+    }
+
     public boolean isFlatDoc() {
         return flatDoc;
     }
 
+    public boolean isTypeInferenceEnabled() {
+        return typeInference;
+    }
+
+    public boolean isSchemaInferenceEnabled() {
+        return schemaInference;
+    }
+
+    public boolean isStaxParser() {
+        return staxParser;
+    }
+
+    /**
+     * Returns the paths of the elements to keep when parsing documents,
+     *  or an empty list if documents should be parsed in full.
+     */
+    public List<String> getProjectionPaths() {
+        return projectionPaths;
+    }
+
+    public boolean isLazyStruct() {
+        return lazyStruct;
+    }
+
+    /**
+     * Returns the expression for the predicate to evaluate, or null
+     *  if none was provided.
+     */
+    public String getPredicateExpression() {
+        return predicateExpression;
+    }
+
     public File getXsdSchema() {
         return xsdSchema;
     }
+
+    public long getXsdSchemaReloadInterval() {
+        return xsdSchemaReloadInterval;
+    }
+
+    public File getXsdSchemaStore() {
+        return xsdSchemaStore;
+    }
+
+    public File getXsdSchemaCache() {
+        return xsdSchemaCache;
+    }
+
+    public Charset getOutputCharset() {
+        return outputCharset;
+    }
+
+    public boolean isJsonBridge() {
+        return jsonBridge;
+    }
+
+    public boolean jsonSchemasEnabled() {
+        return jsonSchemasEnabled;
+    }
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.connector.ConnectRecord;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.apache.kafka.connect.storage.ConverterType;
+import org.apache.kafka.connect.transforms.predicates.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlPathExpression;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
+
+
+public class XmlPredicate<R extends ConnectRecord<R>> implements Predicate<R> {
+
+    private final Logger log = LoggerFactory.getLogger(XmlPredicate.class);
+
+    /** expression to evaluate for the XML string in each record */
+    private volatile XmlPathExpression expression = null;
+
+    /**
+     * Evaluates the configured expression for the XML string in the
+     *  provided record, without parsing it into a structured object.
+     *
+     *  The XML string is only read as far as is needed to know the
+     *   result, so most records are accepted or rejected after reading
+     *   only the start of the XML string.
+     *
+     *  Records without a value never match.
+     */
+    @Override
+    public boolean test(R record) {
+        final Object value = record.value();
+
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof String) {
+            return expression.test((String) value);
+        }
+        if (value instanceof byte[]) {
+            return expression.test((byte[]) value);
+        }
+
+        // everything else is (currently) unsupported
+
+        throw new NotImplementedException(value.getClass());
+    }
+
+
+
+
+    @Override
+    public ConfigDef config() {
+        return XmlPluginsConfig.configDef();
+    }
+
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        log.info("Configuring predicate {}", configs);
+
+        final Map<String, Object> conf = new HashMap<>(configs);
+        conf.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        final XmlPluginsConfig config = new XmlPluginsConfig(conf);
+
+        final String predicateExpression = config.getPredicateExpression();
+        if (predicateExpression == null) {
+            throw new ConfigException(XmlPluginsConfig.XML_PREDICATE_EXPRESSION_CONFIG, null, "An expression is required for the predicate");
+        }
+        try {
+            expression = XmlPathExpression.compile(predicateExpression);
+        }
+        catch (final IllegalArgumentException iae) {
+            throw new ConfigException(XmlPluginsConfig.XML_PREDICATE_EXPRESSION_CONFIG, predicateExpression, iae.getMessage());
+        }
+    }
+
+
+
+
+    @Override
+    public void close() {
+        expression = null;
+    }
+}
@@ -30,9 +30,7 @@ import org.apache.kafka.connect.transforms.Transformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.CollectionToXmlBytes;
-import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.StructToXmlBytes;
-import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.EngineRegistry;
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
 
 
@@ -40,11 +38,11 @@ public class XmlTransformation<R extends ConnectRecord<R>> implements Transforma
 
     private final Logger log = LoggerFactory.getLogger(XmlTransformation.class);
 
-    private XmlPluginsConfig config;
+    /** conversion engines, shared with other transformations with the same config */
+    private volatile EngineRegistry.Engines engines = null;
 
-    private XmlBytesToStruct     xmlToStruct = null;
-    private StructToXmlBytes     structToXml = null;
-    private CollectionToXmlBytes collectionToStruct = null;
+    /** true if XML strings are converted into JSON strings, rather than structured objects */
+    private volatile boolean jsonBridge = false;
 
     /**
      * Transforms the provided record to/from XML.
@@ -55,32 +53,47 @@ public class XmlTransformation<R extends ConnectRecord<R>> implements Transforma
      *    we are being asked to parse and turn into a structured object.
      *   If the input record is a structured object, we assume that we're
      *    being asked to represent it as an XML string.
+     *
+     *  String values are parsed, and XML strings are created, as characters
+     *   so they aren't encoded as bytes only to be decoded again.
+     *
+     *  If json.bridge.enable is set, XML strings are converted straight
+     *   into JSON strings instead of structured objects.
      */
     @Override
     public R apply(R record) {
         final Object value = record.value();
 
+        // string -> json string
+
+        if (jsonBridge && value instanceof String) {
+            return convertToString(record, engines.xmlToJson().convertToString((String) value));
+        }
+        if (jsonBridge && value instanceof byte[]) {
+            return convert(record, new SchemaAndValue(Schema.BYTES_SCHEMA, engines.xmlToJson().convert((byte[]) value)));
+        }
+
         // string -> object
 
         if (value instanceof String) {
-            return convert(record, ((String) value).getBytes());
+            return convert(record, engines.xmlToStruct().convert((String) value));
         }
         if (value instanceof byte[]) {
-            return convert(record, (byte[]) value);
+            return convert(record, engines.xmlToStruct().convert((byte[]) value));
         }
 
         // object -> string
 
         if (value instanceof Struct) {
-            final byte[] data = convert(record.valueSchema(), (Struct)record.value());
+            final String data = engines.structToXml().convertToString(record.valueSchema(), (Struct)record.value());
             return convertToString(record, data);
         }
         if (value instanceof Map) {
-            final byte[] data = convert(record.valueSchema(), (Map<?, ?>)record.value());
+            final String data = engines.collectionToXml().convertToString(record.valueSchema(), (Map<?, ?>)record.value());
             return convertToString(record, data);
         }
         if (value instanceof Collection) {
-            final byte[] data = convert(record.valueSchema(), (Collection<?>)record.value());
+            final String data = engines.collectionToXml().convertToString(record.valueSchema(), (Collection<?>)record.value());
             return convertToString(record, data);
         }
 
@@ -90,12 +103,7 @@ public class XmlTransformation<R extends ConnectRecord<R>> implements Transforma
     }
 
 
-    private R convert(R record, byte[] value) {
-        if (xmlToStruct == null) {
-            xmlToStruct = new XmlBytesToStruct(config);
-        }
-        final SchemaAndValue converted = xmlToStruct.convert(value);
-
+    private R convert(R record, SchemaAndValue converted) {
         return record.newRecord(record.topic(),
                                 record.kafkaPartition(),
                                 record.keySchema(),
@@ -106,39 +114,17 @@ public class XmlTransformation<R extends ConnectRecord<R>> implements Transforma
     }
 
 
-    private R convertToString(R record, byte[] stringData) {
+    private R convertToString(R record, String stringData) {
         return record.newRecord(record.topic(),
             record.kafkaPartition(),
             record.keySchema(),
             record.key(),
             Schema.STRING_SCHEMA,
-            new String(stringData),
+            stringData,
             record.timestamp());
     }
 
 
-    private byte[] convert(Schema schema, Struct value) {
-        if (structToXml == null) {
-            structToXml = new StructToXmlBytes(config);
-        }
-        return structToXml.convert(schema, value);
-    }
-
-    private byte[] convert(Schema schema, Collection<?> value) {
-        if (collectionToStruct == null) {
-            collectionToStruct = new CollectionToXmlBytes(config);
-        }
-        return collectionToStruct.convert(schema, value);
-    }
-
-    private byte[] convert(Schema schema, Map<?, ?> value) {
-        if (collectionToStruct == null) {
-            collectionToStruct = new CollectionToXmlBytes(config);
-        }
-        return collectionToStruct.convert(schema, value);
-    }
-
-
 
 
     @Override
@@ -153,7 +139,11 @@ public class XmlTransformation<R extends ConnectRecord<R>> implements Transforma
 
         final Map<String, Object> conf = new HashMap<>(configs);
         conf.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
-        config = new XmlPluginsConfig(conf);
+        final XmlPluginsConfig config = new XmlPluginsConfig(conf);
+
+        close();
+        engines = EngineRegistry.acquire(config);
+        jsonBridge = config.isJsonBridge();
     }
 
 
@@ -161,8 +151,9 @@ public class XmlTransformation<R extends ConnectRecord<R>> implements Transforma
 
     @Override
     public void close() {
-        this.xmlToStruct = null;
-        this.structToXml = null;
-        this.collectionToStruct = null;
+        if (engines != null) {
+            EngineRegistry.release(engines);
+            engines = null;
+        }
     }
 }
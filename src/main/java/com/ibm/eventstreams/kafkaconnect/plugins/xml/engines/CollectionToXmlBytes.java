@@ -24,8 +24,6 @@ import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.Struct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.ListUtils;
@@ -43,51 +41,76 @@ public class CollectionToXmlBytes extends ToXmlBytes {
      * Creates an XML string representation of the provided map.
      */
     public byte[] convert(Schema schema, Map<?, ?> value) {
-        final Document doc = getDocumentBuilder().newDocument();
+        return createXmlDoc(value).toByteArray();
+    }
+
+    /**
+     * Creates an XML string representation of the provided collection.
+     */
+    public byte[] convert(Schema schema, Collection<?> value) {
+        return createXmlDoc(value).toByteArray();
+    }
+
+    /**
+     * Creates an XML string representation of the provided map, for
+     *  records with String values, without encoding it as bytes.
+     */
+    public String convertToString(Schema schema, Map<?, ?> value) {
+        return createXmlDoc(value).toXmlString();
+    }
 
-        final Element root = doc.createElement(getConfig().getRootElementName());
-        doc.appendChild(root);
+    /**
+     * Creates an XML string representation of the provided collection,
+     *  for records with String values, without encoding it as bytes.
+     */
+    public String convertToString(Schema schema, Collection<?> value) {
+        return createXmlDoc(value).toXmlString();
+    }
+
+
+    private Utf8XmlWriter createXmlDoc(Map<?, ?> value) {
+        final Utf8XmlWriter writer = createDocumentWriter();
+        writer.writeDeclaration(false);
+        writer.startElement(getConfig().getRootElementName());
 
         if (getConfig().schemasEnabled()) {
             log.debug("Unable to derive schemas from Map objects");
         }
 
-        processMap(doc, root, value);
+        processMap(writer, value);
 
-        return convertXmlDocToBytes(doc);
+        writer.endElement();
+        return writer;
     }
 
-    /**
-     * Creates an XML string representation of the provided collection.
-     */
-    public byte[] convert(Schema schema, Collection<?> value) {
-        final Document doc = getDocumentBuilder().newDocument();
-
-        final Element root = doc.createElement(getConfig().getRootElementName());
-        doc.appendChild(root);
+    private Utf8XmlWriter createXmlDoc(Collection<?> value) {
+        final Utf8XmlWriter writer = createDocumentWriter();
+        writer.writeDeclaration(false);
+        writer.startElement(getConfig().getRootElementName());
 
         if (getConfig().schemasEnabled()) {
             log.debug("Unable to derive schemas from Collection objects");
         }
 
-        processItem(doc, root, "entry", value);
+        processItem(writer, "entry", value);
 
-        return convertXmlDocToBytes(doc);
+        writer.endElement();
+        return writer;
     }
 
 
-    private void processMap(Document doc, Element parentElement, Map<?, ?> map) {
+    private void processMap(Utf8XmlWriter writer, Map<?, ?> map) {
         for (final Object key : map.keySet()) {
             final Object value = map.get(key);
-            processItem(doc, parentElement, key, value);
+            processItem(writer, key, value);
         }
     }
 
-    private void processStruct(Document doc, Element parentElement, Struct struct) {
+    private void processStruct(Utf8XmlWriter writer, Struct struct) {
         for (final Field field : struct.schema().fields()) {
             final Object value = struct.get(field);
 
-            processItem(doc, parentElement, field.name(), value);
+            processItem(writer, field.name(), value);
         }
     }
 
@@ -105,26 +128,25 @@ public class CollectionToXmlBytes extends ToXmlBytes {
 
 
 
-    private void processItem(Document doc, Element parentElement, Object key, Object value) {
+    private void processItem(Utf8XmlWriter writer, Object key, Object value) {
 
         if (key == null) {
             key = "null";
         }
 
         if (value == null) {
-            final Element nullElement = doc.createElement(key.toString());
-            parentElement.appendChild(nullElement);
+            writer.emptyElement(key.toString());
             return;
         }
 
         // ------- key and value are both non-null
 
         if (key.getClass().isArray() && !(key instanceof byte[])) {
-            processItem(doc, parentElement, ListUtils.nullSafeArrayToList((Object[])key), value);
+            processItem(writer, ListUtils.nullSafeArrayToList((Object[])key), value);
             return;
         }
         if (value.getClass().isArray() && !(value instanceof byte[])) {
-            processItem(doc, parentElement, key, ListUtils.nullSafeArrayToList((Object[])value));
+            processItem(writer, key, ListUtils.nullSafeArrayToList((Object[])value));
             return;
         }
 
@@ -132,123 +154,121 @@ public class CollectionToXmlBytes extends ToXmlBytes {
 
 
         if ((isStructured(key) || cannotBeXmlTag(key)) && (isStructured(value) || value instanceof byte[])) {
-            final Element entryElement = addNode(doc, parentElement, "entry");
+            writer.startElement("entry");
 
-            if (key instanceof byte[]) {
-                processItem(doc, entryElement, "key",
-                    new String(Base64.getEncoder().encode((byte[]) key)));
-            }
-            else if (key instanceof Collection) {
-                addArrayElements(doc, entryElement, (Collection<?>)key, "key");
-            }
-            else if (key instanceof Map) {
-                final Element keyElement = addNode(doc, entryElement, "key");
-                processMap(doc, keyElement, (Map<?,?>)key);
-            }
-            else if (key instanceof Struct) {
-                final Element keyElement = addNode(doc, entryElement, "key");
-                processStruct(doc, keyElement, (Struct)key);
-            }
-            else if (cannotBeXmlTag(key)) {
-                processItem(doc, entryElement, "key", key);
-            }
+            processKey(writer, key);
 
             if (value instanceof byte[]) {
-                processItem(doc, entryElement, "value",
-                        new String(Base64.getEncoder().encode((byte[]) value)));
+                processItem(writer, "value",
+                        Base64.getEncoder().encodeToString((byte[]) value));
             }
             else if (value instanceof Collection) {
-                addArrayElements(doc, entryElement, (Collection<?>)value, "value");
+                addArrayElements(writer, (Collection<?>)value, "value");
             }
             else {
-                final Element valueElement = addNode(doc, entryElement, "value");
+                writer.startElement("value");
 
                 if (value instanceof Map) {
-                    processMap(doc, valueElement, (Map<?,?>)value);
+                    processMap(writer, (Map<?,?>)value);
                 }
                 else if (value instanceof Struct) {
-                    processStruct(doc, valueElement, (Struct)value);
+                    processStruct(writer, (Struct)value);
                 }
+
+                writer.endElement();
             }
+
+            writer.endElement();
         }
         else if (isStructured(key) || cannotBeXmlTag(key)) {
             // key is structured
             // value is primitive/unstructured
 
-            final Element entryElement = addNode(doc, parentElement, "entry");
+            writer.startElement("entry");
 
-            if (key instanceof byte[]) {
-                processItem(doc, entryElement, "key",
-                    new String(Base64.getEncoder().encode((byte[]) key)));
-            }
-            else if (key instanceof Collection) {
-                addArrayElements(doc, entryElement, (Collection<?>)key, "key");
-            }
-            else if (key instanceof Map) {
-                final Element keyElement = addNode(doc, entryElement, "key");
-                processMap(doc, keyElement, (Map<?,?>)key);
-            }
-            else if (key instanceof Struct) {
-                final Element keyElement = addNode(doc, entryElement, "key");
-                processStruct(doc, keyElement, (Struct)key);
-            }
-            else if (cannotBeXmlTag(key)) {
-                processItem(doc, entryElement, "key", key);
-            }
+            processKey(writer, key);
 
-            addXmlTextNode(doc, entryElement, "value", value.toString());
+            addXmlTextNode(writer, "value", value.toString());
+
+            writer.endElement();
         }
         else if (isStructured(value)) {
             // key is primitive/unstructured
             // value is structured
 
             if (value instanceof Collection) {
-                addArrayElements(doc, parentElement, (Collection<?>)value, key.toString());
+                addArrayElements(writer, (Collection<?>)value, key.toString());
             }
             else {
-                final Element valueElement = addNode(doc, parentElement, key.toString());
+                writer.startElement(key.toString());
 
                 if (value instanceof Map) {
-                    processMap(doc, valueElement, (Map<?,?>)value);
+                    processMap(writer, (Map<?,?>)value);
                 }
                 else if (value instanceof Struct) {
-                    processStruct(doc, valueElement, (Struct)value);
+                    processStruct(writer, (Struct)value);
                 }
+
+                writer.endElement();
             }
         }
         else if (value instanceof byte[]) {
-            addXmlTextNode(doc, parentElement, key.toString(),
-                    new String(Base64.getEncoder().encode((byte[]) value)));
+            addXmlTextNode(writer, key.toString(),
+                    Base64.getEncoder().encodeToString((byte[]) value));
         }
         else {
-            addXmlTextNode(doc, parentElement, key.toString(), value.toString());
+            addXmlTextNode(writer, key.toString(), value.toString());
+        }
+    }
+
+
+    private void processKey(Utf8XmlWriter writer, Object key) {
+        if (key instanceof byte[]) {
+            processItem(writer, "key",
+                Base64.getEncoder().encodeToString((byte[]) key));
+        }
+        else if (key instanceof Collection) {
+            addArrayElements(writer, (Collection<?>)key, "key");
+        }
+        else if (key instanceof Map) {
+            writer.startElement("key");
+            processMap(writer, (Map<?,?>)key);
+            writer.endElement();
+        }
+        else if (key instanceof Struct) {
+            writer.startElement("key");
+            processStruct(writer, (Struct)key);
+            writer.endElement();
+        }
+        else if (cannotBeXmlTag(key)) {
+            processItem(writer, "key", key);
         }
     }
 
 
 
 
-    private void addArrayElements(Document doc, Element parentElement, Collection<?> list, String field) {
+    private void addArrayElements(Utf8XmlWriter writer, Collection<?> list, String field) {
         for (final Object obj : list) {
 
-            final Element element = doc.createElement(field);
+            writer.startElement(field);
             if (obj == null) {
                 // do nothing
             }
             else if (obj instanceof Collection) {
-                addArrayElements(doc, element, (Collection<?>) obj, "entry");
+                addArrayElements(writer, (Collection<?>) obj, "entry");
             }
             else if (obj instanceof Map) {
-                processMap(doc, element, (Map<?, ?>) obj);
+                processMap(writer, (Map<?, ?>) obj);
             }
             else if (obj instanceof Struct) {
-                processStruct(doc, element, (Struct) obj);
+                processStruct(writer, (Struct) obj);
             }
             else {
-                element.appendChild(doc.createTextNode(obj.toString()));
+                writer.text(obj.toString());
             }
 
-            parentElement.appendChild(element);
+            writer.endElement();
         }
     }
 }
@@ -0,0 +1,203 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+
+/**
+ * The elements to keep when parsing XML documents, identified by
+ *  element paths such as "Document/GrpHdr/MsgId", which start with
+ *  the name of the root element.
+ *
+ * Elements at the end of a path are kept with all of their content.
+ *  Elements that contain them only keep the child elements that lead
+ *  to them (and none of their attributes or text), and everything
+ *  else in the document is skipped without being read.
+ *
+ * Each projection is a node in a tree of element names, where the
+ *  children of a node are the child elements to keep.
+ */
+final class ElementProjection {
+
+    /** projection for elements that are kept with all of their content */
+    private static final ElementProjection ALL = new ElementProjection(null);
+
+    /** projection for elements that don't contain anything to keep */
+    private static final ElementProjection NONE = new ElementProjection(Collections.emptyMap());
+
+    /** projections for the child elements to keep, or null if everything is kept */
+    private final Map<String, ElementProjection> children;
+
+
+    private ElementProjection(Map<String, ElementProjection> children) {
+        this.children = children;
+    }
+
+
+    /**
+     * Creates a projection for documents from the provided element
+     *  paths, where each child of the projection is a root element.
+     *
+     * @return null if there are no paths, so nothing is skipped
+     */
+    static ElementProjection of(List<String> paths) {
+        if (paths.isEmpty()) {
+            return null;
+        }
+
+        final Map<String, ElementProjection> roots = new HashMap<>();
+        for (final String path : paths) {
+            add(roots, splitPath(path), 0);
+        }
+        return new ElementProjection(roots);
+    }
+
+    private static void add(Map<String, ElementProjection> children, String[] names, int depth) {
+        final String name = names[depth];
+        if (depth == names.length - 1) {
+            children.put(name, ALL);
+            return;
+        }
+
+        ElementProjection child = children.get(name);
+        if (child == null) {
+            child = new ElementProjection(new HashMap<>());
+            children.put(name, child);
+        }
+        if (child != ALL) {
+            add(child.children, names, depth + 1);
+        }
+    }
+
+    /**
+     * Returns the element names in the provided path, ignoring a
+     *  leading '/'.
+     */
+    static String[] splitPath(String path) {
+        final String relative = path.startsWith("/") ? path.substring(1) : path;
+        return relative.split("/", -1);
+    }
+
+
+    /**
+     * Returns the projection for a child element.
+     *
+     * @return null if the child element should be skipped
+     */
+    ElementProjection child(String name) {
+        return children == null ? ALL : children.get(name);
+    }
+
+    /**
+     * Returns the projection for a root element, which doesn't keep
+     *  anything if there are no paths for the root element.
+     */
+    ElementProjection root(String rootElementName) {
+        final ElementProjection root = child(rootElementName);
+        return root == null ? NONE : root;
+    }
+
+    /**
+     * Returns true if elements are kept with all of their content.
+     */
+    boolean keepsAll() {
+        return children == null;
+    }
+
+
+    /**
+     * Returns the schema for elements with this projection, created
+     *  from the schema for the whole element by leaving out the fields
+     *  for the child elements and attributes that aren't kept.
+     *
+     * Primitive values and maps can't be projected, so are kept whole
+     *  if a path leads into them.
+     */
+    Schema project(Schema schema) {
+        if (keepsAll()) {
+            return schema;
+        }
+
+        final SchemaBuilder builder;
+        switch (schema.type()) {
+            case STRUCT:
+                builder = SchemaBuilder.struct();
+                for (final Field field : schema.fields()) {
+                    final ElementProjection fieldProjection = children.get(field.name());
+                    if (fieldProjection != null) {
+                        builder.field(field.name(), fieldProjection.project(field.schema()));
+                    }
+                }
+                break;
+            case ARRAY:
+                // the projection applies to each of the repeated elements
+                builder = SchemaBuilder.array(project(schema.valueSchema()));
+                break;
+            default:
+                return schema;
+        }
+
+        // defaults are left out, as they are values of the whole schema
+        builder.name(schema.name()).version(schema.version()).doc(schema.doc());
+        if (schema.parameters() != null) {
+            builder.parameters(schema.parameters());
+        }
+        if (schema.isOptional()) {
+            builder.optional();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the structs in a schema created by project, which only
+     *  have fields for some of the content of their elements, so that
+     *  anything else in those elements can be skipped.
+     */
+    Set<Schema> projectedStructs(Schema projectedSchema) {
+        final Set<Schema> structs = Collections.newSetFromMap(new IdentityHashMap<>());
+        addProjectedStructs(projectedSchema, structs);
+        return structs;
+    }
+
+    private void addProjectedStructs(Schema projectedSchema, Set<Schema> structs) {
+        if (keepsAll()) {
+            return;
+        }
+
+        switch (projectedSchema.type()) {
+            case STRUCT:
+                structs.add(projectedSchema);
+                for (final Field field : projectedSchema.fields()) {
+                    children.get(field.name()).addProjectedStructs(field.schema(), structs);
+                }
+                break;
+            case ARRAY:
+                addProjectedStructs(projectedSchema.valueSchema(), structs);
+                break;
+            default:
+                break;
+        }
+    }
+}
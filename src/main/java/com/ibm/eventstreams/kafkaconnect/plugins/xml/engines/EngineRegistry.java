@@ -0,0 +1,250 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+
+/**
+ * JVM-wide registry of conversion engines.
+ *
+ * Every converter and transformation with the same config shares a
+ *  single set of engines, rather than each of them creating their own
+ *  XStream instances and parsing the XSD schema again. Engines are
+ *  identified by the config values (apart from the converter type,
+ *  which the engines don't use) and the contents of the XSD schema
+ *  file, so a modified schema file results in a new set of engines.
+ *
+ * Engines are reference-counted, and removed from the registry when
+ *  the last user of them releases them.
+ */
+public final class EngineRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(EngineRegistry.class);
+
+    /** engines currently in use - guarded by the class lock */
+    private static final Map<Key, Engines> ENGINES = new HashMap<>();
+
+
+    private EngineRegistry() {}
+
+
+    /**
+     * Returns the engines for the provided config, which must be
+     *  released when no longer needed.
+     */
+    public static synchronized Engines acquire(XmlPluginsConfig config) {
+        final Key key = new Key(config);
+
+        Engines engines = ENGINES.get(key);
+        if (engines == null) {
+            log.debug("Creating engines for {}", key);
+            engines = new Engines(key, config);
+            ENGINES.put(key, engines);
+        }
+        engines.references++;
+        return engines;
+    }
+
+
+    /**
+     * Releases engines previously returned by acquire.
+     */
+    public static synchronized void release(Engines engines) {
+        engines.references--;
+        if (engines.references == 0) {
+            log.debug("Removing engines for {}", engines.key);
+            ENGINES.remove(engines.key);
+            engines.close();
+        }
+    }
+
+
+    /** number of sets of engines currently in use */
+    static synchronized int size() {
+        return ENGINES.size();
+    }
+
+
+
+    /**
+     * Set of conversion engines for a single config.
+     *
+     * Engines are created when they are first needed, as creating them
+     *  can be expensive (e.g. parsing an XSD schema) and most users
+     *  only convert in one direction. They are safe to use from
+     *  multiple threads.
+     */
+    public static final class Engines {
+        private final Key key;
+        private final XmlPluginsConfig config;
+
+        /** number of users of these engines - guarded by the EngineRegistry class lock */
+        private int references = 0;
+
+        private volatile XmlBytesToStruct xmlToStruct;
+        private volatile StructToXmlBytes structToXml;
+        private volatile CollectionToXmlBytes collectionToXml;
+        private volatile XmlToJsonBytes xmlToJson;
+        private volatile JsonToXmlBytes jsonToXml;
+
+
+        private Engines(Key key, XmlPluginsConfig config) {
+            this.key = key;
+            this.config = config;
+        }
+
+
+        public XmlBytesToStruct xmlToStruct() {
+            XmlBytesToStruct engine = xmlToStruct;
+            if (engine == null) {
+                synchronized (this) {
+                    engine = xmlToStruct;
+                    if (engine == null) {
+                        engine = new XmlBytesToStruct(config);
+                        xmlToStruct = engine;
+                    }
+                }
+            }
+            return engine;
+        }
+
+        public StructToXmlBytes structToXml() {
+            StructToXmlBytes engine = structToXml;
+            if (engine == null) {
+                synchronized (this) {
+                    engine = structToXml;
+                    if (engine == null) {
+                        engine = new StructToXmlBytes(config);
+                        structToXml = engine;
+                    }
+                }
+            }
+            return engine;
+        }
+
+        public CollectionToXmlBytes collectionToXml() {
+            CollectionToXmlBytes engine = collectionToXml;
+            if (engine == null) {
+                synchronized (this) {
+                    engine = collectionToXml;
+                    if (engine == null) {
+                        engine = new CollectionToXmlBytes(config);
+                        collectionToXml = engine;
+                    }
+                }
+            }
+            return engine;
+        }
+
+        public XmlToJsonBytes xmlToJson() {
+            XmlToJsonBytes engine = xmlToJson;
+            if (engine == null) {
+                synchronized (this) {
+                    engine = xmlToJson;
+                    if (engine == null) {
+                        engine = new XmlToJsonBytes(config, xmlToStruct());
+                        xmlToJson = engine;
+                    }
+                }
+            }
+            return engine;
+        }
+
+        public JsonToXmlBytes jsonToXml() {
+            JsonToXmlBytes engine = jsonToXml;
+            if (engine == null) {
+                synchronized (this) {
+                    engine = jsonToXml;
+                    if (engine == null) {
+                        engine = new JsonToXmlBytes(config);
+                        jsonToXml = engine;
+                    }
+                }
+            }
+            return engine;
+        }
+
+        /** stops any background work done by the engines */
+        private synchronized void close() {
+            if (xmlToStruct != null) {
+                xmlToStruct.close();
+            }
+        }
+    }
+
+
+
+    /**
+     * Identifies the engines for a config.
+     */
+    private static final class Key {
+        private final Map<String, ?> values;
+        private final String xsdFingerprint;
+
+        Key(XmlPluginsConfig config) {
+            final Map<String, Object> configValues = new HashMap<>(config.values());
+            configValues.remove(ConverterConfig.TYPE_CONFIG);
+            this.values = configValues;
+            this.xsdFingerprint = fingerprint(config.getXsdSchema());
+        }
+
+        private static String fingerprint(File xsd) {
+            if (xsd == null) {
+                return null;
+            }
+            try {
+                return XsdSchemaStore.fingerprint(Files.readAllBytes(xsd.toPath()));
+            }
+            catch (final IOException e) {
+                // reported when the engines try to parse the schema
+                return null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return values.equals(other.values) && Objects.equals(xsdFingerprint, other.xsdFingerprint);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(values, xsdFingerprint);
+        }
+
+        @Override
+        public String toString() {
+            return values + (xsdFingerprint == null ? "" : " (xsd " + xsdFingerprint + ")");
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.errors.DataException;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Converts JSON documents into the XML that CollectionToXmlBytes
+ *  would create for the Maps and Lists that JsonConverter (without
+ *  schemas) parses them into.
+ *
+ * The JSON is read a token at a time, and each value is written as XML
+ *  as soon as it has been read, so no Maps or Lists are created and
+ *  the memory needed doesn't grow with the size of the document.
+ *
+ * As members are written in the order they are read, there are some
+ *  differences from the Maps that JsonConverter creates: elements are
+ *  written in the same order as the JSON members (rather than the
+ *  order of a HashMap), and members with duplicate names are all
+ *  written (rather than only the last one).
+ */
+public class JsonToXmlBytes extends ToXmlBytes {
+
+    private static final XmlTag ENTRY = new XmlTag("entry");
+    private static final XmlTag KEY = new XmlTag("key");
+    private static final XmlTag VALUE = new XmlTag("value");
+
+
+    public JsonToXmlBytes(XmlPluginsConfig config) {
+        super(config);
+    }
+
+
+    /**
+     * Creates an XML string representation of the provided JSON document.
+     *
+     * @return null if the JSON document is empty or null
+     */
+    public byte[] convert(byte[] json) throws DataException, SerializationException {
+        if (json == null) {
+            return null;
+        }
+
+        final Utf8JsonReader reader = new Utf8JsonReader(json);
+        final Utf8XmlWriter writer;
+
+        switch (reader.peek()) {
+            case -1:
+                return null;
+            case 'n':
+                reader.readNull();
+                return null;
+            case '{':
+                writer = startDocument(json.length);
+                reader.beginObject();
+                processMembers(reader, writer);
+                break;
+            case '[':
+                writer = startDocument(json.length);
+                addArrayElements(reader, writer, ENTRY);
+                break;
+            default:
+                throw new NotImplementedException(readScalarType(reader));
+        }
+
+        // anything after the value is ignored, as it is by JsonConverter
+        writer.endElement();
+        return writer.toByteArray();
+    }
+
+
+    private Utf8XmlWriter startDocument(int jsonSize) {
+        final Utf8XmlWriter writer = createDocumentWriter(jsonSize);
+        writer.writeDeclaration(false);
+        writer.startElement(getConfig().getRootElementName());
+        return writer;
+    }
+
+
+    /**
+     * Writes the members of an object, after its start has been read.
+     */
+    private void processMembers(Utf8JsonReader reader, Utf8XmlWriter writer) {
+        while (reader.hasNext('}')) {
+            processItem(reader, writer, reader.readName());
+        }
+    }
+
+    /**
+     * Writes the next value, using the same rules as
+     *  CollectionToXmlBytes.processItem uses for Map entries.
+     */
+    private void processItem(Utf8JsonReader reader, Utf8XmlWriter writer, String key) {
+        final int next = reader.peek();
+
+        if (next == 'n') {
+            reader.readNull();
+            writer.emptyElement(key);
+        }
+        else if (!XmlUtils.isValidXmlElementName(key)) {
+            writer.startElement(ENTRY);
+            writer.textElement(KEY, key);
+
+            if (next == '[') {
+                addArrayElements(reader, writer, VALUE);
+            }
+            else {
+                writer.startElement(VALUE);
+                if (next == '{') {
+                    reader.beginObject();
+                    processMembers(reader, writer);
+                }
+                else {
+                    writer.text(readScalar(reader));
+                }
+                writer.endElement();
+            }
+
+            writer.endElement();
+        }
+        else if (next == '[') {
+            addArrayElements(reader, writer, new XmlTag(key));
+        }
+        else if (next == '{') {
+            writer.startElement(key);
+            reader.beginObject();
+            processMembers(reader, writer);
+            writer.endElement();
+        }
+        else {
+            writer.startElement(key);
+            writer.text(readScalar(reader));
+            writer.endElement();
+        }
+    }
+
+    private void addArrayElements(Utf8JsonReader reader, Utf8XmlWriter writer, XmlTag field) {
+        reader.beginArray();
+        while (reader.hasNext(']')) {
+            writer.startElement(field);
+
+            switch (reader.peek()) {
+                case 'n':
+                    reader.readNull();
+                    break;
+                case '[':
+                    addArrayElements(reader, writer, ENTRY);
+                    break;
+                case '{':
+                    reader.beginObject();
+                    processMembers(reader, writer);
+                    break;
+                default:
+                    writer.text(readScalar(reader));
+                    break;
+            }
+
+            writer.endElement();
+        }
+    }
+
+
+    /**
+     * Reads a string, number or boolean value, returning the text that
+     *  would be written for the Java value JsonConverter creates for it.
+     */
+    private static CharSequence readScalar(Utf8JsonReader reader) {
+        switch (reader.peek()) {
+            case '"':
+                return reader.readString();
+            case 't':
+            case 'f':
+                return reader.readBoolean() ? "true" : "false";
+            default:
+                return reader.readNumber();
+        }
+    }
+
+    /**
+     * Reads a string, number or boolean value, returning the type of the
+     *  Java value JsonConverter creates for it.
+     */
+    private static Class<?> readScalarType(Utf8JsonReader reader) {
+        switch (reader.peek()) {
+            case '"':
+                reader.readString();
+                return String.class;
+            case 't':
+            case 'f':
+                reader.readBoolean();
+                return Boolean.class;
+            default:
+                reader.readNumber();
+                return reader.isIntegral() ? Long.class : Double.class;
+        }
+    }
+}
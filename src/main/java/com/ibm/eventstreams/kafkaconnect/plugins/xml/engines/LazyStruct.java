@@ -0,0 +1,241 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+/**
+ * A struct parsed from an XML document, which decodes the value of each
+ *  field from the document the first time that the field is read.
+ *
+ * Values are decoded by XmlLazyStructParser, and are the same values
+ *  that parsing the whole document would create. Fields that can't be
+ *  decoded throw a DataException when they are read.
+ *
+ * Structs are only equal to structs of the same class, so this is never
+ *  equal to a plain Struct. Use materialize() to decode every field into
+ *  a plain Struct where one is needed.
+ *
+ * Like Struct, this isn't thread-safe.
+ */
+public final class LazyStruct extends Struct {
+
+    private final XmlLazyStructParser parser;
+    private final String document;
+    private final XmlElementIndex index;
+
+    /** positions of the child elements for each field, released once decoded */
+    private final int[][] fieldElements;
+
+    /** true for each field that has been decoded (or set) */
+    private final boolean[] decoded;
+
+    /** the root element without its children, decoded when first needed */
+    private Struct root = null;
+
+
+    LazyStruct(Schema schema, XmlLazyStructParser parser, String document, XmlElementIndex index, int[][] fieldElements) {
+        super(schema);
+        this.parser = parser;
+        this.document = document;
+        this.index = index;
+        this.fieldElements = fieldElements;
+        this.decoded = new boolean[fieldElements.length];
+    }
+
+
+    /**
+     * Returns a plain Struct with the values of all of the fields,
+     *  decoding any that haven't been read yet.
+     */
+    public Struct materialize() {
+        final Struct struct = new Struct(schema());
+        for (final Field field : schema().fields()) {
+            decode(field.index());
+            final Object value = super.getWithoutDefault(field.name());
+            if (value != null) {
+                struct.put(field, value);
+            }
+        }
+        return struct;
+    }
+
+
+    private void decode(String fieldName) {
+        final Field field = schema().field(fieldName);
+        if (field != null) {
+            decode(field.index());
+        }
+    }
+
+    private void decode(int fieldIndex) {
+        if (fieldIndex >= decoded.length || decoded[fieldIndex]) {
+            return;
+        }
+
+        final Field field = schema().fields().get(fieldIndex);
+        final Struct values;
+        if (fieldElements[fieldIndex] == null) {
+            if (root == null) {
+                root = parser.decodeRoot(document, index);
+            }
+            values = root;
+        }
+        else {
+            values = parser.decodeElements(document, index, fieldElements[fieldIndex]);
+            fieldElements[fieldIndex] = null;
+        }
+
+        decoded[fieldIndex] = true;
+        final Object value = values.getWithoutDefault(field.name());
+        if (value != null) {
+            super.put(field, value);
+        }
+    }
+
+    private void decodeAll() {
+        for (int i = 0; i < decoded.length; i++) {
+            decode(i);
+        }
+    }
+
+
+    @Override
+    public Object get(Field field) {
+        decode(field.index());
+        return super.get(field);
+    }
+
+    @Override
+    public Object getWithoutDefault(String fieldName) {
+        decode(fieldName);
+        return super.getWithoutDefault(fieldName);
+    }
+
+    @Override
+    public Byte getInt8(String fieldName) {
+        decode(fieldName);
+        return super.getInt8(fieldName);
+    }
+
+    @Override
+    public Short getInt16(String fieldName) {
+        decode(fieldName);
+        return super.getInt16(fieldName);
+    }
+
+    @Override
+    public Integer getInt32(String fieldName) {
+        decode(fieldName);
+        return super.getInt32(fieldName);
+    }
+
+    @Override
+    public Long getInt64(String fieldName) {
+        decode(fieldName);
+        return super.getInt64(fieldName);
+    }
+
+    @Override
+    public Float getFloat32(String fieldName) {
+        decode(fieldName);
+        return super.getFloat32(fieldName);
+    }
+
+    @Override
+    public Double getFloat64(String fieldName) {
+        decode(fieldName);
+        return super.getFloat64(fieldName);
+    }
+
+    @Override
+    public Boolean getBoolean(String fieldName) {
+        decode(fieldName);
+        return super.getBoolean(fieldName);
+    }
+
+    @Override
+    public String getString(String fieldName) {
+        decode(fieldName);
+        return super.getString(fieldName);
+    }
+
+    @Override
+    public byte[] getBytes(String fieldName) {
+        decode(fieldName);
+        return super.getBytes(fieldName);
+    }
+
+    @Override
+    public <T> List<T> getArray(String fieldName) {
+        decode(fieldName);
+        return super.getArray(fieldName);
+    }
+
+    @Override
+    public <K, V> Map<K, V> getMap(String fieldName) {
+        decode(fieldName);
+        return super.getMap(fieldName);
+    }
+
+    @Override
+    public Struct getStruct(String fieldName) {
+        decode(fieldName);
+        return super.getStruct(fieldName);
+    }
+
+    @Override
+    public Struct put(Field field, Object value) {
+        // values that are set replace the value in the document
+        if (field.index() < decoded.length) {
+            decoded[field.index()] = true;
+        }
+        return super.put(field, value);
+    }
+
+
+    @Override
+    public void validate() {
+        decodeAll();
+        super.validate();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        decodeAll();
+        if (o instanceof LazyStruct) {
+            ((LazyStruct) o).decodeAll();
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        decodeAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        decodeAll();
+        return super.toString();
+    }
+}
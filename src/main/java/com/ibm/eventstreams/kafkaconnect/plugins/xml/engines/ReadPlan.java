@@ -0,0 +1,148 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Immutable plan for parsing XML elements into values of a single schema.
+ *
+ * Compiled once per schema by XmlStreamToStruct, so that the fields
+ *  for element and attribute names, the arrays that need creating for
+ *  each new struct, and the parser for each primitive value, only need
+ *  to be worked out once rather than for every element.
+ */
+public final class ReadPlan {
+
+    /** binding of an element or attribute name to a field of a struct */
+    static final class FieldBinding {
+        final Field field;
+        final ReadPlan plan;
+
+        FieldBinding(Field field, ReadPlan plan) {
+            this.field = field;
+            this.plan = plan;
+        }
+    }
+
+    private static final Field[] NO_FIELDS = new Field[0];
+
+
+    final Schema schema;
+    final Type type;
+
+    /** parser for primitive values */
+    final Function<String, Object> parser;
+
+    /** struct fields, keyed by element or attribute name */
+    final Map<String, FieldBinding> fields;
+    /** required array fields, which need an empty list in every struct */
+    final Field[] requiredArrays;
+    /** field for the text content of the element, if there is one */
+    final FieldBinding entry;
+    /** true if the struct only has fields for some of the content of its element, so anything else is skipped */
+    final boolean projected;
+
+    /** plan for list items */
+    final ReadPlan items;
+
+    /** plans for map keys and values */
+    final ReadPlan keys;
+    final ReadPlan values;
+
+
+    private ReadPlan(Schema schema, Set<Schema> projectedStructs, Map<Schema, ReadPlan> compiled) {
+        this.schema = schema;
+        this.type = schema.type();
+        this.parser = XmlUtils.getPrimitiveParser(schema);
+        this.projected = projectedStructs.contains(schema);
+
+        // added before compiling any nested schemas, so that
+        //  any repeated uses of this schema share this plan
+        compiled.put(schema, this);
+
+        if (type == Type.STRUCT) {
+            fields = new HashMap<>();
+            final List<Field> arrays = new ArrayList<>();
+            for (final Field field : schema.fields()) {
+                fields.put(field.name(), new FieldBinding(field, compile(field.schema(), projectedStructs, compiled)));
+
+                if (field.schema().type() == Type.ARRAY && !field.schema().isOptional()) {
+                    arrays.add(field);
+                }
+            }
+            requiredArrays = arrays.toArray(NO_FIELDS);
+            entry = fields.get("entry");
+        }
+        else {
+            fields = null;
+            requiredArrays = NO_FIELDS;
+            entry = null;
+        }
+
+        items = type == Type.ARRAY ? compile(schema.valueSchema(), projectedStructs, compiled) : null;
+        keys = type == Type.MAP ? compile(schema.keySchema(), projectedStructs, compiled) : null;
+        values = type == Type.MAP ? compile(schema.valueSchema(), projectedStructs, compiled) : null;
+    }
+
+
+    public static ReadPlan compile(Schema schema) {
+        return compile(schema, Collections.emptySet());
+    }
+
+    /**
+     * Compiles a plan for a schema where the provided structs (which
+     *  are compared by identity) only have fields for some of the
+     *  content of their elements.
+     */
+    static ReadPlan compile(Schema schema, Set<Schema> projectedStructs) {
+        return compile(schema, projectedStructs, new IdentityHashMap<>());
+    }
+
+    private static ReadPlan compile(Schema schema, Set<Schema> projectedStructs, Map<Schema, ReadPlan> compiled) {
+        final ReadPlan plan = compiled.get(schema);
+        if (plan != null) {
+            return plan;
+        }
+        return new ReadPlan(schema, projectedStructs, compiled);
+    }
+
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    FieldBinding field(String name) {
+        return fields.get(name);
+    }
+
+    Object parse(String value) {
+        return parser.apply(value);
+    }
+}
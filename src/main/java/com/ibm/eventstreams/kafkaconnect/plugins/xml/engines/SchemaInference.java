@@ -0,0 +1,397 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.LruCache;
+
+/**
+ * Infers Connect schemas for XML documents parsed without a schema,
+ *  from the maps, lists and values that XStreamMapConverter creates.
+ *
+ * A single schema is maintained for all of the documents, which is
+ *  widened whenever a document with a new shape is seen: new elements
+ *  and attributes are added as optional fields, repeated elements
+ *  become arrays, elements that gain attributes become structs (with
+ *  the text as an "entry" field), and conflicting types are widened to
+ *  a type that can represent both (a wider number, or a string). As
+ *  the schema only ever grows, the schema used for a document may
+ *  include fields that are missing from it.
+ *
+ * The schema for each document shape is cached by a structural
+ *  fingerprint of the document, so documents with the same shape share
+ *  the same Schema instance, and the schema only has to be inferred the
+ *  first time that a shape is seen (or after the schema is widened).
+ *
+ * Instances can be shared between threads.
+ */
+public class SchemaInference {
+
+    private static final int MAX_SHAPES = 256;
+
+    private final String rootElementName;
+
+    /** schema for all of the documents seen so far - only changed while locked */
+    private volatile Schema schema = null;
+
+    /** schema to use for each document shape, keyed by fingerprint */
+    private final LruCache<String, Schema> schemasByShape = new LruCache<>(MAX_SHAPES);
+
+    /**
+     * most recently used shape, checked before (locking) the cache of
+     *  shapes - only changed while locked, so it can't be replaced by a
+     *  shape with a schema from before the schema was widened
+     */
+    private volatile Shape mostRecentShape = null;
+
+
+    public SchemaInference(String rootElementName) {
+        this.rootElementName = rootElementName;
+    }
+
+
+    /**
+     * Returns the value from a document parsed without a schema,
+     *  converted to match the schema inferred for it.
+     */
+    public SchemaAndValue infer(Object value) {
+        final String fingerprint = fingerprint(value);
+
+        // the most recent shape is only used if the schema hasn't been
+        //  widened since, for documents of that shape to use the widened schema
+        final Shape recent = mostRecentShape;
+        final Schema valueSchema;
+        if (recent != null && recent.schema == schema && recent.fingerprint.equals(fingerprint)) {
+            valueSchema = recent.schema;
+        }
+        else {
+            valueSchema = getSchema(fingerprint, value);
+        }
+
+        return new SchemaAndValue(valueSchema, toConnectValue(value, valueSchema));
+    }
+
+
+    private synchronized Schema getSchema(String fingerprint, Object value) {
+        final Schema existing = schemasByShape.get(fingerprint);
+        if (existing != null) {
+            mostRecentShape = new Shape(fingerprint, existing);
+            return existing;
+        }
+
+        final Schema widened = schema == null ? inferRootSchema(value) : widen(schema, inferRootSchema(value));
+        if (widened != schema) {
+            // documents of shapes that have already been seen should
+            //  use the widened schema from now on too
+            schema = widened;
+            schemasByShape.clear();
+        }
+        schemasByShape.put(fingerprint, schema);
+        mostRecentShape = new Shape(fingerprint, schema);
+        return schema;
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Fingerprints
+    //-------------------------------------------------------------------
+
+    /**
+     * Returns a description of the structure of a value, and the types
+     *  of the values within it, that is the same for any values that
+     *  would have the same inferred schema.
+     */
+    static String fingerprint(Object value) {
+        final StringBuilder fingerprint = new StringBuilder();
+        appendFingerprint(fingerprint, value);
+        return fingerprint.toString();
+    }
+
+    private static void appendFingerprint(StringBuilder fingerprint, Object value) {
+        if (value instanceof Map) {
+            fingerprint.append('{');
+            for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                // names can't contain a null character, as it isn't valid in XML
+                fingerprint.append(entry.getKey()).append('\u0000');
+                appendFingerprint(fingerprint, entry.getValue());
+            }
+            fingerprint.append('}');
+        }
+        else if (value instanceof List) {
+            fingerprint.append('[');
+            int previousStart = -1;
+            for (final Object item : (List<?>) value) {
+                final int start = fingerprint.length();
+                appendFingerprint(fingerprint, item);
+
+                // items of the same shape as the previous item don't
+                //  change the schema, so only need including once
+                if (previousStart >= 0 && start - previousStart == fingerprint.length() - start &&
+                    fingerprint.substring(previousStart, start).equals(fingerprint.substring(start)))
+                {
+                    fingerprint.setLength(start);
+                }
+                else {
+                    previousStart = start;
+                }
+            }
+            fingerprint.append(']');
+        }
+        else if (value instanceof Boolean) {
+            fingerprint.append('b');
+        }
+        else if (value instanceof Integer) {
+            fingerprint.append('i');
+        }
+        else if (value instanceof Long) {
+            fingerprint.append('l');
+        }
+        else if (value instanceof Double) {
+            fingerprint.append('d');
+        }
+        else {
+            fingerprint.append('s');
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Inferring schemas
+    //-------------------------------------------------------------------
+
+    private Schema inferRootSchema(Object value) {
+        if (value instanceof Map) {
+            final SchemaBuilder builder = SchemaBuilder.struct().name(rootElementName);
+            addFields(builder, (Map<?, ?>) value);
+            return builder.build();
+        }
+        return inferSchema(value);
+    }
+
+    /**
+     * Returns the schema for a value, where every schema is optional
+     *  as elements can be missing from other documents.
+     */
+    private static Schema inferSchema(Object value) {
+        if (value instanceof Map) {
+            final SchemaBuilder builder = SchemaBuilder.struct().optional();
+            addFields(builder, (Map<?, ?>) value);
+            return builder.build();
+        }
+        else if (value instanceof List) {
+            Schema itemSchema = null;
+            for (final Object item : (List<?>) value) {
+                itemSchema = itemSchema == null ? inferSchema(item) : widen(itemSchema, inferSchema(item));
+            }
+            return SchemaBuilder.array(itemSchema == null ? Schema.OPTIONAL_STRING_SCHEMA : itemSchema).optional().build();
+        }
+        else if (value instanceof Boolean) {
+            return Schema.OPTIONAL_BOOLEAN_SCHEMA;
+        }
+        else if (value instanceof Integer) {
+            return Schema.OPTIONAL_INT32_SCHEMA;
+        }
+        else if (value instanceof Long) {
+            return Schema.OPTIONAL_INT64_SCHEMA;
+        }
+        else if (value instanceof Double) {
+            return Schema.OPTIONAL_FLOAT64_SCHEMA;
+        }
+        return Schema.OPTIONAL_STRING_SCHEMA;
+    }
+
+    private static void addFields(SchemaBuilder builder, Map<?, ?> map) {
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            builder.field(entry.getKey().toString(), inferSchema(entry.getValue()));
+        }
+    }
+
+
+    /**
+     * Returns a schema that can represent values of both of the provided
+     *  schemas, which is the first schema if it can already do that.
+     */
+    private static Schema widen(Schema current, Schema other) {
+        if (current == other) {
+            return current;
+        }
+
+        if (current.type() == Type.ARRAY || other.type() == Type.ARRAY) {
+            // a single element in one document, and repeated in another
+            final Schema currentItems = current.type() == Type.ARRAY ? current.valueSchema() : current;
+            final Schema otherItems = other.type() == Type.ARRAY ? other.valueSchema() : other;
+            final Schema items = widen(currentItems, otherItems);
+            if (current.type() == Type.ARRAY && items == currentItems) {
+                return current;
+            }
+            return SchemaBuilder.array(items).optional().build();
+        }
+
+        if (current.type() == Type.STRUCT || other.type() == Type.STRUCT) {
+            return widenStruct(current, other);
+        }
+
+        return widenPrimitive(current, other);
+    }
+
+    private static Schema widenStruct(Schema current, Schema other) {
+        boolean changed = current.type() != Type.STRUCT;
+
+        // an element with only text in one document, and with attributes
+        //  or child elements in another, has its text in an entry field
+        final List<Field> currentFields = current.type() == Type.STRUCT ? current.fields() : List.of(new Field("entry", 0, current));
+        final List<Field> otherFields = other.type() == Type.STRUCT ? other.fields() : List.of(new Field("entry", 0, other));
+
+        final List<Field> fields = new ArrayList<>(currentFields.size() + otherFields.size());
+        for (final Field field : currentFields) {
+            final Field otherField = findField(otherFields, field.name());
+            final Schema fieldSchema = otherField == null ? field.schema() : widen(field.schema(), otherField.schema());
+            changed |= fieldSchema != field.schema();
+            fields.add(new Field(field.name(), fields.size(), fieldSchema));
+        }
+        for (final Field otherField : otherFields) {
+            if (findField(currentFields, otherField.name()) == null) {
+                changed = true;
+                fields.add(new Field(otherField.name(), fields.size(), otherField.schema()));
+            }
+        }
+
+        if (!changed) {
+            return current;
+        }
+
+        final SchemaBuilder builder = SchemaBuilder.struct();
+        if (current.type() == Type.STRUCT) {
+            builder.name(current.name());
+            if (current.isOptional()) {
+                builder.optional();
+            }
+        }
+        else {
+            builder.optional();
+        }
+        for (final Field field : fields) {
+            builder.field(field.name(), field.schema());
+        }
+        return builder.build();
+    }
+
+    private static Field findField(List<Field> fields, String name) {
+        for (final Field field : fields) {
+            if (field.name().equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private static Schema widenPrimitive(Schema current, Schema other) {
+        final Type currentType = current.type();
+        final Type otherType = other.type();
+        if (currentType == otherType || currentType == Type.STRING) {
+            return current;
+        }
+
+        if (isNumber(currentType) && isNumber(otherType)) {
+            if (currentType == Type.FLOAT64) {
+                return current;
+            }
+            if (otherType == Type.FLOAT64) {
+                return Schema.OPTIONAL_FLOAT64_SCHEMA;
+            }
+            return Schema.OPTIONAL_INT64_SCHEMA;
+        }
+
+        return Schema.OPTIONAL_STRING_SCHEMA;
+    }
+
+    private static boolean isNumber(Type type) {
+        return type == Type.INT32 || type == Type.INT64 || type == Type.FLOAT64;
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Converting values
+    //-------------------------------------------------------------------
+
+    /**
+     * Converts a value to match the provided schema, which is either the
+     *  schema inferred for it, or one that has been widened from it.
+     */
+    private static Object toConnectValue(Object value, Schema valueSchema) {
+        if (value == null) {
+            return null;
+        }
+
+        switch (valueSchema.type()) {
+            case STRUCT: {
+                final Struct struct = new Struct(valueSchema);
+                if (value instanceof Map) {
+                    for (final Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                        final Field field = valueSchema.field(entry.getKey().toString());
+                        struct.put(field, toConnectValue(entry.getValue(), field.schema()));
+                    }
+                }
+                else {
+                    final Field entry = valueSchema.field("entry");
+                    struct.put(entry, toConnectValue(value, entry.schema()));
+                }
+                return struct;
+            }
+            case ARRAY: {
+                final List<Object> list = new ArrayList<>();
+                if (value instanceof List) {
+                    for (final Object item : (List<?>) value) {
+                        list.add(toConnectValue(item, valueSchema.valueSchema()));
+                    }
+                }
+                else {
+                    list.add(toConnectValue(value, valueSchema.valueSchema()));
+                }
+                return list;
+            }
+            case INT64:
+                return ((Number) value).longValue();
+            case FLOAT64:
+                return ((Number) value).doubleValue();
+            case STRING:
+                return value.toString();
+            default:
+                return value;
+        }
+    }
+
+
+    private static final class Shape {
+        private final String fingerprint;
+        private final Schema schema;
+
+        Shape(String fingerprint, Schema schema) {
+            this.fingerprint = fingerprint;
+            this.schema = schema;
+        }
+    }
+}
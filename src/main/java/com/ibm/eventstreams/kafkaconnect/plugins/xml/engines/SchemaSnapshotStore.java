@@ -0,0 +1,309 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.PluginVersion;
+
+/**
+ * Local, file-based, store of Connect schemas compiled from XSD schemas.
+ *
+ * Compiling a large XSD schema is expensive, so the resulting Connect
+ *  schema is saved in a compact binary snapshot that can be loaded
+ *  (for example, when the worker restarts) instead of compiling the
+ *  XSD again.
+ *
+ * Snapshots are identified by a fingerprint (SHA-256 hash) of the XSD
+ *  schema and the name of the root element, and only used if they
+ *  were created by the same version of the plug-ins. Snapshots that
+ *  can't be used are ignored, and replaced once the XSD has been
+ *  compiled again.
+ */
+public class SchemaSnapshotStore {
+
+    private final Logger log = LoggerFactory.getLogger(SchemaSnapshotStore.class);
+
+    private static final String FILE_EXTENSION = ".connect-schema";
+
+    /** identifies snapshot files, and the version of the format they use */
+    private static final int MAGIC = 0x58534443;
+    private static final int FORMAT_VERSION = 1;
+
+    /** markers for schemas that are new, or the same instance as one already in the snapshot */
+    private static final byte NEW_SCHEMA = 1;
+    private static final byte REPEATED_SCHEMA = 2;
+
+    private static final Type[] TYPES = Type.values();
+
+    private final Path directory;
+
+
+    public SchemaSnapshotStore(File directory) {
+        this.directory = directory.toPath();
+    }
+
+
+    /**
+     * Returns the Connect schema from a snapshot for the named root
+     *  element in the provided XSD schema, or null if there isn't a
+     *  snapshot that can be used.
+     */
+    public Schema load(byte[] xsd, String rootElementName) {
+        final String fingerprint = XsdSchemaStore.fingerprint(xsd);
+        final Path snapshot = getSnapshotPath(xsd, rootElementName);
+
+        try (InputStream file = Files.newInputStream(snapshot)) {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(file));
+
+            if (in.readInt() != MAGIC ||
+                in.readInt() != FORMAT_VERSION ||
+                !PluginVersion.get().equals(in.readUTF()) ||
+                !fingerprint.equals(in.readUTF()) ||
+                !rootElementName.equals(in.readUTF()))
+            {
+                log.info("Ignoring schema snapshot {} created for a different schema or version", snapshot);
+                return null;
+            }
+
+            return readSchema(in, new ArrayList<>());
+        }
+        catch (final NoSuchFileException e) {
+            return null;
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable schema snapshot {}", snapshot, e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Saves a snapshot of the Connect schema for the named root
+     *  element in the provided XSD schema.
+     *
+     * Failing to save a snapshot isn't an error, as the XSD schema
+     *  can be compiled again.
+     */
+    public void save(byte[] xsd, String rootElementName, Schema schema) {
+        final Path snapshot = getSnapshotPath(xsd, rootElementName);
+        try {
+            Files.createDirectories(directory);
+
+            // write to a temporary file first so that a partially-written
+            //  snapshot is never visible to anything reading the store
+            final Path tmp = Files.createTempFile(directory, "snapshot", ".tmp");
+            try {
+                try (OutputStream file = Files.newOutputStream(tmp)) {
+                    final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+                    out.writeInt(MAGIC);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeUTF(PluginVersion.get());
+                    out.writeUTF(XsdSchemaStore.fingerprint(xsd));
+                    out.writeUTF(rootElementName);
+                    writeSchema(out, schema, new IdentityHashMap<>());
+                    out.flush();
+                }
+                Files.move(tmp, snapshot, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            finally {
+                Files.deleteIfExists(tmp);
+            }
+            log.info("Saved schema snapshot {}", snapshot);
+        }
+        catch (IOException | RuntimeException e) {
+            log.warn("Failed to save schema snapshot {}", snapshot, e);
+        }
+    }
+
+
+    private Path getSnapshotPath(byte[] xsd, String rootElementName) {
+        // root element names can contain characters that aren't
+        //  valid in filenames, so are included in the fingerprint
+        final byte[] root = rootElementName.getBytes(UTF_8);
+        final byte[] key = new byte[xsd.length + 1 + root.length];
+        System.arraycopy(xsd, 0, key, 0, xsd.length);
+        System.arraycopy(root, 0, key, xsd.length + 1, root.length);
+
+        return directory.resolve(XsdSchemaStore.fingerprint(key) + FILE_EXTENSION);
+    }
+
+
+    /**
+     * Writes the schema, and the schemas that it contains.
+     *
+     * Schema instances used more than once are only written once, and
+     *  referred to by their position (in the order that each schema is
+     *  completed) after that, so that they are shared again when loaded.
+     */
+    private static void writeSchema(DataOutputStream out, Schema schema, Map<Schema, Integer> written) throws IOException {
+        final Integer index = written.get(schema);
+        if (index != null) {
+            out.writeByte(REPEATED_SCHEMA);
+            out.writeInt(index);
+            return;
+        }
+        if (schema.defaultValue() != null) {
+            throw new IllegalArgumentException("Default values are not supported in schema snapshots");
+        }
+
+        out.writeByte(NEW_SCHEMA);
+        out.writeByte(schema.type().ordinal());
+        out.writeBoolean(schema.isOptional());
+        writeNullableString(out, schema.name());
+        writeNullableString(out, schema.doc());
+        out.writeBoolean(schema.version() != null);
+        if (schema.version() != null) {
+            out.writeInt(schema.version());
+        }
+
+        final Map<String, String> parameters = schema.parameters();
+        out.writeInt(parameters == null ? -1 : parameters.size());
+        if (parameters != null) {
+            for (final Map.Entry<String, String> parameter : parameters.entrySet()) {
+                out.writeUTF(parameter.getKey());
+                out.writeUTF(parameter.getValue());
+            }
+        }
+
+        switch (schema.type()) {
+            case STRUCT:
+                out.writeInt(schema.fields().size());
+                for (final Field field : schema.fields()) {
+                    out.writeUTF(field.name());
+                    writeSchema(out, field.schema(), written);
+                }
+                break;
+            case ARRAY:
+                writeSchema(out, schema.valueSchema(), written);
+                break;
+            case MAP:
+                writeSchema(out, schema.keySchema(), written);
+                writeSchema(out, schema.valueSchema(), written);
+                break;
+            default:
+                break;
+        }
+
+        written.put(schema, written.size());
+    }
+
+
+    private static Schema readSchema(DataInputStream in, List<Schema> read) throws IOException {
+        final byte marker = in.readByte();
+        if (marker == REPEATED_SCHEMA) {
+            return read.get(in.readInt());
+        }
+        if (marker != NEW_SCHEMA) {
+            throw new IOException("Invalid schema snapshot");
+        }
+
+        final Type type = TYPES[in.readByte()];
+        final boolean optional = in.readBoolean();
+        final String name = readNullableString(in);
+        final String doc = readNullableString(in);
+        final Integer version = in.readBoolean() ? in.readInt() : null;
+
+        final int numParameters = in.readInt();
+        final String[] parameters = new String[Math.max(numParameters, 0) * 2];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = in.readUTF();
+        }
+
+        final SchemaBuilder result;
+        switch (type) {
+            case STRUCT:
+                result = SchemaBuilder.struct();
+                final int numFields = in.readInt();
+                for (int i = 0; i < numFields; i++) {
+                    final String fieldName = in.readUTF();
+                    result.field(fieldName, readSchema(in, read));
+                }
+                break;
+            case ARRAY:
+                result = SchemaBuilder.array(readSchema(in, read));
+                break;
+            case MAP:
+                final Schema keySchema = readSchema(in, read);
+                result = SchemaBuilder.map(keySchema, readSchema(in, read));
+                break;
+            default:
+                result = SchemaBuilder.type(type);
+                break;
+        }
+
+        if (optional) {
+            result.optional();
+        }
+        if (name != null) {
+            result.name(name);
+        }
+        if (doc != null) {
+            result.doc(doc);
+        }
+        if (version != null) {
+            result.version(version);
+        }
+        if (numParameters >= 0) {
+            final Map<String, String> parameterMap = new LinkedHashMap<>();
+            for (int i = 0; i < parameters.length; i += 2) {
+                parameterMap.put(parameters[i], parameters[i + 1]);
+            }
+            result.parameters(parameterMap);
+        }
+
+        final Schema schema = result.build();
+        read.add(schema);
+        return schema;
+    }
+
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
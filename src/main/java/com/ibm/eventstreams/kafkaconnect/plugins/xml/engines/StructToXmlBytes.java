@@ -15,34 +15,84 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
 
+import java.nio.ByteBuffer;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.XMLConstants;
 
+import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.Schema.Type;
 import org.apache.kafka.connect.data.Struct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.SchemaCache;
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
 
 public class StructToXmlBytes extends ToXmlBytes {
 
     private final Logger log = LoggerFactory.getLogger(StructToXmlBytes.class);
 
+    private static final XmlTag ENTRY = new XmlTag("entry");
+    private static final XmlTag KEY = new XmlTag("key");
+    private static final XmlTag VALUE = new XmlTag("value");
+
+    /** serialization plans for the schemas of the Structs we have seen */
+    private final SchemaCache<StructWritePlan> plans = new SchemaCache<>(this::compilePlan);
+
+    /** serialized xs:element definitions for the schemas we have seen */
+    private final SchemaCache<byte[]> schemaDefinitions = new SchemaCache<>(this::createSchemaDefinition);
+
+    /** where to store schemas, if they are referenced rather than embedded */
+    private final XsdSchemaStore schemaStore;
+
+    /** references to stored schemas, for each root element name, for the schemas we have seen */
+    private final SchemaCache<Map<String, String>> schemaReferences = new SchemaCache<>(schema -> new ConcurrentHashMap<>());
+
     public StructToXmlBytes(XmlPluginsConfig config) {
         super(config);
+
+        if (config.schemasEnabled() && config.getXsdSchemaStore() != null) {
+            schemaStore = new XsdSchemaStore(config.getXsdSchemaStore());
+        }
+        else {
+            schemaStore = null;
+        }
     }
 
     public byte[] convert(Schema schema, Struct value) {
+        return createXmlDoc(schema, value, getRootName(schema)).toByteArray();
+    }
+    public byte[] convert(Schema schema, Collection<?> value) {
+        return createXmlDoc(schema, value, getConfig().getRootElementName()).toByteArray();
+    }
+    public byte[] convert(Schema schema, Map<?, ?> value) {
+        return createXmlDoc(schema, value, getConfig().getRootElementName()).toByteArray();
+    }
+
+    /**
+     * Creates an XML string representation of the provided struct,
+     *  for records with String values, without encoding it as bytes.
+     */
+    public String convertToString(Schema schema, Struct value) {
+        return createXmlDoc(schema, value, getRootName(schema)).toXmlString();
+    }
+    public String convertToString(Schema schema, Collection<?> value) {
+        return createXmlDoc(schema, value, getConfig().getRootElementName()).toXmlString();
+    }
+    public String convertToString(Schema schema, Map<?, ?> value) {
+        return createXmlDoc(schema, value, getConfig().getRootElementName()).toXmlString();
+    }
+
+    private String getRootName(Schema schema) {
         // use the schema name as the root element for the XML doc
         //  we create, unless there is no schema name or it isn't
         //  suitable for use as an XML tag
@@ -50,302 +100,409 @@ public class StructToXmlBytes extends ToXmlBytes {
         if (schemaName == null || XmlUtils.isValidXmlElementName(schemaName) == false) {
             schemaName = getConfig().getRootElementName();
         }
-
-        final Document doc = createXmlDoc(schema, value, schemaName);
-        return convertXmlDocToBytes(doc);
-    }
-    public byte[] convert(Schema schema, Collection<?> value) {
-        final Document doc = createXmlDoc(schema, value, getConfig().getRootElementName());
-        return convertXmlDocToBytes(doc);
+        return schemaName;
     }
-    public byte[] convert(Schema schema, Map<?, ?> value) {
-        final Document doc = createXmlDoc(schema, value, getConfig().getRootElementName());
-        return convertXmlDocToBytes(doc);
+
+    private Utf8XmlWriter createXmlDoc(Schema schema, Object value, String rootName) {
+        final Utf8XmlWriter writer = createDocumentWriter();
+
+        if (schemaStore != null) {
+            writer.writeDeclaration(true);
+
+            // refer to a schema in the store instead of embedding it
+            final String reference = schemaReferences.get(schema)
+                .computeIfAbsent(rootName, name -> storeSchema(schema, name));
+
+            writer.startElement(rootName);
+            writer.attribute("xmlns:xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+            writer.attribute("xsi:noNamespaceSchemaLocation", reference);
+        }
+        else if (getConfig().schemasEnabled()) {
+            writer.writeDeclaration(true);
+
+            writer.startElement(rootName);
+            writer.attribute("xmlns:xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
+            writer.attribute("xsi:noNamespaceSchemaLocation", XmlUtils.EMBEDDED_SCHEMA_REFERENCE);
+
+            writer.startElement("xs:schema");
+            writer.attribute("xmlns:xs", XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            writer.attribute("id", XmlUtils.EMBEDDED_SCHEMA_ID);
+
+            writer.startElement("xs:element");
+            writer.attribute("name", rootName);
+
+            writer.startElement("xs:complexType");
+            writer.startElement("xs:sequence");
+
+            writer.startElement("xs:any");
+            writer.attribute("maxOccurs", "1");
+            writer.attribute("minOccurs", "0");
+            writer.attribute("namespace", XMLConstants.W3C_XML_SCHEMA_NS_URI);
+            writer.attribute("processContents", "skip");
+            writer.endElement();
+
+            // the definitions of the elements are the same for every
+            //  record with this schema, so only need generating once
+            writer.writeFragment(schemaDefinitions.get(schema));
+
+            // xs:sequence, xs:complexType, xs:element, xs:schema
+            writer.endElement();
+            writer.endElement();
+            writer.endElement();
+            writer.endElement();
+        }
+        else {
+            writer.writeDeclaration(false);
+            writer.startElement(rootName);
+        }
+
+        if (value instanceof Struct) {
+            processStruct(writer, (Struct)value);
+        }
+        else if (value instanceof Collection) {
+            addListElements(writer, (Collection<?>)value, ENTRY);
+        }
+        else if (value instanceof Map) {
+            processMap(writer, (Map<?, ?>)value);
+        }
+        else {
+            throw new NotImplementedException(value.getClass());
+        }
+
+        writer.endElement();
+
+        return writer;
     }
 
-    private Document createXmlDoc(Schema schema, Object value, String rootName) {
-        final Document doc = getDocumentBuilder().newDocument();
 
-        final Element root = doc.createElement(rootName);
-        doc.appendChild(root);
 
-        if (getConfig().schemasEnabled()) {
-            doc.setXmlStandalone(true);
-            root.setAttribute("xmlns:xsi", XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI);
-            root.setAttribute("xsi:noNamespaceSchemaLocation", "#connectSchema");
+    /**
+     * Writes a standalone XSD schema document for values with this
+     *  schema to the schema store.
+     *
+     * @return reference to the stored schema
+     */
+    private String storeSchema(Schema schema, String rootName) {
+        final Utf8XmlWriter writer = createWriter();
+        writer.writeDeclaration(true);
 
-            final Element schemaElement = doc.createElementNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, "xs:schema");
-            schemaElement.setAttribute("xmlns:xs", XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            schemaElement.setAttribute("id", "connectSchema");
+        writer.startElement("xs:schema");
+        writer.attribute("xmlns:xs", XMLConstants.W3C_XML_SCHEMA_NS_URI);
 
-            final Element schemaRootElement = addNode(doc, schemaElement, "xs:element");
-            schemaRootElement.setAttribute("name", rootName);
+        writer.startElement("xs:element");
+        writer.attribute("name", rootName);
 
-            final Element complexTypeDefinition = addNode(doc, schemaRootElement, "xs:complexType");
-            final Element schemaSequence = addNode(doc, complexTypeDefinition, "xs:sequence");
+        writer.startElement("xs:complexType");
+        writer.startElement("xs:sequence");
 
-            final Element schemaItem = addNode(doc, schemaSequence, "xs:any");
-            schemaItem.setAttribute("processContents", "skip");
-            schemaItem.setAttribute("namespace", XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            schemaItem.setAttribute("minOccurs", "0");
-            schemaItem.setAttribute("maxOccurs", "1");
+        writer.writeFragment(schemaDefinitions.get(schema));
 
-            if (schema.type() == Type.STRUCT) {
-                for (final Field field : schema.fields()) {
-                    processSchema(doc, schemaSequence, field.name(), field.schema());
-                }
-            }
-            else if (schema.type() == Type.ARRAY) {
-                processSchema(doc, schemaSequence, "entry", schema);
-            }
-            else if (schema.type() == Type.MAP) {
-                processMapSchema(doc, schemaSequence, schema);
-            }
-            else {
-                log.error("Unknown type found in schema {}", schema.type().getName());
-            }
+        // xs:sequence, xs:complexType, xs:element, xs:schema
+        writer.endElement();
+        writer.endElement();
+        writer.endElement();
+        writer.endElement();
 
-            root.appendChild(schemaElement);
-        }
+        return schemaStore.put(writer.toByteArray());
+    }
 
-        if (value instanceof Struct) {
-            processStruct(doc, root, (Struct)value);
+
+    /**
+     * Creates the XML fragment with the xs:element definitions to
+     *  include in the embedded xs:schema for values with this schema.
+     */
+    private byte[] createSchemaDefinition(Schema schema) {
+        final Utf8XmlWriter writer = createWriter();
+
+        if (schema.type() == Type.STRUCT) {
+            for (final Field field : schema.fields()) {
+                processSchema(writer, field.name(), field.schema());
+            }
         }
-        else if (value instanceof Collection) {
-            addListElements(doc, root, (Collection<?>)value, "entry");
+        else if (schema.type() == Type.ARRAY) {
+            processSchema(writer, "entry", schema);
         }
-        else if (value instanceof Map) {
-            processMap(doc, root, (Map<?, ?>)value);
+        else if (schema.type() == Type.MAP) {
+            processMapSchema(writer, schema);
         }
         else {
-            throw new NotImplementedException(value.getClass());
+            log.error("Unknown type found in schema {}", schema.type().getName());
         }
 
-        return doc;
+        return writer.toByteArray();
     }
 
 
+    // NOTE: attributes are written in alphabetical order, to match
+    //  the output from the DOM serializer this replaced
 
-    private void processSchema(Document doc, Element sequenceElement, String name, Schema schema) {
-        final Element schemaElement = addNode(doc, sequenceElement, "xs:element");
-        schemaElement.setAttribute("name", name);
+    private void processSchema(Utf8XmlWriter writer, String name, Schema schema) {
+        writer.startElement("xs:element");
 
         switch (schema.type()) {
             case ARRAY:
-                schemaElement.setAttribute("maxOccurs", "unbounded");
-
                 if (schema.valueSchema().type().isPrimitive()) {
-                    schemaElement.setAttribute("type", getXmlType(schema.valueSchema().type()));
-
+                    writer.attribute("maxOccurs", "unbounded");
                     if (schema.valueSchema().isOptional()) {
-                        schemaElement.setAttribute("minOccurs", "0");
+                        writer.attribute("minOccurs", "0");
                     }
+                    writer.attribute("name", name);
+                    writer.attribute("type", getXmlType(schema.valueSchema().type()));
                 }
                 else {
-                    final Element arrayTypeDef = addNode(doc, schemaElement, "xs:complexType");
-                    final Element arraySeq = addNode(doc, arrayTypeDef, "xs:sequence");
+                    writer.attribute("maxOccurs", "unbounded");
+                    writer.attribute("name", name);
+
+                    writer.startElement("xs:complexType");
+                    writer.startElement("xs:sequence");
 
                     if (schema.valueSchema().type() == Type.STRUCT) {
                         for (final Field field : schema.valueSchema().fields()) {
-                            processSchema(doc, arraySeq, field.name(), field.schema());
+                            processSchema(writer, field.name(), field.schema());
                         }
                     }
                     else if (schema.valueSchema().type() == Type.ARRAY) {
-                        processSchema(doc, arraySeq, "entry", schema.valueSchema());
+                        processSchema(writer, "entry", schema.valueSchema());
                     }
                     else if (schema.valueSchema().type() == Type.MAP) {
-                        processMapSchema(doc, arraySeq, schema.valueSchema());
+                        processMapSchema(writer, schema.valueSchema());
                     }
+
+                    writer.endElement();
+                    writer.endElement();
                 }
                 break;
 
             case STRUCT:
-                final Element structTypeDef = addNode(doc, schemaElement, "xs:complexType");
-                final Element structSeq = addNode(doc, structTypeDef, "xs:sequence");
+                writer.attribute("name", name);
+
+                writer.startElement("xs:complexType");
+                writer.startElement("xs:sequence");
 
                 for (final Field structItem : schema.fields()) {
-                    processSchema(doc, structSeq, structItem.name(), structItem.schema());
+                    processSchema(writer, structItem.name(), structItem.schema());
                 }
+
+                writer.endElement();
+                writer.endElement();
                 break;
 
             case MAP:
-                final Element mapItemTypeDef = addNode(doc, schemaElement, "xs:complexType");
-                final Element mapItemSeq = addNode(doc, mapItemTypeDef, "xs:sequence");
-                processMapSchema(doc, mapItemSeq, schema);
+                writer.attribute("name", name);
+
+                writer.startElement("xs:complexType");
+                writer.startElement("xs:sequence");
+                processMapSchema(writer, schema);
+                writer.endElement();
+                writer.endElement();
                 break;
 
             default:
-                schemaElement.setAttribute("type", getXmlType(schema.type()));
-
                 if (schema.isOptional()) {
-                    schemaElement.setAttribute("minOccurs", "0");
-                    schemaElement.setAttribute("maxOccurs", "1");
+                    writer.attribute("maxOccurs", "1");
+                    writer.attribute("minOccurs", "0");
                 }
-
+                writer.attribute("name", name);
+                writer.attribute("type", getXmlType(schema.type()));
                 break;
         }
+
+        writer.endElement();
     }
 
 
-    private void processMapSchema(Document doc, Element parentElement, Schema mapSchema) {
-        final Element mapItemEntry = addNode(doc, parentElement, "xs:element");
-        mapItemEntry.setAttribute("name", "entry");
-        mapItemEntry.setAttribute("maxOccurs", "unbounded");
-        mapItemEntry.setAttribute("minOccurs", "0");
+    private void processMapSchema(Utf8XmlWriter writer, Schema mapSchema) {
+        writer.startElement("xs:element");
+        writer.attribute("maxOccurs", "unbounded");
+        writer.attribute("minOccurs", "0");
+        writer.attribute("name", "entry");
+
+        writer.startElement("xs:complexType");
+        writer.startElement("xs:sequence");
 
-        final Element mapItemEntryTypeDef = addNode(doc, mapItemEntry, "xs:complexType");
-        final Element mapItemEntrySeq = addNode(doc, mapItemEntryTypeDef, "xs:sequence");
+        processSchema(writer, "key", mapSchema.keySchema());
+        processSchema(writer, "value", mapSchema.valueSchema());
 
-        processSchema(doc, mapItemEntrySeq, "key", mapSchema.keySchema());
-        processSchema(doc, mapItemEntrySeq, "value", mapSchema.valueSchema());
+        writer.endElement();
+        writer.endElement();
+        writer.endElement();
     }
 
 
-    private void processStruct(Document doc, Element parentElement, Struct source) {
-        if (source == null) {
-            return;
+    private StructWritePlan compilePlan(Schema schema) {
+        final List<Field> fields = schema.fields();
+        final StructWritePlan.FieldWriter[] writers = new StructWritePlan.FieldWriter[fields.size()];
+        for (int i = 0; i < writers.length; i++) {
+            writers[i] = compileFieldWriter(fields.get(i));
         }
-        for (final Field field : source.schema().fields()) {
-            if (source.get(field) == null) {
-                continue;
-            }
+        return new StructWritePlan(schema, fields.toArray(new Field[0]), writers);
+    }
 
-            final Schema fieldSchema = field.schema();
-            switch (fieldSchema.type()) {
-                case ARRAY:
-                    addArrayElements(doc, parentElement, source, field.name(), field.schema().valueSchema());
-                    break;
-
-                case STRUCT:
-                    final Struct elementValue = source.getStruct(field.name());
-                    if (elementValue != null) {
-                        final Element structElement = doc.createElement(field.name());
-                        processStruct(doc, structElement, elementValue);
-                        parentElement.appendChild(structElement);
-                    }
-                    break;
 
-                case MAP:
-                    final String mapName = field.name();
-                    final Element mapElement = doc.createElement(field.name());
+    private StructWritePlan.FieldWriter compileFieldWriter(Field field) {
+        final XmlTag tag;
+        try {
+            tag = new XmlTag(field.name());
+        }
+        catch (final SerializationException e) {
+            // only a problem if there is a value to write using this name
+            return (writer, value) -> {
+                throw e;
+            };
+        }
 
-                    final Map<Object, Object> map = source.getMap(mapName);
-                    processMap(doc, mapElement, map);
-                    parentElement.appendChild(mapElement);
-                    break;
+        final Schema fieldSchema = field.schema();
+        switch (fieldSchema.type()) {
+            case ARRAY:
+                final Schema itemSchema = fieldSchema.valueSchema();
+                final StructWritePlan itemPlan = itemSchema.type() == Type.STRUCT ? compilePlan(itemSchema) : null;
+                return (writer, value) -> addArrayElements(writer, tag, (List<?>) value, itemPlan);
 
-                case BYTES:
-                    final Element bytesElement = doc.createElement(field.name());
-                    if (source.getBytes(field.name()) != null) {
-                        final byte[] bytes = source.getBytes(field.name());
+            case STRUCT:
+                final StructWritePlan nestedPlan = compilePlan(fieldSchema);
+                return (writer, value) -> {
+                    writer.startElement(tag);
+                    processStruct(writer, (Struct) value, nestedPlan);
+                    writer.endElement();
+                };
 
-                        String strRepresentation;
-                        if (bytes.length == 1 && "xs:byte".equals(fieldSchema.doc())) {
-                            strRepresentation = Byte.toString(bytes[0]);
-                        }
-                        else {
-                            strRepresentation = new String(Base64.getEncoder().encode(bytes));
-                        }
+            case MAP:
+                return (writer, value) -> {
+                    writer.startElement(tag);
+                    processMap(writer, (Map<?, ?>) value);
+                    writer.endElement();
+                };
 
-                        bytesElement.appendChild(doc.createTextNode(strRepresentation));
+            case BYTES:
+                final boolean isSingleByte = "xs:byte".equals(fieldSchema.doc());
+                return (writer, value) -> {
+                    final byte[] bytes = value instanceof ByteBuffer ?
+                                            ((ByteBuffer) value).array() :
+                                            (byte[]) value;
+
+                    String strRepresentation;
+                    if (bytes.length == 1 && isSingleByte) {
+                        strRepresentation = Byte.toString(bytes[0]);
+                    }
+                    else {
+                        strRepresentation = Base64.getEncoder().encodeToString(bytes);
                     }
-                    parentElement.appendChild(bytesElement);
-                    break;
 
-                default:
-                    final Object value = source.get(field.name());
-                    addXmlTextNode(doc, parentElement, field.name(), value == null ? null : value.toString());
-                    break;
-            }
+                    writer.textElement(tag, strRepresentation);
+                };
+
+            default:
+                return (writer, value) -> writer.textElement(tag, value.toString());
         }
     }
 
 
-    private void processMap(Document doc, Element mapElement, Map<?, ?> map) {
+    private void processStruct(Utf8XmlWriter writer, Struct source) {
+        if (source == null) {
+            return;
+        }
+        plans.get(source.schema()).write(writer, source);
+    }
+
+    private void processStruct(Utf8XmlWriter writer, Struct source, StructWritePlan plan) {
+        if (source.schema() == plan.getSchema()) {
+            plan.write(writer, source);
+        }
+        else {
+            processStruct(writer, source);
+        }
+    }
+
+
+    private void processMap(Utf8XmlWriter writer, Map<?, ?> map) {
         for (final Object key : map.keySet()) {
-            final Element mapItemElement = doc.createElement("entry");
+            writer.startElement(ENTRY);
 
             if (key == null) {
-                addNode(doc, mapItemElement, "key");
+                writer.emptyElement(KEY);
             }
             else if (key instanceof Struct) {
-                final Element mapItemKeyElement = addNode(doc, mapItemElement, "key");
-                processStruct(doc, mapItemKeyElement, (Struct) key);
+                writer.startElement(KEY);
+                processStruct(writer, (Struct) key);
+                writer.endElement();
             }
             else if (key instanceof String) {
-                final Element mapItemKeyElement = addNode(doc, mapItemElement, "key");
-                mapItemKeyElement.setTextContent(key.toString());
+                writer.textElement(KEY, key.toString());
             }
             else if (key instanceof byte[]) {
-                final Element mapItemKeyElement = addNode(doc, mapItemElement, "key");
-                mapItemKeyElement.setTextContent(Base64.getEncoder().encodeToString((byte[])key));
+                writer.textElement(KEY, Base64.getEncoder().encodeToString((byte[])key));
             }
             // else if (key.getClass().isArray()) {
-            //     addListElements(doc, mapItemElement, ListUtils.nullSafeArrayToList((Object[])key), "key");
+            //     addListElements(writer, ListUtils.nullSafeArrayToList((Object[])key), KEY);
             //}
             else if (key instanceof Collection) {
-                addListElements(doc, mapItemElement, (Collection<?>)key, "key");
+                addListElements(writer, (Collection<?>)key, KEY);
             }
             else if (key instanceof Map) {
-                final Element mapItemKeyElement = addNode(doc, mapItemElement, "key");
-                processMap(doc, mapItemKeyElement, (Map<?,?>) key);
+                writer.startElement(KEY);
+                processMap(writer, (Map<?,?>) key);
+                writer.endElement();
             }
             else {
-                final Element mapItemKeyElement = addNode(doc, mapItemElement, "key");
-                mapItemKeyElement.setTextContent(key.toString());
+                writer.textElement(KEY, key.toString());
             }
 
 
             final Object value = map.get(key);
             if (value instanceof Struct) {
-                final Element mapItemValueElement = addNode(doc, mapItemElement, "value");
-                processStruct(doc, mapItemValueElement, (Struct) value);
+                writer.startElement(VALUE);
+                processStruct(writer, (Struct) value);
+                writer.endElement();
             }
             else if (value instanceof String) {
-                addXmlTextNode(doc, mapItemElement, "value", value.toString());
+                writer.textElement(VALUE, value.toString());
             }
             else if (value instanceof byte[]) {
-                final Element mapItemValueElement = addNode(doc, mapItemElement, "value");
-                mapItemValueElement.setTextContent(Base64.getEncoder().encodeToString((byte[])value));
+                writer.textElement(VALUE, Base64.getEncoder().encodeToString((byte[])value));
             }
             // else if (value.getClass().isArray()) {
-            //    addListElements(doc, mapItemElement, ListUtils.nullSafeArrayToList((Object[])value), "value");
+            //    addListElements(writer, ListUtils.nullSafeArrayToList((Object[])value), VALUE);
             // }
             else if (value instanceof Collection) {
-                addListElements(doc, mapItemElement, (Collection<?>)value, "value");
+                addListElements(writer, (Collection<?>)value, VALUE);
             }
             else if (value instanceof Map) {
-                final Element mapItemValueElement = addNode(doc, mapItemElement, "value");
-                processMap(doc, mapItemValueElement, (Map<?,?>) value);
+                writer.startElement(VALUE);
+                processMap(writer, (Map<?,?>) value);
+                writer.endElement();
             }
             else {
-                final Element mapItemValueElement = addNode(doc, mapItemElement, "value");
-                mapItemValueElement.setTextContent(value.toString());
+                writer.textElement(VALUE, value.toString());
             }
 
-            mapElement.appendChild(mapItemElement);
+            writer.endElement();
         }
     }
 
 
-    private void addArrayElements(Document doc, Element parentElement, Struct source, String field, Schema itemSchema) {
-        for (final Object obj : source.getArray(field)) {
+    private void addArrayElements(Utf8XmlWriter writer, XmlTag tag, List<?> items, StructWritePlan itemPlan) {
+        for (final Object obj : items) {
 
-            final Element element = doc.createElement(field);
+            writer.startElement(tag);
             if (obj instanceof Struct) {
-                processStruct(doc, element, (Struct) obj);
+                if (itemPlan != null) {
+                    processStruct(writer, (Struct) obj, itemPlan);
+                }
+                else {
+                    processStruct(writer, (Struct) obj);
+                }
             }
             else if (obj instanceof Collection) {
-                addListElements(doc, element, (Collection<?>) obj, "entry");
+                addListElements(writer, (Collection<?>) obj, ENTRY);
             }
             else if (obj instanceof Map) {
-                processMap(doc, element, (Map<?, ?>) obj);
+                processMap(writer, (Map<?, ?>) obj);
             }
             else if (obj != null) {
-                element.appendChild(doc.createTextNode(obj.toString()));
+                writer.text(obj.toString());
             }
 
-            parentElement.appendChild(element);
+            writer.endElement();
         }
     }
 
@@ -371,22 +528,25 @@ public class StructToXmlBytes extends ToXmlBytes {
     }
 
 
-    private void addListElements(Document doc, Element parentElement, Collection<?> list, String elementName) {
+    private void addListElements(Utf8XmlWriter writer, Collection<?> list, XmlTag elementName) {
         for (final Object entry : list) {
             if (entry instanceof Struct) {
-                final Element entryElement = addNode(doc, parentElement, elementName);
-                processStruct(doc, entryElement, (Struct) entry);
+                writer.startElement(elementName);
+                processStruct(writer, (Struct) entry);
+                writer.endElement();
             }
             else if (entry instanceof Collection) {
-                final Element entryElement = addNode(doc, parentElement, elementName);
-                addListElements(doc, entryElement, (Collection<?>) entry, "entry");
+                writer.startElement(elementName);
+                addListElements(writer, (Collection<?>) entry, ENTRY);
+                writer.endElement();
             }
             else if (entry instanceof Map) {
-                final Element entryElement = addNode(doc, parentElement, elementName);
-                processMap(doc, entryElement, (Map<?,?>) entry);
+                writer.startElement(elementName);
+                processMap(writer, (Map<?,?>) entry);
+                writer.endElement();
             }
             else {
-                addXmlTextNode(doc, parentElement, elementName, entry.toString());
+                writer.textElement(elementName, entry.toString());
             }
         }
     }
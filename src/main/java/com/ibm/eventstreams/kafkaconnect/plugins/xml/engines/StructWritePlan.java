@@ -0,0 +1,61 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+/**
+ * Immutable plan for serializing Structs of a single schema.
+ *
+ * Compiled once per schema by StructToXmlBytes, so that the type of
+ *  each field (and the encoded element name to use for it) only needs
+ *  to be worked out once rather than for every record.
+ */
+public final class StructWritePlan {
+
+    @FunctionalInterface
+    interface FieldWriter {
+        /** writes a non-null field value */
+        void write(Utf8XmlWriter writer, Object value);
+    }
+
+
+    private final Schema schema;
+    private final Field[] fields;
+    private final FieldWriter[] writers;
+
+
+    StructWritePlan(Schema schema, Field[] fields, FieldWriter[] writers) {
+        this.schema = schema;
+        this.fields = fields;
+        this.writers = writers;
+    }
+
+    public Schema getSchema() {
+        return schema;
+    }
+
+    void write(Utf8XmlWriter writer, Struct source) {
+        for (int i = 0; i < fields.length; i++) {
+            final Object value = source.get(fields[i]);
+            if (value != null) {
+                writers[i].write(writer, value);
+            }
+        }
+    }
+}
@@ -15,94 +15,55 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
 
-import java.io.StringWriter;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.apache.kafka.common.errors.SerializationException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
 
 public abstract class ToXmlBytes {
 
-    private final Logger log = LoggerFactory.getLogger(ToXmlBytes.class);
-
-    /** XML document builder - used to create new document trees */
-    private DocumentBuilder dBuilder;
+    /** initial size of the buffer used to serialize each document */
+    private static final int INITIAL_BUFFER_SIZE = 1024;
 
     private final XmlPluginsConfig config;
 
-    private Transformer transformer;
-
 
     public ToXmlBytes(XmlPluginsConfig config) {
         this.config = config;
-
-        final DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        try {
-            dBuilder = dbFactory.newDocumentBuilder();
-        }
-        catch (final ParserConfigurationException e) {
-            log.error("Failed to set up XML document builder", e);
-            throw new SerializationException(e);
-        }
-
-        final TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        try {
-            transformer = transformerFactory.newTransformer();
-        }
-        catch (final TransformerConfigurationException e) {
-            log.error("Failed to create XML transformer", e);
-            throw new SerializationException(e);
-        }
     }
 
     protected XmlPluginsConfig getConfig() {
         return config;
     }
 
-    protected DocumentBuilder getDocumentBuilder() {
-        return dBuilder;
+    /**
+     * Creates a writer for serializing a new XML document. Writers
+     *  are not thread-safe, so a new one is needed for each document.
+     */
+    protected Utf8XmlWriter createWriter() {
+        return new Utf8XmlWriter(INITIAL_BUFFER_SIZE);
     }
 
-    protected byte[] convertXmlDocToBytes(Document doc) {
-        final DOMSource source = new DOMSource(doc);
-        final StringWriter sw = new StringWriter();
-        final StreamResult srResult = new StreamResult(sw);
-        try {
-            transformer.transform(source, srResult);
-        }
-        catch (final TransformerException e) {
-            log.error("Failed to transform XML doc", e);
-            throw new SerializationException(e);
-        }
-        return sw.toString().getBytes();
+    /**
+     * Creates a writer for serializing a new XML document in the
+     *  output encoding. Fragments of XML to be reused in other
+     *  documents must be written using createWriter instead, as
+     *  those are always UTF-8.
+     */
+    protected Utf8XmlWriter createDocumentWriter() {
+        return createDocumentWriter(INITIAL_BUFFER_SIZE);
     }
 
-
-    protected Element addNode(Document doc, Element parent, String name) {
-        final Element element = doc.createElement(name);
-        parent.appendChild(element);
-        return element;
+    /**
+     * Creates a writer for serializing a new XML document in the
+     *  output encoding, sized for documents that are expected to be
+     *  at least the provided number of bytes.
+     */
+    protected Utf8XmlWriter createDocumentWriter(int expectedSize) {
+        return new Utf8XmlWriter(Math.max(expectedSize, INITIAL_BUFFER_SIZE), config.getOutputCharset());
     }
 
-    protected void addXmlTextNode(Document doc, Element parent, String key, String value) {
+
+    protected void addXmlTextNode(Utf8XmlWriter writer, String key, String value) {
         if (value != null) {
-            final Element element = doc.createElement(key);
-            element.appendChild(doc.createTextNode(value));
-            parent.appendChild(element);
+            writer.textElement(key, value);
         }
     }
 }
@@ -0,0 +1,445 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+
+import java.math.BigInteger;
+
+import org.apache.kafka.connect.errors.DataException;
+
+/**
+ * Pull reader for JSON documents encoded as UTF-8, which reads tokens
+ *  straight from the document bytes.
+ *
+ * Strings and numbers are decoded into a reusable buffer, so values
+ *  can be written out without creating a String for each of them.
+ *  Member names are returned as Strings, but names that are repeated
+ *  (such as in an array of objects) are reused rather than created
+ *  again for every occurrence.
+ *
+ * Documents are read as strictly as JsonConverter reads them, so
+ *  malformed JSON, unescaped control characters and invalid UTF-8
+ *  are rejected, but numbers can have leading zeros.
+ *
+ * Instances are not thread-safe - use one reader per document.
+ */
+final class Utf8JsonReader {
+
+    /** maximum depth of nested objects and arrays, the same as the Jackson default */
+    static final int MAX_DEPTH = 1000;
+
+    /** number of member names that are kept for reuse (a power of two) */
+    private static final int NAME_CACHE_SIZE = 64;
+
+    /** longest integer that is always in the range of a long */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final byte[] json;
+    private int pos;
+
+    /** depth of the objects and arrays that have been started but not yet ended */
+    private int depth = 0;
+
+    /** true if nothing has been read from the current object or array yet */
+    private boolean first = false;
+
+    /** decoded chars of the most recently read string or number */
+    private final StringBuilder chars = new StringBuilder(64);
+
+    /** true if the most recently read number was an integer */
+    private boolean integral = false;
+
+    /** recently read ASCII member names, indexed by a hash of their bytes */
+    private final String[] names = new String[NAME_CACHE_SIZE];
+
+
+    Utf8JsonReader(byte[] json) {
+        this.json = json;
+
+        // skip any byte order mark
+        final boolean bom = json.length >= 3 &&
+            (json[0] & 0xFF) == 0xEF && (json[1] & 0xFF) == 0xBB && (json[2] & 0xFF) == 0xBF;
+        this.pos = bom ? 3 : 0;
+    }
+
+
+    /**
+     * Returns the first character of the next token, without reading
+     *  it, or -1 if the end of the document has been reached.
+     */
+    int peek() {
+        while (pos < json.length) {
+            final int b = json[pos] & 0xFF;
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b;
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+
+    void beginObject() {
+        begin('{');
+    }
+
+    void beginArray() {
+        begin('[');
+    }
+
+    private void begin(char token) {
+        if (peek() != token) {
+            throw error("Expected '" + token + "'");
+        }
+        pos++;
+        if (++depth > MAX_DEPTH) {
+            throw error("Objects and arrays are nested more than " + MAX_DEPTH + " deep");
+        }
+        first = true;
+    }
+
+    /**
+     * Moves to the next member of the current object, or the next item
+     *  of the current array.
+     *
+     * @param end the character that ends the current object or array
+     * @return false, after reading the end of the object or array, if
+     *          there are no more members or items
+     */
+    boolean hasNext(char end) {
+        final int next = peek();
+        if (next == end) {
+            pos++;
+            depth--;
+            // this object or array was a value in its parent
+            first = false;
+            return false;
+        }
+
+        if (first) {
+            first = false;
+        }
+        else if (next == ',') {
+            pos++;
+        }
+        else {
+            throw error("Expected ',' or '" + end + "'");
+        }
+        return true;
+    }
+
+
+    /**
+     * Reads the name of an object member, and the ':' after it.
+     */
+    String readName() {
+        if (peek() != '"') {
+            throw error("Expected a member name");
+        }
+
+        final String name = readAsciiName();
+        if (name == null) {
+            readString();
+        }
+
+        if (peek() != ':') {
+            throw error("Expected ':'");
+        }
+        pos++;
+
+        return name != null ? name : chars.toString();
+    }
+
+    /**
+     * Reads a name made up of ASCII characters without escapes, reusing
+     *  the String created when the same name was last read.
+     *
+     * @return null, without reading anything, for other names
+     */
+    private String readAsciiName() {
+        final int start = pos + 1;
+        int hash = 0;
+        int i = start;
+        for (; i < json.length; i++) {
+            final byte b = json[i];
+            if (b == '"') {
+                break;
+            }
+            if (b < 0x20 || b == '\\') {
+                return null;
+            }
+            hash = 31 * hash + b;
+        }
+        if (i == json.length) {
+            return null;
+        }
+
+        final int length = i - start;
+        final int slot = hash & (NAME_CACHE_SIZE - 1);
+        String name = names[slot];
+        if (name == null || !matches(name, start, length)) {
+            name = new String(json, start, length, ISO_8859_1);
+            names[slot] = name;
+        }
+        pos = i + 1;
+        return name;
+    }
+
+    private boolean matches(String name, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != json[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Reads a string value.
+     *
+     * @return the decoded string, which is only valid until the next
+     *          string or number is read
+     */
+    CharSequence readString() {
+        if (peek() != '"') {
+            throw error("Expected a string");
+        }
+        pos++;
+        chars.setLength(0);
+
+        while (pos < json.length) {
+            final int b = json[pos];
+            if (b == '"') {
+                pos++;
+                return chars;
+            }
+            else if (b == '\\') {
+                readEscape();
+            }
+            else if (b < 0) {
+                readMultiByteChar(b & 0xFF);
+            }
+            else if (b < 0x20) {
+                throw error("Unescaped control character in string");
+            }
+            else {
+                chars.append((char) b);
+                pos++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private void readEscape() {
+        if (pos + 1 >= json.length) {
+            throw error("Unterminated string");
+        }
+        final byte escaped = json[pos + 1];
+        pos += 2;
+
+        switch (escaped) {
+            case '"':
+            case '\\':
+            case '/':
+                chars.append((char) escaped);
+                break;
+            case 'b':
+                chars.append('\b');
+                break;
+            case 'f':
+                chars.append('\f');
+                break;
+            case 'n':
+                chars.append('\n');
+                break;
+            case 'r':
+                chars.append('\r');
+                break;
+            case 't':
+                chars.append('\t');
+                break;
+            case 'u':
+                if (pos + 4 > json.length) {
+                    throw error("Unterminated string");
+                }
+                int c = 0;
+                for (int i = 0; i < 4; i++) {
+                    final int digit = Character.digit(json[pos++], 16);
+                    if (digit < 0) {
+                        throw error("Invalid unicode escape in string");
+                    }
+                    c = (c << 4) | digit;
+                }
+                // surrogate pairs are escaped as two separate chars
+                chars.append((char) c);
+                break;
+            default:
+                throw error("Invalid escape in string");
+        }
+    }
+
+    private void readMultiByteChar(int lead) {
+        final int continuationBytes;
+        final int min;
+        int codePoint;
+        if ((lead & 0xE0) == 0xC0) {
+            continuationBytes = 1;
+            min = 0x80;
+            codePoint = lead & 0x1F;
+        }
+        else if ((lead & 0xF0) == 0xE0) {
+            continuationBytes = 2;
+            min = 0x800;
+            codePoint = lead & 0x0F;
+        }
+        else if ((lead & 0xF8) == 0xF0) {
+            continuationBytes = 3;
+            min = 0x10000;
+            codePoint = lead & 0x07;
+        }
+        else {
+            throw error("Invalid UTF-8 start byte");
+        }
+
+        if (pos + continuationBytes >= json.length) {
+            throw error("Unterminated string");
+        }
+        for (int i = 1; i <= continuationBytes; i++) {
+            final int b = json[pos + i];
+            if ((b & 0xC0) != 0x80) {
+                throw error("Invalid UTF-8 middle byte");
+            }
+            codePoint = (codePoint << 6) | (b & 0x3F);
+        }
+        if (codePoint < min || codePoint > Character.MAX_CODE_POINT ||
+            (codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE)) {
+            throw error("Invalid UTF-8 character");
+        }
+
+        chars.appendCodePoint(codePoint);
+        pos += continuationBytes + 1;
+    }
+
+
+    /**
+     * Reads a number value, as the text that Java would use for the
+     *  value JsonConverter creates for it: a long for integers, and a
+     *  double for anything else.
+     *
+     * @return the number text, which is only valid until the next
+     *          string or number is read
+     */
+    CharSequence readNumber() {
+        final int start = pos;
+        if (pos < json.length && json[pos] == '-') {
+            pos++;
+        }
+        final boolean leadingZero = pos < json.length && json[pos] == '0';
+        final int digits = readDigits();
+        if (digits == 0) {
+            throw error(pos < json.length ? "Unexpected character '" + (char) (json[pos] & 0xFF) + "'" : "Unexpected end of document");
+        }
+
+        integral = true;
+        if (pos < json.length && json[pos] == '.') {
+            pos++;
+            integral = false;
+            if (readDigits() == 0) {
+                throw error("Expected a digit after the decimal point");
+            }
+        }
+        if (pos < json.length && (json[pos] == 'e' || json[pos] == 'E')) {
+            pos++;
+            integral = false;
+            if (pos < json.length && (json[pos] == '+' || json[pos] == '-')) {
+                pos++;
+            }
+            if (readDigits() == 0) {
+                throw error("Expected a digit in the exponent");
+            }
+        }
+
+        chars.setLength(0);
+        final int length = pos - start;
+        final boolean canonical = !leadingZero || (digits == 1 && json[start] != '-');
+        if (integral && length <= MAX_LONG_DIGITS && canonical) {
+            // already written the way Long.toString would write it
+            for (int i = start; i < pos; i++) {
+                chars.append((char) json[i]);
+            }
+        }
+        else if (integral) {
+            // out of range integers are truncated, as JsonConverter does
+            chars.append(new BigInteger(new String(json, start, length, ISO_8859_1)).longValue());
+        }
+        else {
+            chars.append(Double.parseDouble(new String(json, start, length, ISO_8859_1)));
+        }
+        return chars;
+    }
+
+    private int readDigits() {
+        final int start = pos;
+        while (pos < json.length && json[pos] >= '0' && json[pos] <= '9') {
+            pos++;
+        }
+        return pos - start;
+    }
+
+    /**
+     * Returns true if the most recently read number was an integer.
+     */
+    boolean isIntegral() {
+        return integral;
+    }
+
+
+    boolean readBoolean() {
+        if (peek() == 't') {
+            readLiteral("true");
+            return true;
+        }
+        readLiteral("false");
+        return false;
+    }
+
+    void readNull() {
+        readLiteral("null");
+    }
+
+    private void readLiteral(String literal) {
+        final int length = literal.length();
+        if (pos + length > json.length) {
+            throw error("Unexpected end of document");
+        }
+        for (int i = 0; i < length; i++) {
+            if (json[pos + i] != literal.charAt(i)) {
+                throw error("Expected '" + literal + "'");
+            }
+        }
+        pos += length;
+    }
+
+
+    private DataException error(String message) {
+        return new DataException("Invalid JSON at offset " + pos + ": " + message);
+    }
+}
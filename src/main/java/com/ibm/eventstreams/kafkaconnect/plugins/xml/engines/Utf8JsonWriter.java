@@ -0,0 +1,567 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.ConnectSchema;
+import org.apache.kafka.connect.data.Date;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.data.Time;
+import org.apache.kafka.connect.data.Timestamp;
+import org.apache.kafka.connect.errors.DataException;
+
+/**
+ * Streaming JSON writer that encodes values straight into a growable
+ *  UTF-8 byte buffer.
+ *
+ * The output matches what JsonConverter produces for the same values:
+ *  no whitespace between tokens, strings escaped in the same way as
+ *  Jackson does, bytes as base64 strings, and Connect values and
+ *  schemas represented using the same rules.
+ *
+ * Callers writing values one token at a time are responsible for
+ *  writing the separators between them. Parts of the buffer can be
+ *  copied to the end of it, and discarded, so that values can be
+ *  written in a different order to the one they are read in.
+ *
+ * Instances are not thread-safe - use one writer per document.
+ */
+public class Utf8JsonWriter {
+
+    private static final byte[] NULL = bytes("null");
+    private static final byte[] TRUE = bytes("true");
+    private static final byte[] FALSE = bytes("false");
+
+    private static final byte[] HEX = bytes("0123456789ABCDEF");
+
+    private byte[] buffer;
+    private int size = 0;
+
+
+    public Utf8JsonWriter(int initialCapacity) {
+        buffer = new byte[Math.max(initialCapacity, 64)];
+    }
+
+
+    public void startObject() {
+        writeByte('{');
+    }
+
+    public void endObject() {
+        writeByte('}');
+    }
+
+    public void startArray() {
+        writeByte('[');
+    }
+
+    public void endArray() {
+        writeByte(']');
+    }
+
+    /** writes the separator between two values in an object or array */
+    public void separator() {
+        writeByte(',');
+    }
+
+    /** writes the name of the next value in an object */
+    public void name(String name) {
+        string(name);
+        writeByte(':');
+    }
+
+    public void string(String value) {
+        writeByte('"');
+        writeEscaped(value);
+        writeByte('"');
+    }
+
+    public void number(long value) {
+        writeAscii(Long.toString(value));
+    }
+
+    public void number(float value) {
+        if (Float.isFinite(value)) {
+            writeAscii(Float.toString(value));
+        }
+        else {
+            string(Float.toString(value));
+        }
+    }
+
+    public void number(double value) {
+        if (Double.isFinite(value)) {
+            writeAscii(Double.toString(value));
+        }
+        else {
+            string(Double.toString(value));
+        }
+    }
+
+    public void bool(boolean value) {
+        writeRaw(value ? TRUE : FALSE);
+    }
+
+    public void nullValue() {
+        writeRaw(NULL);
+    }
+
+    public void binary(byte[] value) {
+        writeByte('"');
+        writeRaw(Base64.getEncoder().encode(value));
+        writeByte('"');
+    }
+
+    /** writes JSON that has already been encoded, such as a cached schema */
+    public void writeFragment(byte[] fragment) {
+        writeRaw(fragment);
+    }
+
+
+    /**
+     * Writes a Connect value, using the provided schema if there is one
+     *  or the Java type of the value if not.
+     */
+    public void value(Schema schema, Object value) {
+        if (value == null) {
+            if (schema == null) {
+                nullValue();
+            }
+            else if (schema.defaultValue() != null) {
+                value(schema, schema.defaultValue());
+            }
+            else if (schema.isOptional()) {
+                nullValue();
+            }
+            else {
+                throw new DataException("Conversion error: null value for field that is required and has no default value");
+            }
+            return;
+        }
+
+        if (schema != null && schema.name() != null && writeLogicalValue(schema, value)) {
+            return;
+        }
+
+        final Type type = schema != null ? schema.type() : ConnectSchema.schemaType(value.getClass());
+        if (type == null) {
+            throw new DataException("Java class " + value.getClass() + " does not have corresponding schema type.");
+        }
+
+        try {
+            switch (type) {
+                case INT8:
+                case INT16:
+                case INT32:
+                case INT64:
+                    number(((Number) value).longValue());
+                    break;
+                case FLOAT32:
+                    number((float) (Float) value);
+                    break;
+                case FLOAT64:
+                    number((double) (Double) value);
+                    break;
+                case BOOLEAN:
+                    bool((Boolean) value);
+                    break;
+                case STRING:
+                    string(((CharSequence) value).toString());
+                    break;
+                case BYTES:
+                    if (value instanceof byte[]) {
+                        binary((byte[]) value);
+                    }
+                    else if (value instanceof ByteBuffer) {
+                        binary(((ByteBuffer) value).array());
+                    }
+                    else {
+                        throw new DataException("Invalid type for bytes type: " + value.getClass());
+                    }
+                    break;
+                case ARRAY:
+                    writeArray(schema == null ? null : schema.valueSchema(), (Collection<?>) value);
+                    break;
+                case MAP:
+                    writeMap(schema, (Map<?, ?>) value);
+                    break;
+                case STRUCT:
+                    writeStruct(schema, (Struct) value);
+                    break;
+                default:
+                    throw new DataException("Couldn't convert " + value + " to JSON.");
+            }
+        }
+        catch (final ClassCastException cce) {
+            throw new DataException("Invalid type for " + type + ": " + value.getClass());
+        }
+    }
+
+    private boolean writeLogicalValue(Schema schema, Object value) {
+        switch (schema.name()) {
+            case Decimal.LOGICAL_NAME:
+                binary(Decimal.fromLogical(schema, (BigDecimal) value));
+                return true;
+            case Date.LOGICAL_NAME:
+                number(Date.fromLogical(schema, (java.util.Date) value));
+                return true;
+            case Time.LOGICAL_NAME:
+                number(Time.fromLogical(schema, (java.util.Date) value));
+                return true;
+            case Timestamp.LOGICAL_NAME:
+                number(Timestamp.fromLogical(schema, (java.util.Date) value));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void writeArray(Schema itemSchema, Collection<?> items) {
+        startArray();
+        boolean first = true;
+        for (final Object item : items) {
+            if (!first) {
+                separator();
+            }
+            first = false;
+            value(itemSchema, item);
+        }
+        endArray();
+    }
+
+    /**
+     * Maps are written as objects if all of their keys are strings, and
+     *  as arrays of [key, value] pairs otherwise.
+     */
+    private void writeMap(Schema schema, Map<?, ?> map) {
+        final Schema keySchema = schema == null ? null : schema.keySchema();
+        final Schema valueSchema = schema == null ? null : schema.valueSchema();
+
+        final boolean objectMode;
+        if (schema == null) {
+            objectMode = map.keySet().stream().allMatch(key -> key instanceof String);
+        }
+        else {
+            objectMode = keySchema.type() == Type.STRING;
+        }
+
+        if (objectMode) {
+            startObject();
+        }
+        else {
+            startArray();
+        }
+        boolean first = true;
+        for (final Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                separator();
+            }
+            first = false;
+            if (objectMode) {
+                name(entry.getKey() == null ? "" : entry.getKey().toString());
+                value(valueSchema, entry.getValue());
+            }
+            else {
+                startArray();
+                value(keySchema, entry.getKey());
+                separator();
+                value(valueSchema, entry.getValue());
+                endArray();
+            }
+        }
+        if (objectMode) {
+            endObject();
+        }
+        else {
+            endArray();
+        }
+    }
+
+    private void writeStruct(Schema schema, Struct struct) {
+        if (!struct.schema().equals(schema)) {
+            throw new DataException("Mismatching schema.");
+        }
+        startObject();
+        boolean first = true;
+        for (final Field field : schema.fields()) {
+            if (!first) {
+                separator();
+            }
+            first = false;
+            name(field.name());
+            value(field.schema(), struct.get(field));
+        }
+        endObject();
+    }
+
+
+    /**
+     * Writes a Connect schema, in the format used by JsonConverter for
+     *  the schemas in the envelope around values.
+     */
+    public void schema(Schema schema) {
+        schema(schema, null);
+    }
+
+    private void schema(Schema schema, String fieldName) {
+        if (schema == null) {
+            nullValue();
+            return;
+        }
+
+        startObject();
+        name("type");
+        switch (schema.type()) {
+            case FLOAT32:
+                string("float");
+                break;
+            case FLOAT64:
+                string("double");
+                break;
+            case ARRAY:
+                string("array");
+                separator();
+                name("items");
+                schema(schema.valueSchema(), null);
+                break;
+            case MAP:
+                string("map");
+                separator();
+                name("keys");
+                schema(schema.keySchema(), null);
+                separator();
+                name("values");
+                schema(schema.valueSchema(), null);
+                break;
+            case STRUCT: {
+                string("struct");
+                separator();
+                name("fields");
+                startArray();
+                boolean first = true;
+                for (final Field field : schema.fields()) {
+                    if (!first) {
+                        separator();
+                    }
+                    first = false;
+                    schema(field.schema(), field.name());
+                }
+                endArray();
+                break;
+            }
+            default:
+                string(schema.type().getName());
+        }
+
+        separator();
+        name("optional");
+        bool(schema.isOptional());
+        if (schema.name() != null) {
+            separator();
+            name("name");
+            string(schema.name());
+        }
+        if (schema.version() != null) {
+            separator();
+            name("version");
+            number((long) schema.version());
+        }
+        if (schema.doc() != null) {
+            separator();
+            name("doc");
+            string(schema.doc());
+        }
+        if (schema.parameters() != null) {
+            separator();
+            name("parameters");
+            startObject();
+            boolean first = true;
+            for (final Map.Entry<String, String> parameter : schema.parameters().entrySet()) {
+                if (!first) {
+                    separator();
+                }
+                first = false;
+                name(parameter.getKey());
+                string(parameter.getValue());
+            }
+            endObject();
+        }
+        if (schema.defaultValue() != null) {
+            separator();
+            name("default");
+            value(schema, schema.defaultValue());
+        }
+        if (fieldName != null) {
+            separator();
+            name("field");
+            string(fieldName);
+        }
+        endObject();
+    }
+
+
+    /** current length of the output */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends a copy of part of the output to the end of it.
+     */
+    public void copy(int start, int end) {
+        final int length = end - start;
+        ensureCapacity(length);
+        System.arraycopy(buffer, start, buffer, size, length);
+        size += length;
+    }
+
+    /**
+     * Discards the output between the two positions, moving everything
+     *  after them down to fill the gap.
+     */
+    public void discard(int start, int end) {
+        System.arraycopy(buffer, end, buffer, start, size - end);
+        size -= end - start;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Returns the output as a String, decoded straight from the
+     *  buffer rather than from a copy of it.
+     */
+    public String toJsonString() {
+        return new String(buffer, 0, size, UTF_8);
+    }
+
+
+
+    private void ensureCapacity(int additional) {
+        final int required = size + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    private void writeByte(int b) {
+        if (size == buffer.length) {
+            ensureCapacity(1);
+        }
+        buffer[size++] = (byte) b;
+    }
+
+    private void writeRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    private void writeAscii(String value) {
+        final int len = value.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+    }
+
+    private void writeEscaped(String value) {
+        final int len = value.length();
+        // worst case for BMP characters is six bytes each (escaped control characters)
+        ensureCapacity(len * 6);
+
+        for (int i = 0; i < len; i++) {
+            final char c = value.charAt(i);
+
+            if (c < 0x80) {
+                switch (c) {
+                    case '"':
+                    case '\\':
+                        buffer[size++] = '\\';
+                        buffer[size++] = (byte) c;
+                        break;
+                    case '\b':
+                        buffer[size++] = '\\';
+                        buffer[size++] = 'b';
+                        break;
+                    case '\t':
+                        buffer[size++] = '\\';
+                        buffer[size++] = 't';
+                        break;
+                    case '\n':
+                        buffer[size++] = '\\';
+                        buffer[size++] = 'n';
+                        break;
+                    case '\f':
+                        buffer[size++] = '\\';
+                        buffer[size++] = 'f';
+                        break;
+                    case '\r':
+                        buffer[size++] = '\\';
+                        buffer[size++] = 'r';
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            writeUnicodeEscape(c);
+                        }
+                        else {
+                            buffer[size++] = (byte) c;
+                        }
+                }
+            }
+            else if (c < 0x800) {
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                // characters outside the BMP are written as a pair of
+                //  escaped surrogates, as Jackson does
+                writeUnicodeEscape(c);
+            }
+            else {
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeUnicodeEscape(char c) {
+        buffer[size++] = '\\';
+        buffer[size++] = 'u';
+        buffer[size++] = HEX[c >> 12];
+        buffer[size++] = HEX[(c >> 8) & 0xF];
+        buffer[size++] = HEX[(c >> 4) & 0xF];
+        buffer[size++] = HEX[c & 0xF];
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,436 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Streaming XML writer that encodes elements straight into a
+ *  growable UTF-8 byte buffer.
+ *
+ * The output matches what the JAXP identity transformer produces
+ *  for an equivalent DOM document: text and attribute values are
+ *  escaped in the same way, and elements without any content are
+ *  written as empty-element tags (e.g. <name/>).
+ *
+ * Attributes are written in the order they are provided, so callers
+ *  that need to match DOM output must provide them in the order the
+ *  DOM would sort them (alphabetically by name).
+ *
+ * Documents can be written in another character encoding, in which
+ *  case characters in text and attribute values that the encoding
+ *  can't represent are written as character references, and the
+ *  UTF-8 buffer is transcoded into the output encoding (without an
+ *  intermediate String) when the document is complete.
+ *
+ * Instances are not thread-safe - use one writer per document.
+ */
+public class Utf8XmlWriter {
+
+    private static final byte[] DECLARATION = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+    private static final byte[] DECLARATION_NOT_STANDALONE = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+
+    private static final byte[] AMP = bytes("&amp;");
+    private static final byte[] LT = bytes("&lt;");
+    private static final byte[] GT = bytes("&gt;");
+    private static final byte[] QUOT = bytes("&quot;");
+
+    /** size of the chunks of characters used when transcoding */
+    private static final int TRANSCODE_CHUNK_SIZE = 1024;
+
+    private byte[] buffer;
+    private int size = 0;
+
+    /** names (String or XmlTag) of the elements that have been started but not yet ended */
+    private Object[] openElements = new Object[16];
+    private int depth = 0;
+
+    /** true if the '>' for the most recently started element has not been written yet */
+    private boolean startTagOpen = false;
+
+    /** encoding of the output, or null if the output is UTF-8 */
+    private final Charset outputCharset;
+    private final CharsetEncoder outputEncoder;
+
+
+    public Utf8XmlWriter(int initialCapacity) {
+        this(initialCapacity, UTF_8);
+    }
+
+    public Utf8XmlWriter(int initialCapacity, Charset outputCharset) {
+        buffer = new byte[Math.max(initialCapacity, 64)];
+
+        if (UTF_8.equals(outputCharset)) {
+            this.outputCharset = null;
+            this.outputEncoder = null;
+        }
+        else {
+            this.outputCharset = outputCharset;
+            this.outputEncoder = outputCharset.newEncoder();
+        }
+    }
+
+
+    public void writeDeclaration(boolean standalone) {
+        if (outputCharset == null) {
+            writeRaw(standalone ? DECLARATION : DECLARATION_NOT_STANDALONE);
+        }
+        else {
+            writeRaw(bytes("<?xml version=\"1.0\" encoding=\"" + outputCharset.name() + "\"" +
+                           (standalone ? "" : " standalone=\"no\"") + "?>"));
+        }
+    }
+
+    public void startElement(String name) {
+        if (!XmlUtils.isValidXmlElementName(name)) {
+            throw new SerializationException("Invalid XML element name '" + name + "'");
+        }
+        closeStartTag();
+        pushElement(name);
+
+        writeByte('<');
+        writeName(name);
+        startTagOpen = true;
+    }
+
+    public void startElement(XmlTag tag) {
+        closeStartTag();
+        pushElement(tag);
+
+        writeRaw(tag.open);
+        startTagOpen = true;
+    }
+
+    public void attribute(String name, String value) {
+        if (!startTagOpen) {
+            throw new IllegalStateException("Attributes can only be added to an element before its content");
+        }
+        writeByte(' ');
+        writeName(name);
+        writeByte('=');
+        writeByte('"');
+        writeEscaped(value, true);
+        writeByte('"');
+    }
+
+    public void text(String value) {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        closeStartTag();
+        writeEscaped(value, false);
+    }
+
+    /**
+     * Writes text from a reusable buffer of characters (such as one
+     *  that values are decoded into), without creating a String.
+     */
+    public void text(CharSequence value) {
+        if (value == null || value.length() == 0) {
+            return;
+        }
+        closeStartTag();
+        writeEscaped(value, false);
+    }
+
+    /**
+     * Writes a previously serialized, well-formed, fragment of XML
+     *  (such as the output of another writer) as content of the
+     *  current element.
+     */
+    public void writeFragment(byte[] fragment) {
+        closeStartTag();
+        writeRaw(fragment);
+    }
+
+    public void endElement() {
+        final Object element = openElements[--depth];
+        openElements[depth] = null;
+
+        if (startTagOpen) {
+            writeByte('/');
+            writeByte('>');
+            startTagOpen = false;
+        }
+        else if (element instanceof XmlTag) {
+            writeRaw(((XmlTag) element).close);
+        }
+        else {
+            writeByte('<');
+            writeByte('/');
+            writeName((String) element);
+            writeByte('>');
+        }
+    }
+
+    public void emptyElement(String name) {
+        startElement(name);
+        endElement();
+    }
+
+    public void emptyElement(XmlTag tag) {
+        startElement(tag);
+        endElement();
+    }
+
+    public void textElement(String name, String value) {
+        startElement(name);
+        text(value);
+        endElement();
+    }
+
+    public void textElement(XmlTag tag, String value) {
+        startElement(tag);
+        text(value);
+        endElement();
+    }
+
+    public byte[] toByteArray() {
+        if (depth > 0) {
+            throw new IllegalStateException("Element '" + openElements[depth - 1] + "' has not been ended");
+        }
+        if (outputCharset != null) {
+            return transcode();
+        }
+        return Arrays.copyOf(buffer, size);
+    }
+
+    /**
+     * Returns the document as a String, decoded straight from the
+     *  buffer rather than from a copy of it.
+     */
+    public String toXmlString() {
+        if (depth > 0) {
+            throw new IllegalStateException("Element '" + openElements[depth - 1] + "' has not been ended");
+        }
+        return new String(buffer, 0, size, UTF_8);
+    }
+
+
+
+    /**
+     * Re-encodes the UTF-8 buffer in the output encoding, a chunk of
+     *  characters at a time.
+     */
+    private byte[] transcode() {
+        final CharsetDecoder decoder = UTF_8.newDecoder();
+        final CharsetEncoder encoder = outputCharset.newEncoder();
+
+        final ByteBuffer in = ByteBuffer.wrap(buffer, 0, size);
+        final CharBuffer chars = CharBuffer.allocate(TRANSCODE_CHUNK_SIZE);
+        ByteBuffer out = ByteBuffer.allocate((int) (size * encoder.averageBytesPerChar()) + 16);
+
+        try {
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                final CoderResult decoded = decoder.decode(in, chars, true);
+                if (decoded.isError()) {
+                    decoded.throwException();
+                }
+                endOfInput = decoded.isUnderflow();
+                if (endOfInput) {
+                    decoder.flush(chars);
+                }
+
+                chars.flip();
+                CoderResult encoded = encoder.encode(chars, out, endOfInput);
+                while (encoded.isOverflow()) {
+                    out = grow(out);
+                    encoded = encoder.encode(chars, out, endOfInput);
+                }
+                if (encoded.isError()) {
+                    // only characters in names can be unmappable, as
+                    //  values use character references for them
+                    throw new SerializationException("XML element name cannot be encoded in " + outputCharset.name());
+                }
+                // keeps anything not encoded yet, such as the first
+                //  half of a surrogate pair split across chunks
+                chars.compact();
+            }
+
+            while (encoder.flush(out).isOverflow()) {
+                out = grow(out);
+            }
+        }
+        catch (final CharacterCodingException cce) {
+            throw new SerializationException("Failed to encode XML document in " + outputCharset.name(), cce);
+        }
+
+        return Arrays.copyOf(out.array(), out.position());
+    }
+
+    private static ByteBuffer grow(ByteBuffer out) {
+        final ByteBuffer larger = ByteBuffer.allocate(out.capacity() * 2 + 16);
+        out.flip();
+        larger.put(out);
+        return larger;
+    }
+
+    private void pushElement(Object element) {
+        if (depth == openElements.length) {
+            openElements = Arrays.copyOf(openElements, depth * 2);
+        }
+        openElements[depth++] = element;
+    }
+
+    private void closeStartTag() {
+        if (startTagOpen) {
+            writeByte('>');
+            startTagOpen = false;
+        }
+    }
+
+    private void ensureCapacity(int additional) {
+        final int required = size + additional;
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    private void writeByte(int b) {
+        if (size == buffer.length) {
+            ensureCapacity(1);
+        }
+        buffer[size++] = (byte) b;
+    }
+
+    private void writeRaw(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, buffer, size, bytes.length);
+        size += bytes.length;
+    }
+
+    /**
+     * Writes an element or attribute name - these have already been
+     *  validated, so only need encoding (not escaping).
+     */
+    private void writeName(String name) {
+        final int len = name.length();
+        ensureCapacity(len);
+        for (int i = 0; i < len; i++) {
+            final char c = name.charAt(i);
+            if (c < 0x80) {
+                buffer[size++] = (byte) c;
+            }
+            else {
+                // non-ASCII name - encode the remainder of it as UTF-8
+                writeRaw(name.substring(i).getBytes(UTF_8));
+                return;
+            }
+        }
+    }
+
+    private void writeEscaped(CharSequence value, boolean isAttribute) {
+        final int len = value.length();
+        // worst case for BMP characters is three bytes each
+        ensureCapacity(len * 3);
+
+        for (int i = 0; i < len; i++) {
+            final char c = value.charAt(i);
+
+            if (c < 0x80) {
+                switch (c) {
+                    case '&':
+                        writeRaw(AMP);
+                        break;
+                    case '<':
+                        writeRaw(LT);
+                        break;
+                    case '>':
+                        writeRaw(GT);
+                        break;
+                    case '"':
+                        if (isAttribute) {
+                            writeRaw(QUOT);
+                        }
+                        else {
+                            writeByte(c);
+                        }
+                        break;
+                    case '\n':
+                    case '\t':
+                        if (isAttribute) {
+                            writeCharRef(c);
+                        }
+                        else {
+                            writeByte(c);
+                        }
+                        break;
+                    default:
+                        if (c < 0x20 || (c == 0x7F && !isAttribute)) {
+                            writeCharRef(c);
+                        }
+                        else {
+                            writeByte(c);
+                        }
+                        break;
+                }
+            }
+            else if (c <= 0x9F && !isAttribute) {
+                // C1 control characters
+                writeCharRef(c);
+            }
+            else if (outputEncoder != null && !Character.isSurrogate(c) && !outputEncoder.canEncode(c)) {
+                // not in the output encoding
+                writeCharRef(c);
+            }
+            else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[size++] = (byte) (0xC0 | (c >> 6));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    // supplementary characters are written as character references
+                    writeCharRef(Character.toCodePoint(c, value.charAt(++i)));
+                }
+                else {
+                    throw new SerializationException("Invalid UTF-16 surrogate in value");
+                }
+            }
+            else {
+                ensureCapacity(3);
+                buffer[size++] = (byte) (0xE0 | (c >> 12));
+                buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[size++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeCharRef(int codePoint) {
+        writeByte('&');
+        writeByte('#');
+        writeName(Integer.toString(codePoint));
+        writeByte(';');
+    }
+
+    private static byte[] bytes(String str) {
+        return str.getBytes(UTF_8);
+    }
+}
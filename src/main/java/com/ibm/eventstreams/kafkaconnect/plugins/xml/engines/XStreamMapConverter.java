@@ -16,15 +16,11 @@
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
 
 import java.util.AbstractMap;
-import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.ListUtils;
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
 import com.thoughtworks.xstream.converters.Converter;
@@ -35,7 +31,17 @@ import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 
 public class XStreamMapConverter implements Converter {
 
-    private final Logger log = LoggerFactory.getLogger(XStreamMapConverter.class);
+    /** if false, all values are left as strings */
+    private final boolean inferTypes;
+
+
+    public XStreamMapConverter() {
+        this(true);
+    }
+
+    public XStreamMapConverter(boolean inferTypes) {
+        this.inferTypes = inferTypes;
+    }
 
     @SuppressWarnings("rawtypes")
     @Override
@@ -45,169 +51,143 @@ public class XStreamMapConverter implements Converter {
 
     @Override
     public Object unmarshal(HierarchicalStreamReader reader, UnmarshallingContext context) {
-        return xmlToMap(reader, true);
+        final Map<String, Object> map = new LinkedHashMap<>();
+        map.put(reader.getNodeName(), xmlToMap(reader, true));
+        return map;
     }
 
 
 
+    /**
+     * Returns the contents of the current node as a map.
+     *
+     * Values are added to the map as soon as they are read, with
+     *  repeated child nodes turned into a list of values when the
+     *  second one is seen, so the document is only walked once.
+     */
     private Map<String, Object> xmlToMap(HierarchicalStreamReader reader, boolean isXmlRoot) {
-        final List<Map<String, Object>> list = new ArrayList<Map<String, Object>>();
-
-        Map<String, Object> attrs = new LinkedHashMap<>();
+        final Map<String, Object> map = new LinkedHashMap<>();
 
+        Map<String, Object> rootAttrs = Collections.emptyMap();
         if (isXmlRoot) {
             // capture attributes from the root node of the XML document
             //  (not needed when recursing deeper in the document as these
             //   will have already been captured)
-            attrs = attrsToMap(reader);
-            if (attrs.size() > 0) {
-                list.add(attrs);
-            }
+            rootAttrs = attrsToMap(reader);
+            map.putAll(rootAttrs);
         }
 
+        boolean hasChildren = false;
         while (reader.hasMoreChildren()) {
+            hasChildren = true;
+
             // get attributes of current node
-            attrs = attrsToMap(reader);
+            final Map<String, Object> attrs = attrsToMap(reader);
 
             // move down one level
             reader.moveDown();
 
+            if (isXmlRoot && XStreamStructConverter.isEmbeddedSchema(reader)) {
+                // the schema isn't part of the data
+                reader.moveUp();
+                continue;
+            }
+
+            final Object value;
             if (reader.hasMoreChildren()) {
                 // child nodes found at the lower level - process recursively
+                //  and merge the attributes into the map that is returned
                 final Map<String, Object> innerItem = xmlToMap(reader, false);
-
-                if (attrs.size() > 0) {
-                    mergeAttributesIntoNode(reader.getNodeName(), innerItem, attrs);
-
-                    // clear attributes now they have been used
-                    attrs = new LinkedHashMap<>();
+                innerItem.putAll(attrs);
+                value = innerItem;
+            }
+            else if (attrs.size() > 0) {
+                final String text = reader.getValue();
+                if (! text.isBlank()) {
+                    attrs.put("entry", toValue(text));
                 }
-
-                list.add(innerItem);
+                value = attrs;
             }
             else {
-                if (attrs.size() > 0) {
-                    if (! reader.getValue().isBlank()) {
-                        attrs.put("entry", XmlUtils.guessType(reader.getValue()));
-                    }
-                    list.add(Map.of(reader.getNodeName(), attrs));
-
-                    // clear attributes now they have been used
-                    attrs = new LinkedHashMap<>();
-                }
-                else {
-                    list.add(Map.of(reader.getNodeName(),
-                                    XmlUtils.guessType(reader.getValue())));
-                }
+                value = toValue(reader.getValue());
             }
 
+            addValue(map, reader.getNodeName(), value);
+
             // finished processing children - move back up
             reader.moveUp();
         }
 
-        // if there are any remaining attributes that haven't been added
-        //  add them now
-        if (attrs.size() > 0) {
-            list.add(Map.of(reader.getNodeName(), attrs));
+        // attributes of a root node without any children are
+        //  also added as a child of the root node
+        if (!hasChildren && rootAttrs.size() > 0) {
+            addValue(map, reader.getNodeName(), rootAttrs);
         }
 
-        // return as a map
-        Map<String, Object> map = new LinkedHashMap<>();
-        map.put(reader.getNodeName(), convertMapToList(flatten(list)));
+        convertEntryLists(map);
 
         return map;
     }
 
 
-    @SuppressWarnings("unchecked")
-    private void mergeAttributesIntoNode(String nodeKey, Map<?, ?> parent, Map<String, Object> attrs) {
-        Map<String, Object> node;
-        if (parent.containsKey(nodeKey) && parent.get(nodeKey) instanceof Map) {
-            node = ((Map<String, Object>) parent.get(nodeKey));
-        }
-        else {
-            log.error("Map not found in parent element");
-            return;
+    /**
+     * Adds a value to the map, turning the existing value into a list
+     *  if there is already one with the same key.
+     */
+    static void addValue(Map<String, Object> map, String key, Object value) {
+        final Object existing = map.putIfAbsent(key, value);
+        if (existing instanceof List) {
+            // the existing item is already a list - add the new item to it
+            ListUtils.addItemToList(existing, value);
         }
-        for (final String key : attrs.keySet()) {
-            node.put(key, attrs.get(key));
+        else if (existing != null) {
+            // the existing item is a singleton
+            //  replace it with a list containing the existing item and the new item
+            map.put(key, ListUtils.create(existing, value));
         }
     }
 
 
     private Map<String, Object> attrsToMap(HierarchicalStreamReader reader) {
+        final int count = reader.getAttributeCount();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+
         final Map<String, Object> attrsMap = new LinkedHashMap<>();
-        final Iterator<?> attrNames = reader.getAttributeNames();
-        while (attrNames.hasNext()) {
-            final String attrName = attrNames.next().toString();
-            attrsMap.put(attrName, XmlUtils.guessType(reader.getAttribute(attrName)));
+        for (int i = 0; i < count; i++) {
+            attrsMap.put(reader.getAttributeName(i), toValue(reader.getAttribute(i)));
         }
         return attrsMap;
     }
 
 
-    private boolean isEntry(Map<String, ?> map) {
-        return map.size() == 1 && map.containsKey("entry");
+    private Object toValue(String value) {
+        return inferTypes ? XmlUtils.guessType(value) : value;
     }
 
 
-    @SuppressWarnings("unchecked")
-    private Object convertMapToList(Map<String, Object> map) {
-        for (final String key : map.keySet()) {
-            final Object itemToConvert = map.get(key);
-            if (itemToConvert instanceof List) {
-                final List<?> listToConvert = (List<?>) itemToConvert;
-                boolean shouldConvert = true;
-                final List<Object> converted = new ArrayList<>();
-                for (final Object listItem : listToConvert) {
-                    shouldConvert = shouldConvert &&
-                                    listItem instanceof Map &&
-                                    isEntry((Map<String, ?>) listItem);
-                    if (shouldConvert) {
-                        converted.add(((Map<?,?>)listItem).get("entry"));
-                    }
-                }
-                if (shouldConvert) {
-                    map.put(key, converted);
-                }
-            }
-        }
-
-        return map;
+    private static boolean isEntry(Object item) {
+        return item instanceof Map &&
+               ((Map<?, ?>) item).size() == 1 &&
+               ((Map<?, ?>) item).containsKey("entry");
     }
 
 
-    private Map<String, Object> flatten(List<Map<String, Object>> list) {
-        final Map<String, Object> output = new LinkedHashMap<>();
-
-        for (final Map<String, Object> listItem : list) {
-
-            for (final String key : listItem.keySet()) {
-                final Object nextItem = listItem.get(key);
-
-                if (output.containsKey(key)) {
-                    // already an item with this key
-
-                    if (output.get(key) instanceof List) {
-                        // the existing item is already a list - add the new item to it
-                        ListUtils.addItemToList(output.get(key), nextItem);
-                    }
-                    else {
-                        // the existing item is a singleton
-                        //  replace it with a list containing the existing item and the new item
-                        output.put(key,
-                                   ListUtils.create(output.get(key), nextItem));
-                    }
-                }
-                else {
-                    // not seen anything with this key before
-                    //  create as a singleton
-                    output.put(key, listItem.get(key));
+    /**
+     * Replaces lists where every item is a map containing only an
+     *  "entry" with a list of the entry values.
+     */
+    @SuppressWarnings("unchecked")
+    static void convertEntryLists(Map<String, Object> map) {
+        for (final Object value : map.values()) {
+            if (value instanceof List) {
+                final List<Object> list = (List<Object>) value;
+                if (list.stream().allMatch(XStreamMapConverter::isEntry)) {
+                    list.replaceAll(item -> ((Map<?, ?>) item).get("entry"));
                 }
             }
         }
-
-        return output;
     }
 
 
@@ -16,7 +16,6 @@
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
 
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -29,6 +28,7 @@ import org.apache.kafka.connect.data.Schema.Type;
 import org.apache.kafka.connect.data.Struct;
 
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.MismatchingSchemaException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
 import com.thoughtworks.xstream.converters.Converter;
 import com.thoughtworks.xstream.converters.MarshallingContext;
 import com.thoughtworks.xstream.converters.UnmarshallingContext;
@@ -37,9 +37,12 @@ import com.thoughtworks.xstream.io.HierarchicalStreamWriter;
 
 public class XStreamStructConverter implements Converter {
 
-    private Schema schema;
+    /** attribute used to refer to the schema for the document, rather than contain data */
+    private static final String SCHEMA_LOCATION_ATTRIBUTE = "noNamespaceSchemaLocation";
 
-    public void registerSchema(Schema schema) {
+    private final Schema schema;
+
+    public XStreamStructConverter(Schema schema) {
         this.schema = schema;
     }
 
@@ -71,7 +74,7 @@ public class XStreamStructConverter implements Converter {
         }
         else {
             final String value = reader.getValue();
-            return parseAsPrimitive(schema, value);
+            return XmlUtils.parseAsPrimitive(schema, value);
         }
     }
 
@@ -138,8 +141,8 @@ public class XStreamStructConverter implements Converter {
             if (mapIsSimple) {
                 final String entry = reader.getValue();
                 if (entry != null && !entry.isBlank()) {
-                    object.put(parseAsPrimitive(keySchema, reader.getNodeName()),
-                               parseAsPrimitive(valueSchema, entry));
+                    object.put(XmlUtils.parseAsPrimitive(keySchema, reader.getNodeName()),
+                               XmlUtils.parseAsPrimitive(valueSchema, entry));
                 }
                 reader.moveUp();
                 return;
@@ -206,7 +209,7 @@ public class XStreamStructConverter implements Converter {
             }
             else {
                 final String keyStr = reader.getValue();
-                key = parseAsPrimitive(keySchema, keyStr);
+                key = XmlUtils.parseAsPrimitive(keySchema, keyStr);
             }
 
 
@@ -255,7 +258,7 @@ public class XStreamStructConverter implements Converter {
                 }
 
                 final String valueStr = reader.getValue();
-                value = parseAsPrimitive(valueSchema, valueStr);
+                value = XmlUtils.parseAsPrimitive(valueSchema, valueStr);
             }
 
 
@@ -287,6 +290,9 @@ public class XStreamStructConverter implements Converter {
             //  (not needed when recursing deeper in the document as these
             //   will have already been captured)
             Map<String, String> rootAttrs = getAttributes(reader);
+            if (schema.field(SCHEMA_LOCATION_ATTRIBUTE) == null) {
+                rootAttrs.remove(SCHEMA_LOCATION_ATTRIBUTE);
+            }
             if (rootAttrs.size() > 0) {
                 processStruct(reader, object, rootAttrs, schema);
             }
@@ -302,6 +308,11 @@ public class XStreamStructConverter implements Converter {
 
             final Field nextField = schema.field(nodeName);
             if (nextField == null) {
+                if (isXmlRoot && isEmbeddedSchema(reader)) {
+                    // the schema isn't part of the data
+                    reader.moveUp();
+                    continue;
+                }
                 throw new MismatchingSchemaException();
             }
             final Schema nextSchema = nextField.schema();
@@ -328,7 +339,7 @@ public class XStreamStructConverter implements Converter {
             }
             else {
                 final String val = reader.getValue();
-                object.put(nextField, parseAsPrimitive(nextField.schema(), val));
+                object.put(nextField, XmlUtils.parseAsPrimitive(nextField.schema(), val));
             }
 
             reader.moveUp();
@@ -336,6 +347,16 @@ public class XStreamStructConverter implements Converter {
     }
 
 
+    /**
+     * Identifies if the current node is an xs:schema element embedded
+     *  in the document by StructToXmlBytes.
+     */
+    static boolean isEmbeddedSchema(HierarchicalStreamReader reader) {
+        return "schema".equals(reader.getNodeName()) &&
+               XmlUtils.EMBEDDED_SCHEMA_ID.equals(reader.getAttribute("id"));
+    }
+
+
     private void processMap(HierarchicalStreamReader reader, Map<Object, Object> map, Map<String, String> attributes, Schema mapSchema) {
         while (reader.hasMoreChildren()) {
             xmlToMap(reader, mapSchema, map);
@@ -380,7 +401,7 @@ public class XStreamStructConverter implements Converter {
             case FLOAT64:
             case STRING:
             case BYTES:
-                list.add(parseAsPrimitive(listItemSchema, valueStr));
+                list.add(XmlUtils.parseAsPrimitive(listItemSchema, valueStr));
                 break;
             case ARRAY:
                 final List<Object> nestedList = new ArrayList<>();
@@ -399,7 +420,7 @@ public class XStreamStructConverter implements Converter {
                         obj.put(field, entriesList);
                     }
                     else {
-                        obj.put(field, parseAsPrimitive(field.schema(), valueStr));
+                        obj.put(field, XmlUtils.parseAsPrimitive(field.schema(), valueStr));
                     }
                 }
 
@@ -418,35 +439,6 @@ public class XStreamStructConverter implements Converter {
     }
 
 
-    private Object parseAsPrimitive(Schema valueSchema, String valueStr) {
-        switch (valueSchema.type()) {
-            case INT8:
-            case INT16:
-                return Short.parseShort(valueStr);
-            case INT32:
-                return Integer.parseInt(valueStr);
-            case INT64:
-                return Long.parseLong(valueStr);
-            case BOOLEAN:
-                return Boolean.parseBoolean(valueStr);
-            case FLOAT32:
-                return Float.parseFloat(valueStr);
-            case FLOAT64:
-                return Double.parseDouble(valueStr);
-            case STRING:
-                return valueStr;
-            case BYTES:
-                if ("xs:byte".equals(valueSchema.doc())) {
-                    return new byte[] { Byte.parseByte(valueStr) };
-                }
-                else {
-                    return Base64.getDecoder().decode(valueStr);
-                }
-            default:
-                return valueStr;
-        }
-    }
-
     private Map<String, String> getAttributes(HierarchicalStreamReader reader) {
         final Map<String, String> attributes = new HashMap<>();
         try {
@@ -467,7 +459,7 @@ public class XStreamStructConverter implements Converter {
             final Field field = schema.field("entry");
             if (field != null) {
                 struct.put(field,
-                           parseAsPrimitive(field.schema(),
+                           XmlUtils.parseAsPrimitive(field.schema(),
                                             value));
             }
         }
@@ -477,7 +469,7 @@ public class XStreamStructConverter implements Converter {
         final String value = reader.getValue();
         if (value != null && !value.isBlank()) {
             map.put("entry",
-                    parseAsPrimitive(schema, value));
+                    XmlUtils.parseAsPrimitive(schema, value));
         }
     }
 
@@ -485,15 +477,15 @@ public class XStreamStructConverter implements Converter {
         for (final String fieldName : attributes.keySet()) {
             final Field field = schema.field(fieldName);
             struct.put(field,
-                       parseAsPrimitive(field.schema(),
+                       XmlUtils.parseAsPrimitive(field.schema(),
                                         attributes.get(fieldName)));
         }
     }
 
     private void addAttributesToMap(Map<String, String> attributes, Map<Object, Object> map, Schema schema) {
         for (final String field : attributes.keySet()) {
-            map.put(parseAsPrimitive(schema.keySchema(), field),
-                    parseAsPrimitive(schema.valueSchema(), attributes.get(field)));
+            map.put(XmlUtils.parseAsPrimitive(schema.keySchema(), field),
+                    XmlUtils.parseAsPrimitive(schema.valueSchema(), attributes.get(field)));
         }
     }
 }
\ No newline at end of file
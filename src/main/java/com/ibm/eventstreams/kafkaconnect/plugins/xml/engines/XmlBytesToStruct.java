@@ -15,10 +15,19 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.connect.data.Schema;
@@ -28,9 +37,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.LruCache;
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.XStreamException;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
 import com.thoughtworks.xstream.io.naming.NoNameCoder;
 import com.thoughtworks.xstream.io.xml.StaxDriver;
 import com.thoughtworks.xstream.mapper.CannotResolveClassException;
@@ -40,53 +51,270 @@ public class XmlBytesToStruct {
     private final Logger log = LoggerFactory.getLogger(XmlBytesToStruct.class);
 
 
+    private static final int MAX_STORED_SCHEMAS = 64;
+
+    static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private static final StaxDriver XSTREAM_DRIVER = createXStreamDriver();
+
+
     private final XStream xstream;
     private final XmlPluginsConfig config;
     private final Schema schema;
 
+    /** parser to use instead of XStream, if enabled */
+    private final XmlStreamToStruct parser;
+
+    /** parser that creates structs which decode their fields when they are read, if enabled */
+    private final XmlLazyStructParser lazyParser;
+
+    /** parser for documents without a schema, if only some of their elements are kept */
+    private final XmlStreamToMap mapParser;
+
+    /** infers schemas for documents parsed without one, if enabled */
+    private final SchemaInference schemaInference;
+
+    /** parsers for each accepted root element, if documents are parsed using the schema for their root element */
+    private final Map<String, XmlBytesToStruct> rootElementParsers;
+
+    /** parser for the XSD schema provided by config, replaced if the schema is reloaded */
+    private volatile XmlBytesToStruct xsdSchemaParser = null;
+
+    /** watches the XSD schema provided by config for changes, if enabled */
+    private final XsdSchemaReloader<XmlBytesToStruct> schemaReloader;
+
+    /** where to find the schemas referenced by documents, if schemas aren't provided by config */
+    private final XsdSchemaStore schemaStore;
+
+    /** parsers for the schemas referenced by documents, keyed by reference and root element name */
+    private final LruCache<String, XmlBytesToStruct> storedSchemaParsers = new LruCache<>(MAX_STORED_SCHEMAS);
+
+    /** most recently used stored schema parser, checked before (locking) the cache of parsers */
+    private volatile StoredSchemaParser mostRecentStoredSchemaParser = null;
+
+    /** parsers for the schemas embedded in documents, keyed by root element name and schema fingerprint (SHA-256 hash) */
+    private final LruCache<String, XmlBytesToStruct> embeddedSchemaParsers;
+
+    /** most recently used embedded schema parser, checked before (locking) the cache of parsers */
+    private volatile StoredSchemaParser mostRecentEmbeddedSchemaParser = null;
+
 
     public XmlBytesToStruct(XmlPluginsConfig config) {
         this.config = config;
-
-        xstream = new XStream(new StaxDriver(new NoNameCoder()));
+        this.rootElementParsers = null;
 
         if (config.schemasEnabled() && config.getXsdSchema() != null) {
-            // TODO - new feature idea: if schemas are enabled, but no schema path is provided
-            //  to an external schema, we could find a schema within the XML payload
-
-            final XsdToSchema schemaConverter = new XsdToSchema(config);
-            schema = schemaConverter.getSchema();
+            // documents are parsed by a parser for the schema, which
+            //  can be replaced if the schema file is modified
+            schema = null;
+            schemaStore = null;
+            schemaInference = null;
+            embeddedSchemaParsers = null;
+            xstream = null;
+            parser = null;
+            lazyParser = null;
+            mapParser = null;
 
-            final XStreamStructConverter converter = new XStreamStructConverter();
-            xstream.allowTypes(new Class[] { Struct.class });
-            xstream.registerConverter(converter);
-            xstream.alias(config.getRootElementName(), Struct.class);
-            converter.registerSchema(schema);
+            if (config.getXsdSchemaReloadInterval() > 0) {
+                schemaReloader = new XsdSchemaReloader<>(config.getXsdSchema(), this, XmlBytesToStruct::loadXsdSchema);
+                loadXsdSchema();
+                schemaReloader.start(config.getXsdSchemaReloadInterval());
+            }
+            else {
+                schemaReloader = null;
+                loadXsdSchema();
+            }
+        }
+        else if (config.schemasEnabled() && config.getXsdSchemaStore() != null) {
+            // the schema for each message is identified by a reference
+            //  within it, and parsed using a parser for that schema
+            schema = null;
+            schemaStore = new XsdSchemaStore(config.getXsdSchemaStore());
+            schemaReloader = null;
+            schemaInference = null;
+            embeddedSchemaParsers = null;
+            xstream = null;
+            parser = null;
+            lazyParser = null;
+            mapParser = null;
         }
         else {
             schema = null;
+            schemaStore = null;
+            schemaReloader = null;
+            parser = null;
+            lazyParser = null;
+
+            schemaInference = config.isSchemaInferenceEnabled() ? new SchemaInference(config.getRootElementName()) : null;
 
-            xstream.registerConverter(new XStreamMapConverter());
+            // documents created with schemas enabled include the schema,
+            //  so can be parsed using it if schemas are enabled here too
+            embeddedSchemaParsers = config.schemasEnabled() ? new LruCache<>(MAX_STORED_SCHEMAS) : null;
+
+            xstream = new XStream(new StaxDriver(new NoNameCoder()));
+            xstream.registerConverter(new XStreamMapConverter(config.isTypeInferenceEnabled()));
             xstream.alias(config.getRootElementName(), config.isFlatDoc() ? String.class : Map.class);
+
+            // XStream reads the text of every element, even ones that
+            //  are skipped, so projections are read by a stream reader
+            final ElementProjection projection = ElementProjection.of(config.getProjectionPaths());
+            mapParser = projection == null || config.isFlatDoc() ?
+                null :
+                new XmlStreamToMap(config.getRootElementName(), config.isTypeInferenceEnabled(), projection);
         }
     }
 
+    /**
+     * Creates a parser for documents with a schema from the schema store.
+     */
+    private XmlBytesToStruct(XmlPluginsConfig config, Schema schema, String rootElementName) {
+        this.config = config;
+        this.schemaStore = null;
+        this.schemaReloader = null;
+        this.rootElementParsers = null;
+        this.schemaInference = null;
+        this.embeddedSchemaParsers = null;
+        this.mapParser = null;
 
-    @SuppressWarnings("unchecked")
+        final ElementProjection projection = ElementProjection.of(config.getProjectionPaths());
+        final Set<Schema> projectedStructs;
+        if (projection != null) {
+            // only the kept elements are included in the schema, and
+            //  the stream reader skips everything else
+            final ElementProjection rootProjection = projection.root(rootElementName);
+            this.schema = rootProjection.project(schema);
+            projectedStructs = rootProjection.projectedStructs(this.schema);
+            xstream = null;
+            parser = new XmlStreamToStruct(this.schema, rootElementName, projectedStructs);
+        }
+        else if (isStaxParser(config)) {
+            this.schema = schema;
+            projectedStructs = Collections.emptySet();
+            xstream = null;
+            parser = new XmlStreamToStruct(schema, rootElementName);
+        }
+        else {
+            this.schema = schema;
+            projectedStructs = Collections.emptySet();
+            xstream = createXStream(schema, rootElementName);
+            parser = null;
+        }
+
+        lazyParser = config.isLazyStruct() && XmlLazyStructParser.isSupported(this.schema) ?
+            new XmlLazyStructParser(this.schema, rootElementName, projectedStructs) :
+            null;
+    }
+
+    /**
+     * Creates a parser for documents with any of several root elements,
+     *  which parses each document using the parser for its root element.
+     */
+    private XmlBytesToStruct(XmlPluginsConfig config, Map<String, XmlBytesToStruct> rootElementParsers) {
+        this.config = config;
+        this.rootElementParsers = rootElementParsers;
+        this.schemaInference = null;
+        this.embeddedSchemaParsers = null;
+        this.schema = null;
+        this.schemaStore = null;
+        this.schemaReloader = null;
+        this.xstream = null;
+        this.parser = null;
+        this.lazyParser = null;
+        this.mapParser = null;
+    }
+
+    private static XStream createXStream(Schema schema, String rootElementName) {
+        final XStream xstream = new XStream(new StaxDriver(new NoNameCoder()));
+
+        xstream.allowTypes(new Class[] { Struct.class });
+        xstream.registerConverter(new XStreamStructConverter(schema));
+        xstream.alias(rootElementName, Struct.class);
+
+        return xstream;
+    }
+
+
+    /**
+     * Parses the provided XML document.
+     *
+     * The raw bytes are given to the XML parser rather than being decoded
+     *  first, so that the character encoding is identified from the byte
+     *  order mark or the encoding in the XML declaration, as described in
+     *  the XML spec (defaulting to UTF-8), and not from the platform charset.
+     */
     public SchemaAndValue convert(byte[] value) throws SerializationException {
-        try (Reader xmlReader = new InputStreamReader(new ByteArrayInputStream(value))) {
-            final Object obj = xstream.fromXML(xmlReader);
+        return convert(XmlSource.of(value, null));
+    }
+
+    /**
+     * Parses the provided XML document, which has been encoded using the
+     *  provided charset (such as the CCSID of the MQ message it came from).
+     *
+     * The bytes are decoded as they are parsed, ignoring any encoding in
+     *  the XML declaration. If no charset is provided, the encoding is
+     *  identified from the document instead.
+     */
+    public SchemaAndValue convert(byte[] value, Charset charset) throws SerializationException {
+        return convert(XmlSource.of(value, charset));
+    }
+
+    /**
+     * Parses the provided XML document, which has already been decoded
+     *  (such as the value of a String record), so that it doesn't need
+     *  encoding into bytes only to be decoded again by the XML parser.
+     *  Any encoding in the XML declaration is ignored.
+     */
+    public SchemaAndValue convert(CharSequence value) throws SerializationException {
+        return convert(XmlSource.of(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    SchemaAndValue convert(XmlSource source) throws SerializationException {
+        // read once, so that the whole document is parsed using the
+        //  same schema even if it is reloaded while parsing
+        final XmlBytesToStruct xsdParser = xsdSchemaParser;
+        if (xsdParser != null) {
+            return xsdParser.convert(source);
+        }
+        if (schemaStore != null) {
+            return getStoredSchemaParser(source).convert(source);
+        }
+        if (embeddedSchemaParsers != null) {
+            final XmlBytesToStruct embeddedSchemaParser = getEmbeddedSchemaParser(source);
+            if (embeddedSchemaParser != null) {
+                return embeddedSchemaParser.convert(source);
+            }
+        }
+        if (lazyParser != null) {
+            return parseLazily(source);
+        }
+        if (mapParser != null) {
+            return parseMap(source);
+        }
+        if (parser != null || (rootElementParsers != null && isStaxParser(config))) {
+            return parse(source);
+        }
+
+        try {
+            if (rootElementParsers != null) {
+                return unmarshalAnyRootElement(source);
+            }
+
+            final Object obj = source.fromXML(xstream);
             Object val;
             if (schema != null) {
                 val = obj;
             }
             else {
                 if (config.isFlatDoc()) {
-                    val = XmlUtils.guessType(obj);
+                    val = config.isTypeInferenceEnabled() ? XmlUtils.guessType(obj) : obj;
                 }
                 else {
                     val = ((Map<String, Object>)obj).get(config.getRootElementName());
                 }
+                if (schemaInference != null) {
+                    return schemaInference.infer(val);
+                }
             }
 
             return new SchemaAndValue(schema, val);
@@ -105,10 +333,376 @@ public class XmlBytesToStruct {
                 throw new SerializationException("Failed to deserialize message data", xse);
             }
         }
+        catch (final SerializationException se) {
+            log.error("Failed to deserialize message data", se);
+            throw se;
+        }
         catch (final Throwable thr) {
             log.error("Failed to create schema and value", thr);
             thr.printStackTrace();
             throw new SerializationException(thr);
         }
     }
+
+
+    /**
+     * Parses the provided XML document using the StAX parser.
+     */
+    private SchemaAndValue parse(XmlSource source) throws SerializationException {
+        try {
+            final XMLStreamReader reader = source.createStreamReader(XML_INPUT_FACTORY);
+            try {
+                XmlBytesToStruct rootParser = this;
+                if (rootElementParsers != null) {
+                    while (reader.next() != XMLStreamConstants.START_ELEMENT) {}
+                    rootParser = getRootElementParser(reader.getLocalName());
+                    if (rootParser.lazyParser != null) {
+                        return rootParser.parseLazily(source);
+                    }
+                }
+                return new SchemaAndValue(rootParser.schema, rootParser.parser.parse(reader));
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final SerializationException se) {
+            log.error("Failed to deserialize message data", se);
+            throw se;
+        }
+        catch (final Exception exc) {
+            log.error("Failed to deserialize message data", exc);
+            throw new SerializationException("Failed to deserialize message data", exc);
+        }
+    }
+
+
+    /**
+     * Parses the provided XML document into a struct that decodes each
+     *  field when it is first read.
+     */
+    private SchemaAndValue parseLazily(XmlSource source) throws SerializationException {
+        try {
+            return new SchemaAndValue(schema, lazyParser.parse(source));
+        }
+        catch (final SerializationException se) {
+            log.error("Failed to deserialize message data", se);
+            throw se;
+        }
+        catch (final Exception exc) {
+            log.error("Failed to deserialize message data", exc);
+            throw new SerializationException("Failed to deserialize message data", exc);
+        }
+    }
+
+
+    /**
+     * Parses the provided XML document without a schema, keeping only
+     *  the elements selected by config.
+     */
+    private SchemaAndValue parseMap(XmlSource source) throws SerializationException {
+        try {
+            final XMLStreamReader reader = source.createStreamReader(XML_INPUT_FACTORY);
+            try {
+                final Map<String, Object> val = mapParser.parse(reader);
+                if (schemaInference != null) {
+                    return schemaInference.infer(val);
+                }
+                return new SchemaAndValue(null, val);
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final SerializationException se) {
+            log.error("Failed to deserialize message data", se);
+            throw se;
+        }
+        catch (final Exception exc) {
+            log.error("Failed to deserialize message data", exc);
+            throw new SerializationException("Failed to deserialize message data", exc);
+        }
+    }
+
+
+    /**
+     * Returns true if documents with a schema are parsed using the
+     *  StAX parser, which is needed to skip elements that aren't kept,
+     *  and which lazy structs use to decode their fields.
+     */
+    private static boolean isStaxParser(XmlPluginsConfig config) {
+        return config.isStaxParser() || !config.getProjectionPaths().isEmpty() || config.isLazyStruct();
+    }
+
+
+    /**
+     * Parses the provided XML document using XStream, with the parser
+     *  for its root element.
+     */
+    private SchemaAndValue unmarshalAnyRootElement(XmlSource source) {
+        final HierarchicalStreamReader reader = source.createStreamReader(XSTREAM_DRIVER);
+        try {
+            final XmlBytesToStruct rootParser = getRootElementParser(reader.getNodeName());
+            return new SchemaAndValue(rootParser.schema, rootParser.xstream.unmarshal(reader));
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+
+    private XmlBytesToStruct getRootElementParser(String rootElementName) {
+        final XmlBytesToStruct rootParser = rootElementParsers.get(rootElementName);
+        if (rootParser == null) {
+            throw new SerializationException("Unexpected root element '" + rootElementName + "'");
+        }
+        return rootParser;
+    }
+
+
+    /**
+     * Creates a parser for the XSD schema provided by config, replacing
+     *  the current parser if there is one.
+     */
+    private void loadXsdSchema() {
+        final XsdToSchema xsdToSchema = new XsdToSchema(config);
+
+        if (config.getRootElementNames().isEmpty()) {
+            final Schema xsdSchema = xsdToSchema.getSchema();
+            xsdSchemaParser = new XmlBytesToStruct(config, xsdSchema, config.getRootElementName());
+        }
+        else {
+            final Map<String, XmlBytesToStruct> rootParsers = new HashMap<>();
+            xsdToSchema.getSchemas(config.getXsdSchema(), config.getRootElementNames()).forEach((rootElementName, xsdSchema) ->
+                rootParsers.put(rootElementName, new XmlBytesToStruct(config, xsdSchema, rootElementName)));
+            xsdSchemaParser = new XmlBytesToStruct(config, rootParsers);
+        }
+    }
+
+
+    /**
+     * Returns the schema that documents are currently parsed with, if
+     *  they are all parsed using a single XSD schema provided by config.
+     *
+     * @return null if documents aren't parsed using a single XSD schema
+     */
+    Schema getXsdSchema() {
+        final XmlBytesToStruct xsdParser = xsdSchemaParser;
+        return xsdParser == null ? null : xsdParser.schema;
+    }
+
+
+    /**
+     * Stops watching the XSD schema for changes.
+     */
+    public void close() {
+        if (schemaReloader != null) {
+            schemaReloader.close();
+        }
+    }
+
+
+    /**
+     * Returns the parser for the stored schema referenced by the
+     *  root element of the provided XML document.
+     */
+    private XmlBytesToStruct getStoredSchemaParser(XmlSource source) {
+        final String rootElementName;
+        final String reference;
+        try {
+            final XMLStreamReader reader = source.createStreamReader(XML_INPUT_FACTORY);
+            try {
+                reader.nextTag();
+                rootElementName = reader.getLocalName();
+                reference = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final XMLStreamException xse) {
+            log.error("Failed to deserialize message data", xse);
+            throw new SerializationException("Failed to deserialize message data", xse);
+        }
+
+        if (!schemaStore.isReference(reference)) {
+            throw new SerializationException("Schema reference not found in message data");
+        }
+
+        final String key = reference + "#" + rootElementName;
+
+        final StoredSchemaParser recent = mostRecentStoredSchemaParser;
+        if (recent != null && recent.key.equals(key)) {
+            return recent.parser;
+        }
+
+        // the schema is read and compiled without locking the cache, so
+        //  documents with schemas that are already cached aren't blocked
+        //  by it - if several threads compile the same schema, the first
+        //  one to finish is cached
+        XmlBytesToStruct storedSchemaParser = storedSchemaParsers.get(key);
+        if (storedSchemaParser == null) {
+            final Schema storedSchema = new XsdToSchema(config).getSchema(schemaStore.get(reference), rootElementName);
+            storedSchemaParser = storedSchemaParsers.putIfAbsent(key, new XmlBytesToStruct(config, storedSchema, rootElementName));
+        }
+        mostRecentStoredSchemaParser = new StoredSchemaParser(key, storedSchemaParser);
+        return storedSchemaParser;
+    }
+
+
+    /**
+     * Returns the parser for the schema embedded in the provided XML
+     *  document, or null if it doesn't have an embedded schema.
+     *
+     * Embedded schemas are identified by a fingerprint of their contents,
+     *  read using a stream reader, so each schema is only compiled the
+     *  first time that it is seen.
+     */
+    private XmlBytesToStruct getEmbeddedSchemaParser(XmlSource source) {
+        final String rootElementName;
+        final String key;
+        try {
+            final XMLStreamReader reader = source.createStreamReader(XML_INPUT_FACTORY);
+            try {
+                reader.nextTag();
+                rootElementName = reader.getLocalName();
+                final String reference = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+                if (!XmlUtils.EMBEDDED_SCHEMA_REFERENCE.equals(reference)) {
+                    return null;
+                }
+
+                reader.nextTag();
+                if (!XmlStreamToStruct.isEmbeddedSchema(reader)) {
+                    return null;
+                }
+                key = rootElementName + "#" + fingerprintElement(reader);
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final XMLStreamException xse) {
+            log.error("Failed to deserialize message data", xse);
+            throw new SerializationException("Failed to deserialize message data", xse);
+        }
+
+        final StoredSchemaParser recent = mostRecentEmbeddedSchemaParser;
+        if (recent != null && recent.key.equals(key)) {
+            return recent.parser;
+        }
+
+        // compiled without locking the cache, as for stored schemas
+        XmlBytesToStruct embeddedSchemaParser = embeddedSchemaParsers.get(key);
+        if (embeddedSchemaParser == null) {
+            final Schema embeddedSchema = new XsdToSchema(config).getEmbeddedSchema(source.createInputSource(), rootElementName);
+            embeddedSchemaParser = embeddedSchemaParsers.putIfAbsent(key, new XmlBytesToStruct(config, embeddedSchema, rootElementName));
+        }
+        mostRecentEmbeddedSchemaParser = new StoredSchemaParser(key, embeddedSchemaParser);
+        return embeddedSchemaParser;
+    }
+
+
+    /**
+     * Returns a fingerprint (SHA-256 hash) of the current element,
+     *  including the names and attributes of all of the elements within
+     *  it, leaving the reader at the end of the element.
+     *
+     * The names and attributes are added to the hash as they are read,
+     *  so only the fixed-size hash is kept, however big the element is.
+     */
+    private static String fingerprintElement(XMLStreamReader reader) throws XMLStreamException {
+        final ElementDigest digest = new ElementDigest();
+        int depth = 0;
+        do {
+            if (reader.isStartElement()) {
+                depth++;
+                digest.add('<');
+                digest.add(reader.getPrefix());
+                digest.add(reader.getLocalName());
+                for (int i = 0; i < reader.getAttributeCount(); i++) {
+                    digest.add(' ');
+                    digest.add(reader.getAttributePrefix(i));
+                    digest.add(reader.getAttributeLocalName(i));
+                    digest.add(reader.getAttributeValue(i));
+                }
+                digest.add('>');
+            }
+            else if (reader.isEndElement()) {
+                depth--;
+                digest.add('/');
+            }
+
+            if (depth > 0) {
+                reader.next();
+            }
+        }
+        while (depth > 0);
+
+        return digest.toHex();
+    }
+
+
+    /**
+     * SHA-256 digest of a sequence of characters and strings, which are
+     *  buffered so they can be added without allocating.
+     */
+    private static final class ElementDigest {
+        private final MessageDigest digest = XsdSchemaStore.newDigest();
+        private final byte[] buffer = new byte[1024];
+        private int length = 0;
+
+        void add(char c) {
+            if (length == buffer.length) {
+                flush();
+            }
+            buffer[length++] = (byte) (c >> 8);
+            buffer[length++] = (byte) c;
+        }
+
+        /** adds the string and a terminator, which names and values can't contain */
+        void add(String s) {
+            if (s != null) {
+                for (int i = 0; i < s.length(); i++) {
+                    add(s.charAt(i));
+                }
+            }
+            add('\u0000');
+        }
+
+        String toHex() {
+            flush();
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        private void flush() {
+            digest.update(buffer, 0, length);
+            length = 0;
+        }
+    }
+
+
+    private static final class StoredSchemaParser {
+        private final String key;
+        private final XmlBytesToStruct parser;
+
+        StoredSchemaParser(String key, XmlBytesToStruct parser) {
+            this.key = key;
+            this.parser = parser;
+        }
+    }
+
+
+    private static StaxDriver createXStreamDriver() {
+        final StaxDriver driver = new StaxDriver(new NoNameCoder());
+        // created now, rather than lazily by whichever thread first uses the driver
+        driver.getInputFactory();
+        return driver;
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        final XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
 }
@@ -0,0 +1,291 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.util.Arrays;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * Positions of the root element and of each of its child elements in
+ *  an XML document, found in a single scan of the document characters.
+ *
+ * The scan only looks at markup: it skips comments, CDATA sections,
+ *  processing instructions and quoted attribute values, and counts
+ *  start and end tags to find where each child element ends, without
+ *  checking that they match or reading any text or attributes. Those
+ *  are checked when the content of the child elements is parsed.
+ */
+final class XmlElementIndex {
+
+    /** start of the root element start tag */
+    final int rootStart;
+    /** end (exclusive) of the root element start tag */
+    final int rootEnd;
+    /** qualified name of the root element */
+    final String rootName;
+    /** true if the root element is an empty-element tag */
+    final boolean rootEmpty;
+
+    /** number of child elements of the root element */
+    int count = 0;
+    /** local names of the child elements */
+    String[] names = new String[16];
+    /** start of each child element */
+    int[] starts = new int[16];
+    /** end (exclusive) of each child element */
+    int[] ends = new int[16];
+
+
+    private XmlElementIndex(int rootStart, int rootEnd, String rootName, boolean rootEmpty) {
+        this.rootStart = rootStart;
+        this.rootEnd = rootEnd;
+        this.rootName = rootName;
+        this.rootEmpty = rootEmpty;
+    }
+
+
+    /**
+     * Indexes the root element of the provided document.
+     */
+    static XmlElementIndex of(String doc) {
+        // skip the prolog
+        int pos = nextTag(doc, 0);
+        int skipped;
+        while ((skipped = skipMarkup(doc, pos)) >= 0) {
+            pos = nextTag(doc, skipped);
+        }
+
+        final int rootNameEnd = nameEnd(doc, pos + 1);
+        final int rootTagEnd = tagEnd(doc, rootNameEnd);
+        final XmlElementIndex index = new XmlElementIndex(pos, rootTagEnd + 1,
+                                                          doc.substring(pos + 1, rootNameEnd),
+                                                          doc.charAt(rootTagEnd - 1) == '/');
+        if (index.rootEmpty) {
+            return index;
+        }
+
+        pos = index.rootEnd;
+        int depth = 0;
+        int elementStart = -1;
+        String elementName = null;
+        while (true) {
+            pos = nextTag(doc, pos);
+            skipped = skipMarkup(doc, pos);
+            if (skipped >= 0) {
+                pos = skipped;
+                continue;
+            }
+
+            if (doc.charAt(pos + 1) == '/') {
+                final int end = tagEnd(doc, pos + 2) + 1;
+                if (depth == 0) {
+                    // end of the root element
+                    return index;
+                }
+                depth--;
+                if (depth == 0) {
+                    index.add(elementName, elementStart, end);
+                }
+                pos = end;
+                continue;
+            }
+
+            final int nameEnd = nameEnd(doc, pos + 1);
+            final int end = tagEnd(doc, nameEnd) + 1;
+            final boolean empty = doc.charAt(end - 2) == '/';
+            if (depth == 0) {
+                elementStart = pos;
+                elementName = localName(doc, pos + 1, nameEnd);
+                if (empty) {
+                    index.add(elementName, elementStart, end);
+                }
+                else {
+                    depth = 1;
+                }
+            }
+            else if (!empty) {
+                depth++;
+            }
+            pos = end;
+        }
+    }
+
+    private void add(String name, int start, int end) {
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        names[count] = name;
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+
+    /**
+     * Returns the position of the next '<' from the provided position.
+     */
+    private static int nextTag(String doc, int from) {
+        final int pos = doc.indexOf('<', from);
+        if (pos < 0 || pos == doc.length() - 1) {
+            throw malformed();
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the position after the markup at the provided position, if
+     *  it is a comment, CDATA section, processing instruction or document
+     *  type declaration.
+     *
+     * @return -1 if the markup is a start or end tag
+     */
+    private static int skipMarkup(String doc, int pos) {
+        final char next = doc.charAt(pos + 1);
+        if (next == '?') {
+            return after(doc, "?>", pos + 2);
+        }
+        if (next != '!') {
+            return -1;
+        }
+        if (doc.startsWith("<!--", pos)) {
+            return after(doc, "-->", pos + 4);
+        }
+        if (doc.startsWith("<![CDATA[", pos)) {
+            return after(doc, "]]>", pos + 9);
+        }
+
+        // document type declaration, which can include an internal subset
+        int brackets = 0;
+        for (int i = pos + 2; i < doc.length(); i++) {
+            final char c = doc.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = closingQuote(doc, i);
+            }
+            else if (c == '[') {
+                brackets++;
+            }
+            else if (c == ']') {
+                brackets--;
+            }
+            else if (c == '>' && brackets == 0) {
+                return i + 1;
+            }
+        }
+        throw malformed();
+    }
+
+    private static int after(String doc, String terminator, int from) {
+        final int pos = doc.indexOf(terminator, from);
+        if (pos < 0) {
+            throw malformed();
+        }
+        return pos + terminator.length();
+    }
+
+    /**
+     * Returns the end of the element name starting at the provided position.
+     */
+    private static int nameEnd(String doc, int from) {
+        for (int i = from; i < doc.length(); i++) {
+            final char c = doc.charAt(i);
+            if (c == '>' || c == '/' || c <= ' ') {
+                if (i == from) {
+                    throw malformed();
+                }
+                return i;
+            }
+        }
+        throw malformed();
+    }
+
+    /**
+     * Returns the position of the '>' at the end of the tag, skipping
+     *  any '>' characters in quoted attribute values.
+     */
+    private static int tagEnd(String doc, int from) {
+        for (int i = from; i < doc.length(); i++) {
+            final char c = doc.charAt(i);
+            if (c == '"' || c == '\'') {
+                i = closingQuote(doc, i);
+            }
+            else if (c == '>') {
+                return i;
+            }
+        }
+        throw malformed();
+    }
+
+    private static int closingQuote(String doc, int pos) {
+        final int end = doc.indexOf(doc.charAt(pos), pos + 1);
+        if (end < 0) {
+            throw malformed();
+        }
+        return end;
+    }
+
+    /**
+     * Returns the value of the attribute with the provided local name
+     *  (in any namespace) in the start tag at the provided position,
+     *  without replacing any references in it, or null if the tag
+     *  doesn't have it. Namespace declarations aren't attributes.
+     */
+    static String attributeValue(String doc, int tagStart, String localName) {
+        int pos = nameEnd(doc, tagStart + 1);
+        while (true) {
+            while (pos < doc.length() && doc.charAt(pos) <= ' ') {
+                pos++;
+            }
+            if (pos >= doc.length() || doc.charAt(pos) == '>' || doc.charAt(pos) == '/') {
+                return null;
+            }
+
+            final int nameStart = pos;
+            while (pos < doc.length() && doc.charAt(pos) != '=' && doc.charAt(pos) > ' ') {
+                pos++;
+            }
+            final int nameEnd = pos;
+            while (pos < doc.length() && doc.charAt(pos) != '"' && doc.charAt(pos) != '\'') {
+                pos++;
+            }
+            if (pos >= doc.length()) {
+                throw malformed();
+            }
+            final int valueEnd = closingQuote(doc, pos);
+            if (!doc.startsWith("xmlns:", nameStart) &&
+                localName.equals(localName(doc, nameStart, nameEnd)))
+            {
+                return doc.substring(pos + 1, valueEnd);
+            }
+            pos = valueEnd + 1;
+        }
+    }
+
+    private static String localName(String doc, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            if (doc.charAt(i) == ':') {
+                return doc.substring(i + 1, end);
+            }
+        }
+        return doc.substring(start, end);
+    }
+
+    private static SerializationException malformed() {
+        return new SerializationException("Failed to deserialize message data: document is not well-formed");
+    }
+}
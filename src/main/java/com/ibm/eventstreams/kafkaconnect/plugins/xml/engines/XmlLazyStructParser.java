@@ -0,0 +1,186 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct.XML_INPUT_FACTORY;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.MismatchingSchemaException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Parses XML documents into LazyStructs, which only decode the content
+ *  of each of their fields when it is first read.
+ *
+ * Parsing a document only scans it to find the child elements of the
+ *  root element (see XmlElementIndex), checking that each of them is
+ *  a field in the schema. Reading a field parses a document made up
+ *  of the root element start tag and the child elements for that field,
+ *  using XmlStreamToStruct, so each field has the same value that it
+ *  would have if the whole document was parsed.
+ *
+ * Instances are immutable, so can be shared between threads.
+ */
+final class XmlLazyStructParser {
+
+    private final Schema schema;
+    private final String rootElementName;
+
+    /** parser for the documents made up of the elements for a field */
+    private final XmlStreamToStruct parser;
+
+    /** true if the schema only has fields for some of the child elements */
+    private final boolean projected;
+
+
+    XmlLazyStructParser(Schema schema, String rootElementName, Set<Schema> projectedStructs) {
+        this.schema = schema;
+        this.rootElementName = rootElementName;
+        this.parser = new XmlStreamToStruct(schema, rootElementName, projectedStructs);
+        this.projected = projectedStructs.contains(schema);
+    }
+
+    /**
+     * Identifies if documents with the provided schema can be parsed
+     *  lazily, which needs every field of the root struct to be an
+     *  attribute or child element (not the text of the root element).
+     */
+    static boolean isSupported(Schema schema) {
+        return schema.type() == Type.STRUCT && ReadPlan.compile(schema).entry == null;
+    }
+
+
+    LazyStruct parse(XmlSource source) throws XMLStreamException {
+        final String document = source.toCharacters(XML_INPUT_FACTORY);
+        final XmlElementIndex index = XmlElementIndex.of(document);
+
+        final String rootName = index.rootName;
+        if (!rootElementName.equals(rootName.substring(rootName.indexOf(':') + 1))) {
+            throw new SerializationException("Expected root element '" + rootElementName + "' not found");
+        }
+
+        // positions of the child elements for each field, as pairs of
+        //  start and end positions, in the order they are in the document
+        final int[][] fieldElements = new int[schema.fields().size()][];
+        int previousField = -1;
+        for (int i = 0; i < index.count; i++) {
+            final Field field = schema.field(index.names[i]);
+            if (field == null) {
+                // the embedded schema isn't part of the data, and
+                //  projections skip any elements they don't keep
+                if (projected || isEmbeddedSchema(document, index, i)) {
+                    continue;
+                }
+                throw new MismatchingSchemaException();
+            }
+
+            int[] elements = fieldElements[field.index()];
+            if (field.index() == previousField) {
+                // repeated elements (such as the items of a list) are
+                //  decoded together, so are kept as a single range
+                elements[elements.length - 1] = index.ends[i];
+                continue;
+            }
+            previousField = field.index();
+            if (elements == null) {
+                elements = new int[2];
+            }
+            else {
+                elements = Arrays.copyOf(elements, elements.length + 2);
+            }
+            elements[elements.length - 2] = index.starts[i];
+            elements[elements.length - 1] = index.ends[i];
+            fieldElements[field.index()] = elements;
+        }
+
+        return new LazyStruct(schema, this, document, index, fieldElements);
+    }
+
+
+    /**
+     * Identifies if a child element of the root element is an embedded
+     *  schema, the same as XmlStreamToStruct.isEmbeddedSchema.
+     */
+    private static boolean isEmbeddedSchema(String document, XmlElementIndex index, int child) {
+        return "schema".equals(index.names[child]) &&
+               XmlUtils.EMBEDDED_SCHEMA_ID.equals(XmlElementIndex.attributeValue(document, index.starts[child], "id"));
+    }
+
+
+    /**
+     * Parses the root element of a document without any of its child
+     *  elements, which provides the values for the attribute fields and
+     *  for fields without any elements in the document.
+     */
+    Struct decodeRoot(String document, XmlElementIndex index) {
+        final StringBuilder xml = new StringBuilder(index.rootEnd - index.rootStart + index.rootName.length() + 3);
+        xml.append(document, index.rootStart, index.rootEnd);
+        if (!index.rootEmpty) {
+            xml.append("</").append(index.rootName).append('>');
+        }
+        return decode(xml);
+    }
+
+    /**
+     * Parses the provided child elements of the root element of a
+     *  document, returning a struct with values for their fields.
+     */
+    Struct decodeElements(String document, XmlElementIndex index, int[] elements) {
+        int length = index.rootEnd - index.rootStart + index.rootName.length() + 3;
+        for (int i = 0; i < elements.length; i += 2) {
+            length += elements[i + 1] - elements[i];
+        }
+
+        final StringBuilder xml = new StringBuilder(length);
+        xml.append(document, index.rootStart, index.rootEnd);
+        for (int i = 0; i < elements.length; i += 2) {
+            xml.append(document, elements[i], elements[i + 1]);
+        }
+        xml.append("</").append(index.rootName).append('>');
+        return decode(xml);
+    }
+
+    private Struct decode(CharSequence xml) {
+        try {
+            final XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(xml.toString()));
+            try {
+                return (Struct) parser.parse(reader);
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final DataException exc) {
+            throw exc;
+        }
+        catch (final Exception exc) {
+            throw new DataException("Failed to decode message data", exc);
+        }
+    }
+}
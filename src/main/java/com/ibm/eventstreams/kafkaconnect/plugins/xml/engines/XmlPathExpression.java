@@ -0,0 +1,261 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct.XML_INPUT_FACTORY;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+/**
+ * An expression that checks the content of XML documents, made up of
+ *  a path that starts with the root element, optionally followed by a
+ *  comparison with a quoted value. For example:
+ *
+ *   /Order/Priority            - true if the element exists
+ *   /Order/@type = 'RUSH'      - true if the attribute has the value
+ *   /Order/Status != "HELD"    - true if the element has another value
+ *
+ * Comparisons use the first element or attribute that the path matches
+ *  (comparing the text content of elements), and are false if the path
+ *  doesn't match anything. Namespace prefixes are ignored, so names only
+ *  need to match the local names of elements and attributes.
+ *
+ * Documents are read with a StAX stream reader, which stops as soon as
+ *  the result is known: at the first match for the path, or at the root
+ *  element if it isn't the first element of the path. The rest of the
+ *  document isn't read, or checked to be well-formed.
+ *
+ * Instances are immutable, so can be shared between threads.
+ */
+public final class XmlPathExpression {
+
+    private enum Operator { EXISTS, EQUALS, NOT_EQUALS }
+
+    /** local names of the elements in the path, starting with the root element */
+    private final String[] elements;
+    /** local name of the attribute at the end of the path, or null if it is an element */
+    private final String attribute;
+
+    private final Operator operator;
+    /** value to compare with, or null if the expression checks that the path exists */
+    private final String value;
+
+
+    private XmlPathExpression(String[] elements, String attribute, Operator operator, String value) {
+        this.elements = elements;
+        this.attribute = attribute;
+        this.operator = operator;
+        this.value = value;
+    }
+
+
+    /**
+     * Compiles the provided expression.
+     *
+     * @throws IllegalArgumentException if the expression isn't valid
+     */
+    public static XmlPathExpression compile(String expression) {
+        String path = expression.trim();
+        Operator operator = Operator.EXISTS;
+        String value = null;
+
+        final int equals = path.indexOf('=');
+        if (equals >= 0) {
+            final boolean notEquals = equals > 0 && path.charAt(equals - 1) == '!';
+            operator = notEquals ? Operator.NOT_EQUALS : Operator.EQUALS;
+            value = unquote(path.substring(equals + 1).trim());
+            path = path.substring(0, notEquals ? equals - 1 : equals).trim();
+        }
+
+        if (!path.startsWith("/")) {
+            throw new IllegalArgumentException("Paths must start with '/' followed by the root element name");
+        }
+        final String[] names = path.substring(1).split("/", -1);
+        String attribute = null;
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if (name.startsWith("@") && i > 0 && i == names.length - 1) {
+                name = name.substring(1);
+                attribute = localName(name);
+            }
+            if (name.isEmpty() || name.chars().anyMatch(c -> c <= ' ' || "@'\"!=<>".indexOf(c) >= 0)) {
+                throw new IllegalArgumentException("Invalid name '" + names[i] + "' in path " + path);
+            }
+            names[i] = localName(name);
+        }
+
+        final int elementCount = attribute == null ? names.length : names.length - 1;
+        final String[] elements = new String[elementCount];
+        System.arraycopy(names, 0, elements, 0, elementCount);
+        return new XmlPathExpression(elements, attribute, operator, value);
+    }
+
+    private static String unquote(String literal) {
+        if (literal.length() < 2 ||
+            (literal.charAt(0) != '\'' && literal.charAt(0) != '"') ||
+            literal.charAt(literal.length() - 1) != literal.charAt(0) ||
+            literal.indexOf(literal.charAt(0), 1) != literal.length() - 1)
+        {
+            throw new IllegalArgumentException("Values must be enclosed in single or double quotes");
+        }
+        return literal.substring(1, literal.length() - 1);
+    }
+
+    private static String localName(String name) {
+        return name.substring(name.indexOf(':') + 1);
+    }
+
+
+    /**
+     * Evaluates the expression for the provided encoded XML document,
+     *  identifying the encoding from the document.
+     */
+    public boolean test(byte[] xmlBytes) {
+        return test(XmlSource.of(xmlBytes, null));
+    }
+
+    /**
+     * Evaluates the expression for the provided XML document.
+     */
+    public boolean test(String xmlString) {
+        return test(XmlSource.of(xmlString));
+    }
+
+    private boolean test(XmlSource source) {
+        try {
+            final XMLStreamReader reader = source.createStreamReader(XML_INPUT_FACTORY);
+            try {
+                return evaluate(reader);
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final XMLStreamException xse) {
+            throw new SerializationException("Failed to deserialize message data", xse);
+        }
+    }
+
+
+    private boolean evaluate(XMLStreamReader reader) throws XMLStreamException {
+        // depth of the next start element, and the number of elements
+        //  in the path that its ancestors match
+        int depth = 0;
+        int matched = 0;
+
+        while (reader.hasNext()) {
+            final int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                matched = Math.min(matched, depth);
+            }
+            else if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == matched && matched < elements.length && elements[matched].equals(reader.getLocalName())) {
+                    matched++;
+                    if (matched == elements.length) {
+                        if (attribute == null) {
+                            return operator == Operator.EXISTS || compareText(reader);
+                        }
+                        final String attributeValue = getAttribute(reader);
+                        if (attributeValue != null) {
+                            return operator == Operator.EXISTS || compare(attributeValue.equals(value));
+                        }
+                        // the attribute could be on a later element with the same path
+                    }
+                }
+                else if (depth == 0) {
+                    // unexpected root element
+                    return false;
+                }
+                depth++;
+            }
+        }
+        return false;
+    }
+
+    private String getAttribute(XMLStreamReader reader) {
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            if (attribute.equals(reader.getAttributeLocalName(i))) {
+                return reader.getAttributeValue(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares the text content of the current element with the value,
+     *  stopping as soon as the text stops matching the value.
+     */
+    private boolean compareText(XMLStreamReader reader) throws XMLStreamException {
+        int length = 0;
+        int depth = 0;
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    if (depth == 0) {
+                        return compare(length == value.length());
+                    }
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    final char[] text = reader.getTextCharacters();
+                    final int start = reader.getTextStart();
+                    final int textLength = reader.getTextLength();
+                    if (length + textLength > value.length()) {
+                        return compare(false);
+                    }
+                    for (int i = 0; i < textLength; i++) {
+                        if (text[start + i] != value.charAt(length + i)) {
+                            return compare(false);
+                        }
+                    }
+                    length += textLength;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private boolean compare(boolean equal) {
+        return operator == Operator.EQUALS ? equal : !equal;
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuilder expression = new StringBuilder();
+        for (final String element : elements) {
+            expression.append('/').append(element);
+        }
+        if (attribute != null) {
+            expression.append("/@").append(attribute);
+        }
+        if (operator != Operator.EXISTS) {
+            expression.append(operator == Operator.EQUALS ? " = '" : " != '").append(value).append('\'');
+        }
+        return expression.toString();
+    }
+}
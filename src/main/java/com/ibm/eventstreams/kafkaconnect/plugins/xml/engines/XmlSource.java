@@ -0,0 +1,192 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.InputSource;
+
+import com.thoughtworks.xstream.XStream;
+import com.thoughtworks.xstream.io.HierarchicalStreamReader;
+import com.thoughtworks.xstream.io.xml.StaxDriver;
+
+/**
+ * An XML document to parse, either as encoded bytes or as characters.
+ *
+ * Documents may need reading more than once (for example, to find the
+ *  schema they refer to before parsing them with it), so each method
+ *  creates a new reader positioned at the start of the document.
+ */
+final class XmlSource {
+
+    /** encoded document, or null if the document is characters */
+    private final byte[] bytes;
+    /** encoding of the bytes, or null if it is identified from the document */
+    private final Charset charset;
+
+    /** document characters, or null if the document is encoded */
+    private final String chars;
+
+
+    private XmlSource(byte[] bytes, Charset charset, String chars) {
+        this.bytes = bytes;
+        this.charset = charset;
+        this.chars = chars;
+    }
+
+    static XmlSource of(byte[] bytes, Charset charset) {
+        return new XmlSource(bytes, charset, null);
+    }
+
+    static XmlSource of(CharSequence chars) {
+        return new XmlSource(null, null, chars.toString());
+    }
+
+
+    /** number of bytes or characters in the document */
+    int length() {
+        return bytes != null ? bytes.length : chars.length();
+    }
+
+
+    XMLStreamReader createStreamReader(XMLInputFactory factory) throws XMLStreamException {
+        if (bytes != null && charset == null) {
+            return factory.createXMLStreamReader(new ByteArrayInputStream(bytes));
+        }
+        return factory.createXMLStreamReader(createReader());
+    }
+
+    HierarchicalStreamReader createStreamReader(StaxDriver driver) {
+        if (bytes != null && charset == null) {
+            return driver.createReader(new ByteArrayInputStream(bytes));
+        }
+        return driver.createReader(createReader());
+    }
+
+    Object fromXML(XStream xstream) {
+        if (bytes != null && charset == null) {
+            return xstream.fromXML(new ByteArrayInputStream(bytes));
+        }
+        return xstream.fromXML(createReader());
+    }
+
+    InputSource createInputSource() {
+        if (bytes != null && charset == null) {
+            return new InputSource(new ByteArrayInputStream(bytes));
+        }
+        return new InputSource(createReader());
+    }
+
+
+    /**
+     * Returns the document characters, decoding them if the document is
+     *  encoded. Without a charset, the document is decoded using the
+     *  encoding identified by the XML parser (from the byte order mark
+     *  or the XML declaration), the same as it would be when parsed.
+     */
+    String toCharacters(XMLInputFactory factory) throws XMLStreamException {
+        if (chars != null) {
+            return chars;
+        }
+        if (charset != null) {
+            return new String(bytes, charset);
+        }
+        final Charset identified = identifyCharset(bytes);
+        if (identified != null) {
+            return new String(bytes, identified);
+        }
+
+        final XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(bytes));
+        try {
+            final String encoding = reader.getEncoding();
+            return new String(bytes, encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding));
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+
+    /**
+     * Identifies the encoding of documents that are UTF-8 (or UTF-16 with
+     *  a byte order mark), without needing an XML parser to do it.
+     *
+     * @return null if the encoding needs identifying by an XML parser
+     */
+    private static Charset identifyCharset(byte[] bytes) {
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0xFE && (bytes[1] & 0xFF) == 0xFF) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (bytes.length >= 2 && (bytes[0] & 0xFF) == 0xFF && (bytes[1] & 0xFF) == 0xFE) {
+            return StandardCharsets.UTF_16LE;
+        }
+
+        final int start = bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF ? 3 : 0;
+        if (bytes.length == start || bytes[start] != '<') {
+            return null;
+        }
+        if (!startsWith(bytes, start, "<?xml")) {
+            // documents without an XML declaration are UTF-8
+            return StandardCharsets.UTF_8;
+        }
+
+        // the XML declaration is ASCII, and ends at the first '>'
+        int end = start;
+        while (end < bytes.length && bytes[end] != '>') {
+            end++;
+        }
+        final String declaration = new String(bytes, start, end - start, StandardCharsets.US_ASCII);
+        if (!declaration.contains("encoding") ||
+            declaration.contains("\"UTF-8\"") || declaration.contains("'UTF-8'") ||
+            declaration.contains("\"utf-8\"") || declaration.contains("'utf-8'")) {
+            return StandardCharsets.UTF_8;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, String prefix) {
+        if (bytes.length - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (bytes[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns a reader for the document characters, decoding them from
+     *  the provided charset as they are read if the document is encoded.
+     */
+    private Reader createReader() {
+        if (chars != null) {
+            return new StringReader(chars);
+        }
+        return new InputStreamReader(new ByteArrayInputStream(bytes), charset);
+    }
+}
@@ -0,0 +1,720 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.isEmbeddedSchema;
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.moveToNextElement;
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.readLeafText;
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.readText;
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.skipToEnd;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.ReadPlan.FieldBinding;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.MismatchingSchemaException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Converts XML documents into JSON, reading directly from a StAX
+ *  stream reader and writing to a Utf8JsonWriter.
+ *
+ * This produces the same JSON that JsonConverter creates for the
+ *  values that XmlStreamToStruct (with a schema) or XStreamMapConverter
+ *  (without one) parse the document into, without creating them.
+ *
+ * The JSON for each element is written as soon as the element has
+ *  been read. Elements don't always arrive in the order that their
+ *  values are written in (struct fields are written in schema order,
+ *  repeated elements are collected into a list, and attributes can
+ *  replace child elements), so the JSON for the children of an element
+ *  is kept as regions of the output until the element ends. They are
+ *  then copied into place, and the regions discarded, so the output
+ *  never holds more than the values of the elements being read.
+ *
+ * Schemas with maps aren't supported, as map keys can be any type.
+ *
+ * Instances are immutable, so can be shared between threads.
+ */
+public class XmlStreamToJson {
+
+    /** attribute used to refer to the schema for the document, rather than contain data */
+    private static final String SCHEMA_LOCATION_ATTRIBUTE = "noNamespaceSchemaLocation";
+
+    /** key of the text value of elements with attributes, in documents without a schema */
+    private static final String ENTRY = "entry";
+    /** length of the JSON before the value of a map that only contains an entry - {"entry": */
+    private static final int ENTRY_PREFIX_LENGTH = 9;
+
+    /** plan for the schema, or null if documents don't have a schema */
+    private final ReadPlan plan;
+    private final String rootElementName;
+
+    /** if false, values in documents without a schema are left as strings */
+    private final boolean inferTypes;
+
+
+    /**
+     * Creates a converter for documents with the provided schema.
+     */
+    public XmlStreamToJson(Schema schema, String rootElementName) {
+        this(schema, rootElementName, Collections.emptySet());
+    }
+
+    /**
+     * Creates a converter for documents with a schema from an
+     *  ElementProjection, which skips the content of the projected
+     *  structs that they don't have fields for.
+     */
+    XmlStreamToJson(Schema schema, String rootElementName, Set<Schema> projectedStructs) {
+        if (!isSupported(schema)) {
+            throw new IllegalArgumentException("Schemas with maps are not supported");
+        }
+        this.plan = ReadPlan.compile(schema, projectedStructs);
+        this.rootElementName = rootElementName;
+        this.inferTypes = false;
+    }
+
+    /**
+     * Creates a converter for documents without a schema.
+     */
+    public XmlStreamToJson(String rootElementName, boolean inferTypes) {
+        this.plan = null;
+        this.rootElementName = rootElementName;
+        this.inferTypes = inferTypes;
+    }
+
+
+    /**
+     * Identifies if documents with the provided schema can be converted.
+     */
+    public static boolean isSupported(Schema schema) {
+        return !containsMap(schema, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private static boolean containsMap(Schema schema, Set<Schema> checked) {
+        if (!checked.add(schema)) {
+            return false;
+        }
+        switch (schema.type()) {
+            case MAP:
+                return true;
+            case ARRAY:
+                return containsMap(schema.valueSchema(), checked);
+            case STRUCT:
+                return schema.fields().stream().anyMatch(field -> containsMap(field.schema(), checked));
+            default:
+                return false;
+        }
+    }
+
+
+    /**
+     * Converts the document from the reader, which can either be at the
+     *  start of the document or already positioned at the root element.
+     */
+    public void write(XMLStreamReader in, Utf8JsonWriter out) throws XMLStreamException {
+        // move to the root element
+        while (in.getEventType() != START_ELEMENT) {
+            in.next();
+        }
+
+        if (!rootElementName.equals(in.getLocalName())) {
+            throw new SerializationException("Expected root element '" + rootElementName + "' not found");
+        }
+
+        if (plan == null) {
+            writeRootMap(in, out);
+            return;
+        }
+
+        switch (plan.type) {
+            case STRUCT:
+                writeRootStruct(in, out);
+                break;
+            case ARRAY:
+                writeList(in, out, plan);
+                break;
+            default:
+                writeParsed(out, plan, readLeafText(in));
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Structs
+    //-------------------------------------------------------------------
+
+    private void writeRootStruct(XMLStreamReader in, Utf8JsonWriter out) throws XMLStreamException {
+        final boolean ignoreSchemaLocation = plan.field(SCHEMA_LOCATION_ATTRIBUTE) == null;
+
+        // a root element with attributes is treated like any other
+        //  struct, otherwise only the child elements are read
+        for (int i = 0; i < in.getAttributeCount(); i++) {
+            if (!ignoreSchemaLocation || !SCHEMA_LOCATION_ATTRIBUTE.equals(in.getAttributeLocalName(i))) {
+                writeStruct(in, out, plan, ignoreSchemaLocation);
+                return;
+            }
+        }
+
+        final StructFields struct = new StructFields(plan, out.size());
+        in.next();
+        readStructFields(in, out, struct, readText(in));
+        struct.write(out);
+    }
+
+    /**
+     * Writes a struct from an element, where attributes of the element
+     *  and any text following the child elements are also fields.
+     */
+    private void writeStruct(XMLStreamReader in, Utf8JsonWriter out, ReadPlan structPlan, boolean ignoreSchemaLocation) throws XMLStreamException {
+        final StructFields struct = new StructFields(structPlan, out.size());
+
+        // required arrays are written even if they are empty
+        for (final Field field : structPlan.requiredArrays) {
+            struct.startArray(field);
+        }
+
+        addAttributesToStruct(in, out, struct, ignoreSchemaLocation);
+
+        in.next();
+        final String text = readStructFields(in, out, struct, readText(in));
+
+        // add the node value if there is one
+        final FieldBinding entry = structPlan.entry;
+        if (entry != null && !text.isBlank()) {
+            final int start = out.size();
+            writeParsed(out, entry.plan, text);
+            struct.put(entry.field, start, out.size());
+        }
+
+        struct.write(out);
+    }
+
+    /**
+     * Writes a struct from an element that is an item in a list, where
+     *  text before any child elements is the "entry" field.
+     */
+    private void writeListItemStruct(XMLStreamReader in, Utf8JsonWriter out, ReadPlan structPlan, boolean includeAttributes) throws XMLStreamException {
+        final StructFields struct = new StructFields(structPlan, out.size());
+        if (includeAttributes) {
+            addAttributesToStruct(in, out, struct, false);
+        }
+
+        in.next();
+        final String text = readText(in);
+
+        final FieldBinding entry = structPlan.entry;
+        if (entry != null) {
+            if (entry.plan.type == Type.ARRAY) {
+                struct.startArray(entry.field);
+            }
+            else {
+                final int start = out.size();
+                writeParsed(out, entry.plan, text);
+                struct.put(entry.field, start, out.size());
+            }
+        }
+
+        readStructFields(in, out, struct, text);
+        struct.write(out);
+    }
+
+    /**
+     * Reads the child elements of a struct, starting from the position
+     *  after the text at the start of the element.
+     *
+     * @return the text following the last child element
+     */
+    private String readStructFields(XMLStreamReader in, Utf8JsonWriter out, StructFields struct, String text) throws XMLStreamException {
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                readStructField(in, out, struct);
+                in.next();
+                text = readText(in);
+            }
+            else {
+                in.next();
+            }
+        }
+        return text;
+    }
+
+    private void readStructField(XMLStreamReader in, Utf8JsonWriter out, StructFields struct) throws XMLStreamException {
+        final FieldBinding binding = struct.plan.field(in.getLocalName());
+        if (binding == null) {
+            if (struct.plan == plan && isEmbeddedSchema(in)) {
+                // the schema isn't part of the data
+                in.next();
+                skipToEnd(in);
+                return;
+            }
+            if (struct.plan.projected) {
+                // not one of the elements to keep
+                in.next();
+                skipToEnd(in);
+                return;
+            }
+            throw new MismatchingSchemaException();
+        }
+
+        final ReadPlan fieldPlan = binding.plan;
+        final int start = out.size();
+        switch (fieldPlan.type) {
+            case ARRAY:
+                writeListItem(in, out, fieldPlan.items, true);
+                struct.addItem(binding.field, start, out.size());
+                break;
+            case STRUCT:
+                writeStruct(in, out, fieldPlan, false);
+                struct.put(binding.field, start, out.size());
+                break;
+            default:
+                writeParsed(out, fieldPlan, readLeafText(in));
+                struct.put(binding.field, start, out.size());
+        }
+    }
+
+    private void addAttributesToStruct(XMLStreamReader in, Utf8JsonWriter out, StructFields struct, boolean ignoreSchemaLocation) {
+        for (int i = 0; i < in.getAttributeCount(); i++) {
+            final String name = in.getAttributeLocalName(i);
+            final FieldBinding binding = struct.plan.field(name);
+            if (binding == null) {
+                if (ignoreSchemaLocation && SCHEMA_LOCATION_ATTRIBUTE.equals(name)) {
+                    continue;
+                }
+                if (struct.plan.projected) {
+                    continue;
+                }
+                throw new MismatchingSchemaException();
+            }
+            final int start = out.size();
+            writeParsed(out, binding.plan, in.getAttributeValue(i));
+            struct.put(binding.field, start, out.size());
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Lists
+    //
+    // List items are read in the order they are written, so are
+    //  written straight to the output
+    //-------------------------------------------------------------------
+
+    /**
+     * Writes a list from the child elements of an element.
+     */
+    private void writeList(XMLStreamReader in, Utf8JsonWriter out, ReadPlan listPlan) throws XMLStreamException {
+        out.startArray();
+        in.next();
+        boolean first = true;
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                if (!first) {
+                    out.separator();
+                }
+                first = false;
+                // attributes of items in nested lists are not used
+                writeListItem(in, out, listPlan.items, false);
+            }
+            in.next();
+        }
+        out.endArray();
+    }
+
+    private void writeListItem(XMLStreamReader in, Utf8JsonWriter out, ReadPlan itemPlan, boolean includeAttributes) throws XMLStreamException {
+        switch (itemPlan.type) {
+            case ARRAY:
+                writeList(in, out, itemPlan);
+                break;
+            case STRUCT:
+                writeListItemStruct(in, out, itemPlan, includeAttributes);
+                break;
+            default:
+                writeParsed(out, itemPlan, readLeafText(in));
+        }
+    }
+
+
+    private static void writeParsed(Utf8JsonWriter out, ReadPlan valuePlan, String text) {
+        if (valuePlan.type == Type.STRING) {
+            out.string(text);
+        }
+        else {
+            out.value(valuePlan.schema, valuePlan.parse(text));
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Documents without a schema
+    //
+    // Elements with child elements are objects, and elements without
+    //  them are values. Attributes are added to the object for their
+    //  element, with the text of an element that has attributes but
+    //  no children added as "entry". Repeated elements are lists.
+    //-------------------------------------------------------------------
+
+    private void writeRootMap(XMLStreamReader in, Utf8JsonWriter out) throws XMLStreamException {
+        final String rootName = in.getLocalName();
+        final MapEntries map = new MapEntries(out.size());
+
+        // attributes of the root element come first
+        final int attributeCount = in.getAttributeCount();
+        for (int i = 0; i < attributeCount; i++) {
+            final int start = out.size();
+            writeInferred(out, in.getAttributeValue(i));
+            map.put(in.getAttributeLocalName(i), start, out.size(), false);
+        }
+
+        in.next();
+        boolean hasChildren = false;
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                hasChildren = true;
+                if (isEmbeddedSchema(in)) {
+                    // the schema isn't part of the data
+                    in.next();
+                    skipToEnd(in);
+                }
+                else {
+                    readMapEntry(in, out, map);
+                }
+            }
+            in.next();
+        }
+
+        // attributes of a root element without any children are
+        //  also added as a child of the root element
+        if (!hasChildren && attributeCount > 0) {
+            final int start = out.size();
+            final MapEntries attributes = new MapEntries(start);
+            for (int i = 0; i < attributeCount; i++) {
+                final MapEntry attribute = map.entries.get(i);
+                attributes.put(attribute.key, attribute.starts[0], attribute.ends[0], false);
+            }
+            attributes.write(out);
+            map.add(rootName, start, out.size(), attributes.isEntry());
+        }
+
+        map.write(out);
+    }
+
+    /**
+     * Reads a child element, adding its value to the map for its parent.
+     */
+    private void readMapEntry(XMLStreamReader in, Utf8JsonWriter out, MapEntries parent) throws XMLStreamException {
+        final String name = in.getLocalName();
+        final int start = out.size();
+
+        // attribute values are written now, but only used once it is
+        //  known whether the element has children
+        final int attributeCount = in.getAttributeCount();
+        final String[] attributeNames = attributeCount == 0 ? null : new String[attributeCount];
+        final int[] attributeBounds = attributeCount == 0 ? null : new int[attributeCount + 1];
+        for (int i = 0; i < attributeCount; i++) {
+            attributeNames[i] = in.getAttributeLocalName(i);
+            attributeBounds[i] = out.size();
+            writeInferred(out, in.getAttributeValue(i));
+        }
+        if (attributeCount > 0) {
+            attributeBounds[attributeCount] = out.size();
+        }
+
+        in.next();
+        final String text = readText(in);
+        moveToNextElement(in);
+
+        if (in.getEventType() == START_ELEMENT) {
+            // child elements - the value is a map of them, with the
+            //  attributes merged into it
+            final MapEntries map = new MapEntries(start);
+            while (in.getEventType() != END_ELEMENT) {
+                if (in.getEventType() == START_ELEMENT) {
+                    readMapEntry(in, out, map);
+                }
+                in.next();
+            }
+            for (int i = 0; i < attributeCount; i++) {
+                map.put(attributeNames[i], attributeBounds[i], attributeBounds[i + 1], false);
+            }
+            map.write(out);
+            parent.add(name, start, out.size(), map.isEntry());
+        }
+        else if (attributeCount > 0) {
+            final MapEntries map = new MapEntries(start);
+            for (int i = 0; i < attributeCount; i++) {
+                map.put(attributeNames[i], attributeBounds[i], attributeBounds[i + 1], false);
+            }
+            if (!text.isBlank()) {
+                final int textStart = out.size();
+                writeInferred(out, text);
+                map.put(ENTRY, textStart, out.size(), false);
+            }
+            map.write(out);
+            parent.add(name, start, out.size(), map.isEntry());
+        }
+        else {
+            writeInferred(out, text);
+            parent.add(name, start, out.size(), false);
+        }
+    }
+
+    private void writeInferred(Utf8JsonWriter out, String text) {
+        if (!inferTypes) {
+            out.string(text);
+            return;
+        }
+
+        final Object value = XmlUtils.guessType(text);
+        if (value instanceof String) {
+            out.string((String) value);
+        }
+        else if (value instanceof Boolean) {
+            out.bool((Boolean) value);
+        }
+        else if (value instanceof Double) {
+            out.number((double) (Double) value);
+        }
+        else {
+            out.number(((Number) value).longValue());
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Regions of the output for the children of an element
+    //-------------------------------------------------------------------
+
+    /**
+     * Values of the fields of a struct that is being read.
+     */
+    private static final class StructFields {
+        final ReadPlan plan;
+        /** where the output for the struct starts */
+        final int start;
+
+        /** regions of the output for each field, or -1 if the field hasn't been read */
+        final int[] starts;
+        final int[] ends;
+        /** regions of the output for the items of array fields, or null if the field hasn't been read */
+        final Regions[] arrays;
+
+        StructFields(ReadPlan plan, int start) {
+            final int numFields = plan.schema.fields().size();
+            this.plan = plan;
+            this.start = start;
+            this.starts = new int[numFields];
+            this.ends = new int[numFields];
+            this.arrays = new Regions[numFields];
+            Arrays.fill(starts, -1);
+        }
+
+        void put(Field field, int valueStart, int valueEnd) {
+            starts[field.index()] = valueStart;
+            ends[field.index()] = valueEnd;
+            arrays[field.index()] = null;
+        }
+
+        void startArray(Field field) {
+            arrays[field.index()] = new Regions();
+        }
+
+        void addItem(Field field, int itemStart, int itemEnd) {
+            Regions items = arrays[field.index()];
+            if (items == null) {
+                items = new Regions();
+                arrays[field.index()] = items;
+            }
+            items.add(itemStart, itemEnd);
+        }
+
+        /**
+         * Writes the struct, with its fields in schema order, replacing
+         *  the output for the fields with it.
+         */
+        void write(Utf8JsonWriter out) {
+            final int objectStart = out.size();
+            out.startObject();
+            for (final Field field : plan.schema.fields()) {
+                final int index = field.index();
+                if (index > 0) {
+                    out.separator();
+                }
+                out.name(field.name());
+                if (arrays[index] != null) {
+                    arrays[index].writeArray(out, false);
+                }
+                else if (starts[index] >= 0) {
+                    out.copy(starts[index], ends[index]);
+                }
+                else {
+                    // missing fields use their default value, if they have one
+                    out.value(field.schema(), null);
+                }
+            }
+            out.endObject();
+            out.discard(start, objectStart);
+        }
+    }
+
+
+    /**
+     * Entries of a map that is being read, in the order that their keys
+     *  were first seen.
+     */
+    private static final class MapEntries {
+        /** where the output for the map starts */
+        final int start;
+
+        final List<MapEntry> entries = new ArrayList<>();
+        final Map<String, MapEntry> keys = new HashMap<>();
+
+        MapEntries(int start) {
+            this.start = start;
+        }
+
+        /**
+         * Adds a value, turning the existing value into a list if
+         *  there is already one with the same key.
+         */
+        void add(String key, int valueStart, int valueEnd, boolean isEntry) {
+            final MapEntry entry = keys.get(key);
+            if (entry == null) {
+                put(key, valueStart, valueEnd, isEntry);
+            }
+            else {
+                entry.add(valueStart, valueEnd);
+                entry.allEntries &= isEntry;
+            }
+        }
+
+        /**
+         * Adds a value, replacing any existing value with the same key.
+         */
+        void put(String key, int valueStart, int valueEnd, boolean isEntry) {
+            MapEntry entry = keys.get(key);
+            if (entry == null) {
+                entry = new MapEntry(key);
+                entries.add(entry);
+                keys.put(key, entry);
+            }
+            entry.count = 0;
+            entry.add(valueStart, valueEnd);
+            entry.allEntries = isEntry;
+        }
+
+        /** identifies if the map only contains an "entry" */
+        boolean isEntry() {
+            return entries.size() == 1 && ENTRY.equals(entries.get(0).key);
+        }
+
+        /**
+         * Writes the map, replacing the output for its values with it.
+         *
+         * Lists where every item is a map containing only an "entry"
+         *  are written as a list of the entry values.
+         */
+        void write(Utf8JsonWriter out) {
+            final int objectStart = out.size();
+            out.startObject();
+            for (int i = 0; i < entries.size(); i++) {
+                final MapEntry entry = entries.get(i);
+                if (i > 0) {
+                    out.separator();
+                }
+                out.name(entry.key);
+                if (entry.count == 1) {
+                    out.copy(entry.starts[0], entry.ends[0]);
+                }
+                else {
+                    entry.writeArray(out, entry.allEntries);
+                }
+            }
+            out.endObject();
+            out.discard(start, objectStart);
+        }
+    }
+
+    private static final class MapEntry extends Regions {
+        final String key;
+        /** true if every value is a map containing only an "entry" */
+        boolean allEntries;
+
+        MapEntry(String key) {
+            this.key = key;
+        }
+    }
+
+
+    /**
+     * Regions of the output, such as the items in a list.
+     */
+    private static class Regions {
+        int[] starts = new int[4];
+        int[] ends = new int[4];
+        int count = 0;
+
+        void add(int start, int end) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+        }
+
+        /**
+         * Writes the regions as the items of an array.
+         *
+         * @param entryValues true if every region is a map that only
+         *         contains an "entry", and only its value is written
+         */
+        void writeArray(Utf8JsonWriter out, boolean entryValues) {
+            out.startArray();
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    out.separator();
+                }
+                if (entryValues) {
+                    out.copy(starts[i] + ENTRY_PREFIX_LENGTH, ends[i] - 1);
+                }
+                else {
+                    out.copy(starts[i], ends[i]);
+                }
+            }
+            out.endArray();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.isEmbeddedSchema;
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.moveToNextElement;
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.readText;
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlStreamToStruct.skipToEnd;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Parses XML documents without a schema into maps, keeping only the
+ *  elements selected by an ElementProjection.
+ *
+ * Kept elements are parsed into the same values that XStreamMapConverter
+ *  would create for them. Elements that contain kept elements are only
+ *  added if at least one of them is found, and their attributes are
+ *  dropped. Everything else is skipped without reading its text.
+ *
+ * Instances are immutable, so can be shared between threads.
+ */
+final class XmlStreamToMap {
+
+    private final String rootElementName;
+
+    /** if false, all values are left as strings */
+    private final boolean inferTypes;
+
+    /** the elements within the root element to keep */
+    private final ElementProjection projection;
+
+
+    XmlStreamToMap(String rootElementName, boolean inferTypes, ElementProjection projection) {
+        this.rootElementName = rootElementName;
+        this.inferTypes = inferTypes;
+        this.projection = projection.root(rootElementName);
+    }
+
+
+    /**
+     * Parses the document, returning the map for the root element.
+     */
+    Map<String, Object> parse(XMLStreamReader in) throws XMLStreamException {
+        while (in.getEventType() != START_ELEMENT) {
+            in.next();
+        }
+        if (!rootElementName.equals(in.getLocalName())) {
+            throw new SerializationException("Expected root element '" + rootElementName + "' not found");
+        }
+
+        final Map<String, Object> map = new LinkedHashMap<>();
+
+        final Map<String, Object> rootAttrs = projection.keepsAll() ? readAttributes(in) : Collections.emptyMap();
+        map.putAll(rootAttrs);
+
+        in.next();
+        boolean hasChildren = false;
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                hasChildren = true;
+                final ElementProjection child = projection.child(in.getLocalName());
+                if (child == null || isEmbeddedSchema(in)) {
+                    in.next();
+                    skipToEnd(in);
+                }
+                else {
+                    readEntry(in, map, child);
+                }
+            }
+            in.next();
+        }
+
+        // attributes of a root element without any children are
+        //  also added as a child of the root element
+        if (!hasChildren && !rootAttrs.isEmpty()) {
+            XStreamMapConverter.addValue(map, rootElementName, rootAttrs);
+        }
+
+        XStreamMapConverter.convertEntryLists(map);
+        return map;
+    }
+
+
+    /**
+     * Reads a child element, adding its value to the map for its parent
+     *  if it is kept or contains kept elements.
+     */
+    private void readEntry(XMLStreamReader in, Map<String, Object> parent, ElementProjection element) throws XMLStreamException {
+        final String name = in.getLocalName();
+        final Map<String, Object> attrs = element.keepsAll() ? readAttributes(in) : Collections.emptyMap();
+
+        in.next();
+        final String text = readText(in);
+        moveToNextElement(in);
+
+        final Object value;
+        if (in.getEventType() == START_ELEMENT) {
+            final Map<String, Object> map = new LinkedHashMap<>();
+            while (in.getEventType() != END_ELEMENT) {
+                if (in.getEventType() == START_ELEMENT) {
+                    final ElementProjection child = element.child(in.getLocalName());
+                    if (child == null) {
+                        in.next();
+                        skipToEnd(in);
+                    }
+                    else {
+                        readEntry(in, map, child);
+                    }
+                }
+                in.next();
+            }
+            if (map.isEmpty() && !element.keepsAll()) {
+                // none of the kept elements were found
+                return;
+            }
+            XStreamMapConverter.convertEntryLists(map);
+            map.putAll(attrs);
+            value = map;
+        }
+        else if (!element.keepsAll()) {
+            // there aren't any child elements to keep
+            return;
+        }
+        else if (!attrs.isEmpty()) {
+            if (!text.isBlank()) {
+                attrs.put("entry", toValue(text));
+            }
+            value = attrs;
+        }
+        else {
+            value = toValue(text);
+        }
+
+        XStreamMapConverter.addValue(parent, name, value);
+    }
+
+
+    private Map<String, Object> readAttributes(XMLStreamReader in) {
+        final int count = in.getAttributeCount();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, Object> attrs = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            attrs.put(in.getAttributeLocalName(i), toValue(in.getAttributeValue(i)));
+        }
+        return attrs;
+    }
+
+
+    private Object toValue(String value) {
+        return inferTypes ? XmlUtils.guessType(value) : value;
+    }
+}
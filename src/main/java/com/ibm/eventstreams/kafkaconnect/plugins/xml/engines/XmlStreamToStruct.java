@@ -0,0 +1,603 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+import org.apache.kafka.connect.data.Struct;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.ReadPlan.FieldBinding;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.MismatchingSchemaException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Parses XML documents into Connect values that match a schema,
+ *  reading directly from a StAX stream reader.
+ *
+ * This produces the same values as XStreamStructConverter, without
+ *  the overhead of going through XStream. Every read method starts
+ *  with the reader positioned at the start of an element, and returns
+ *  with it positioned at the end of the same element.
+ *
+ * The schema is compiled into a ReadPlan once, when the parser is
+ *  created, so parsing only needs to look up element and attribute
+ *  names in the plan rather than inspect the schema.
+ *
+ * Instances are immutable, so can be shared between threads.
+ */
+public class XmlStreamToStruct {
+
+    /** attribute used to refer to the schema for the document, rather than contain data */
+    private static final String SCHEMA_LOCATION_ATTRIBUTE = "noNamespaceSchemaLocation";
+
+    private final ReadPlan plan;
+    private final String rootElementName;
+
+
+    public XmlStreamToStruct(Schema schema, String rootElementName) {
+        this(schema, rootElementName, Collections.emptySet());
+    }
+
+    /**
+     * Creates a parser for a schema from an ElementProjection, which
+     *  skips the content of the projected structs that they don't have
+     *  fields for.
+     */
+    XmlStreamToStruct(Schema schema, String rootElementName, Set<Schema> projectedStructs) {
+        this.plan = ReadPlan.compile(schema, projectedStructs);
+        this.rootElementName = rootElementName;
+    }
+
+
+    /**
+     * Parses the document from the reader, which can either be at the
+     *  start of the document or already positioned at the root element.
+     */
+    public Object parse(XMLStreamReader in) throws XMLStreamException {
+        // move to the root element
+        while (in.getEventType() != START_ELEMENT) {
+            in.next();
+        }
+
+        if (!rootElementName.equals(in.getLocalName())) {
+            throw new SerializationException("Expected root element '" + rootElementName + "' not found");
+        }
+
+        switch (plan.type) {
+            case STRUCT:
+                return readRootStruct(in);
+            case MAP: {
+                final Map<Object, Object> map = new LinkedHashMap<>();
+                readMapEntries(in, plan, map);
+                return map;
+            }
+            case ARRAY:
+                return readList(in, plan);
+            default:
+                return plan.parse(readLeafText(in));
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Structs
+    //-------------------------------------------------------------------
+
+    private Struct readRootStruct(XMLStreamReader in) throws XMLStreamException {
+        final boolean ignoreSchemaLocation = plan.field(SCHEMA_LOCATION_ATTRIBUTE) == null;
+
+        // a root element with attributes is treated like any other
+        //  struct, otherwise only the child elements are read
+        for (int i = 0; i < in.getAttributeCount(); i++) {
+            if (!ignoreSchemaLocation || !SCHEMA_LOCATION_ATTRIBUTE.equals(in.getAttributeLocalName(i))) {
+                return readStruct(in, plan, ignoreSchemaLocation);
+            }
+        }
+
+        final Struct struct = new Struct(plan.schema);
+        in.next();
+        readStructFields(in, plan, struct, readText(in));
+        return struct;
+    }
+
+    /**
+     * Reads a struct from an element, where attributes of the element
+     *  and any text following the child elements are also fields.
+     */
+    private Struct readStruct(XMLStreamReader in, ReadPlan structPlan, boolean ignoreSchemaLocation) throws XMLStreamException {
+        final Struct struct = new Struct(structPlan.schema);
+
+        // prepare lists to hold the array elements of the struct
+        for (final Field field : structPlan.requiredArrays) {
+            struct.put(field, new ArrayList<>());
+        }
+
+        addAttributesToStruct(in, struct, structPlan, ignoreSchemaLocation);
+
+        in.next();
+        final String text = readStructFields(in, structPlan, struct, readText(in));
+
+        // add the node value if there is one
+        if (structPlan.entry != null && !text.isBlank()) {
+            struct.put(structPlan.entry.field, structPlan.entry.plan.parse(text));
+        }
+
+        return struct;
+    }
+
+    /**
+     * Reads a struct from an element that is an item in a list, where
+     *  text before any child elements is the "entry" field.
+     */
+    private Struct readListItemStruct(XMLStreamReader in, ReadPlan structPlan, boolean includeAttributes) throws XMLStreamException {
+        final Struct struct = new Struct(structPlan.schema);
+        if (includeAttributes) {
+            addAttributesToStruct(in, struct, structPlan, false);
+        }
+        return readListItemContents(in, structPlan, struct);
+    }
+
+    private Struct readListItemContents(XMLStreamReader in, ReadPlan structPlan, Struct struct) throws XMLStreamException {
+        in.next();
+        final String text = readText(in);
+
+        final FieldBinding entry = structPlan.entry;
+        if (entry != null) {
+            if (entry.plan.type == Type.ARRAY) {
+                struct.put(entry.field, new ArrayList<>());
+            }
+            else {
+                struct.put(entry.field, entry.plan.parse(text));
+            }
+        }
+
+        readStructFields(in, structPlan, struct, text);
+        return struct;
+    }
+
+    /**
+     * Reads the child elements of a struct, starting from the position
+     *  after the text at the start of the element.
+     *
+     * @return the text following the last child element
+     */
+    private String readStructFields(XMLStreamReader in, ReadPlan structPlan, Struct struct, String text) throws XMLStreamException {
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                readStructField(in, structPlan, struct);
+                in.next();
+                text = readText(in);
+            }
+            else {
+                in.next();
+            }
+        }
+        return text;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void readStructField(XMLStreamReader in, ReadPlan structPlan, Struct struct) throws XMLStreamException {
+        final FieldBinding binding = structPlan.field(in.getLocalName());
+        if (binding == null) {
+            if (structPlan == plan && isEmbeddedSchema(in)) {
+                // the schema isn't part of the data
+                in.next();
+                skipToEnd(in);
+                return;
+            }
+            if (structPlan.projected) {
+                // not one of the elements to keep
+                in.next();
+                skipToEnd(in);
+                return;
+            }
+            throw new MismatchingSchemaException();
+        }
+
+        final ReadPlan fieldPlan = binding.plan;
+        switch (fieldPlan.type) {
+            case ARRAY: {
+                List<Object> list = (List<Object>) struct.get(binding.field);
+                if (list == null) {
+                    list = new ArrayList<>();
+                    struct.put(binding.field, list);
+                }
+                readListItem(in, list, fieldPlan.items, true);
+                break;
+            }
+            case STRUCT:
+                struct.put(binding.field, readStruct(in, fieldPlan, false));
+                break;
+            case MAP:
+                struct.put(binding.field, readMap(in, fieldPlan));
+                break;
+            default:
+                struct.put(binding.field, fieldPlan.parse(readLeafText(in)));
+        }
+    }
+
+    private void addAttributesToStruct(XMLStreamReader in, Struct struct, ReadPlan structPlan, boolean ignoreSchemaLocation) {
+        for (int i = 0; i < in.getAttributeCount(); i++) {
+            final String name = in.getAttributeLocalName(i);
+            final FieldBinding binding = structPlan.field(name);
+            if (binding == null) {
+                if (ignoreSchemaLocation && SCHEMA_LOCATION_ATTRIBUTE.equals(name)) {
+                    continue;
+                }
+                if (structPlan.projected) {
+                    continue;
+                }
+                throw new MismatchingSchemaException();
+            }
+            struct.put(binding.field, binding.plan.parse(in.getAttributeValue(i)));
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Lists
+    //-------------------------------------------------------------------
+
+    /**
+     * Reads a list from the child elements of an element.
+     */
+    private List<Object> readList(XMLStreamReader in, ReadPlan listPlan) throws XMLStreamException {
+        final List<Object> list = new ArrayList<>();
+        in.next();
+        readListItems(in, list, listPlan.items);
+        return list;
+    }
+
+    /**
+     * Reads list items from all of the remaining child elements of
+     *  the current element.
+     */
+    private void readListItems(XMLStreamReader in, List<Object> list, ReadPlan itemPlan) throws XMLStreamException {
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                // attributes of items in nested lists are not used
+                readListItem(in, list, itemPlan, false);
+            }
+            in.next();
+        }
+    }
+
+    private void readListItem(XMLStreamReader in, List<Object> list, ReadPlan itemPlan, boolean includeAttributes) throws XMLStreamException {
+        switch (itemPlan.type) {
+            case ARRAY:
+                list.add(readList(in, itemPlan));
+                break;
+            case STRUCT:
+                list.add(readListItemStruct(in, itemPlan, includeAttributes));
+                break;
+            case MAP: {
+                final Map<Object, Object> map = new LinkedHashMap<>();
+                readMapEntries(in, itemPlan, map);
+                list.add(map);
+                break;
+            }
+            default:
+                list.add(itemPlan.parse(readLeafText(in)));
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Maps
+    //
+    // A map is a series of "entries"
+    //
+    // An entry is made up of a "key" and a "value"
+    //
+    // This can be "simple"
+    //   e.g.
+    //      <a-simple-map>
+    //          <some-key>some-value</some-key>
+    //          <another-key>another-value</another-key>
+    //
+    // Or it can be "complex"
+    //   e.g.
+    //      <a-complex-map>
+    //          <entry>
+    //               <key>some-key</key>
+    //               <value>some-value</value>
+    //          </entry>
+    //          <entry>
+    //               <key>another-key</key>
+    //               <value>another-value</value>
+    //          </entry>
+    //
+    //-------------------------------------------------------------------
+
+    /**
+     * Reads a map from an element, where attributes of the element and
+     *  any text following the child elements are also map entries.
+     */
+    private Map<Object, Object> readMap(XMLStreamReader in, ReadPlan mapPlan) throws XMLStreamException {
+        final Map<String, String> attributes = getAttributes(in);
+        final Map<Object, Object> map = new LinkedHashMap<>();
+
+        in.next();
+        String text = readText(in);
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                readMapEntry(in, mapPlan, map);
+                in.next();
+                text = readText(in);
+            }
+            else {
+                in.next();
+            }
+        }
+
+        for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+            map.put(mapPlan.keys.parse(attribute.getKey()),
+                    mapPlan.values.parse(attribute.getValue()));
+        }
+
+        if (!text.isBlank()) {
+            map.put("entry", mapPlan.values.parse(text));
+        }
+
+        return map;
+    }
+
+    /**
+     * Reads map entries from the child elements of an element, up to
+     *  and including the first simple entry.
+     */
+    private void readMapEntries(XMLStreamReader in, ReadPlan mapPlan, Map<Object, Object> map) throws XMLStreamException {
+        in.next();
+        while (in.getEventType() != END_ELEMENT) {
+            if (in.getEventType() == START_ELEMENT) {
+                final boolean isSimple = readMapEntry(in, mapPlan, map);
+                if (isSimple) {
+                    in.next();
+                    skipToEnd(in);
+                    return;
+                }
+            }
+            in.next();
+        }
+    }
+
+    /**
+     * Reads a single map entry.
+     *
+     * @return true if this was a simple map entry
+     */
+    @SuppressWarnings("unchecked")
+    private boolean readMapEntry(XMLStreamReader in, ReadPlan mapPlan, Map<Object, Object> map) throws XMLStreamException {
+        final ReadPlan keyPlan = mapPlan.keys;
+        final ReadPlan valuePlan = mapPlan.values;
+
+        final String entryName = in.getLocalName();
+
+        in.next();
+        final String entryText = readText(in);
+        moveToNextElement(in);
+
+        // check if we can do this as a single simple map entry
+        if (in.getEventType() == END_ELEMENT) {
+            if (!entryText.isBlank()) {
+                map.put(keyPlan.parse(entryName), valuePlan.parse(entryText));
+            }
+            return true;
+        }
+
+
+        //-----------------------------------------------------------
+        //  KEY
+        //-----------------------------------------------------------
+
+        final Object key;
+        if (keyPlan.type == Type.STRUCT) {
+            key = readStruct(in, keyPlan, false);
+        }
+        else if (keyPlan.type == Type.ARRAY) {
+            // key arrays are represented by multiple
+            //  instances of the same child in the XML
+            //  (where attributes of the first are used for all of them)
+            final Map<String, String> keyAttributes = getAttributes(in);
+            key = new ArrayList<>();
+            while (in.getEventType() == START_ELEMENT && in.getLocalName().equals("key")) {
+                readKeyListItem(in, (List<Object>) key, keyPlan.items, keyAttributes);
+                in.next();
+                moveToNextElement(in);
+            }
+        }
+        else if (keyPlan.type == Type.MAP) {
+            key = readMap(in, keyPlan);
+        }
+        else {
+            key = keyPlan.parse(readLeafText(in));
+        }
+
+        if (keyPlan.type != Type.ARRAY) {
+            in.next();
+            moveToNextElement(in);
+        }
+
+
+        //-----------------------------------------------------------
+        //  VALUE
+        //-----------------------------------------------------------
+
+        final Object value;
+        if (valuePlan.type == Type.ARRAY) {
+            // all of the remaining elements in the entry are list items
+            final List<Object> list = new ArrayList<>();
+            readListItems(in, list, valuePlan.items);
+            value = list;
+        }
+        else {
+            if (in.getEventType() != START_ELEMENT) {
+                throw new MismatchingSchemaException();
+            }
+
+            if (valuePlan.type == Type.STRUCT) {
+                value = readStruct(in, valuePlan, false);
+            }
+            else if (valuePlan.type == Type.MAP) {
+                value = readMap(in, valuePlan);
+            }
+            else {
+                value = valuePlan.parse(readLeafText(in));
+            }
+
+            // ignore anything else in the entry
+            in.next();
+            skipToEnd(in);
+        }
+
+        map.put(key, value);
+        return false;
+    }
+
+    private void readKeyListItem(XMLStreamReader in, List<Object> list, ReadPlan itemPlan, Map<String, String> attributes) throws XMLStreamException {
+        if (itemPlan.type == Type.STRUCT) {
+            final Struct item = new Struct(itemPlan.schema);
+            for (final Map.Entry<String, String> attribute : attributes.entrySet()) {
+                final FieldBinding binding = itemPlan.field(attribute.getKey());
+                if (binding == null) {
+                    throw new MismatchingSchemaException();
+                }
+                item.put(binding.field, binding.plan.parse(attribute.getValue()));
+            }
+            list.add(readListItemContents(in, itemPlan, item));
+        }
+        else {
+            readListItem(in, list, itemPlan, false);
+        }
+    }
+
+
+    //-------------------------------------------------------------------
+    //  Reader utilities
+    //-------------------------------------------------------------------
+
+    /**
+     * Returns the text content of an element, ignoring any child elements.
+     */
+    static String readLeafText(XMLStreamReader in) throws XMLStreamException {
+        in.next();
+        final String text = readText(in);
+        skipToEnd(in);
+        return text;
+    }
+
+    /**
+     * Reads the text starting at the current position, up until the
+     *  next element (or other non-text content) in the document.
+     */
+    static String readText(XMLStreamReader in) throws XMLStreamException {
+        String text = null;
+        StringBuilder buffer = null;
+
+        int event = in.getEventType();
+        while (true) {
+            if (event == CHARACTERS || event == CDATA) {
+                if (text == null) {
+                    text = in.getText();
+                }
+                else {
+                    if (buffer == null) {
+                        buffer = new StringBuilder(text);
+                    }
+                    buffer.append(in.getTextCharacters(), in.getTextStart(), in.getTextLength());
+                }
+            }
+            else if (event != COMMENT) {
+                break;
+            }
+            event = in.next();
+        }
+
+        if (buffer != null) {
+            return buffer.toString();
+        }
+        return text == null ? "" : text;
+    }
+
+    /**
+     * Moves to the start of the next child element, or the end of
+     *  the current element if there are no more child elements.
+     */
+    static void moveToNextElement(XMLStreamReader in) throws XMLStreamException {
+        int event = in.getEventType();
+        while (event != START_ELEMENT && event != END_ELEMENT) {
+            event = in.next();
+        }
+    }
+
+    /**
+     * Identifies if the current element is an xs:schema element
+     *  embedded in the document by StructToXmlBytes.
+     */
+    static boolean isEmbeddedSchema(XMLStreamReader in) {
+        return "schema".equals(in.getLocalName()) &&
+               XmlUtils.EMBEDDED_SCHEMA_ID.equals(in.getAttributeValue(null, "id"));
+    }
+
+    /**
+     * Moves to the end of the current element, skipping any
+     *  remaining content.
+     */
+    static void skipToEnd(XMLStreamReader in) throws XMLStreamException {
+        int depth = 0;
+        int event = in.getEventType();
+        while (event != END_ELEMENT || depth > 0) {
+            if (event == START_ELEMENT) {
+                depth++;
+            }
+            else if (event == END_ELEMENT) {
+                depth--;
+            }
+            event = in.next();
+        }
+    }
+
+    private static Map<String, String> getAttributes(XMLStreamReader in) {
+        final int count = in.getAttributeCount();
+        if (count == 0) {
+            return Collections.emptyMap();
+        }
+
+        final Map<String, String> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            attributes.put(in.getAttributeLocalName(i), in.getAttributeValue(i));
+        }
+        return attributes;
+    }
+}
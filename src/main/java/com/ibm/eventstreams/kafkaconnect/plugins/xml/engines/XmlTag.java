@@ -0,0 +1,57 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * An XML element name that has been validated and pre-encoded as
+ *  UTF-8, so that it can be written repeatedly by a Utf8XmlWriter
+ *  without being checked or encoded again.
+ */
+public final class XmlTag {
+
+    private final String name;
+
+    /** the start of the start-tag, e.g. "<name" */
+    final byte[] open;
+
+    /** the complete end-tag, e.g. "</name>" */
+    final byte[] close;
+
+
+    public XmlTag(String name) {
+        if (!XmlUtils.isValidXmlElementName(name)) {
+            throw new SerializationException("Invalid XML element name '" + name + "'");
+        }
+        this.name = name;
+        this.open = ("<" + name).getBytes(UTF_8);
+        this.close = ("</" + name + ">").getBytes(UTF_8);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
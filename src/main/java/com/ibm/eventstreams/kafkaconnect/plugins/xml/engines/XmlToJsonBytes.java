@@ -0,0 +1,285 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlBytesToStruct.XML_INPUT_FACTORY;
+
+import java.nio.charset.Charset;
+import java.util.Set;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.errors.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+/**
+ * Converts XML documents into the JSON that JsonConverter would create
+ *  for the Connect values that XmlBytesToStruct parses them into.
+ *
+ * Documents without a schema, and documents parsed using the XSD
+ *  schema provided by config, are converted as they are read by
+ *  XmlStreamToJson, without creating any Connect values. Anything
+ *  else (such as documents with an embedded schema, or a schema from
+ *  a schema store) is parsed by XmlBytesToStruct, and the values
+ *  written as JSON directly rather than through a Jackson tree.
+ */
+public class XmlToJsonBytes {
+
+    private final Logger log = LoggerFactory.getLogger(XmlToJsonBytes.class);
+
+    private final XmlPluginsConfig config;
+
+    /** parser for documents that can't be converted as they are read */
+    private final XmlBytesToStruct xmlToStruct;
+
+    /** converter for documents without a schema, if they can be converted as they are read */
+    private final XmlStreamToJson schemalessConverter;
+
+    /** true if documents are parsed using the XSD schema provided by config */
+    private final boolean xsdSchemaEnabled;
+
+    /** converter for the XSD schema provided by config, replaced if the schema is reloaded */
+    private volatile XsdSchemaConverter xsdSchemaConverter = null;
+
+
+    public XmlToJsonBytes(XmlPluginsConfig config, XmlBytesToStruct xmlToStruct) {
+        this.config = config;
+        this.xmlToStruct = xmlToStruct;
+
+        if (config.schemasEnabled() && config.getXsdSchema() != null) {
+            xsdSchemaEnabled = true;
+            schemalessConverter = null;
+        }
+        else if (config.schemasEnabled() && config.getXsdSchemaStore() != null) {
+            xsdSchemaEnabled = false;
+            schemalessConverter = null;
+        }
+        else {
+            xsdSchemaEnabled = false;
+            // flat documents and inferred schemas need the whole value,
+            //  and projections are only applied by XmlBytesToStruct
+            schemalessConverter = config.isFlatDoc() || config.isSchemaInferenceEnabled() || !config.getProjectionPaths().isEmpty() ?
+                null :
+                new XmlStreamToJson(config.getRootElementName(), config.isTypeInferenceEnabled());
+        }
+    }
+
+
+    /**
+     * Converts the provided XML document, with the character encoding
+     *  identified from the document.
+     *
+     * @return null if the document doesn't have a value
+     */
+    public byte[] convert(byte[] value) throws SerializationException {
+        final Utf8JsonWriter out = write(XmlSource.of(value, null));
+        return out == null ? null : out.toByteArray();
+    }
+
+    /**
+     * Converts the provided XML document, which has been encoded using
+     *  the provided charset.
+     *
+     * @return null if the document doesn't have a value
+     */
+    public byte[] convert(byte[] value, Charset charset) throws SerializationException {
+        final Utf8JsonWriter out = write(XmlSource.of(value, charset));
+        return out == null ? null : out.toByteArray();
+    }
+
+    /**
+     * Converts the provided XML document, which has already been decoded
+     *  (such as the value of a String record).
+     *
+     * @return null if the document doesn't have a value
+     */
+    public byte[] convert(CharSequence value) throws SerializationException {
+        final Utf8JsonWriter out = write(XmlSource.of(value));
+        return out == null ? null : out.toByteArray();
+    }
+
+    /**
+     * Converts the provided XML document into a JSON string.
+     *
+     * @return null if the document doesn't have a value
+     */
+    public String convertToString(CharSequence value) throws SerializationException {
+        final Utf8JsonWriter out = write(XmlSource.of(value));
+        return out == null ? null : out.toJsonString();
+    }
+
+
+    private Utf8JsonWriter write(XmlSource source) {
+        if (schemalessConverter != null) {
+            final Utf8JsonWriter out = stream(source, schemalessConverter, null);
+            if (out != null) {
+                return out;
+            }
+        }
+        else if (xsdSchemaEnabled) {
+            final XsdSchemaConverter xsdConverter = getXsdSchemaConverter();
+            if (xsdConverter != null && xsdConverter.converter != null) {
+                return stream(source, xsdConverter.converter, xsdConverter.schemaJson);
+            }
+        }
+
+        return writeValue(xmlToStruct.convert(source), source.length());
+    }
+
+
+    /**
+     * Converts the provided document while reading it.
+     *
+     * @return null if the document has an embedded schema that it
+     *          needs to be parsed with
+     */
+    private Utf8JsonWriter stream(XmlSource source, XmlStreamToJson converter, byte[] schemaJson) {
+        try {
+            final XMLStreamReader reader = source.createStreamReader(XML_INPUT_FACTORY);
+            try {
+                while (reader.next() != XMLStreamConstants.START_ELEMENT) {}
+
+                if (schemaJson == null && config.schemasEnabled() && hasEmbeddedSchema(reader)) {
+                    return null;
+                }
+
+                final Utf8JsonWriter out = new Utf8JsonWriter(source.length());
+                if (config.jsonSchemasEnabled()) {
+                    out.startObject();
+                    out.name("schema");
+                    if (schemaJson == null) {
+                        out.nullValue();
+                    }
+                    else {
+                        out.writeFragment(schemaJson);
+                    }
+                    out.separator();
+                    out.name("payload");
+                    converter.write(reader, out);
+                    out.endObject();
+                }
+                else {
+                    converter.write(reader, out);
+                }
+                return out;
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (final SerializationException | DataException exc) {
+            log.error("Failed to convert message data", exc);
+            throw exc;
+        }
+        catch (final Exception exc) {
+            log.error("Failed to deserialize message data", exc);
+            throw new SerializationException("Failed to deserialize message data", exc);
+        }
+    }
+
+    private static boolean hasEmbeddedSchema(XMLStreamReader reader) {
+        final String reference = reader.getAttributeValue(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI, "noNamespaceSchemaLocation");
+        return XmlUtils.EMBEDDED_SCHEMA_REFERENCE.equals(reference);
+    }
+
+
+    /**
+     * Writes a parsed Connect value as JSON.
+     */
+    private Utf8JsonWriter writeValue(SchemaAndValue parsed, int initialCapacity) {
+        if (parsed.schema() == null && parsed.value() == null) {
+            return null;
+        }
+
+        final Utf8JsonWriter out = new Utf8JsonWriter(initialCapacity);
+        if (config.jsonSchemasEnabled()) {
+            out.startObject();
+            out.name("schema");
+            out.schema(parsed.schema());
+            out.separator();
+            out.name("payload");
+            out.value(parsed.schema(), parsed.value());
+            out.endObject();
+        }
+        else {
+            out.value(parsed.schema(), parsed.value());
+        }
+        return out;
+    }
+
+
+    /**
+     * Returns the converter for the current XSD schema provided by config.
+     *
+     * @return null if documents aren't parsed using a single XSD schema
+     */
+    private XsdSchemaConverter getXsdSchemaConverter() {
+        final Schema schema = xmlToStruct.getXsdSchema();
+        if (schema == null) {
+            return null;
+        }
+
+        final XsdSchemaConverter current = xsdSchemaConverter;
+        if (current != null && current.schema == schema) {
+            return current;
+        }
+
+        final XsdSchemaConverter replacement = new XsdSchemaConverter(schema, config.getRootElementName(),
+                                                                       ElementProjection.of(config.getProjectionPaths()));
+        xsdSchemaConverter = replacement;
+        return replacement;
+    }
+
+
+    /**
+     * Converter for documents with an XSD schema, and the JSON for the
+     *  schema to include in the envelope around converted documents.
+     */
+    private static final class XsdSchemaConverter {
+        private final Schema schema;
+        /** null if documents with the schema can't be converted as they are read */
+        private final XmlStreamToJson converter;
+        private final byte[] schemaJson;
+
+        XsdSchemaConverter(Schema schema, String rootElementName, ElementProjection projection) {
+            this.schema = schema;
+            if (!XmlStreamToJson.isSupported(schema)) {
+                this.converter = null;
+            }
+            else if (projection == null) {
+                this.converter = new XmlStreamToJson(schema, rootElementName);
+            }
+            else {
+                // the schema has already been projected by XmlBytesToStruct
+                final Set<Schema> projectedStructs = projection.root(rootElementName).projectedStructs(schema);
+                this.converter = new XmlStreamToJson(schema, rootElementName, projectedStructs);
+            }
+
+            final Utf8JsonWriter json = new Utf8JsonWriter(1024);
+            json.schema(schema);
+            this.schemaJson = json.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches an XSD schema file for changes, and reloads it when it
+ *  is modified.
+ *
+ * The file is polled, rather than using a WatchService, as watch
+ *  events aren't reliably delivered for some of the ways that config
+ *  files are updated (such as the symlink swaps used for mounted
+ *  volumes in Kubernetes). Each check is cheap, as the file is only
+ *  read if the last-modified time or size has changed, and the schema
+ *  only reloaded if a fingerprint of the contents has changed.
+ *
+ * Reloading happens on a background thread, so doesn't hold up the
+ *  conversion of messages. If reloading fails, the previous schema
+ *  stays in use, the failure is logged, and it is counted in the
+ *  metrics available from JMX.
+ *
+ * The scheduled checks and the JMX registration keep the reloader
+ *  reachable until it is closed, so it only holds a weak reference to
+ *  the target that it reloads the schema for (such as a converter
+ *  engine). If the target is garbage collected without being closed,
+ *  the reloader stops checking and unregisters itself at the next check.
+ */
+public class XsdSchemaReloader<T> implements XsdSchemaReloaderMBean {
+
+    private static final Logger log = LoggerFactory.getLogger(XsdSchemaReloader.class);
+
+    private static final String MBEAN_DOMAIN = "com.ibm.eventstreams.kafkaconnect.plugins.xml";
+
+    /** single thread used to check and reload every watched schema */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "xml-schema-reloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+
+    private final File xsdFile;
+    private final WeakReference<T> target;
+    private final Consumer<T> reload;
+
+    /** state of the file when it was last loaded - only used by the scheduler thread after construction */
+    private long lastModified;
+    private long length;
+    private String fingerprint;
+
+    private final AtomicLong reloadCount = new AtomicLong();
+    private final AtomicLong reloadFailureCount = new AtomicLong();
+    private volatile String lastReloadFailure = null;
+
+    private ScheduledFuture<?> task = null;
+    private ObjectName mbeanName = null;
+
+
+    /**
+     * Records the current state of the XSD schema file, so this should be
+     *  created before the schema is first loaded, so that any changes
+     *  made while it is being loaded aren't missed.
+     *
+     * @param target what the schema is loaded for, which is only weakly referenced
+     * @param reload loads the schema file for the target, throwing an exception
+     *                if it can't - this must not hold a reference to the target
+     */
+    public XsdSchemaReloader(File xsdFile, T target, Consumer<T> reload) {
+        this.xsdFile = xsdFile;
+        this.target = new WeakReference<>(target);
+        this.reload = reload;
+
+        this.lastModified = xsdFile.lastModified();
+        this.length = xsdFile.length();
+        this.fingerprint = readFingerprint();
+    }
+
+
+    /**
+     * Starts checking the file for changes.
+     */
+    public synchronized void start(long intervalMs) {
+        task = SCHEDULER.scheduleWithFixedDelay(this::check, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+
+        try {
+            mbeanName = new ObjectName(MBEAN_DOMAIN + ":type=XsdSchemaReloader" +
+                                       ",id=" + NEXT_ID.getAndIncrement() +
+                                       ",file=" + ObjectName.quote(xsdFile.getPath()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, mbeanName);
+        }
+        catch (final JMException e) {
+            log.warn("Failed to register metrics for schema reloading", e);
+            mbeanName = null;
+        }
+    }
+
+
+    /**
+     * Stops checking the file for changes.
+     */
+    public synchronized void close() {
+        if (task != null) {
+            task.cancel(false);
+            task = null;
+        }
+        if (mbeanName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+            }
+            catch (final JMException e) {
+                log.debug("Failed to unregister metrics for schema reloading", e);
+            }
+            mbeanName = null;
+        }
+    }
+
+
+    /** true if the file is being checked for changes */
+    synchronized boolean isStarted() {
+        return task != null;
+    }
+
+
+    /**
+     * Reloads the schema if the file has been modified since it was
+     *  last loaded, or stops checking if the target has been garbage
+     *  collected without closing this.
+     */
+    void check() {
+        final T reloadTarget = target.get();
+        if (reloadTarget == null) {
+            log.info("Stopped checking schema {} as it is no longer in use", xsdFile);
+            close();
+            return;
+        }
+
+        final long modified = xsdFile.lastModified();
+        final long size = xsdFile.length();
+        if (modified == lastModified && size == length) {
+            return;
+        }
+
+        final String newFingerprint = readFingerprint();
+        if (newFingerprint == null) {
+            // the file may be being replaced, so try again next time
+            log.warn("Unable to read modified schema {}", xsdFile);
+            return;
+        }
+        lastModified = modified;
+        length = size;
+
+        if (newFingerprint.equals(fingerprint)) {
+            return;
+        }
+        // the modified file isn't tried again until it is modified again
+        fingerprint = newFingerprint;
+
+        log.info("Reloading modified schema {}", xsdFile);
+        try {
+            reload.accept(reloadTarget);
+            reloadCount.incrementAndGet();
+        }
+        catch (final RuntimeException e) {
+            log.error("Failed to reload modified schema {} - the previous schema will continue to be used", xsdFile, e);
+            reloadFailureCount.incrementAndGet();
+            lastReloadFailure = e.getMessage() != null ? e.getMessage() : e.toString();
+        }
+    }
+
+
+    private String readFingerprint() {
+        try {
+            return XsdSchemaStore.fingerprint(Files.readAllBytes(xsdFile.toPath()));
+        }
+        catch (final IOException e) {
+            return null;
+        }
+    }
+
+
+    @Override
+    public String getSchemaFile() {
+        return xsdFile.getPath();
+    }
+
+    @Override
+    public long getReloadCount() {
+        return reloadCount.get();
+    }
+
+    @Override
+    public long getReloadFailureCount() {
+        return reloadFailureCount.get();
+    }
+
+    @Override
+    public String getLastReloadFailure() {
+        return lastReloadFailure;
+    }
+}
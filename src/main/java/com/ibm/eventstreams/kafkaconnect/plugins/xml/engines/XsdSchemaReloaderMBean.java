@@ -0,0 +1,34 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+/**
+ * JMX metrics for reloading of a modified XSD schema file.
+ */
+public interface XsdSchemaReloaderMBean {
+
+    /** location of the XSD schema file being watched */
+    String getSchemaFile();
+
+    /** number of times the schema has been reloaded after being modified */
+    long getReloadCount();
+
+    /** number of times a modified schema couldn't be used, leaving the previous schema in use */
+    long getReloadFailureCount();
+
+    /** reason for the most recent failure, or null if there haven't been any */
+    String getLastReloadFailure();
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Local, file-based, store of XSD schemas.
+ *
+ * Schemas are stored in a directory, in files named using a
+ *  fingerprint (SHA-256 hash) of their contents. The same schema will
+ *  always have the same fingerprint, so it only needs storing once
+ *  however many documents refer to it, and stored schemas are never
+ *  modified.
+ *
+ * References to a stored schema are of the form "<fingerprint>.xsd",
+ *  so that they resolve to the schema file when treated as a URI
+ *  relative to the store directory.
+ */
+public class XsdSchemaStore {
+
+    private final Logger log = LoggerFactory.getLogger(XsdSchemaStore.class);
+
+    private static final String FILE_EXTENSION = ".xsd";
+    private static final Pattern REFERENCE_PATTERN = Pattern.compile("[0-9a-f]{64}\\" + FILE_EXTENSION);
+
+    private final Path directory;
+
+
+    public XsdSchemaStore(File directory) {
+        this.directory = directory.toPath();
+    }
+
+
+    /**
+     * Stores the provided XSD schema document, if it isn't already
+     *  in the store.
+     *
+     * @return reference to the stored schema
+     */
+    public String put(byte[] xsd) {
+        final String reference = fingerprint(xsd) + FILE_EXTENSION;
+        final Path target = directory.resolve(reference);
+        if (Files.exists(target)) {
+            return reference;
+        }
+
+        try {
+            Files.createDirectories(directory);
+
+            // write to a temporary file first so that a partially-written
+            //  schema is never visible to anything reading the store
+            final Path tmp = Files.createTempFile(directory, "schema", ".tmp");
+            try {
+                Files.write(tmp, xsd);
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        catch (final IOException e) {
+            log.error("Failed to write schema to store", e);
+            throw new SerializationException("Failed to write schema to store " + directory, e);
+        }
+
+        log.info("Stored schema {}", reference);
+        return reference;
+    }
+
+
+    /**
+     * Identifies if the provided string looks like a reference
+     *  to a schema in the store.
+     */
+    public boolean isReference(String reference) {
+        return reference != null && REFERENCE_PATTERN.matcher(reference).matches();
+    }
+
+
+    /**
+     * Returns the file containing the referenced XSD schema.
+     */
+    public File get(String reference) {
+        if (!isReference(reference)) {
+            throw new SerializationException("Invalid schema reference '" + reference + "'");
+        }
+
+        final File schemaFile = directory.resolve(reference).toFile();
+        if (!schemaFile.isFile()) {
+            throw new SerializationException("Schema " + reference + " not found in schema store " + directory);
+        }
+        return schemaFile;
+    }
+
+
+    /**
+     * Returns the hex-encoded SHA-256 hash of the provided XSD schema.
+     */
+    static String fingerprint(byte[] xsd) {
+        return HexFormat.of().formatHex(newDigest().digest(xsd));
+    }
+
+    /**
+     * Returns a new SHA-256 digest, for creating fingerprints.
+     */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (final NoSuchAlgorithmException e) {
+            // SHA-256 is required to be available in every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+}
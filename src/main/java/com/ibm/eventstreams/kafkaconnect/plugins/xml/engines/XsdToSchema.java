@@ -15,18 +15,25 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.slf4j.Logger;
@@ -36,6 +43,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
@@ -47,7 +55,8 @@ public class XsdToSchema {
 
     private final Logger log = LoggerFactory.getLogger(XsdToSchema.class);
 
-    private DocumentBuilder builder;
+    /** not thread-safe, so instances of this class must not be shared between threads */
+    private final DocumentBuilder builder;
     private final XmlPluginsConfig config;
 
 
@@ -70,20 +79,95 @@ public class XsdToSchema {
         if (xsdFile == null) {
             return null;
         }
+        return getSchema(xsdFile, config.getRootElementName());
+    }
+
+    /**
+     * Returns a Connect schema for the named root element
+     *  in the provided XSD schema document.
+     *
+     * If a schema cache is configured, a previously saved snapshot
+     *  of the Connect schema is used if there is one for the same
+     *  XSD schema, instead of compiling the XSD schema again.
+     */
+    public Schema getSchema(File xsdFile, String rootElementName) {
+        return getSchema(xsdFile, rootElementName, index -> convertRootElement(index, rootElementName));
+    }
+
+    /**
+     * Returns Connect schemas for each of the named root elements in
+     *  the provided XSD schema document, keyed by element name, or for
+     *  every global element if the names include "*".
+     *
+     * The schemas are compiled together, so elements of the same named
+     *  type share the same Schema instance whichever root they are in.
+     */
+    public Map<String, Schema> getSchemas(File xsdFile, List<String> rootElementNames) {
+        final boolean allElements = rootElementNames.contains(XmlPluginsConfig.XML_ROOT_ELEMENT_NAMES_ALL);
+
+        // the schemas are compiled (and cached) as fields of a struct
+        final Schema rootSchemas = getSchema(xsdFile, "roots:" + String.join(",", rootElementNames), index -> {
+            final SchemaBuilder builder = SchemaBuilder.struct();
+            for (final String rootElementName : allElements ? index.elementNames : rootElementNames) {
+                builder.field(rootElementName, convertRootElement(index, rootElementName));
+            }
+            return builder.build();
+        });
+
+        final Map<String, Schema> schemas = new LinkedHashMap<>();
+        for (final Field field : rootSchemas.fields()) {
+            schemas.put(field.name(), field.schema());
+        }
+        return schemas;
+    }
+
+
+    /**
+     * Returns a Connect schema for the named root element in the XSD
+     *  schema embedded in the provided XML document.
+     */
+    public Schema getEmbeddedSchema(InputSource document, String rootElementName) {
+        return getSchema(document, index -> convertRootElement(index, rootElementName));
+    }
 
+
+    private Schema getSchema(File xsdFile, String snapshotName, Function<SchemaIndex, Schema> compiler) {
+        final InputSource xsdSource = new InputSource(xsdFile.toURI().toASCIIString());
+
+        if (config.getXsdSchemaCache() == null) {
+            return getSchema(xsdSource, compiler);
+        }
+
+        final byte[] xsd;
         try {
-            final Document xsdDocument = builder.parse(xsdFile);
-            final Node xsdSchema = getXsSchema(xsdDocument);
+            xsd = Files.readAllBytes(xsdFile.toPath());
+        }
+        catch (final IOException e) {
+            // leave reporting the problem with the file to the parser
+            return getSchema(xsdSource, compiler);
+        }
 
-            final Map<String, Element> complexTypes = getDeclaredComplexTypes(xsdSchema);
+        final SchemaSnapshotStore snapshots = new SchemaSnapshotStore(config.getXsdSchemaCache());
+        final Schema snapshot = snapshots.load(xsd, snapshotName);
+        if (snapshot != null) {
+            log.debug("Using schema snapshot for {}", xsdFile);
+            return snapshot;
+        }
 
-            final String rootElementName = config.getRootElementName();
-            final Element root = getElementByName(xsdSchema, rootElementName);
-            if (root == null) {
-                throw new SerializationException("Expected root element '" + rootElementName + "' not found");
-            }
+        // parse the same bytes as were used to identify the snapshot, in
+        //  case the file is modified in the meantime
+        xsdSource.setByteStream(new ByteArrayInputStream(xsd));
+        final Schema schema = getSchema(xsdSource, compiler);
+        snapshots.save(xsd, snapshotName, schema);
+        return schema;
+    }
 
-            return convertElementToSchema(root, false, false, complexTypes, rootElementName);
+    private Schema getSchema(InputSource xsdSource, Function<SchemaIndex, Schema> compiler) {
+        try {
+            final Document xsdDocument = builder.parse(xsdSource);
+            final Node xsdSchema = getXsSchema(xsdDocument);
+
+            return compiler.apply(new SchemaIndex(xsdSchema));
         }
         catch (final SAXParseException e) {
             log.error("Failed to parse schema document", e);
@@ -96,35 +180,54 @@ public class XsdToSchema {
     }
 
 
-    private Element getElementByName(Node xsdSchema, String name) {
-        final NodeList xsdElements = xsdSchema.getChildNodes();
-        for (int i = 0; i < xsdElements.getLength(); i++) {
-            final Node nodeElem = xsdElements.item(i);
-            if (nodeElem.getNodeType() == Node.ELEMENT_NODE) {
-                final Element element = (Element) nodeElem;
-                if (name.equals(element.getAttribute("name"))) {
-                    return element;
-                }
-            }
+    private Schema convertRootElement(SchemaIndex index, String rootElementName) {
+        final Element root = index.declarations.get(rootElementName);
+        if (root == null) {
+            throw new SerializationException("Expected root element '" + rootElementName + "' not found");
         }
-        return null;
+        return convertElementToSchema(root, false, false, index, rootElementName);
     }
 
 
-    private Map<String, Element> getDeclaredComplexTypes(Node xsdSchema) {
-        final Map<String, Element> complexTypesByName = new HashMap<>();
+    /**
+     * Top-level declarations in an XSD schema, found in a single pass
+     *  over the children of the xs:schema element, and the Connect
+     *  schemas for the named complex types that have been compiled.
+     *
+     * Named complex types are only compiled when they are reached from
+     *  the root element, and only once for each way that they are used
+     *  (optional, list, etc.) so that every element of the same type
+     *  shares the same Schema instance.
+     */
+    private static final class SchemaIndex {
+        /** top-level declarations (elements, types, etc.) by name */
+        final Map<String, Element> declarations = new HashMap<>();
+        /** names of the top-level xs:element declarations, in the order they are declared */
+        final List<String> elementNames = new ArrayList<>();
+        /** top-level xs:complexType declarations by name */
+        final Map<String, Element> complexTypes = new HashMap<>();
+
+        /** compiled schemas for named complex types, keyed by type name and usage */
+        final Map<String, Schema> compiledTypes = new HashMap<>();
+        /** named complex types currently being compiled, to identify recursive types */
+        final Set<String> compilingTypes = new HashSet<>();
+
+        SchemaIndex(Node xsdSchema) {
+            for (Node child = xsdSchema.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() == Node.ELEMENT_NODE) {
+                    final Element declaration = (Element) child;
+                    declarations.putIfAbsent(declaration.getAttribute("name"), declaration);
+
+                    if ("xs:element".equals(declaration.getNodeName()) && declaration.hasAttribute("name")) {
+                        elementNames.add(declaration.getAttribute("name"));
+                    }
 
-        final Element xsdSchemaElement = (Element) xsdSchema;
-        final NodeList types = xsdSchemaElement.getElementsByTagName("xs:complexType");
-        for (int i = 0; i < types.getLength(); i++) {
-            final Element complexType = (Element) types.item(i);
-            if (complexType.hasAttribute("name")) {
-                complexTypesByName.put(complexType.getAttribute("name"),
-                                       complexType);
+                    if ("xs:complexType".equals(declaration.getNodeName()) && declaration.hasAttribute("name")) {
+                        complexTypes.put(declaration.getAttribute("name"), declaration);
+                    }
+                }
             }
         }
-
-        return complexTypesByName;
     }
 
     private static class ChildElements {
@@ -134,8 +237,8 @@ public class XsdToSchema {
         boolean optionalElements = false;
     }
 
-    private Schema convertElementToSchema(Element xsdElement, boolean optionalElement, boolean listElement, Map<String, Element> declaredComplexTypes, String elementName) {
-        ChildElements fieldNodes = null;
+    private Schema convertElementToSchema(Element xsdElement, boolean optionalElement, boolean listElement, SchemaIndex index, String elementName) {
+        final ChildElements fieldNodes;
 
         if (xsdElement.hasAttribute("type")) {
             final String elementType = xsdElement.getAttribute("type");
@@ -147,20 +250,82 @@ public class XsdToSchema {
                 return type;
             }
 
-            final Element declaredComplexType = declaredComplexTypes.get(elementType);
-            if (declaredComplexType != null) {
-                fieldNodes = getChildElementsFromComplexType(declaredComplexType);
+            final Element declaredComplexType = index.complexTypes.get(elementType);
+            if (declaredComplexType == null) {
+                throw new NotImplementedException("Unsupported element type " + elementType);
             }
+            if (elementName == null) {
+                return getComplexTypeSchema(elementType, declaredComplexType, optionalElement, listElement, index);
+            }
+            fieldNodes = getChildElementsFromComplexType(declaredComplexType);
         }
         else {
             fieldNodes = getChildElements(xsdElement);
         }
 
-        final SchemaBuilder builder = SchemaBuilder.struct();
+        final SchemaBuilder builder = convertChildElements(fieldNodes, index);
         if (elementName != null) {
             builder.name(elementName);
         }
 
+        if (listElement) {
+            final SchemaBuilder result = SchemaBuilder.array(builder.build());
+            if (optionalElement) {
+                result.optional();
+            }
+            return result.build();
+        }
+        else {
+            if (optionalElement) {
+                builder.optional();
+            }
+            return builder.build();
+        }
+    }
+
+
+    /**
+     * Returns the schema for an element of a named complex type,
+     *  compiling the type if it hasn't already been compiled for
+     *  this usage.
+     */
+    private Schema getComplexTypeSchema(String typeName, Element complexType, boolean optionalElement, boolean listElement, SchemaIndex index) {
+        final String key = typeName + (listElement ? "[]" : "") + (optionalElement ? "?" : "");
+
+        Schema schema = index.compiledTypes.get(key);
+        if (schema != null) {
+            return schema;
+        }
+
+        if (listElement) {
+            // lists are of required structs, so can share the schema
+            //  used for required elements of the same type
+            final SchemaBuilder result = SchemaBuilder.array(getComplexTypeSchema(typeName, complexType, false, false, index));
+            if (optionalElement) {
+                result.optional();
+            }
+            schema = result.build();
+        }
+        else {
+            if (!index.compilingTypes.add(typeName)) {
+                throw new NotImplementedException("Unsupported recursive type " + typeName);
+            }
+            final SchemaBuilder builder = convertChildElements(getChildElementsFromComplexType(complexType), index);
+            if (optionalElement) {
+                builder.optional();
+            }
+            schema = builder.build();
+            index.compilingTypes.remove(typeName);
+        }
+
+        index.compiledTypes.put(key, schema);
+        return schema;
+    }
+
+
+    private SchemaBuilder convertChildElements(ChildElements fieldNodes, SchemaIndex index) {
+        final SchemaBuilder builder = SchemaBuilder.struct();
+
         if (fieldNodes.entry != null) {
             String entrySchemaType = "xs:string";
             if (fieldNodes.entry.hasAttribute("base")) {
@@ -174,7 +339,7 @@ public class XsdToSchema {
             final Node fieldNode = fieldNodes.elements.item(i);
             final short nodeType = fieldNode.getNodeType();
 
-            if (nodeType == Node.ELEMENT_NODE) {
+            if (nodeType == Node.ELEMENT_NODE && !"xs:any".equals(fieldNode.getNodeName())) {
                 final Element fieldElement = (Element) fieldNode;
 
                 final String name = fieldElement.getAttribute("name");
@@ -183,8 +348,8 @@ public class XsdToSchema {
 
                 if (fieldElement.hasAttribute("type")) {
                     final String type = fieldElement.getAttribute("type");
-                    if (declaredComplexTypes.containsKey(type)) {
-                        final Schema sch = convertElementToSchema(fieldElement, isOptional, isList, declaredComplexTypes, null);
+                    if (index.complexTypes.containsKey(type)) {
+                        final Schema sch = convertElementToSchema(fieldElement, isOptional, isList, index, null);
                         builder.field(name, sch);
                     }
                     else {
@@ -196,7 +361,7 @@ public class XsdToSchema {
                     }
                 }
                 else {
-                    builder.field(name, convertElementToSchema(fieldElement, isOptional, isList, declaredComplexTypes, null));
+                    builder.field(name, convertElementToSchema(fieldElement, isOptional, isList, index, null));
                 }
             }
         }
@@ -227,19 +392,7 @@ public class XsdToSchema {
             builder.field(name, fieldSchema);
         }
 
-        if (listElement) {
-            final SchemaBuilder result = SchemaBuilder.array(builder.build());
-            if (optionalElement) {
-                result.optional();
-            }
-            return result.build();
-        }
-        else {
-            if (optionalElement) {
-                builder.optional();
-            }
-            return builder.build();
-        }
+        return builder;
     }
 
 
@@ -340,10 +493,24 @@ public class XsdToSchema {
     }
 
 
+    /**
+     * Returns the first element with the provided tag name within the
+     *  parent. Nested element declarations describe the contents of
+     *  other elements, so aren't searched.
+     */
     private Element getChild(Element parent, String tagName) {
-        final NodeList children = parent.getElementsByTagName(tagName);
-        if (children.getLength() > 0) {
-            return (Element) children.item(0);
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                if (tagName.equals(child.getNodeName())) {
+                    return (Element) child;
+                }
+                if (!"xs:element".equals(child.getNodeName())) {
+                    final Element descendant = getChild((Element) child, tagName);
+                    if (descendant != null) {
+                        return descendant;
+                    }
+                }
+            }
         }
         return null;
     }
@@ -446,6 +613,11 @@ public class XsdToSchema {
 
 
     private Node getXsSchema(Document xsdDocument) {
+        final Element documentElement = xsdDocument.getDocumentElement();
+        if (documentElement != null && "xs:schema".equals(documentElement.getNodeName())) {
+            return documentElement;
+        }
+
         final NodeList schemas = xsdDocument.getElementsByTagName("xs:schema");
         if (schemas.getLength() == 0) {
             throw new SerializationException("No schema found");
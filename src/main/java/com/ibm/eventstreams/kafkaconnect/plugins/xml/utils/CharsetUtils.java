@@ -0,0 +1,85 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+
+public class CharsetUtils {
+
+    /**
+     * Returns the Java charset for a character encoding, identified
+     *  either by a Java charset name (e.g. "IBM1047") or by a numeric
+     *  IBM coded character set identifier (CCSID) such as those in
+     *  the MQMD of MQ messages (e.g. "1047").
+     *
+     * @return null if no encoding is provided
+     * @throws IllegalArgumentException if the encoding isn't supported
+     */
+    public static final Charset forName(String encoding) {
+        if (encoding == null || encoding.isBlank()) {
+            return null;
+        }
+
+        final String name = encoding.trim();
+        if (!name.chars().allMatch(Character::isDigit)) {
+            return Charset.forName(name);
+        }
+
+        final int ccsid;
+        try {
+            ccsid = Integer.parseInt(name);
+        }
+        catch (final NumberFormatException nfe) {
+            throw new UnsupportedCharsetException(name);
+        }
+        return forCcsid(ccsid);
+    }
+
+
+    /**
+     * Returns the Java charset for an IBM coded character set identifier.
+     */
+    public static final Charset forCcsid(int ccsid) {
+        switch (ccsid) {
+            case 367:
+                return StandardCharsets.US_ASCII;
+            case 819:
+                return StandardCharsets.ISO_8859_1;
+            case 1200:
+                return StandardCharsets.UTF_16BE;
+            case 1208:
+                return StandardCharsets.UTF_8;
+            default:
+                // most other CCSIDs are the number of an IBM code page,
+                //  which Java has as either "IBMnnn" or "x-IBMnnn"
+                final String codePage = String.format("%03d", ccsid);
+                for (final String name : new String[] { "IBM" + codePage, "x-IBM" + codePage }) {
+                    try {
+                        if (Charset.isSupported(name)) {
+                            return Charset.forName(name);
+                        }
+                    }
+                    catch (final IllegalCharsetNameException icne) {
+                        // not a Java charset name - try the next one
+                    }
+                }
+                throw new UnsupportedCharsetException("CCSID " + ccsid);
+        }
+    }
+}
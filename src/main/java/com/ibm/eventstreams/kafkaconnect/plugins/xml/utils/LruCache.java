@@ -0,0 +1,80 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Simple thread-safe cache that holds a bounded number of entries,
+ *  discarding the least-recently used entry when it is full.
+ */
+public class LruCache<K, V> {
+
+    private final Map<K, V> entries;
+
+
+    public LruCache(int maxSize) {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+
+    public synchronized V get(K key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns the cached value for the key, using the provided function
+     *  to create (and cache) it if there isn't one.
+     *
+     * The cache is locked while the function runs, so values that are
+     *  slow to create should use get and putIfAbsent instead.
+     */
+    public synchronized V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        return entries.computeIfAbsent(key, loader);
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, value);
+    }
+
+    /**
+     * Caches the value for the key, unless another thread cached a
+     *  value for it first.
+     *
+     * @return the value that is cached for the key
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        final V existing = entries.putIfAbsent(key, value);
+        return existing != null ? existing : value;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
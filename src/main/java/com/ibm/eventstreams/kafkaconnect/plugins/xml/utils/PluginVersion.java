@@ -0,0 +1,50 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Version of the plug-ins, from the build.
+ */
+public class PluginVersion {
+
+    private static final String UNKNOWN = "unknown";
+
+    private static final String VERSION = loadVersion();
+
+
+    public static String get() {
+        return VERSION;
+    }
+
+
+    private static String loadVersion() {
+        try (InputStream in = PluginVersion.class.getResourceAsStream("/com/ibm/eventstreams/kafkaconnect/plugins/xml/plugin.properties")) {
+            if (in == null) {
+                return UNKNOWN;
+            }
+            final Properties props = new Properties();
+            props.load(in);
+            return props.getProperty("version", UNKNOWN);
+        }
+        catch (final IOException e) {
+            return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.apache.kafka.connect.data.Schema;
+
+/**
+ * Bounded cache of values derived from Connect schemas.
+ *
+ * Records passing through a converter almost always share the same
+ *  Schema instance, so lookups check (without locking) the most
+ *  recently used schema by identity first. After that, an identity
+ *  map is checked, and only then the (least-recently-used) map keyed
+ *  by schema equality. Equality lookups are avoided where possible
+ *  because hashing and comparing a Connect schema walks the whole
+ *  schema tree.
+ *
+ * Values are computed at most once per distinct schema while they
+ *  remain in the cache, and must be immutable as they are shared.
+ */
+public class SchemaCache<V> {
+
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private final int maxSize;
+    private final Function<Schema, V> loader;
+
+    private final Map<Schema, V> byIdentity = new IdentityHashMap<>();
+    private final LruCache<Schema, V> byEquality;
+
+    private volatile Entry<V> mostRecent = null;
+
+
+    public SchemaCache(Function<Schema, V> loader) {
+        this(DEFAULT_MAX_SIZE, loader);
+    }
+
+    public SchemaCache(int maxSize, Function<Schema, V> loader) {
+        this.maxSize = maxSize;
+        this.loader = loader;
+        this.byEquality = new LruCache<>(maxSize);
+    }
+
+
+    public V get(Schema schema) {
+        final Entry<V> recent = mostRecent;
+        if (recent != null && recent.schema == schema) {
+            return recent.value;
+        }
+
+        final V value = lookup(schema);
+        mostRecent = new Entry<>(schema, value);
+        return value;
+    }
+
+
+    private synchronized V lookup(Schema schema) {
+        V value = byIdentity.get(schema);
+        if (value != null) {
+            return value;
+        }
+
+        value = byEquality.computeIfAbsent(schema, loader);
+
+        // the identity map can only grow if new schema instances keep
+        //  being created, so simply start again when it gets too big
+        if (byIdentity.size() >= maxSize) {
+            byIdentity.clear();
+        }
+        byIdentity.put(schema, value);
+
+        return value;
+    }
+
+
+    private static final class Entry<V> {
+        private final Schema schema;
+        private final V value;
+
+        Entry(Schema schema, V value) {
+            this.schema = schema;
+            this.value = value;
+        }
+    }
+}
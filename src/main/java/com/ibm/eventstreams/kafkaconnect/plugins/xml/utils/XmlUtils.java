@@ -15,12 +15,23 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
 
+import java.util.Base64;
+import java.util.function.Function;
+
+import org.apache.kafka.connect.data.Schema;
 import org.w3c.dom.Element;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 
 public class XmlUtils {
 
+    /** id of the xs:schema element embedded in documents by StructToXmlBytes */
+    public static final String EMBEDDED_SCHEMA_ID = "connectSchema";
+
+    /** schema location that refers to the embedded xs:schema element */
+    public static final String EMBEDDED_SCHEMA_REFERENCE = "#" + EMBEDDED_SCHEMA_ID;
+
+
     /**
      * Identifies if the spec for a xs:element indicates that this
      *  element should be represented as an optional field.
@@ -62,30 +73,156 @@ public class XmlUtils {
     /**
      * Guesses the most likely type of the provided string
      *  value found in an XML document.
+     *
+     * Values are returned as a Boolean, Integer, Long or Double
+     *  (using the narrowest type that can hold the value) if they
+     *  look like one, otherwise the string is returned unchanged.
+     *  This is done in a single pass over the characters without
+     *  relying on exceptions from failed parse attempts.
      */
     public static Object guessType(Object input) {
         if (input == null) {
             return null;
         }
-        if (input.equals("true")) {
-            return true;
+
+        final String str = input.toString();
+        if (str.equals("true")) {
+            return Boolean.TRUE;
+        }
+        else if (str.equals("false")) {
+            return Boolean.FALSE;
         }
-        else if (input.equals("false")) {
-            return false;
+
+        // ignore leading and trailing whitespace around numbers
+        int start = 0;
+        int end = str.length();
+        while (start < end && str.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && str.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        int pos = start;
+        boolean negative = false;
+        if (pos < end && (str.charAt(pos) == '-' || str.charAt(pos) == '+')) {
+            negative = str.charAt(pos) == '-';
+            pos++;
+        }
+
+        // integer digits - accumulated as a negative number
+        //  so that Long.MIN_VALUE can be represented
+        long accumulator = 0;
+        boolean overflow = false;
+        int digits = 0;
+        for (; pos < end; pos++) {
+            final int digit = str.charAt(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            if (accumulator < (Long.MIN_VALUE + digit) / 10) {
+                overflow = true;
+            }
+            accumulator = accumulator * 10 - digit;
+            digits++;
+        }
+
+        if (pos == end) {
+            if (digits == 0) {
+                return input;
+            }
+            if (!overflow && (negative || accumulator != Long.MIN_VALUE)) {
+                return narrow(negative ? accumulator : -accumulator);
+            }
+            // too big for a long
+            return Double.parseDouble(str);
+        }
+
+        // fraction digits
+        if (str.charAt(pos) == '.') {
+            pos++;
+            for (; pos < end && isDigit(str.charAt(pos)); pos++) {
+                digits++;
+            }
         }
-        else {
-            try {
-                final double attempt = Double.parseDouble(input.toString());
-                if (attempt % 1 == 0) {
-                    return (int) attempt;
+        if (digits == 0) {
+            return input;
+        }
+
+        // exponent
+        if (pos < end && (str.charAt(pos) == 'e' || str.charAt(pos) == 'E')) {
+            pos++;
+            if (pos < end && (str.charAt(pos) == '-' || str.charAt(pos) == '+')) {
+                pos++;
+            }
+            final int exponentStart = pos;
+            for (; pos < end && isDigit(str.charAt(pos)); pos++) {}
+            if (pos == exponentStart) {
+                return input;
+            }
+        }
+        if (pos != end) {
+            return input;
+        }
+
+        // the format has been checked, so this can't fail
+        final double value = Double.parseDouble(str);
+        if (value % 1 == 0 && value >= Long.MIN_VALUE && value < 0x1p63) {
+            return narrow((long) value);
+        }
+        return value;
+    }
+
+    private static Object narrow(long value) {
+        if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            return (int) value;
+        }
+        return value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+
+    /**
+     * Parses a string value found in an XML document, as the
+     *  primitive type specified by the provided schema.
+     */
+    public static Object parseAsPrimitive(Schema valueSchema, String valueStr) {
+        return getPrimitiveParser(valueSchema).apply(valueStr);
+    }
+
+    /**
+     * Returns a function for parsing string values found in an XML
+     *  document, as the primitive type specified by the provided schema.
+     */
+    public static Function<String, Object> getPrimitiveParser(Schema valueSchema) {
+        switch (valueSchema.type()) {
+            case INT8:
+            case INT16:
+                return Short::parseShort;
+            case INT32:
+                return Integer::parseInt;
+            case INT64:
+                return Long::parseLong;
+            case BOOLEAN:
+                return Boolean::parseBoolean;
+            case FLOAT32:
+                return Float::parseFloat;
+            case FLOAT64:
+                return Double::parseDouble;
+            case BYTES:
+                if ("xs:byte".equals(valueSchema.doc())) {
+                    return valueStr -> new byte[] { Byte.parseByte(valueStr) };
                 }
                 else {
-                    return attempt;
+                    return valueStr -> Base64.getDecoder().decode(valueStr);
                 }
-            }
-            catch (final Exception e) {}
+            case STRING:
+            default:
+                return valueStr -> valueStr;
         }
-        return input;
     }
 
 
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XmlToStructTest;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ByteGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.RecordGenerators;
+
+/**
+ * Uses single converter and transformation instances from many threads
+ *  at once, checking that every thread gets the same results as a
+ *  single thread does.
+ */
+public class XmlConverterConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 500;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ExecutorService executor;
+
+    @Before
+    public void setup() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void cleanup() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+
+    @Test
+    public void xstreamParser() throws Exception {
+        parseWithSchemas(XmlPluginsConfig.XML_PARSER_XSTREAM);
+    }
+
+    @Test
+    public void staxParser() throws Exception {
+        parseWithSchemas(XmlPluginsConfig.XML_PARSER_STAX);
+    }
+
+    private void parseWithSchemas(String parser) throws Exception {
+        final List<String> testCases = testCases();
+        final List<XmlConverter> converters = new ArrayList<>();
+        final List<byte[]> inputs = new ArrayList<>();
+        final List<SchemaAndValue> expected = new ArrayList<>();
+
+        for (final String testCase : testCases) {
+            final Map<String, String> props = ConfigGenerators.withSchemaProps(testCase);
+            props.put(XmlPluginsConfig.XML_PARSER_CONFIG, parser);
+
+            final XmlConverter converter = new XmlConverter();
+            converter.configure(props, false);
+
+            final byte[] input = ByteGenerators.getXml(testCase);
+            converters.add(converter);
+            inputs.add(input);
+            expected.add(converter.toConnectData("TOPIC", input));
+        }
+
+        runConcurrently(() -> {
+            final int i = ThreadLocalRandom.current().nextInt(testCases.size());
+            assertEquals(expected.get(i), converters.get(i).toConnectData("TOPIC", inputs.get(i)));
+        });
+
+        converters.forEach(XmlConverter::close);
+    }
+
+
+    @Test
+    public void parseWithoutSchemas() throws Exception {
+        final List<String> testCases = testCases();
+        final List<byte[]> inputs = new ArrayList<>();
+        final List<SchemaAndValue> expected = new ArrayList<>();
+
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        for (final String testCase : testCases) {
+            final byte[] input = ByteGenerators.getXml(testCase);
+            inputs.add(input);
+            expected.add(converter.toConnectData("TOPIC", input));
+        }
+
+        runConcurrently(() -> {
+            final int i = ThreadLocalRandom.current().nextInt(testCases.size());
+            assertEquals(expected.get(i), converter.toConnectData("TOPIC", inputs.get(i)));
+        });
+
+        converter.close();
+    }
+
+
+    @Test
+    public void serializeStructs() throws Exception {
+        final List<SourceRecord> records = new ArrayList<>();
+        final List<byte[]> expected = new ArrayList<>();
+
+        // a single converter for structs with many different schemas
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        for (final String testCase : testCases()) {
+            final SourceRecord record = RecordGenerators.struct(testCase);
+            records.add(record);
+            expected.add(converter.fromConnectData("TOPIC", record.valueSchema(), record.value()));
+        }
+
+        runConcurrently(() -> {
+            final int i = ThreadLocalRandom.current().nextInt(records.size());
+            final SourceRecord record = records.get(i);
+            assertArrayEquals(expected.get(i), converter.fromConnectData("TOPIC", record.valueSchema(), record.value()));
+        });
+
+        converter.close();
+    }
+
+
+    @Test
+    public void schemaStore() throws Exception {
+        final List<SourceRecord> records = new ArrayList<>();
+
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(ConfigGenerators.withSchemaStoreProps(tempFolder.newFolder("schemas")), false);
+
+        for (final String testCase : new String[] { "000", "001", "002", "003", "006", "007" }) {
+            records.add(RecordGenerators.struct(testCase));
+        }
+
+        // schemas are stored, and parsers for them created, while other
+        //  threads are using the converter
+        runConcurrently(() -> {
+            final SourceRecord record = records.get(ThreadLocalRandom.current().nextInt(records.size()));
+            final byte[] xml = converter.fromConnectData("TOPIC", record.valueSchema(), record.value());
+            assertEquals(record.value(), converter.toConnectData("TOPIC", xml).value());
+        });
+
+        converter.close();
+    }
+
+
+    @Test
+    public void transformation() throws Exception {
+        final List<String> testCases = testCases();
+        final List<SourceRecord> records = new ArrayList<>();
+        final List<SourceRecord> expected = new ArrayList<>();
+
+        final XmlTransformation<SourceRecord> transformation = new XmlTransformation<>();
+        transformation.configure(ConfigGenerators.defaultRootNoSchemasProps());
+
+        for (final String testCase : testCases) {
+            final SourceRecord xmlRecord = RecordGenerators.bytes(testCase);
+            final SourceRecord structRecord = RecordGenerators.struct(testCase);
+            records.add(xmlRecord);
+            records.add(structRecord);
+            expected.add(transformation.apply(xmlRecord));
+            expected.add(transformation.apply(structRecord));
+        }
+
+        runConcurrently(() -> {
+            final int i = ThreadLocalRandom.current().nextInt(records.size());
+            assertEquals(expected.get(i).value(), transformation.apply(records.get(i)).value());
+        });
+
+        transformation.close();
+    }
+
+
+    /**
+     * Runs the provided task repeatedly in every thread, with the
+     *  threads all starting at the same time.
+     */
+    private void runConcurrently(Runnable task) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+
+        final List<Future<Void>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final Callable<Void> worker = () -> {
+                start.await();
+                for (int i = 0; i < ITERATIONS; i++) {
+                    task.run();
+                }
+                return null;
+            };
+            results.add(executor.submit(worker));
+        }
+
+        start.countDown();
+
+        // rethrows any assertion failures from the threads
+        for (final Future<Void> result : results) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    /** test cases where parsing is expected to give the same results every time */
+    private static List<String> testCases() {
+        final List<String> testCases = new ArrayList<>();
+        for (final Object[] testCase : XmlToStructTest.testCases()) {
+            final boolean skip = (boolean) testCase[2];
+            if (!skip && !"047".equals(testCase[0])) {
+                testCases.add((String) testCase[0]);
+            }
+        }
+        return testCases;
+    }
+}
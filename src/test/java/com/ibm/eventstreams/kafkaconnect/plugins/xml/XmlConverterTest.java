@@ -17,24 +17,32 @@ package com.ibm.eventstreams.kafkaconnect.plugins.xml;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.xmlunit.matchers.CompareMatcher.isIdenticalTo;
 
+import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
 
 import javax.xml.transform.Source;
 
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaAndValue;
 import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.xmlunit.builder.Input;
 
 import com.ibm.eventstreams.kafkaconnect.plugins.xml.engines.XsdToSchema;
@@ -50,6 +58,9 @@ import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.StructGenerators;
 
 public class XmlConverterTest {
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
     @Test
     public void config() {
         final XmlConverter converter = new XmlConverter();
@@ -360,4 +371,191 @@ public class XmlConverterTest {
         assertEquals(Schema.INT32_SCHEMA, output.schema());
         assertEquals(1234, output.value());
     }
+
+    @Test
+    public void schemaStore() throws IOException {
+        final File schemaStore = tempFolder.newFolder("schemas");
+
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(ConfigGenerators.withSchemaStoreProps(schemaStore), false);
+
+        final String[] testcases = { "001", "001", "000" };
+
+        for (final String testcase : testcases) {
+            final SchemaAndValue input = StructGenerators.get(testcase);
+            final byte[] xml = converter.fromConnectData("TOPIC", input.schema(), input.value());
+
+            final String xmlString = new String(xml, StandardCharsets.UTF_8);
+            assertFalse(xmlString.contains("xs:schema"));
+            assertTrue(xmlString.contains("xsi:noNamespaceSchemaLocation=\""));
+
+            final SchemaAndValue output = converter.toConnectData("TOPIC", xml);
+            Comparisons.compareSchema(input.schema(), output.schema());
+            Comparisons.compareStruct((Struct) input.value(), (Struct) output.value());
+        }
+
+        // one schema stored for each distinct schema
+        assertEquals(2, schemaStore.list((dir, name) -> name.endsWith(".xsd")).length);
+    }
+
+    @Test
+    public void missingSchemaReference() {
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(ConfigGenerators.withSchemaStoreProps(new File("schemas")), false);
+
+        final byte[] input = ByteGenerators.getXml("001");
+
+        final SerializationException thrown = assertThrows(SerializationException.class, () -> {
+            converter.toConnectData("TOPIC", input);
+        });
+        assertEquals("Schema reference not found in message data", thrown.getMessage());
+    }
+
+    @Test
+    public void valuesAsStrings() {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.XML_TYPE_INFERENCE_CONFIG, "false");
+
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(props, false);
+
+        final byte[] input = ByteGenerators.getXml("000");
+        final SchemaAndValue output = converter.toConnectData("TOPIC", input);
+
+        assertNull(output.schema());
+        assertEquals(Map.of("test-1", "123",
+                            "test-2", "1.23",
+                            "test-3", "xyz",
+                            "test-4", "true"),
+                     output.value());
+    }
+
+    @Test
+    public void documentEncodings() {
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+
+        for (final String parser : new String[] { XmlPluginsConfig.XML_PARSER_XSTREAM, XmlPluginsConfig.XML_PARSER_STAX }) {
+            props.put(XmlPluginsConfig.XML_PARSER_CONFIG, parser);
+
+            final XmlConverter converter = new XmlConverter();
+            converter.configure(props, false);
+
+            assertEquals("caf\u00e9 \u00fc",
+                         getTest3(converter, encodedDocument(null, StandardCharsets.UTF_8)));
+            assertEquals("caf\u00e9 \u00fc",
+                         getTest3(converter, encodedDocument("UTF-8", StandardCharsets.UTF_8)));
+            assertEquals("caf\u00e9 \u00fc",
+                         getTest3(converter, encodedDocument("ISO-8859-1", StandardCharsets.ISO_8859_1)));
+
+            // Java's UTF-16 encoder starts with a byte order mark
+            assertEquals("caf\u00e9 \u00fc",
+                         getTest3(converter, encodedDocument(null, StandardCharsets.UTF_16)));
+
+            final byte[] utf8 = encodedDocument(null, StandardCharsets.UTF_8);
+            final byte[] utf8WithBom = new byte[utf8.length + 3];
+            utf8WithBom[0] = (byte) 0xEF;
+            utf8WithBom[1] = (byte) 0xBB;
+            utf8WithBom[2] = (byte) 0xBF;
+            System.arraycopy(utf8, 0, utf8WithBom, 3, utf8.length);
+            assertEquals("caf\u00e9 \u00fc", getTest3(converter, utf8WithBom));
+        }
+    }
+
+    @Test
+    public void transportEncodings() {
+        final Charset ebcdic = Charset.forName("IBM1047");
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+
+        for (final String parser : new String[] { XmlPluginsConfig.XML_PARSER_XSTREAM, XmlPluginsConfig.XML_PARSER_STAX }) {
+            props.put(XmlPluginsConfig.XML_PARSER_CONFIG, parser);
+
+            final XmlConverter converter = new XmlConverter();
+            converter.configure(props, false);
+
+            assertEquals("caf\u00e9 \u00fc",
+                         getTest3(converter, encodedDocument(null, ebcdic), ebcdic));
+
+            // the transport encoding overrides the declared encoding,
+            //  which is often left unchanged when messages are converted
+            assertEquals("caf\u00e9 \u00fc",
+                         getTest3(converter, encodedDocument("UTF-8", ebcdic), ebcdic));
+
+            assertEquals("caf\u00e9 \u00fc",
+                         getTest3(converter, encodedDocument("ISO-8859-1", StandardCharsets.UTF_8), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void transportEncodingWithoutSchema() {
+        final Charset ebcdic = Charset.forName("IBM500");
+
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        final SchemaAndValue output = converter.toConnectData("TOPIC", encodedDocument(null, ebcdic), ebcdic);
+        assertEquals("caf\u00e9 \u00fc", ((Map<?, ?>) output.value()).get("test-3"));
+    }
+
+    @Test
+    public void outputEncoding() {
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_OUTPUT_ENCODING_CONFIG, "1047");
+
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(props, false);
+
+        final SchemaAndValue input = StructGenerators.get("000");
+        final byte[] xml = converter.fromConnectData("TOPIC", input.schema(), input.value());
+
+        final String decoded = new String(xml, Charset.forName("IBM1047"));
+        assertTrue(decoded.startsWith("<?xml version=\"1.0\" encoding=\"IBM1047\""));
+
+        // identified from the XML declaration, or provided by the transport
+        final SchemaAndValue parsed = converter.toConnectData("TOPIC", xml);
+        Comparisons.compareStruct((Struct) input.value(), (Struct) parsed.value());
+        final SchemaAndValue transported = converter.toConnectData("TOPIC", xml, Charset.forName("IBM1047"));
+        Comparisons.compareStruct((Struct) input.value(), (Struct) transported.value());
+    }
+
+    @Test
+    public void outputEncodingCharacterReferences() {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.XML_OUTPUT_ENCODING_CONFIG, "ISO-8859-1");
+
+        final XmlConverter converter = new XmlConverter();
+        converter.configure(props, false);
+
+        final byte[] xml = converter.fromConnectData("TOPIC", null, Map.of("price", "\u20ac5 caf\u00e9"));
+        final String decoded = new String(xml, StandardCharsets.ISO_8859_1);
+        assertTrue(decoded.contains("<price>&#8364;5 caf\u00e9</price>"));
+
+        final SchemaAndValue parsed = converter.toConnectData("TOPIC", xml);
+        assertEquals("\u20ac5 caf\u00e9", ((Map<?, ?>) parsed.value()).get("price"));
+    }
+
+    @Test
+    public void unsupportedOutputEncoding() {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.XML_OUTPUT_ENCODING_CONFIG, "not-a-charset");
+
+        final XmlConverter converter = new XmlConverter();
+        assertThrows(ConfigException.class, () -> converter.configure(props, false));
+    }
+
+    private static byte[] encodedDocument(String declaredEncoding, Charset charset) {
+        final String declaration = declaredEncoding == null ? "" : "<?xml version=\"1.0\" encoding=\"" + declaredEncoding + "\"?>";
+        return (declaration +
+                "<root><test-1>123</test-1><test-2>1.23</test-2>" +
+                "<test-3>caf\u00e9 \u00fc</test-3><test-4>true</test-4></root>").getBytes(charset);
+    }
+
+    private static String getTest3(XmlConverter converter, byte[] input) {
+        final SchemaAndValue output = converter.toConnectData("TOPIC", input);
+        return ((Struct) output.value()).getString("test-3");
+    }
+
+    private static String getTest3(XmlConverter converter, byte[] input, Charset charset) {
+        final SchemaAndValue output = converter.toConnectData("TOPIC", input, charset);
+        return ((Struct) output.value()).getString("test-3");
+    }
 }
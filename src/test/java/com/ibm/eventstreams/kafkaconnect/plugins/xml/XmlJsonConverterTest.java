@@ -0,0 +1,329 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.json.JsonConverterConfig;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.apache.kafka.connect.storage.ConverterType;
+import org.junit.Test;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.Comparisons;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.RecordGenerators;
+
+public class XmlJsonConverterTest {
+
+    /** values of each type, with names that can't be used as element names */
+    private static final String JSON =
+        "{" +
+            "\"text\": \"a < b & \\\"c\\\" \\u00e9\\n\\ud83d\\ude00 ☃\", " +
+            "\"empty\": \"\", \"nothing\": null, \"yes\": true, \"no\": false, " +
+            "\"numbers\": [0, -0, 1.50, -2e3, 1E-7, 12345678901234567890, 9223372036854775807, 0.1], " +
+            "\"nested\": [[1, [2, null]], [], {\"a\": {}}, null, \"x\"], " +
+            "\"object\": {\"list\": [{\"b\": 1}, {\"b\": 2, \"c\": [true]}], \"emptylist\": []}, " +
+            "\"1st\": 1, \"has space\": [1, {\"x\": 2}], \"\": {\"y\": null}, \"a/b\": \"\" " +
+        "}";
+
+
+    /** elements that are repeated, but not next to each other, with attributes and text */
+    private static final String MIXED =
+        "<root a=\"1\">" +
+            "<item>x</item>" +
+            "<other b=\"true\">text &amp; \"quotes\"</other>" +
+            "<item>y</item>" +
+            "<entries><entry>1</entry><entry>2</entry></entries>" +
+            "<list><value c=\"z\">3</value><value>4.5</value></list>" +
+            "<nested d=\"2\"><child>éè ☃ 😀\ttab</child><d>replaced</d></nested>" +
+            "<items><i x=\"1\">a</i><i x=\"2\">b</i></items>" +
+            "<entrylist><e>1</e><e>2</e></entrylist>" +
+            "<empty/>" +
+        "</root>";
+
+
+    @Test
+    public void mixedContent() {
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), MIXED);
+    }
+
+    @Test
+    public void repeatedEntries() {
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(),
+            "<root><e k=\"1\">one</e><x>2</x><e k=\"2\"/><e><entry>three</entry></e></root>");
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(),
+            "<root><e entry=\"1\"/><e>2</e><e entry=\"3\"/></root>");
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(),
+            "<root><e entry=\"1\"/><e entry=\"2\"/></root>");
+    }
+
+    @Test
+    public void rootAttributes() {
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), "<root a=\"1\" b=\"two\"/>");
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), "<root a=\"1\"> text </root>");
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), "<root/>");
+    }
+
+    @Test
+    public void controlCharacters() {
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(),
+            "<?xml version=\"1.1\"?><root><a>&#x1;&#xD;&#x1F;\\/&#x7F;</a><b>&#xA;</b></root>");
+    }
+
+    @Test
+    public void embeddedSchema() {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.SCHEMAS_ENABLE_CONFIG, "true");
+
+        final XmlConverter xmlConverter = new XmlConverter();
+        xmlConverter.configure(props, false);
+        final SourceRecord record = RecordGenerators.struct("002");
+        final byte[] xml = xmlConverter.fromConnectData(record.topic(), record.valueSchema(), record.value());
+        xmlConverter.close();
+
+        assertSameAsTwoStage(props, new String(xml, UTF_8));
+
+        props.put(XmlPluginsConfig.JSON_SCHEMAS_ENABLE_CONFIG, "true");
+        assertSameAsTwoStage(props, new String(xml, UTF_8));
+    }
+
+    @Test
+    public void wrongRootElement() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        final SerializationException thrown = assertThrows(SerializationException.class,
+            () -> converter.fromConnectData("TOPIC", Schema.STRING_SCHEMA, "<doc><a>1</a></doc>"));
+        assertEquals("Expected root element 'root' not found", thrown.getMessage());
+        converter.close();
+    }
+
+    @Test
+    public void nullValue() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        assertNull(converter.fromConnectData("TOPIC", null, null));
+        converter.close();
+    }
+
+    @Test
+    public void unsupported() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        final NotImplementedException thrown = assertThrows(NotImplementedException.class,
+            () -> converter.fromConnectData("TOPIC", Schema.INT32_SCHEMA, 1));
+        assertEquals("Unsupported value type java.lang.Integer", thrown.getMessage());
+        converter.close();
+    }
+
+    @Test
+    public void transformation() {
+        final Map<String, String> props = new HashMap<>();
+        props.put(XmlPluginsConfig.JSON_BRIDGE_ENABLE_CONFIG, "true");
+
+        final XmlTransformation<SourceRecord> transformation = new XmlTransformation<>();
+        transformation.configure(props);
+
+        final SourceRecord stringOutput = transformation.apply(new SourceRecord(null, null, "TOPIC", null, MIXED));
+        final SourceRecord bytesOutput = transformation.apply(new SourceRecord(null, null, "TOPIC", null, MIXED.getBytes(UTF_8)));
+        transformation.close();
+
+        final String expected = twoStage(props, MIXED);
+        assertEquals(Schema.STRING_SCHEMA, stringOutput.valueSchema());
+        assertEquals(expected, stringOutput.value());
+        assertEquals(Schema.BYTES_SCHEMA, bytesOutput.valueSchema());
+        assertArrayEquals(expected.getBytes(UTF_8), (byte[]) bytesOutput.value());
+    }
+
+
+
+    @Test
+    public void jsonToXml() throws Exception {
+        assertSameXmlAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), JSON);
+        assertSameXmlAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), "[" + JSON + ", [1, 2], null, \"z\"]");
+        assertSameXmlAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), "\uFEFF {} ");
+        assertSameXmlAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), "[]");
+        // leading zeros are allowed, and content after the value is ignored
+        assertSameXmlAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), "{\"a\": 007, \"b\": [-00, 00.50, -01e1, 0]} ]x");
+    }
+
+    @Test
+    public void jsonToXmlInDocumentOrder() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.customRootNoSchemasProps("msg"), false);
+
+        final SchemaAndValue output = converter.toConnectData("TOPIC", "{\"b\":1,\"a\":[\"x\",{\"c\":null}],\"9\":[[]]}".getBytes(UTF_8));
+        converter.close();
+
+        assertEquals(Schema.BYTES_SCHEMA, output.schema());
+        assertEquals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>" +
+                     "<msg><b>1</b><a>x</a><a><c/></a><entry><key>9</key><value/></entry></msg>",
+                     new String((byte[]) output.value(), UTF_8));
+    }
+
+    @Test
+    public void jsonNull() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        assertEquals(SchemaAndValue.NULL, converter.toConnectData("TOPIC", null));
+        assertEquals(SchemaAndValue.NULL, converter.toConnectData("TOPIC", new byte[0]));
+        assertEquals(SchemaAndValue.NULL, converter.toConnectData("TOPIC", " null ".getBytes(UTF_8)));
+        converter.close();
+    }
+
+    @Test
+    public void jsonScalars() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        for (final String json : new String[] { "\"text\"", "1", "1.5", "true" }) {
+            final NotImplementedException expected = assertThrows(NotImplementedException.class,
+                () -> twoStageXml(ConfigGenerators.defaultRootNoSchemasProps(), json));
+            final NotImplementedException thrown = assertThrows(NotImplementedException.class,
+                () -> converter.toConnectData("TOPIC", json.getBytes(UTF_8)));
+            assertEquals(expected.getMessage(), thrown.getMessage());
+        }
+        converter.close();
+    }
+
+    @Test
+    public void invalidJson() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        final String[] invalid = {
+            "{", "{\"a\"}", "{\"a\":1,}", "[1,]", "[1 2]", "{\"a\":1.}", "{\"a\":-}",
+            "{\"a\":\"\\x\"}", "{\"a\":\"\\u12\"}", "{\"a\":\"tab\there\"}", "{\"a\":\"unterminated}",
+            "{\"a\":tru}", "{a:1}", "{'a':1}", "[-]", "[NaN]", "[" + "[".repeat(1000) + "]".repeat(1000) + "]"
+        };
+        for (final String json : invalid) {
+            assertThrows(json, DataException.class, () -> twoStageXml(ConfigGenerators.defaultRootNoSchemasProps(), json));
+            assertThrows(json, DataException.class, () -> converter.toConnectData("TOPIC", json.getBytes(UTF_8)));
+        }
+
+        // invalid UTF-8
+        assertThrows(DataException.class, () -> converter.toConnectData("TOPIC", new byte[] { '[', '"', (byte) 0xC3, '"', ']' }));
+        assertThrows(DataException.class, () -> converter.toConnectData("TOPIC", new byte[] { '[', '"', (byte) 0xED, (byte) 0xA0, (byte) 0x80, '"', ']' }));
+        converter.close();
+    }
+
+    @Test
+    public void invalidElementName() {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(ConfigGenerators.defaultRootNoSchemasProps(), false);
+
+        final String json = "{\"a b\": null}";
+        assertThrows(SerializationException.class, () -> twoStageXml(ConfigGenerators.defaultRootNoSchemasProps(), json));
+        final SerializationException thrown = assertThrows(SerializationException.class,
+            () -> converter.toConnectData("TOPIC", json.getBytes(UTF_8)));
+        assertEquals("Invalid XML element name 'a b'", thrown.getMessage());
+        converter.close();
+    }
+
+    @Test
+    public void jsonWithSchemas() {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.JSON_SCHEMAS_ENABLE_CONFIG, "true");
+
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(props, false);
+
+        assertThrows(NotImplementedException.class, () -> converter.toConnectData("TOPIC", "{}".getBytes(UTF_8)));
+        converter.close();
+    }
+
+
+
+    private static void assertSameXmlAsTwoStage(Map<String, String> props, String json) throws Exception {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(props, false);
+        final SchemaAndValue output = converter.toConnectData("TOPIC", json.getBytes(UTF_8));
+        converter.close();
+
+        assertEquals(Schema.BYTES_SCHEMA, output.schema());
+        Comparisons.compareXmlIgnoringOrder(twoStageXml(props, json), (byte[]) output.value());
+    }
+
+    /**
+     * Converts the JSON using JsonConverter and then XmlConverter.
+     */
+    private static byte[] twoStageXml(Map<String, String> props, String json) {
+        final JsonConverter jsonConverter = new JsonConverter();
+        final Map<String, String> jsonConfig = new HashMap<>();
+        jsonConfig.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        jsonConfig.put(JsonConverterConfig.SCHEMAS_ENABLE_CONFIG, "false");
+        jsonConverter.configure(jsonConfig, false);
+        final SchemaAndValue parsed = jsonConverter.toConnectData("TOPIC", json.getBytes(UTF_8));
+        jsonConverter.close();
+
+        final XmlConverter xmlConverter = new XmlConverter();
+        xmlConverter.configure(props, false);
+        final byte[] xml = xmlConverter.fromConnectData("TOPIC", parsed.schema(), parsed.value());
+        xmlConverter.close();
+
+        return xml;
+    }
+
+    private static void assertSameAsTwoStage(Map<String, String> props, String xml) {
+        final XmlJsonConverter converter = new XmlJsonConverter();
+        converter.configure(props, false);
+        final byte[] fromBytes = converter.fromConnectData("TOPIC", Schema.BYTES_SCHEMA, xml.getBytes(UTF_8));
+        final byte[] fromString = converter.fromConnectData("TOPIC", Schema.STRING_SCHEMA, xml);
+        converter.close();
+
+        final String expected = twoStage(props, xml);
+        assertEquals(expected, new String(fromBytes, UTF_8));
+        assertEquals(expected, new String(fromString, UTF_8));
+    }
+
+    /**
+     * Converts the XML using XmlConverter and then JsonConverter.
+     */
+    private static String twoStage(Map<String, String> props, String xml) {
+        final XmlConverter xmlConverter = new XmlConverter();
+        xmlConverter.configure(props, false);
+        final SchemaAndValue parsed = xmlConverter.toConnectData("TOPIC", xml.getBytes(UTF_8));
+        xmlConverter.close();
+
+        final JsonConverter jsonConverter = new JsonConverter();
+        final Map<String, String> jsonConfig = new HashMap<>();
+        jsonConfig.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        jsonConfig.put(JsonConverterConfig.SCHEMAS_ENABLE_CONFIG,
+                       props.getOrDefault(XmlPluginsConfig.JSON_SCHEMAS_ENABLE_CONFIG, "false"));
+        jsonConverter.configure(jsonConfig, false);
+        final byte[] json = jsonConverter.fromConnectData("TOPIC", parsed.schema(), parsed.value());
+        jsonConverter.close();
+
+        return new String(json, UTF_8);
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.source.SourceRecord;
+import org.junit.Test;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.RecordGenerators;
+
+public class XmlPredicateTest {
+
+    private final XmlPredicate<SourceRecord> predicate = new XmlPredicate<>();
+
+    @Test
+    public void config() {
+        final ConfigDef configSpec = predicate.config();
+        assertTrue(configSpec.configKeys().containsKey(XmlPluginsConfig.XML_PREDICATE_EXPRESSION_CONFIG));
+    }
+
+    @Test
+    public void strings() {
+        configure("/root/test-3 = 'xyz'");
+        assertTrue(predicate.test(RecordGenerators.string("000")));
+
+        configure("/root/test-3 != 'xyz'");
+        assertFalse(predicate.test(RecordGenerators.string("000")));
+    }
+
+    @Test
+    public void bytes() {
+        configure("/root/test-4");
+        assertTrue(predicate.test(RecordGenerators.bytes("000")));
+
+        configure("/root/test-5");
+        assertFalse(predicate.test(RecordGenerators.bytes("000")));
+    }
+
+    @Test
+    public void nullValues() {
+        configure("/root");
+        assertFalse(predicate.test(RecordGenerators.nullString()));
+    }
+
+    @Test
+    public void unsupported() {
+        configure("/root");
+        final NotImplementedException thrown = assertThrows(NotImplementedException.class,
+            () -> predicate.test(RecordGenerators.integer()));
+        assertEquals("Unsupported value type java.lang.Integer", thrown.getMessage());
+    }
+
+    @Test
+    public void invalidExpressions() {
+        assertThrows(ConfigException.class, () -> predicate.configure(ConfigGenerators.defaultRootNoSchemasProps()));
+        assertThrows(ConfigException.class, () -> configure("root/test-1"));
+        assertThrows(ConfigException.class, () -> configure("/root/test-1 = xyz"));
+    }
+
+
+    private void configure(String expression) {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.XML_PREDICATE_EXPRESSION_CONFIG, expression);
+        predicate.configure(props);
+    }
+}
@@ -25,6 +25,7 @@ import static org.xmlunit.matchers.CompareMatcher.isIdenticalTo;
 import java.util.Map;
 
 import org.apache.kafka.common.config.ConfigDef;
+import org.apache.kafka.connect.data.Struct;
 import org.apache.kafka.connect.source.SourceRecord;
 import org.junit.Test;
 import org.xmlunit.builder.Input;
@@ -74,6 +75,26 @@ public class XmlTransformationTest {
         assertEquals(expected, output.value());
     }
 
+    @Test
+    public void nonAsciiStrings() {
+        for (final String parser : new String[] { XmlPluginsConfig.XML_PARSER_XSTREAM, XmlPluginsConfig.XML_PARSER_STAX }) {
+            final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+            props.put(XmlPluginsConfig.XML_PARSER_CONFIG, parser);
+            transformer.configure(props);
+
+            // String values have already been decoded, so the
+            //  encoding in the XML declaration doesn't apply
+            final String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>" +
+                "<root><test-1>123</test-1><test-2>1.23</test-2>" +
+                "<test-3>caf\u00e9 \u00fc \u4e2d</test-3><test-4>true</test-4></root>";
+            final SourceRecord output = transformer.apply(new SourceRecord(null, null, "TOPIC", null, xml));
+            assertEquals("caf\u00e9 \u00fc \u4e2d", ((Struct) output.value()).getString("test-3"));
+
+            final SourceRecord roundTrip = transformer.apply(output);
+            assertTrue(((String) roundTrip.value()).contains("<test-3>caf\u00e9 \u00fc \u4e2d</test-3>"));
+        }
+    }
+
     @Test
     public void reuse() {
         transformer.configure(ConfigGenerators.defaultRootNoSchemasProps());
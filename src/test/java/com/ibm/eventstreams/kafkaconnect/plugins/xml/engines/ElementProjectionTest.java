@@ -0,0 +1,236 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Schema.Type;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.json.JsonConverterConfig;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.apache.kafka.connect.storage.ConverterType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ByteGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+/**
+ * Checks that parsing only some element paths produces the same values
+ *  as parsing the whole document and then dropping everything else,
+ *  for all of the XmlToStructTest cases.
+ */
+@RunWith(Parameterized.class)
+public class ElementProjectionTest {
+
+    private final String currentTestCase;
+    private final boolean skip;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testCases() {
+        return XmlToStructTest.testCases();
+    }
+
+    public ElementProjectionTest(String testCase, boolean ambiguous, boolean skip) {
+        this.currentTestCase = testCase;
+        this.skip = skip;
+    }
+
+
+    @Test
+    public void withSchema() {
+        if (skip) {
+            return;
+        }
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps(currentTestCase);
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, XmlPluginsConfig.XML_PARSER_STAX);
+        final byte[] input = ByteGenerators.getXml(currentTestCase);
+        final SchemaAndValue full = new XmlBytesToStruct(new XmlPluginsConfig(props)).convert(input);
+
+        final List<String> paths = choosePaths(full.schema());
+        if (paths.isEmpty()) {
+            return;
+        }
+        props.put(XmlPluginsConfig.XML_PROJECTION_PATHS_CONFIG, String.join(",", paths));
+        final SchemaAndValue projected = new XmlBytesToStruct(new XmlPluginsConfig(props)).convert(input);
+
+        final List<String> expectedFields = paths.stream()
+            .map(path -> ElementProjection.splitPath(path)[1])
+            .collect(Collectors.toList());
+        final List<String> actualFields = projected.schema().fields().stream()
+            .map(Field::name)
+            .collect(Collectors.toList());
+        assertEquals(expectedFields, actualFields);
+
+        assertEquals(project(projected.schema(), full.value()), projected.value());
+    }
+
+    @Test
+    public void withSchemaToJson() {
+        if (skip) {
+            return;
+        }
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps(currentTestCase);
+        final byte[] input = ByteGenerators.getXml(currentTestCase);
+        final SchemaAndValue full = new XmlBytesToStruct(new XmlPluginsConfig(props)).convert(input);
+
+        final List<String> paths = choosePaths(full.schema());
+        if (paths.isEmpty()) {
+            return;
+        }
+        props.put(XmlPluginsConfig.XML_PROJECTION_PATHS_CONFIG, String.join(",", paths));
+        props.put(XmlPluginsConfig.JSON_SCHEMAS_ENABLE_CONFIG, "true");
+        final XmlPluginsConfig config = new XmlPluginsConfig(props);
+        final XmlBytesToStruct xmlToStruct = new XmlBytesToStruct(config);
+        final XmlToJsonBytes xmlToJson = new XmlToJsonBytes(config, xmlToStruct);
+
+        final SchemaAndValue projected = xmlToStruct.convert(input);
+        assertEquals(toJson(projected), new String(xmlToJson.convert(input), UTF_8));
+    }
+
+    @Test
+    public void withoutSchema() throws XMLStreamException {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        final byte[] input = ByteGenerators.getXml(currentTestCase);
+
+        final SchemaAndValue full;
+        try {
+            full = new XmlBytesToStruct(new XmlPluginsConfig(props)).convert(input);
+        }
+        catch (final RuntimeException exc) {
+            return;
+        }
+        final Map<?, ?> fullMap = (Map<?, ?>) full.value();
+        final String firstChild = firstChildElement(input);
+        if (firstChild == null) {
+            return;
+        }
+
+        props.put(XmlPluginsConfig.XML_PROJECTION_PATHS_CONFIG, "root/" + firstChild);
+        final XmlPluginsConfig config = new XmlPluginsConfig(props);
+        final XmlBytesToStruct xmlToStruct = new XmlBytesToStruct(config);
+        final SchemaAndValue projected = xmlToStruct.convert(input);
+
+        final Map<String, Object> expected = new HashMap<>();
+        expected.put(firstChild, fullMap.get(firstChild));
+        assertEquals(expected, projected.value());
+
+        final XmlToJsonBytes xmlToJson = new XmlToJsonBytes(config, xmlToStruct);
+        assertEquals(toJson(projected), new String(xmlToJson.convert(input), UTF_8));
+    }
+
+
+    /**
+     * Returns paths for the first field of the root struct (or the last
+     *  field within it, if it is a struct) and for the last field.
+     */
+    private static List<String> choosePaths(Schema schema) {
+        final List<String> paths = new ArrayList<>();
+        if (schema == null || schema.type() != Type.STRUCT || schema.fields().size() < 2) {
+            return paths;
+        }
+
+        final Field first = schema.fields().get(0);
+        final Schema firstSchema = first.schema().type() == Type.ARRAY ? first.schema().valueSchema() : first.schema();
+        if (firstSchema.type() == Type.STRUCT && firstSchema.fields().size() > 1) {
+            final Field nested = firstSchema.fields().get(firstSchema.fields().size() - 1);
+            paths.add("root/" + first.name() + "/" + nested.name());
+        }
+        else {
+            paths.add("/root/" + first.name());
+        }
+
+        if (schema.fields().size() > 2) {
+            paths.add("root/" + schema.fields().get(schema.fields().size() - 1).name());
+        }
+        return paths;
+    }
+
+    /**
+     * Returns the name of the first child of the root element.
+     *
+     * @return null if the root element doesn't have any children
+     */
+    private static String firstChildElement(byte[] input) throws XMLStreamException {
+        final XMLStreamReader reader = XmlBytesToStruct.XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(input));
+        try {
+            reader.nextTag();
+            final int event = reader.nextTag();
+            return event == XMLStreamConstants.START_ELEMENT ? reader.getLocalName() : null;
+        }
+        finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Copies the parts of a value that are in the provided projected schema.
+     */
+    private static Object project(Schema schema, Object value) {
+        if (value == null) {
+            return null;
+        }
+        switch (schema.type()) {
+            case STRUCT:
+                final Struct struct = (Struct) value;
+                final Struct projected = new Struct(schema);
+                for (final Field field : schema.fields()) {
+                    projected.put(field, project(field.schema(), struct.get(field.name())));
+                }
+                return projected;
+            case ARRAY:
+                final List<Object> items = new ArrayList<>();
+                for (final Object item : (List<?>) value) {
+                    items.add(project(schema.valueSchema(), item));
+                }
+                return items;
+            default:
+                return value;
+        }
+    }
+
+    private static String toJson(SchemaAndValue parsed) {
+        final JsonConverter jsonConverter = new JsonConverter();
+        final Map<String, String> jsonConfig = new HashMap<>();
+        jsonConfig.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        jsonConfig.put(JsonConverterConfig.SCHEMAS_ENABLE_CONFIG, Boolean.toString(parsed.schema() != null));
+        jsonConverter.configure(jsonConfig, false);
+        final byte[] json = jsonConverter.fromConnectData("TOPIC", parsed.schema(), parsed.value());
+        jsonConverter.close();
+        return new String(json, UTF_8);
+    }
+}
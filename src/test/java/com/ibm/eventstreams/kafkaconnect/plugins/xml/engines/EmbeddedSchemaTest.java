@@ -0,0 +1,124 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.Comparisons;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.StructGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.XmlUtils;
+
+@RunWith(Parameterized.class)
+public class EmbeddedSchemaTest {
+
+    private final String currentTestCase;
+    private final String xmlParser;
+
+    @Parameterized.Parameters(name = "{0} {1}")
+    public static Collection<Object[]> testCases() {
+        // test cases with schemas that are unambiguous when written
+        //  as XSD, so the parsed schema matches the original one
+        //
+        // not included:
+        //   008 - value omits required (choice) fields
+        //   047 - bytes values aren't encoded in the embedded schema
+        final String[] unambiguous = {
+            "000", "001", "002", "003", "006", "007", "009",
+            "027", "037", "052", "053"
+        };
+        final Collection<Object[]> testCases = new ArrayList<>();
+        for (final String testCase : unambiguous) {
+            testCases.add(new Object[] { testCase, XmlPluginsConfig.XML_PARSER_XSTREAM });
+            testCases.add(new Object[] { testCase, XmlPluginsConfig.XML_PARSER_STAX });
+        }
+        return testCases;
+    }
+
+    public EmbeddedSchemaTest(String testCase, String xmlParser) {
+        this.currentTestCase = testCase;
+        this.xmlParser = xmlParser;
+    }
+
+
+    @Test
+    public void parseUsingEmbeddedSchema() {
+        final SchemaAndValue input = StructGenerators.get(currentTestCase);
+        final byte[] xml = createDocument(input);
+
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.SCHEMAS_ENABLE_CONFIG, "true");
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, xmlParser);
+        final XmlBytesToStruct converter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+
+        final SchemaAndValue first = converter.convert(xml);
+        Comparisons.compareSchema(input.schema(), first.schema());
+        Comparisons.compareStruct((Struct) input.value(), (Struct) first.value());
+
+        // the embedded schema is only compiled once
+        final SchemaAndValue second = converter.convert(xml.clone());
+        assertSame(first.schema(), second.schema());
+        Comparisons.compareStruct((Struct) input.value(), (Struct) second.value());
+
+        // documents with a different embedded schema use their own schema
+        final SchemaAndValue other = StructGenerators.get("000".equals(currentTestCase) ? "001" : "000");
+        final SchemaAndValue third = converter.convert(createDocument(other));
+        Comparisons.compareSchema(other.schema(), third.schema());
+        assertNotSame(first.schema(), third.schema());
+        assertSame(first.schema(), converter.convert(xml).schema());
+    }
+
+    @Test
+    public void ignoreEmbeddedSchemaWithoutSchemas() {
+        final byte[] xml = createDocument(StructGenerators.get(currentTestCase));
+
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, xmlParser);
+        final XmlBytesToStruct converter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+        final SchemaAndValue converted = converter.convert(xml);
+
+        assertNull(converted.schema());
+        assertTrue(converted.value() instanceof Map);
+        assertFalse(((Map<?, ?>) converted.value()).containsKey("schema"));
+    }
+
+
+    private static byte[] createDocument(SchemaAndValue input) {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.SCHEMAS_ENABLE_CONFIG, "true");
+        final StructToXmlBytes converter = new StructToXmlBytes(new XmlPluginsConfig(props));
+
+        final byte[] xml = converter.convert(input.schema(), (Struct) input.value());
+        assertTrue(new String(xml, StandardCharsets.UTF_8).contains(XmlUtils.EMBEDDED_SCHEMA_REFERENCE));
+        return xml;
+    }
+}
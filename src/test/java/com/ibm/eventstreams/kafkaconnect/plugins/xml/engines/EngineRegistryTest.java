@@ -0,0 +1,107 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlConverter;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.FileGenerators;
+
+public class EngineRegistryTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void sharedForSameConfig() {
+        final int existing = EngineRegistry.size();
+
+        final EngineRegistry.Engines first = EngineRegistry.acquire(ConfigGenerators.withSchema("001"));
+        final EngineRegistry.Engines second = EngineRegistry.acquire(ConfigGenerators.withSchema("001"));
+
+        assertSame(first, second);
+        assertSame(first.xmlToStruct(), second.xmlToStruct());
+        assertSame(first.structToXml(), second.structToXml());
+        assertEquals(existing + 1, EngineRegistry.size());
+
+        EngineRegistry.release(first);
+        assertEquals(existing + 1, EngineRegistry.size());
+
+        EngineRegistry.release(second);
+        assertEquals(existing, EngineRegistry.size());
+    }
+
+    @Test
+    public void separateForDifferentConfig() {
+        final EngineRegistry.Engines first = EngineRegistry.acquire(ConfigGenerators.withSchema("001"));
+        final EngineRegistry.Engines second = EngineRegistry.acquire(ConfigGenerators.withSchema("002"));
+
+        assertNotSame(first, second);
+
+        EngineRegistry.release(first);
+        EngineRegistry.release(second);
+    }
+
+    @Test
+    public void separateForModifiedSchema() throws IOException {
+        final File xsd = tempFolder.newFile("schema.xsd");
+        Files.copy(FileGenerators.getXsd("000").toPath(), xsd.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_SCHEMA_EXTERNAL_PATH_CONFIG, xsd.getAbsolutePath());
+
+        final EngineRegistry.Engines first = EngineRegistry.acquire(new XmlPluginsConfig(props));
+
+        Files.copy(FileGenerators.getXsd("001").toPath(), xsd.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final EngineRegistry.Engines second = EngineRegistry.acquire(new XmlPluginsConfig(props));
+
+        assertNotSame(first, second);
+
+        EngineRegistry.release(first);
+        EngineRegistry.release(second);
+    }
+
+    @Test
+    public void sharedByKeyAndValueConverters() {
+        final int existing = EngineRegistry.size();
+
+        final XmlConverter keyConverter = new XmlConverter();
+        keyConverter.configure(ConfigGenerators.withSchemaProps("003"), true);
+        final XmlConverter valueConverter = new XmlConverter();
+        valueConverter.configure(ConfigGenerators.withSchemaProps("003"), false);
+
+        assertEquals(existing + 1, EngineRegistry.size());
+
+        keyConverter.close();
+        valueConverter.close();
+
+        assertEquals(existing, EngineRegistry.size());
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.json.JsonConverterConfig;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.apache.kafka.connect.storage.ConverterType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlConverter;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ByteGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.Comparisons;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+/**
+ * Checks that converting JSON straight into XML creates the same XML
+ *  as parsing the JSON with JsonConverter and writing the Maps and
+ *  Lists it creates with XmlConverter.
+ */
+@RunWith(Parameterized.class)
+public class JsonToXmlTest {
+
+    private final String currentTestCase;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> testCases() {
+        return Arrays.asList(new Object[][] {
+            { "000" }, { "001" }, { "002" }, { "003" }, { "004" }, { "005" }, { "006" },
+            { "007" }, { "008" }, { "009" }, { "010" }, { "025" }, { "027" }
+        });
+    }
+
+    public JsonToXmlTest(String testCase) {
+        this.currentTestCase = testCase;
+    }
+
+
+    @Test
+    public void json() throws Exception {
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), ByteGenerators.getJson(currentTestCase));
+    }
+
+    @Test
+    public void combinedJson() throws Exception {
+        // the schema envelope is read as an ordinary object without schemas
+        assertSameAsTwoStage(ConfigGenerators.defaultRootNoSchemasProps(), ByteGenerators.getCombinedJson(currentTestCase));
+    }
+
+    @Test
+    public void outputEncoding() throws Exception {
+        final Map<String, String> props = ConfigGenerators.customRootNoSchemasProps("msg");
+        props.put(XmlPluginsConfig.XML_OUTPUT_ENCODING_CONFIG, "1047");
+        assertSameAsTwoStage(props, ByteGenerators.getJson(currentTestCase));
+    }
+
+
+    private static void assertSameAsTwoStage(Map<String, String> props, byte[] json) throws Exception {
+        final byte[] expected = twoStage(props, json);
+        final byte[] actual = new JsonToXmlBytes(new XmlPluginsConfig(props)).convert(json);
+
+        final Charset charset = new XmlPluginsConfig(props).getOutputCharset();
+        assertEquals(declaration(expected, charset), declaration(actual, charset));
+        Comparisons.compareXmlIgnoringOrder(expected, actual);
+    }
+
+    private static byte[] twoStage(Map<String, String> props, byte[] json) {
+        final JsonConverter jsonConverter = new JsonConverter();
+        final Map<String, String> jsonProps = new HashMap<>();
+        jsonProps.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        jsonProps.put(JsonConverterConfig.SCHEMAS_ENABLE_CONFIG, "false");
+        jsonConverter.configure(jsonProps, false);
+
+        final XmlConverter xmlConverter = new XmlConverter();
+        xmlConverter.configure(props, false);
+        try {
+            final SchemaAndValue parsed = jsonConverter.toConnectData("topic", json);
+            return xmlConverter.fromConnectData("topic", parsed.schema(), parsed.value());
+        }
+        finally {
+            jsonConverter.close();
+            xmlConverter.close();
+        }
+    }
+
+    private static String declaration(byte[] xml, Charset charset) {
+        final String start = new String(xml, 0, Math.min(xml.length, 100), charset);
+        return start.substring(0, start.indexOf("?>") + 2);
+    }
+}
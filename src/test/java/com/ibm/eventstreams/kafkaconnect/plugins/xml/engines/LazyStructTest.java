@@ -0,0 +1,140 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.Test;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.MismatchingSchemaException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+public class LazyStructTest {
+
+    private static final String DOCUMENT = "<?xml version=\"1.0\"?>\n" +
+                                           "<!-- comment with <root> in it -->\n" +
+                                           "<root>\n" +
+                                           "    <test-1>123</test-1>\n" +
+                                           "    <test-2>not a float</test-2>\n" +
+                                           "    <!-- <test-3>ignored</test-3> -->\n" +
+                                           "    <test-3><![CDATA[x<y>z]]></test-3>\n" +
+                                           "    <test-4>true</test-4>\n" +
+                                           "</root>";
+
+
+    @Test
+    public void onlyReadFieldsAreDecoded() {
+        // the invalid float fails when the whole document is parsed
+        assertThrows(SerializationException.class, () -> parser(false).convert(DOCUMENT.getBytes(UTF_8)));
+
+        final SchemaAndValue parsed = parser(true).convert(DOCUMENT.getBytes(UTF_8));
+        final Struct struct = (Struct) parsed.value();
+        assertTrue(struct instanceof LazyStruct);
+
+        assertEquals("x<y>z", struct.getString("test-3"));
+        assertEquals(true, struct.getBoolean("test-4"));
+        assertEquals(123, struct.get("test-1"));
+
+        // the invalid float only fails when it is read
+        assertThrows(DataException.class, () -> struct.get("test-2"));
+    }
+
+    @Test
+    public void materialize() {
+        final String xml = DOCUMENT.replace("not a float", "1.5");
+        final Struct expected = (Struct) parser(false).convert(xml.getBytes(UTF_8)).value();
+        final LazyStruct lazy = (LazyStruct) parser(true).convert(xml.getBytes(UTF_8)).value();
+
+        // structs are only equal to structs of the same class
+        assertNotEquals(expected, lazy);
+        assertEquals(expected, lazy.materialize());
+        assertEquals(expected.toString(), lazy.toString());
+        assertEquals(parser(true).convert(xml.getBytes(UTF_8)).value(), lazy);
+    }
+
+    @Test
+    public void setFieldsAreNotDecoded() {
+        final LazyStruct lazy = (LazyStruct) parser(true).convert(DOCUMENT.getBytes(UTF_8)).value();
+        lazy.put("test-2", 2.5f);
+        assertEquals(2.5f, lazy.getFloat32("test-2"), 0);
+        lazy.validate();
+    }
+
+    @Test
+    public void encodedDocuments() {
+        final String xml = DOCUMENT.replace("<?xml version=\"1.0\"?>", "<?xml version=\"1.0\" encoding=\"IBM037\"?>")
+                                   .replace("not a float", "1.5")
+                                   .replace("x<y>z", "été");
+        final Charset ebcdic = Charset.forName("IBM037");
+        final XmlBytesToStruct parser = parser(true);
+
+        assertEquals("été", ((Struct) parser.convert(xml.getBytes(ebcdic)).value()).getString("test-3"));
+        assertEquals("été", ((Struct) parser.convert(xml.getBytes(ebcdic), ebcdic).value()).getString("test-3"));
+        assertEquals("été", ((Struct) parser.convert(xml).value()).getString("test-3"));
+    }
+
+    @Test
+    public void unexpectedElements() {
+        final String xml = DOCUMENT.replace("<test-4>true</test-4>", "<test-4>true</test-4><test-5/>");
+        assertThrows(MismatchingSchemaException.class, () -> parser(true).convert(xml.getBytes(UTF_8)));
+
+        // only schema elements with the embedded schema id are skipped
+        for (final String schema : new String[] { "<schema/>", "<schema id=\"other\"/>", "<schema xmlns:id=\"connectSchema\"/>" }) {
+            final String withSchema = "<root><test-1>1</test-1>" + schema + "</root>";
+            assertThrows(MismatchingSchemaException.class, () -> parser(false).convert(withSchema.getBytes(UTF_8)));
+            assertThrows(MismatchingSchemaException.class, () -> parser(true).convert(withSchema.getBytes(UTF_8)));
+        }
+        for (final String schema : new String[] { "<schema xmlns=\"urn:x\" id = 'connectSchema'><a/></schema>", "<schema x:id=\"connectSchema\" xmlns:x=\"urn:x\"/>" }) {
+            final String withSchema = "<root><test-1>1</test-1>" + schema + "</root>";
+            assertEquals(1, ((Struct) parser(false).convert(withSchema.getBytes(UTF_8)).value()).get("test-1"));
+            assertEquals(1, ((Struct) parser(true).convert(withSchema.getBytes(UTF_8)).value()).get("test-1"));
+        }
+    }
+
+    @Test
+    public void unexpectedRootElement() {
+        final String xml = DOCUMENT.replace("root>", "other>");
+        final SerializationException exc = assertThrows(SerializationException.class,
+            () -> parser(true).convert(xml.getBytes(UTF_8)));
+        assertEquals("Expected root element 'root' not found", exc.getMessage());
+    }
+
+    @Test
+    public void malformedDocuments() {
+        for (final String xml : new String[] { "<root><test-1>1</test-1>", "<root><test-1 a=\"1>", "<!-- <root/>" }) {
+            assertThrows(SerializationException.class, () -> parser(true).convert(xml.getBytes(UTF_8)));
+        }
+    }
+
+
+    private static XmlBytesToStruct parser(boolean lazy) {
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_LAZY_STRUCT_CONFIG, Boolean.toString(lazy));
+        return new XmlBytesToStruct(new XmlPluginsConfig(props));
+    }
+}
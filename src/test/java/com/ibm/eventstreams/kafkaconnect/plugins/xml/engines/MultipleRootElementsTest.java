@@ -0,0 +1,166 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+@RunWith(Parameterized.class)
+public class MultipleRootElementsTest {
+
+    private static final String XSD =
+        "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" +
+          "<xs:element name=\"payment\">" +
+            "<xs:complexType><xs:sequence>" +
+              "<xs:element name=\"amount\" type=\"xs:double\"/>" +
+              "<xs:element name=\"debtor\" type=\"party\"/>" +
+            "</xs:sequence></xs:complexType>" +
+          "</xs:element>" +
+          "<xs:element name=\"status\">" +
+            "<xs:complexType><xs:sequence>" +
+              "<xs:element name=\"code\" type=\"xs:string\"/>" +
+              "<xs:element name=\"party\" type=\"party\"/>" +
+            "</xs:sequence></xs:complexType>" +
+          "</xs:element>" +
+          "<xs:element name=\"cancellation\" type=\"xs:string\"/>" +
+          "<xs:complexType name=\"party\"><xs:sequence>" +
+            "<xs:element name=\"name\" type=\"xs:string\"/>" +
+          "</xs:sequence></xs:complexType>" +
+        "</xs:schema>";
+
+    private static final String PAYMENT = "<payment><amount>12.5</amount><debtor><name>Alice</name></debtor></payment>";
+    private static final String STATUS = "<status><code>ACCP</code><party><name>Bob</name></party></status>";
+    private static final String CANCELLATION = "<cancellation>duplicate</cancellation>";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private final String xmlParser;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parsers() {
+        return Arrays.asList(new Object[][] {
+            { XmlPluginsConfig.XML_PARSER_XSTREAM },
+            { XmlPluginsConfig.XML_PARSER_STAX }
+        });
+    }
+
+    public MultipleRootElementsTest(String xmlParser) {
+        this.xmlParser = xmlParser;
+    }
+
+
+    @Test
+    public void parseUsingSchemaForRootElement() throws IOException {
+        final XmlBytesToStruct converter = new XmlBytesToStruct(config("payment,status"));
+
+        final SchemaAndValue payment = converter.convert(PAYMENT.getBytes(UTF_8));
+        assertEquals("payment", payment.schema().name());
+        assertEquals(12.5, ((Struct) payment.value()).getFloat64("amount"), 0);
+        assertEquals("Alice", ((Struct) payment.value()).getStruct("debtor").getString("name"));
+
+        final SchemaAndValue status = converter.convert(STATUS.getBytes(UTF_8));
+        assertEquals("status", status.schema().name());
+        assertEquals("ACCP", ((Struct) status.value()).getString("code"));
+        assertEquals("Bob", ((Struct) status.value()).getStruct("party").getString("name"));
+
+        // named types are shared between root elements
+        assertSame(payment.schema().field("debtor").schema(), status.schema().field("party").schema());
+    }
+
+    @Test
+    public void rejectUnexpectedRootElement() throws IOException {
+        final XmlBytesToStruct converter = new XmlBytesToStruct(config("payment"));
+
+        converter.convert(PAYMENT.getBytes(UTF_8));
+        final SerializationException exc = assertThrows(SerializationException.class,
+                                                        () -> converter.convert(STATUS.getBytes(UTF_8)));
+        assertEquals("Unexpected root element 'status'", exc.getMessage());
+    }
+
+    @Test
+    public void acceptAllGlobalElements() throws IOException {
+        final XmlPluginsConfig config = config(XmlPluginsConfig.XML_ROOT_ELEMENT_NAMES_ALL);
+
+        final Map<String, Schema> schemas = new XsdToSchema(config).getSchemas(config.getXsdSchema(), config.getRootElementNames());
+        assertEquals(List.of("payment", "status", "cancellation"), List.copyOf(schemas.keySet()));
+
+        final XmlBytesToStruct converter = new XmlBytesToStruct(config);
+        assertEquals("ACCP", ((Struct) converter.convert(STATUS.getBytes(UTF_8)).value()).getString("code"));
+
+        final SchemaAndValue cancellation = converter.convert(CANCELLATION.getBytes(UTF_8));
+        assertEquals(Schema.STRING_SCHEMA, cancellation.schema());
+        assertEquals("duplicate", cancellation.value());
+    }
+
+    @Test
+    public void missingRootElement() throws IOException {
+        assertThrows(SerializationException.class, () -> new XmlBytesToStruct(config("payment,refund")));
+    }
+
+    @Test
+    public void cachedSchemas() throws IOException {
+        final File cache = tempFolder.newFolder("cache");
+        final XmlPluginsConfig config = config("payment,status", cache);
+
+        final Map<String, Schema> compiled = new XsdToSchema(config).getSchemas(config.getXsdSchema(), config.getRootElementNames());
+        final Map<String, Schema> cached = new XsdToSchema(config).getSchemas(config.getXsdSchema(), config.getRootElementNames());
+        assertEquals(compiled, cached);
+        assertSame(cached.get("payment").field("debtor").schema(), cached.get("status").field("party").schema());
+    }
+
+
+    private XmlPluginsConfig config(String rootElementNames) throws IOException {
+        return config(rootElementNames, null);
+    }
+
+    private XmlPluginsConfig config(String rootElementNames, File cache) throws IOException {
+        final File xsd = tempFolder.newFile();
+        Files.write(xsd.toPath(), XSD.getBytes(UTF_8));
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_SCHEMA_EXTERNAL_PATH_CONFIG, xsd.getAbsolutePath());
+        props.put(XmlPluginsConfig.XML_ROOT_ELEMENT_NAMES_CONFIG, rootElementNames);
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, xmlParser);
+        if (cache != null) {
+            props.put(XmlPluginsConfig.XML_SCHEMA_CACHE_PATH_CONFIG, cache.getAbsolutePath());
+        }
+        return new XmlPluginsConfig(props);
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Test;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+public class SchemaInferenceTest {
+
+    @Test
+    public void inferSchema() {
+        final SchemaAndValue converted = convert(converter(), 
+            "<root><id>1</id><name>Alice</name><score>2.5</score><active>true</active>" +
+            "<tag>a</tag><tag>b</tag><address type=\"home\"><city>Leeds</city></address></root>");
+
+        final Schema expected = SchemaBuilder.struct().name("root")
+            .field("id", Schema.OPTIONAL_INT32_SCHEMA)
+            .field("name", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("score", Schema.OPTIONAL_FLOAT64_SCHEMA)
+            .field("active", Schema.OPTIONAL_BOOLEAN_SCHEMA)
+            .field("tag", SchemaBuilder.array(Schema.OPTIONAL_STRING_SCHEMA).optional().build())
+            .field("address", SchemaBuilder.struct().optional()
+                .field("city", Schema.OPTIONAL_STRING_SCHEMA)
+                .field("type", Schema.OPTIONAL_STRING_SCHEMA)
+                .build())
+            .build();
+        assertEquals(expected, converted.schema());
+
+        final Struct value = (Struct) converted.value();
+        value.validate();
+        assertEquals(1, value.get("id"));
+        assertEquals(List.of("a", "b"), value.getArray("tag"));
+        assertEquals("home", value.getStruct("address").getString("type"));
+    }
+
+    @Test
+    public void sameShapeSharesSchema() {
+        final XmlBytesToStruct converter = converter();
+
+        final Schema first = convert(converter, "<root><id>1</id><tag>a</tag><tag>b</tag></root>").schema();
+        final Schema second = convert(converter, "<root><id>2</id><tag>c</tag><tag>d</tag><tag>e</tag></root>").schema();
+        assertSame(first, second);
+    }
+
+    @Test
+    public void widenForNewShapes() {
+        final XmlBytesToStruct converter = converter();
+
+        final SchemaAndValue first = convert(converter, "<root><id>1</id><tag>a</tag><note>x</note></root>");
+        final SchemaAndValue second = convert(converter, 
+            "<root><id>3000000000</id><tag>b</tag><tag>c</tag><note lang=\"en\">y</note><extra>false</extra></root>");
+
+        final Schema expected = SchemaBuilder.struct().name("root")
+            .field("id", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("tag", SchemaBuilder.array(Schema.OPTIONAL_STRING_SCHEMA).optional().build())
+            .field("note", SchemaBuilder.struct().optional()
+                .field("entry", Schema.OPTIONAL_STRING_SCHEMA)
+                .field("lang", Schema.OPTIONAL_STRING_SCHEMA)
+                .build())
+            .field("extra", Schema.OPTIONAL_BOOLEAN_SCHEMA)
+            .build();
+        assertNotSame(first.schema(), second.schema());
+        assertEquals(expected, second.schema());
+
+        // documents with shapes seen before use the widened schema
+        final SchemaAndValue third = convert(converter, "<root><id>2</id><tag>d</tag><note>z</note></root>");
+        assertSame(second.schema(), third.schema());
+
+        final Struct value = (Struct) third.value();
+        value.validate();
+        assertEquals(2L, value.get("id"));
+        assertEquals(List.of("d"), value.getArray("tag"));
+        assertEquals("z", value.getStruct("note").getString("entry"));
+        assertNull(value.getStruct("note").getString("lang"));
+        assertNull(value.get("extra"));
+    }
+
+    @Test
+    public void widenConflictingTypes() {
+        final XmlBytesToStruct converter = converter();
+
+        convert(converter, "<root><amount>5</amount><code>12</code></root>");
+        final SchemaAndValue converted = convert(converter, "<root><amount>5.5</amount><code>AB</code></root>");
+        assertEquals(Schema.OPTIONAL_FLOAT64_SCHEMA, converted.schema().field("amount").schema());
+        assertEquals(Schema.OPTIONAL_STRING_SCHEMA, converted.schema().field("code").schema());
+
+        final Struct value = (Struct) convert(converter, "<root><amount>5</amount><code>12</code></root>").value();
+        assertEquals(5.0, value.getFloat64("amount"), 0);
+        assertEquals("12", value.getString("code"));
+    }
+
+    @Test
+    public void concurrentWidening() throws Exception {
+        final int threads = 8;
+        final int shapes = 64;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 10; round++) {
+                final XmlBytesToStruct converter = converter();
+                final CountDownLatch start = new CountDownLatch(1);
+
+                // threads convert pairs of documents of each shape (so the
+                //  most recent shape is reused), which widen the schema the
+                //  first time each shape is seen
+                final List<Future<Void>> results = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int first = t;
+                    final Callable<Void> worker = () -> {
+                        start.await();
+                        int fields = 0;
+                        for (int i = 0; i < 200; i++) {
+                            final Schema schema = convert(converter, document((first * 8 + i / 2) % shapes)).schema();
+
+                            // once a thread has seen a widened schema, it
+                            //  never gets a schema from before it was widened
+                            assertTrue(schema.fields().size() >= fields);
+                            fields = schema.fields().size();
+                        }
+                        return null;
+                    };
+                    results.add(executor.submit(worker));
+                }
+                start.countDown();
+                for (final Future<Void> result : results) {
+                    result.get(60, TimeUnit.SECONDS);
+                }
+
+                // documents of every shape use the fully widened schema
+                final Schema widened = convert(converter, document(0)).schema();
+                assertEquals(shapes, widened.fields().size());
+                for (int shape = 0; shape < shapes; shape++) {
+                    assertSame(widened, convert(converter, document(shape)).schema());
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fingerprintIgnoresRepeatedItemShapes() {
+        assertEquals(SchemaInference.fingerprint(Map.of("a", List.of(1, 2))),
+                     SchemaInference.fingerprint(Map.of("a", List.of(1, 2, 3))));
+        assertEquals(SchemaInference.fingerprint(Map.of("a", List.of(1, "x", 2))),
+                     SchemaInference.fingerprint(Map.of("a", List.of(3, "y", 4))));
+    }
+
+
+    private static XmlBytesToStruct converter() {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.XML_SCHEMA_INFERENCE_CONFIG, "true");
+        return new XmlBytesToStruct(new XmlPluginsConfig(props));
+    }
+
+    private static SchemaAndValue convert(XmlBytesToStruct converter, String xml) {
+        return converter.convert(xml.getBytes(UTF_8));
+    }
+
+    private static String document(int shape) {
+        return "<root><field-" + shape + ">x</field-" + shape + "></root>";
+    }
+}
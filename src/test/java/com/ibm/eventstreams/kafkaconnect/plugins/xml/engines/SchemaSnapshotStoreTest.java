@@ -0,0 +1,158 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.FileGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.utils.PluginVersion;
+
+public class SchemaSnapshotStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void roundTripCompiledSchemas() throws IOException {
+        final SchemaSnapshotStore store = new SchemaSnapshotStore(tempFolder.newFolder("cache"));
+
+        for (final Object[] testCase : XsdToSchemaTest.testCases()) {
+            final String testCaseId = (String) testCase[0];
+            final XmlPluginsConfig config = ConfigGenerators.withSchema(testCaseId);
+            final byte[] xsd = Files.readAllBytes(config.getXsdSchema().toPath());
+            final Schema compiled = new XsdToSchema(config).getSchema();
+
+            assertNull(store.load(xsd, config.getRootElementName()));
+            store.save(xsd, config.getRootElementName(), compiled);
+            assertEquals(testCaseId, compiled, store.load(xsd, config.getRootElementName()));
+        }
+    }
+
+    @Test
+    public void roundTripSchemaDetails() throws IOException {
+        final Schema shared = SchemaBuilder.string().optional().doc("shared").build();
+        final Schema schema = SchemaBuilder.struct()
+                .name("root")
+                .version(3)
+                .parameter("key", "value")
+                .field("first", shared)
+                .field("second", shared)
+                .field("list", SchemaBuilder.array(Schema.BYTES_SCHEMA).optional().build())
+                .field("map", SchemaBuilder.map(Schema.STRING_SCHEMA, shared).build())
+                .field("empty", SchemaBuilder.struct().build())
+                .build();
+
+        final SchemaSnapshotStore store = new SchemaSnapshotStore(tempFolder.newFolder("cache"));
+        final byte[] xsd = "<xs:schema/>".getBytes();
+        store.save(xsd, "root", schema);
+
+        final Schema loaded = store.load(xsd, "root");
+        assertEquals(schema, loaded);
+        assertSame(loaded.field("first").schema(), loaded.field("second").schema());
+        assertSame(loaded.field("first").schema(), loaded.field("map").schema().valueSchema());
+
+        // different root elements have separate snapshots
+        assertNull(store.load(xsd, "other"));
+    }
+
+    @Test
+    public void schemaLoadedFromSnapshot() throws IOException {
+        final File cache = tempFolder.newFolder("cache");
+        final XmlPluginsConfig config = withCache("000", cache);
+        final byte[] xsd = Files.readAllBytes(config.getXsdSchema().toPath());
+
+        final Schema compiled = new XsdToSchema(config).getSchema();
+        assertEquals(compiled, new SchemaSnapshotStore(cache).load(xsd, config.getRootElementName()));
+
+        // replace the snapshot, to identify when it is used
+        final Schema planted = SchemaBuilder.struct().name("planted").build();
+        new SchemaSnapshotStore(cache).save(xsd, config.getRootElementName(), planted);
+
+        assertEquals(planted, new XsdToSchema(config).getSchema());
+    }
+
+    @Test
+    public void schemaRecompiledWhenModified() throws IOException {
+        final File cache = tempFolder.newFolder("cache");
+        final File xsdFile = tempFolder.newFile("schema.xsd");
+        Files.copy(FileGenerators.getXsd("000").toPath(), xsdFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_SCHEMA_EXTERNAL_PATH_CONFIG, xsdFile.getAbsolutePath());
+        props.put(XmlPluginsConfig.XML_SCHEMA_CACHE_PATH_CONFIG, cache.getAbsolutePath());
+        final XmlPluginsConfig config = new XmlPluginsConfig(props);
+
+        final Schema original = new XsdToSchema(config).getSchema();
+
+        Files.copy(FileGenerators.getXsd("001").toPath(), xsdFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        final Schema modified = new XsdToSchema(config).getSchema();
+
+        assertNotEquals(original, modified);
+        assertEquals(new XsdToSchema(ConfigGenerators.withSchema("001")).getSchema(), modified);
+    }
+
+    @Test
+    public void unusableSnapshotsIgnored() throws IOException {
+        final File cache = tempFolder.newFolder("cache");
+        final XmlPluginsConfig config = withCache("000", cache);
+        final byte[] xsd = Files.readAllBytes(config.getXsdSchema().toPath());
+        final Schema compiled = new XsdToSchema(config).getSchema();
+
+        final File[] snapshots = cache.listFiles();
+        assertEquals(1, snapshots.length);
+        final Path snapshot = snapshots[0].toPath();
+        final byte[] contents = Files.readAllBytes(snapshot);
+
+        // truncated
+        Files.write(snapshot, Arrays.copyOf(contents, contents.length / 2));
+        assertEquals(compiled, new XsdToSchema(config).getSchema());
+        assertEquals(compiled, new SchemaSnapshotStore(cache).load(xsd, config.getRootElementName()));
+
+        // created by a different version of the plug-ins
+        final String version = PluginVersion.get();
+        final String otherVersion = version.replaceAll(".", "x");
+        Files.write(snapshot, new String(contents, ISO_8859_1).replace(version, otherVersion).getBytes(ISO_8859_1));
+        assertNull(new SchemaSnapshotStore(cache).load(xsd, config.getRootElementName()));
+        assertEquals(compiled, new XsdToSchema(config).getSchema());
+    }
+
+
+    private static XmlPluginsConfig withCache(String testCase, File cache) {
+        final Map<String, String> props = ConfigGenerators.withSchemaProps(testCase);
+        props.put(XmlPluginsConfig.XML_SCHEMA_CACHE_PATH_CONFIG, cache.getAbsolutePath());
+        return new XmlPluginsConfig(props);
+    }
+}
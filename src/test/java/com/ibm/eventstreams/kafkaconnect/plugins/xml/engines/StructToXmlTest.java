@@ -199,4 +199,40 @@ public class StructToXmlTest {
                     .ignoreWhitespace()
                     .ignoreComments());
     }
+
+
+    @Test
+    public void repeatedSchemas() {
+        if (!runWithSchema) {
+            return;
+        }
+
+        // the same converter is reused so that the second record is
+        //  written using the cached plan and schema definition
+        final XmlPluginsConfig config = ConfigGenerators.withSchema(currentTestCase);
+        final StructToXmlBytes converter = new StructToXmlBytes(config);
+
+        for (int i = 0; i < 2; i++) {
+            final SchemaAndValue input = StructGenerators.get(currentTestCase);
+
+            byte[] output = new byte[0];
+            if (input.value() instanceof Struct) {
+                output = converter.convert(input.schema(), (Struct) input.value());
+            }
+            else if (input.value() instanceof Collection) {
+                output = converter.convert(input.schema(), (Collection<?>) input.value());
+            }
+            else if (input.value() instanceof Map) {
+                output = converter.convert(input.schema(), (Map<?, ?>) input.value());
+            }
+
+            final Source expected = Input.fromFile(FileGenerators.getCombined(currentTestCase)).build();
+
+            assertThat(
+                    Input.fromByteArray(output),
+                    isIdenticalTo(expected)
+                        .ignoreWhitespace()
+                        .ignoreComments());
+        }
+    }
 }
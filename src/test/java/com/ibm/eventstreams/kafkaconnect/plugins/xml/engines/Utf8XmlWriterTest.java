@@ -0,0 +1,122 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Checks that the streaming writer produces the same bytes as
+ *  serializing an equivalent DOM document with the JAXP transformer.
+ */
+@RunWith(Parameterized.class)
+public class Utf8XmlWriterTest {
+
+    private final String value;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testCases() {
+        return Arrays.asList(new Object[][] {
+            { "" },
+            { "simple" },
+            { "  leading and trailing spaces  " },
+            { "markup & < > \" ' ]]>" },
+            { "line one\nline two\r\nline three\ttabbed" },
+            { "control \u0001 \u001f \u007f \u0085 \u009f" },
+            { "non-ascii \u00e9 \u00a0 \u4e2d \u2028 \ufffd" },
+            { "supplementary \ud83d\ude00" }
+        });
+    }
+
+    public Utf8XmlWriterTest(String value) {
+        this.value = value;
+    }
+
+
+    @Test
+    public void matchesTransformerOutput() throws Exception {
+        final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+        final Element root = doc.createElement("root");
+        doc.appendChild(root);
+        root.setAttribute("b", value);
+        root.setAttribute("a", value);
+        final Element child = doc.createElement("child");
+        child.appendChild(doc.createTextNode(value));
+        root.appendChild(child);
+        root.appendChild(doc.createElement("empty"));
+
+        final Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        transformer.setOutputProperty(OutputKeys.ENCODING, UTF_8.name());
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        transformer.transform(new DOMSource(doc), new StreamResult(expected));
+
+        final Utf8XmlWriter writer = new Utf8XmlWriter(16);
+        writer.writeDeclaration(false);
+        writer.startElement("root");
+        writer.attribute("a", value);
+        writer.attribute("b", value);
+        writer.textElement("child", value);
+        writer.emptyElement("empty");
+        writer.endElement();
+
+        assertArrayEquals(expected.toByteArray(), writer.toByteArray());
+    }
+
+    @Test
+    public void stringMatchesBytes() {
+        final Utf8XmlWriter writer = new Utf8XmlWriter(16);
+        writer.writeDeclaration(true);
+        writer.startElement("root");
+        writer.attribute("a", value);
+        writer.textElement("child", value);
+        writer.endElement();
+
+        assertEquals(new String(writer.toByteArray(), UTF_8), writer.toXmlString());
+    }
+
+    @Test
+    public void charSequenceMatchesString() {
+        final Utf8XmlWriter fromString = new Utf8XmlWriter(16);
+        fromString.startElement("root");
+        fromString.text(value);
+        fromString.endElement();
+
+        final Utf8XmlWriter fromChars = new Utf8XmlWriter(16);
+        fromChars.startElement("root");
+        fromChars.text(new StringBuilder(value));
+        fromChars.endElement();
+
+        assertEquals(fromString.toXmlString(), fromChars.toXmlString());
+    }
+}
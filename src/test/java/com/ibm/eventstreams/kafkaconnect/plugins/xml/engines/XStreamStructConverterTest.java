@@ -99,7 +99,8 @@ public class XStreamStructConverterTest {
 
     @Test
     public void runTestCase() {
-        final XStreamStructConverter converter = new XStreamStructConverter();
+        final SchemaAndValue expected = ambiguous ? StructGenerators.generic(currentTestCase) : StructGenerators.get(currentTestCase);
+        final XStreamStructConverter converter = new XStreamStructConverter(expected.schema());
 
         final String ROOT = "root";
 
@@ -108,9 +109,6 @@ public class XStreamStructConverterTest {
         xstream.registerConverter(converter);
         xstream.alias(ROOT, Struct.class);
 
-        final SchemaAndValue expected = ambiguous ? StructGenerators.generic(currentTestCase) : StructGenerators.get(currentTestCase);
-        converter.registerSchema(expected.schema());
-
         final File input = FileGenerators.getXml(currentTestCase);
         final Object output = xstream.fromXML(input);
 
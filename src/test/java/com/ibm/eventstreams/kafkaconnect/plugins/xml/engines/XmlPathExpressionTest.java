@@ -0,0 +1,127 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.Test;
+
+public class XmlPathExpressionTest {
+
+    private static final String ORDER = "<?xml version=\"1.0\"?>\n" +
+                                        "<ord:Order xmlns:ord=\"urn:orders\" type=\"RUSH\" id=\"1\">\n" +
+                                        "    <!-- <Status>ignored</Status> -->\n" +
+                                        "    <ord:Customer tier=\"GOLD\"><Name>A &amp; B</Name></ord:Customer>\n" +
+                                        "    <Line sku=\"X\"><Qty>1</Qty></Line>\n" +
+                                        "    <Line sku=\"Y\" gift=\"true\"><Qty>2</Qty></Line>\n" +
+                                        "    <Status><![CDATA[NEW]]></Status>\n" +
+                                        "    <Note/>\n" +
+                                        "</ord:Order>";
+
+
+    @Test
+    public void exists() {
+        assertTrue(test("/Order", ORDER));
+        assertTrue(test("/Order/Note", ORDER));
+        assertTrue(test("/Order/Customer/Name", ORDER));
+        assertTrue(test("/Order/@type", ORDER));
+        assertTrue(test("/Order/Line/@gift", ORDER));
+        assertFalse(test("/Order/Name", ORDER));
+        assertFalse(test("/Order/Customer/@type", ORDER));
+        assertFalse(test("/Other", ORDER));
+    }
+
+    @Test
+    public void attributeValues() {
+        assertTrue(test("/Order/@type = 'RUSH'", ORDER));
+        assertFalse(test("/Order/@type = 'RUS'", ORDER));
+        assertTrue(test("/Order/@type != \"STANDARD\"", ORDER));
+        assertTrue(test("/ord:Order/ord:Customer/@tier='GOLD'", ORDER));
+    }
+
+    @Test
+    public void elementValues() {
+        assertTrue(test("/Order/Status = 'NEW'", ORDER));
+        assertTrue(test("/Order/Customer/Name = 'A & B'", ORDER));
+        assertTrue(test("/Order/Customer = 'A & B'", ORDER));
+        assertTrue(test("/Order/Note = ''", ORDER));
+        assertFalse(test("/Order/Status = 'NEWER'", ORDER));
+        assertFalse(test("/Order/Status = 'NE'", ORDER));
+        assertTrue(test("/Order/Status != 'NE'", ORDER));
+    }
+
+    @Test
+    public void firstMatch() {
+        // comparisons use the first element that the path matches
+        assertTrue(test("/Order/Line/Qty = '1'", ORDER));
+        assertFalse(test("/Order/Line/Qty = '2'", ORDER));
+        assertTrue(test("/Order/Line/@sku = 'X'", ORDER));
+
+        // comparisons without a match are always false
+        assertFalse(test("/Order/Missing = 'x'", ORDER));
+        assertFalse(test("/Order/Missing != 'x'", ORDER));
+    }
+
+    @Test
+    public void earlyTermination() {
+        // the rest of the document isn't read once the result is known
+        final String truncated = ORDER.substring(0, ORDER.indexOf("<Line sku=\"Y\"")) + "<<<";
+        assertTrue(test("/Order/@type = 'RUSH'", truncated));
+        assertFalse(test("/Order/@type = 'OTHER'", truncated));
+        assertTrue(test("/Order/Line/Qty = '1'", truncated));
+        assertFalse(test("/Other/Line", truncated));
+        assertThrows(SerializationException.class, () -> test("/Order/Status", truncated));
+    }
+
+    @Test
+    public void encodedDocuments() {
+        final String xml = ORDER.replace("<?xml version=\"1.0\"?>", "<?xml version=\"1.0\" encoding=\"IBM037\"?>")
+                                .replace("NEW", "été");
+        final XmlPathExpression expression = XmlPathExpression.compile("/Order/Status = 'été'");
+        assertTrue(expression.test(xml.getBytes(Charset.forName("IBM037"))));
+        assertTrue(expression.test(xml));
+    }
+
+    @Test
+    public void compile() {
+        assertEquals("/Order/Line/@sku = 'X'", XmlPathExpression.compile("  /ord:Order/Line/@sku='X' ").toString());
+        assertEquals("/Order/Status != 'a = b'", XmlPathExpression.compile("/Order/Status != \"a = b\"").toString());
+        assertEquals("/Order", XmlPathExpression.compile("/Order").toString());
+    }
+
+    @Test
+    public void invalidExpressions() {
+        for (final String expression : Arrays.asList("", "/", "Order", "/Order/", "/Order//Status", "/@type",
+                                                     "/Order/@type/Status", "/Order/Status = NEW", "/Order/Status = 'NEW",
+                                                     "/Order/Status = 'NEW\"", "/Order/Status = 'N'E'", "/Order/Sta tus",
+                                                     "/Order/Status == 'NEW'", "= 'NEW'")) {
+            assertThrows(expression, IllegalArgumentException.class, () -> XmlPathExpression.compile(expression));
+        }
+    }
+
+
+    private static boolean test(String expression, String xml) {
+        return XmlPathExpression.compile(expression).test(xml.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.junit.Test;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+public class XmlStreamToMapTest {
+
+    private static final String PAYMENT = "<Document version=\"8\">" +
+                                              "<GrpHdr id=\"hdr\">" +
+                                                  "<MsgId>MSG-1</MsgId>" +
+                                                  "<CreDtTm>2023-10-01T12:00:00</CreDtTm>" +
+                                                  "<NbOfTxs>2</NbOfTxs>" +
+                                              "</GrpHdr>" +
+                                              "<PmtInf>" +
+                                                  "<Amt ccy=\"EUR\">10.5</Amt>" +
+                                                  "<Dbtr><Nm>A</Nm></Dbtr>" +
+                                              "</PmtInf>" +
+                                              "<PmtInf>" +
+                                                  "<Amt ccy=\"GBP\">20</Amt>" +
+                                                  "<Dbtr><Nm>B</Nm></Dbtr>" +
+                                              "</PmtInf>" +
+                                          "</Document>";
+
+
+    @Test
+    public void nestedPaths() {
+        final SchemaAndValue parsed = parse(PAYMENT, "Document/GrpHdr/MsgId", "/Document/PmtInf/Amt");
+        assertNull(parsed.schema());
+
+        // attributes of the elements leading to the kept elements are dropped
+        final Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("GrpHdr", Collections.singletonMap("MsgId", "MSG-1"));
+        expected.put("PmtInf", Arrays.asList(
+            Collections.singletonMap("Amt", amount("EUR", 10.5)),
+            Collections.singletonMap("Amt", amount("GBP", 20))));
+        assertEquals(expected, parsed.value());
+    }
+
+    @Test
+    public void wholeElement() {
+        final SchemaAndValue parsed = parse(PAYMENT, "Document/GrpHdr");
+
+        final Map<String, Object> header = new LinkedHashMap<>();
+        header.put("MsgId", "MSG-1");
+        header.put("CreDtTm", "2023-10-01T12:00:00");
+        header.put("NbOfTxs", 2);
+        header.put("id", "hdr");
+        assertEquals(Collections.singletonMap("GrpHdr", header), parsed.value());
+    }
+
+    @Test
+    public void missingElements() {
+        final SchemaAndValue parsed = parse(PAYMENT, "Document/GrpHdr/Missing", "Document/PmtInf/Dbtr/Nm", "Other/GrpHdr");
+
+        // elements that don't contain any kept elements are left out
+        final Map<String, Object> expected = Collections.singletonMap("PmtInf", Arrays.asList(
+            Collections.singletonMap("Dbtr", Collections.singletonMap("Nm", "A")),
+            Collections.singletonMap("Dbtr", Collections.singletonMap("Nm", "B"))));
+        assertEquals(expected, parsed.value());
+    }
+
+    @Test
+    public void unexpectedRootElement() {
+        final SerializationException exc = assertThrows(SerializationException.class,
+            () -> parse(PAYMENT.replace("Document", "Other"), "Document/GrpHdr"));
+        assertEquals("Expected root element 'Document' not found", exc.getMessage());
+    }
+
+    @Test
+    public void invalidPaths() {
+        for (final String path : Arrays.asList("Document//MsgId", "Document/GrpHdr/", "/")) {
+            final Map<String, String> props = ConfigGenerators.customRootNoSchemasProps("Document");
+            props.put(XmlPluginsConfig.XML_PROJECTION_PATHS_CONFIG, path);
+            assertThrows(ConfigException.class, () -> new XmlPluginsConfig(props));
+        }
+    }
+
+
+    private static SchemaAndValue parse(String xml, String... paths) {
+        final Map<String, String> props = ConfigGenerators.customRootNoSchemasProps("Document");
+        props.put(XmlPluginsConfig.XML_PROJECTION_PATHS_CONFIG, String.join(",", paths));
+        return new XmlBytesToStruct(new XmlPluginsConfig(props)).convert(xml.getBytes(UTF_8));
+    }
+
+    private static Map<String, Object> amount(String currency, Object value) {
+        final Map<String, Object> amount = new LinkedHashMap<>();
+        amount.put("ccy", currency);
+        amount.put("entry", value);
+        return amount;
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Collection;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ByteGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.Comparisons;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+/**
+ * Checks that the StAX parser produces the same values as
+ *  the XStream parser, and that lazy structs decode the same values
+ *  as the StAX parser, for all of the XmlToStructTest cases.
+ */
+@RunWith(Parameterized.class)
+public class XmlStreamToStructTest {
+
+    private final String currentTestCase;
+    private final boolean skip;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testCases() {
+        return XmlToStructTest.testCases();
+    }
+
+    public XmlStreamToStructTest(String testCase, boolean ambiguous, boolean skip) {
+        this.currentTestCase = testCase;
+        this.skip = skip;
+    }
+
+    @Test
+    public void runTestCase() {
+        if (skip) {
+            return;
+        }
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps(currentTestCase);
+        final XmlBytesToStruct xstreamConverter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, XmlPluginsConfig.XML_PARSER_STAX);
+        final XmlBytesToStruct staxConverter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+
+        final byte[] input = ByteGenerators.getXml(currentTestCase);
+        final SchemaAndValue expected = xstreamConverter.convert(input);
+        final SchemaAndValue output = staxConverter.convert(input);
+
+        Comparisons.compareSchema(expected.schema(), output.schema());
+        Comparisons.compareStruct((Struct) expected.value(), (Struct) output.value());
+
+        if (!"047".equals(currentTestCase)) {
+            assertEquals(expected, output);
+        }
+    }
+
+    @Test
+    public void lazyStruct() {
+        if (skip) {
+            return;
+        }
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps(currentTestCase);
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, XmlPluginsConfig.XML_PARSER_STAX);
+        final XmlBytesToStruct staxConverter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+
+        props.put(XmlPluginsConfig.XML_LAZY_STRUCT_CONFIG, "true");
+        final XmlBytesToStruct lazyConverter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+
+        final byte[] input = ByteGenerators.getXml(currentTestCase);
+        final SchemaAndValue expected = staxConverter.convert(input);
+        final SchemaAndValue output = lazyConverter.convert(input);
+
+        assertEquals(expected.schema(), output.schema());
+        final Object value = output.value() instanceof LazyStruct ? ((LazyStruct) output.value()).materialize() : output.value();
+        Comparisons.compareStruct((Struct) expected.value(), (Struct) value);
+        if (!"047".equals(currentTestCase)) {
+            assertEquals(expected.value(), value);
+        }
+    }
+}
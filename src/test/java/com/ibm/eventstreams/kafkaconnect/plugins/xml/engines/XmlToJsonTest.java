@@ -0,0 +1,128 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.json.JsonConverter;
+import org.apache.kafka.connect.json.JsonConverterConfig;
+import org.apache.kafka.connect.storage.ConverterConfig;
+import org.apache.kafka.connect.storage.ConverterType;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ByteGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+/**
+ * Checks that converting XML straight into JSON produces the same
+ *  bytes as parsing it into Connect values and then converting those
+ *  with JsonConverter, for all of the XmlToStructTest cases.
+ */
+@RunWith(Parameterized.class)
+public class XmlToJsonTest {
+
+    private final String currentTestCase;
+    private final boolean skip;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testCases() {
+        return XmlToStructTest.testCases();
+    }
+
+    public XmlToJsonTest(String testCase, boolean ambiguous, boolean skip) {
+        this.currentTestCase = testCase;
+        this.skip = skip;
+    }
+
+
+    @Test
+    public void withoutSchema() {
+        compare(ConfigGenerators.defaultRootNoSchemasProps(), false);
+    }
+
+    @Test
+    public void withoutSchemaWithJsonSchema() {
+        compare(ConfigGenerators.defaultRootNoSchemasProps(), true);
+    }
+
+    @Test
+    public void withoutTypeInference() {
+        final Map<String, String> props = ConfigGenerators.defaultRootNoSchemasProps();
+        props.put(XmlPluginsConfig.XML_TYPE_INFERENCE_CONFIG, "false");
+        compare(props, false);
+    }
+
+    @Test
+    public void withSchema() {
+        if (skip) {
+            return;
+        }
+        final Map<String, String> props = ConfigGenerators.withSchemaProps(currentTestCase);
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, XmlPluginsConfig.XML_PARSER_STAX);
+        compare(props, false);
+    }
+
+    @Test
+    public void withSchemaWithJsonSchema() {
+        if (skip) {
+            return;
+        }
+        final Map<String, String> props = ConfigGenerators.withSchemaProps(currentTestCase);
+        props.put(XmlPluginsConfig.XML_PARSER_CONFIG, XmlPluginsConfig.XML_PARSER_STAX);
+        compare(props, true);
+    }
+
+
+    private void compare(Map<String, String> props, boolean jsonSchemas) {
+        props.put(XmlPluginsConfig.JSON_SCHEMAS_ENABLE_CONFIG, Boolean.toString(jsonSchemas));
+        final XmlPluginsConfig config = new XmlPluginsConfig(props);
+        final XmlBytesToStruct xmlToStruct = new XmlBytesToStruct(config);
+        final XmlToJsonBytes xmlToJson = new XmlToJsonBytes(config, xmlToStruct);
+
+        final byte[] input = ByteGenerators.getXml(currentTestCase);
+
+        final SchemaAndValue parsed;
+        try {
+            parsed = xmlToStruct.convert(input);
+        }
+        catch (final RuntimeException exc) {
+            // documents that can't be parsed can't be converted either
+            assertThrows(exc.getClass(), () -> xmlToJson.convert(input));
+            return;
+        }
+
+        final JsonConverter jsonConverter = new JsonConverter();
+        final Map<String, String> jsonConfig = new HashMap<>();
+        jsonConfig.put(ConverterConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        jsonConfig.put(JsonConverterConfig.SCHEMAS_ENABLE_CONFIG, Boolean.toString(jsonSchemas));
+        jsonConverter.configure(jsonConfig, false);
+        final byte[] expected = jsonConverter.fromConnectData("TOPIC", parsed.schema(), parsed.value());
+        jsonConverter.close();
+
+        assertEquals(new String(expected, UTF_8), new String(xmlToJson.convert(input), UTF_8));
+        assertEquals(new String(expected, UTF_8), xmlToJson.convertToString(new String(input, UTF_8)));
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ByteGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.FileGenerators;
+
+public class XsdSchemaReloaderTest {
+
+    private static final long TIMEOUT_MS = 10000;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void reloadOnlyWhenContentsChange() throws IOException {
+        final File xsd = tempFolder.newFile("schema.xsd");
+        write(xsd, "original");
+
+        final AtomicInteger reloads = new AtomicInteger();
+        final XsdSchemaReloader<AtomicInteger> reloader = new XsdSchemaReloader<>(xsd, reloads, AtomicInteger::incrementAndGet);
+
+        reloader.check();
+        assertEquals(0, reloads.get());
+
+        // modified time changes, but the contents are the same
+        write(xsd, "original");
+        reloader.check();
+        assertEquals(0, reloads.get());
+
+        write(xsd, "modified");
+        reloader.check();
+        reloader.check();
+        assertEquals(1, reloads.get());
+        assertEquals(1, reloader.getReloadCount());
+        assertEquals(0, reloader.getReloadFailureCount());
+    }
+
+    @Test
+    public void countFailures() throws IOException {
+        final File xsd = tempFolder.newFile("schema.xsd");
+        write(xsd, "original");
+
+        final String target = "target";
+        final XsdSchemaReloader<String> reloader = new XsdSchemaReloader<>(xsd, target, t -> {
+            throw new IllegalStateException("invalid schema");
+        });
+        assertNull(reloader.getLastReloadFailure());
+
+        write(xsd, "modified");
+        reloader.check();
+
+        // not retried until modified again
+        reloader.check();
+
+        assertEquals(0, reloader.getReloadCount());
+        assertEquals(1, reloader.getReloadFailureCount());
+        assertEquals("invalid schema", reloader.getLastReloadFailure());
+    }
+
+    @Test
+    public void reloadModifiedSchema() throws Exception {
+        final File xsd = tempFolder.newFile("schema.xsd");
+        final String originalXsd = Files.readString(FileGenerators.getXsd("000").toPath(), UTF_8);
+        write(xsd, originalXsd);
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_SCHEMA_EXTERNAL_PATH_CONFIG, xsd.getAbsolutePath());
+        props.put(XmlPluginsConfig.XML_SCHEMA_RELOAD_INTERVAL_CONFIG, "20");
+        final XmlBytesToStruct converter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+
+        final byte[] input = ByteGenerators.getXml("000");
+        assertEquals(Schema.Type.FLOAT32, getTest2Type(converter.convert(input)));
+
+        try {
+            // modified schema is used for later messages
+            write(xsd, originalXsd.replace("\"xs:float\"", "\"xs:string\""));
+            waitFor(() -> getTest2Type(converter.convert(input)) == Schema.Type.STRING);
+
+            final ObjectName metrics = findMetrics(xsd);
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(metrics, "ReloadCount"));
+
+            // invalid schema is reported, and the previous schema still used
+            write(xsd, "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\"><xs:element");
+            waitFor(() -> getFailureCount(metrics) == 1L);
+            assertEquals(Schema.Type.STRING, getTest2Type(converter.convert(input)));
+        }
+        finally {
+            converter.close();
+        }
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(metricsPattern(xsd), null).isEmpty());
+    }
+
+    @Test
+    public void stopWhenTargetCollected() throws Exception {
+        final File xsd = tempFolder.newFile("schema.xsd");
+        write(xsd, "original");
+
+        final AtomicInteger reloads = new AtomicInteger();
+        Object target = new Object();
+        final XsdSchemaReloader<Object> reloader = new XsdSchemaReloader<>(xsd, target, t -> reloads.incrementAndGet());
+        reloader.start(20);
+        assertTrue(reloader.isStarted());
+        findMetrics(xsd);
+
+        // dropped without closing the reloader
+        target = null;
+        waitFor(() -> collectGarbage() && !reloader.isStarted());
+
+        assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(metricsPattern(xsd), null).isEmpty());
+        write(xsd, "modified");
+        reloader.check();
+        assertEquals(0, reloads.get());
+    }
+
+    @Test
+    public void releaseUnclosedConverter() throws Exception {
+        final File xsd = tempFolder.newFile("schema.xsd");
+        write(xsd, Files.readString(FileGenerators.getXsd("000").toPath(), UTF_8));
+
+        final WeakReference<XmlBytesToStruct> converter = createReloadingConverter(xsd);
+        findMetrics(xsd);
+
+        // the scheduled checks don't keep the converter reachable,
+        //  and stop once it has been collected
+        final ObjectName metrics = metricsPattern(xsd);
+        waitFor(() -> collectGarbage() && converter.get() == null);
+        waitFor(() -> ManagementFactory.getPlatformMBeanServer().queryNames(metrics, null).isEmpty());
+    }
+
+
+    private static WeakReference<XmlBytesToStruct> createReloadingConverter(File xsd) {
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_SCHEMA_EXTERNAL_PATH_CONFIG, xsd.getAbsolutePath());
+        props.put(XmlPluginsConfig.XML_SCHEMA_RELOAD_INTERVAL_CONFIG, "20");
+        final XmlBytesToStruct converter = new XmlBytesToStruct(new XmlPluginsConfig(props));
+        assertEquals(Schema.Type.FLOAT32, getTest2Type(converter.convert(ByteGenerators.getXml("000"))));
+        return new WeakReference<>(converter);
+    }
+
+    private static boolean collectGarbage() {
+        System.gc();
+        return true;
+    }
+
+
+    private static void write(File file, String contents) throws IOException {
+        final long previous = file.lastModified();
+        Files.writeString(file.toPath(), contents, UTF_8);
+
+        // make sure the change is noticed, even if the filesystem
+        //  has a coarse resolution for modified times
+        file.setLastModified(Math.max(previous + 2000, System.currentTimeMillis()));
+    }
+
+    private static Schema.Type getTest2Type(SchemaAndValue converted) {
+        return ((Struct) converted.value()).schema().field("test-2").schema().type();
+    }
+
+    private static ObjectName metricsPattern(File xsd) throws Exception {
+        return new ObjectName("com.ibm.eventstreams.kafkaconnect.plugins.xml:type=XsdSchemaReloader" +
+                              ",file=" + ObjectName.quote(xsd.getAbsolutePath()) + ",*");
+    }
+
+    private static ObjectName findMetrics(File xsd) throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final Set<ObjectName> names = server.queryNames(metricsPattern(xsd), null);
+        assertEquals(1, names.size());
+        return names.iterator().next();
+    }
+
+    private static long getFailureCount(ObjectName metrics) {
+        try {
+            return (Long) ManagementFactory.getPlatformMBeanServer().getAttribute(metrics, "ReloadFailureCount");
+        }
+        catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.met()) {
+            assertTrue("Timed out waiting for schema to be reloaded", System.currentTimeMillis() < deadline);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.engines;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.XmlPluginsConfig;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.exceptions.NotImplementedException;
+import com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils.ConfigGenerators;
+
+public class XsdToSchemaTypesTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void namedTypesShared() throws IOException {
+        final Schema schema = compile(
+            "<xs:element name=\"root\">" +
+              "<xs:complexType><xs:sequence>" +
+                "<xs:element name=\"billing\" type=\"address\"/>" +
+                "<xs:element name=\"shipping\" type=\"address\"/>" +
+                "<xs:element name=\"previous\" type=\"address\" maxOccurs=\"unbounded\"/>" +
+                "<xs:element name=\"other\" type=\"address\" minOccurs=\"0\"/>" +
+              "</xs:sequence></xs:complexType>" +
+            "</xs:element>" +
+            "<xs:complexType name=\"address\"><xs:sequence>" +
+              "<xs:element name=\"street\" type=\"xs:string\"/>" +
+              "<xs:element name=\"city\" type=\"xs:string\"/>" +
+            "</xs:sequence></xs:complexType>");
+
+        final Schema address = SchemaBuilder.struct()
+            .field("street", Schema.STRING_SCHEMA)
+            .field("city", Schema.STRING_SCHEMA)
+            .build();
+        assertEquals(address, schema.field("billing").schema());
+        assertSame(schema.field("billing").schema(), schema.field("shipping").schema());
+        assertSame(schema.field("billing").schema(), schema.field("previous").schema().valueSchema());
+        assertEquals(SchemaBuilder.struct()
+            .field("street", Schema.STRING_SCHEMA)
+            .field("city", Schema.STRING_SCHEMA)
+            .optional()
+            .build(), schema.field("other").schema());
+    }
+
+    @Test
+    public void unreachableTypesIgnored() throws IOException {
+        final Schema schema = compile(
+            "<xs:element name=\"root\">" +
+              "<xs:complexType><xs:sequence>" +
+                "<xs:element name=\"value\" type=\"xs:string\"/>" +
+              "</xs:sequence></xs:complexType>" +
+            "</xs:element>" +
+            "<xs:complexType name=\"unused\"><xs:sequence>" +
+              "<xs:element name=\"unsupported\" type=\"xs:QName\"/>" +
+            "</xs:sequence></xs:complexType>");
+
+        assertEquals(SchemaBuilder.struct().name("root").field("value", Schema.STRING_SCHEMA).build(), schema);
+    }
+
+    @Test
+    public void nestedDeclarationsNotSearched() throws IOException {
+        final Schema schema = compile(
+            "<xs:element name=\"root\">" +
+              "<xs:complexType><xs:sequence>" +
+                "<xs:element name=\"child\">" +
+                  "<xs:complexType><xs:simpleContent>" +
+                    "<xs:extension base=\"xs:int\"><xs:attribute name=\"id\" type=\"xs:string\"/></xs:extension>" +
+                  "</xs:simpleContent></xs:complexType>" +
+                "</xs:element>" +
+              "</xs:sequence></xs:complexType>" +
+            "</xs:element>");
+
+        final Schema child = SchemaBuilder.struct()
+            .field("entry", Schema.INT32_SCHEMA)
+            .field("id", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+        assertEquals(SchemaBuilder.struct().name("root").field("child", child).build(), schema);
+    }
+
+    @Test
+    public void recursiveTypesRejected() throws IOException {
+        assertThrows(NotImplementedException.class, () -> compile(
+            "<xs:element name=\"root\" type=\"node\"/>" +
+            "<xs:complexType name=\"node\"><xs:sequence>" +
+              "<xs:element name=\"child\" type=\"node\" minOccurs=\"0\"/>" +
+            "</xs:sequence></xs:complexType>"));
+    }
+
+
+    private Schema compile(String declarations) throws IOException {
+        final File xsd = tempFolder.newFile();
+        Files.write(xsd.toPath(),
+                    ("<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">" + declarations + "</xs:schema>").getBytes(UTF_8));
+
+        final Map<String, String> props = ConfigGenerators.withSchemaProps("000");
+        props.put(XmlPluginsConfig.XML_SCHEMA_EXTERNAL_PATH_CONFIG, xsd.getAbsolutePath());
+        return new XsdToSchema(new XmlPluginsConfig(props)).getSchema();
+    }
+}
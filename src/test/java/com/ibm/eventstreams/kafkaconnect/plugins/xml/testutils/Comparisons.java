@@ -20,18 +20,30 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.Schema.Type;
 import org.apache.kafka.connect.data.Struct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -47,6 +59,49 @@ public class Comparisons {
     }
 
 
+    /**
+     * Compares XML documents, ignoring the order of sibling elements
+     *  with different names (such as those created from the entries of
+     *  a HashMap). Siblings with the same name must be in the same order.
+     */
+    public static void compareXmlIgnoringOrder(byte[] expected, byte[] actual) throws Exception {
+        assertEquals(sortedXml(expected), sortedXml(actual));
+    }
+
+    private static String sortedXml(byte[] xml) throws Exception {
+        final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        sortChildren(doc.getDocumentElement());
+
+        final StringWriter out = new StringWriter();
+        TransformerFactory.newInstance().newTransformer().transform(new DOMSource(doc), new StreamResult(out));
+        return out.toString();
+    }
+
+    private static void sortChildren(Element element) {
+        final List<Element> children = new ArrayList<>();
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                children.add((Element) child);
+                sortChildren((Element) child);
+            }
+        }
+        // entries for names that aren't valid element names are identified by their key
+        children.sort(Comparator.comparing(Comparisons::sortKey));
+        for (final Element child : children) {
+            element.removeChild(child);
+            element.appendChild(child);
+        }
+    }
+
+    private static String sortKey(Element element) {
+        final Node first = element.getFirstChild();
+        if (element.getTagName().equals("entry") && first instanceof Element && ((Element) first).getTagName().equals("key")) {
+            return "entry " + first.getTextContent();
+        }
+        return element.getTagName();
+    }
+
+
     public static void compareSchema(Schema expected, Schema actual) {
         compareSchema(expected, actual, "");
     }
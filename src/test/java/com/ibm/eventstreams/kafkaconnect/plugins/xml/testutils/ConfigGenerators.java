@@ -15,6 +15,7 @@
  */
 package com.ibm.eventstreams.kafkaconnect.plugins.xml.testutils;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -85,4 +86,12 @@ public class ConfigGenerators {
         return props;
     }
 
+    public static Map<String, String> withSchemaStoreProps(File schemaStore) {
+        final Map<String, String> props = new HashMap<>();
+        props.put(XmlPluginsConfig.TYPE_CONFIG, ConverterType.VALUE.getName());
+        props.put(XmlPluginsConfig.XML_SCHEMA_STORE_PATH_CONFIG, schemaStore.getAbsolutePath());
+        props.put(XmlPluginsConfig.SCHEMAS_ENABLE_CONFIG, "true");
+        return props;
+    }
+
 }
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class CharsetUtilsTest {
+
+    @Test
+    public void charsetNames() {
+        assertEquals(StandardCharsets.UTF_8, CharsetUtils.forName("UTF-8"));
+        assertEquals(Charset.forName("IBM1047"), CharsetUtils.forName("IBM1047"));
+        assertEquals(Charset.forName("IBM1047"), CharsetUtils.forName("Cp1047"));
+    }
+
+    @Test
+    public void ccsids() {
+        assertEquals(StandardCharsets.UTF_8, CharsetUtils.forName("1208"));
+        assertEquals(StandardCharsets.ISO_8859_1, CharsetUtils.forName("819"));
+        assertEquals(StandardCharsets.UTF_16BE, CharsetUtils.forName("1200"));
+        assertEquals(Charset.forName("IBM037"), CharsetUtils.forName("37"));
+        assertEquals(Charset.forName("IBM500"), CharsetUtils.forName("500"));
+        assertEquals(Charset.forName("IBM1047"), CharsetUtils.forName(" 1047 "));
+    }
+
+    @Test
+    public void noEncoding() {
+        assertNull(CharsetUtils.forName(null));
+        assertNull(CharsetUtils.forName(""));
+    }
+
+    @Test
+    public void unsupportedEncodings() {
+        assertThrows(IllegalArgumentException.class, () -> CharsetUtils.forName("not-a-charset"));
+        assertThrows(IllegalArgumentException.class, () -> CharsetUtils.forName("99999"));
+    }
+}
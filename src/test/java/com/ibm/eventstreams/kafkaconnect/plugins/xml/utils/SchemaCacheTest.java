@@ -0,0 +1,88 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Test;
+
+public class SchemaCacheTest {
+
+    private static Schema createSchema(String name) {
+        return SchemaBuilder.struct()
+            .name(name)
+            .field("one", Schema.STRING_SCHEMA)
+            .field("two", Schema.OPTIONAL_INT32_SCHEMA)
+            .build();
+    }
+
+
+    @Test
+    public void computesOncePerSchema() {
+        final AtomicInteger loads = new AtomicInteger();
+        final SchemaCache<String> cache = new SchemaCache<>(schema -> {
+            loads.incrementAndGet();
+            return schema.name();
+        });
+
+        final Schema schema = createSchema("test");
+        assertEquals("test", cache.get(schema));
+        assertEquals("test", cache.get(schema));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void reusesValuesForEqualSchemas() {
+        final AtomicInteger loads = new AtomicInteger();
+        final SchemaCache<Object> cache = new SchemaCache<>(schema -> {
+            loads.incrementAndGet();
+            return new Object();
+        });
+
+        final Object first = cache.get(createSchema("test"));
+        final Object second = cache.get(createSchema("test"));
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void evictsWhenFull() {
+        final AtomicInteger loads = new AtomicInteger();
+        final SchemaCache<String> cache = new SchemaCache<>(2, schema -> {
+            loads.incrementAndGet();
+            return schema.name();
+        });
+
+        cache.get(createSchema("a"));
+        cache.get(createSchema("b"));
+        cache.get(createSchema("c"));
+        assertEquals(3, loads.get());
+
+        // most recently used entries are still cached
+        cache.get(createSchema("c"));
+        cache.get(createSchema("b"));
+        assertEquals(3, loads.get());
+
+        // the least recently used entry was evicted
+        cache.get(createSchema("a"));
+        assertEquals(4, loads.get());
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * Copyright 2023 IBM Corp. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.ibm.eventstreams.kafkaconnect.plugins.xml.utils;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class XmlUtilsGuessTypeTest {
+
+    private final String input;
+    private final Object expected;
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> testCases() {
+        return Arrays.asList(new Object[][] {
+            { "true", true },
+            { "false", false },
+            { "True", "True" },
+            { "0", 0 },
+            { "-0", 0 },
+            { "123", 123 },
+            { "+123", 123 },
+            { "-123", -123 },
+            { " 123\n", 123 },
+            { "007", 7 },
+            { "2147483647", Integer.MAX_VALUE },
+            { "-2147483648", Integer.MIN_VALUE },
+            { "2147483648", 2147483648L },
+            { "12345678901", 12345678901L },
+            { "9223372036854775807", Long.MAX_VALUE },
+            { "-9223372036854775808", Long.MIN_VALUE },
+            { "9223372036854775808", 9.223372036854775808E18 },
+            { "1.5", 1.5 },
+            { "-0.25", -0.25 },
+            { ".5", 0.5 },
+            { "1.0", 1 },
+            { "1.", 1 },
+            { "1e3", 1000 },
+            { "1.5E-3", 0.0015 },
+            { "3000000000.0", 3000000000L },
+            { "1e30", 1e30 },
+            { "", "" },
+            { " ", " " },
+            { "-", "-" },
+            { ".", "." },
+            { "e5", "e5" },
+            { "1e", "1e" },
+            { "1.2.3", "1.2.3" },
+            { "12abc", "12abc" },
+            { "NaN", "NaN" },
+            { "Infinity", "Infinity" },
+            { "1d", "1d" },
+            { "0x10", "0x10" },
+            { "hello world", "hello world" }
+        });
+    }
+
+    public XmlUtilsGuessTypeTest(String input, Object expected) {
+        this.input = input;
+        this.expected = expected;
+    }
+
+    @Test
+    public void guessType() {
+        assertEquals(expected, XmlUtils.guessType(input));
+    }
+}